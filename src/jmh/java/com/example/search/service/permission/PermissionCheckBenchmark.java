@@ -0,0 +1,122 @@
+package com.example.search.service.permission;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.search.SearchDemoApplication;
+import com.example.search.model.Document;
+import com.example.search.model.DocumentPermission;
+import com.example.search.repository.DocumentPermissionRepository;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.service.index.InMemoryIndexCoordinator;
+
+/**
+ * Пропускная способность проверки прав: IN-список чанками и временная таблица (H2, профиль test)
+ * против bitmap кэша прав
+ *
+ * <p>Четные документы выданы проекту пользователя, кратные 3 - другому пользователю.
+ *
+ * <p>Запуск: {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args=PermissionCheck}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionCheckBenchmark {
+
+  private static final String USER = "bench-user";
+
+  @Param({"4000"})
+  private int documents;
+
+  private ConfigurableApplicationContext context;
+  private PermissionBatchChecker batchChecker;
+  private PermissionService permissionService;
+  private List<Long> ids;
+  private Set<String> principals;
+
+  @Setup
+  public void setUp() {
+    context =
+        new SpringApplicationBuilder(SearchDemoApplication.class)
+            .profiles("test")
+            .web(WebApplicationType.NONE)
+            .run();
+    batchChecker = context.getBean(PermissionBatchChecker.class);
+    permissionService = context.getBean(PermissionService.class);
+
+    List<Document> batch = new ArrayList<>(documents);
+    for (int i = 0; i < documents; i++) {
+      batch.add(
+          Document.builder()
+              .title("Benchmark " + i)
+              .content("Content " + i)
+              .author("author1")
+              .category("acl-benchmark")
+              .status("approved")
+              .build());
+    }
+    ids =
+        context.getBean(DocumentRepository.class).saveAll(batch).stream()
+            .map(Document::getId)
+            .toList();
+
+    List<DocumentPermission> grants = new ArrayList<>();
+    for (int i = 0; i < documents; i++) {
+      if (i % 2 == 0) {
+        grants.add(permission(ids.get(i), PermissionService.projectPrincipal("bench-team")));
+      }
+      if (i % 3 == 0) {
+        grants.add(permission(ids.get(i), PermissionService.userPrincipal("other-user")));
+      }
+    }
+    context.getBean(DocumentPermissionRepository.class).saveAll(grants);
+    permissionService.addUserToProject(USER, "bench-team");
+    context.getBean(InMemoryIndexCoordinator.class).rebuild();
+    principals = permissionService.principalsFor(USER);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<Long> chunkedIn() {
+    return batchChecker.filterVisibleChunked(ids, principals);
+  }
+
+  @Benchmark
+  public List<Long> tempTable() {
+    return batchChecker.filterVisibleWithTempTable(ids, principals);
+  }
+
+  @Benchmark
+  public List<Long> bitmapCache() {
+    return permissionService.filterByPermissions(ids, USER);
+  }
+
+  private static DocumentPermission permission(Long documentId, String principal) {
+    return DocumentPermission.builder().documentId(documentId).principal(principal).build();
+  }
+}
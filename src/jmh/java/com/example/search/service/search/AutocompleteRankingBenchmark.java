@@ -0,0 +1,102 @@
+package com.example.search.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.search.dto.response.AutocompleteResultDto;
+
+/**
+ * Сравнение ранжирования автокомплита: comparator с regex на каждое сравнение против
+ * AutocompleteRanker
+ *
+ * <p>Запуск: {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args=AutocompleteRanking}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutocompleteRankingBenchmark {
+
+  private static final String[] WORDS = {
+    "search", "engine", "java", "spring", "boot", "index", "query", "solr", "open", "type",
+    "sense", "data", "cloud", "micro", "service", "guide", "tutorial", "advanced", "intro", "api"
+  };
+
+  @Param({"10000"})
+  private int candidates;
+
+  @Param({"10", "10000"})
+  private int limit;
+
+  private List<AutocompleteResultDto> results;
+  private final String prefix = "se";
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    results = new ArrayList<>(candidates);
+    for (int i = 0; i < candidates; i++) {
+      int words = 1 + random.nextInt(5);
+      StringBuilder text = new StringBuilder();
+      for (int w = 0; w < words; w++) {
+        if (w > 0) {
+          text.append(random.nextBoolean() ? ' ' : '-');
+        }
+        text.append(WORDS[random.nextInt(WORDS.length)]);
+      }
+      results.add(AutocompleteResultDto.builder().text(text.toString()).type("title").build());
+    }
+  }
+
+  @Benchmark
+  public List<AutocompleteResultDto> precompiledRank() {
+    return AutocompleteRanker.rank(results, prefix, limit);
+  }
+
+  @Benchmark
+  public List<AutocompleteResultDto> regexComparator() {
+    String lowerPrefix = prefix.toLowerCase();
+    return results.stream()
+        .sorted(
+            (a, b) -> {
+              String aText = a.getText().toLowerCase();
+              String bText = b.getText().toLowerCase();
+
+              boolean aStartsWith = aText.startsWith(lowerPrefix);
+              boolean bStartsWith = bText.startsWith(lowerPrefix);
+              if (aStartsWith && !bStartsWith) return -1;
+              if (!aStartsWith && bStartsWith) return 1;
+
+              if (aStartsWith && bStartsWith) {
+                int lengthCompare = Integer.compare(aText.length(), bText.length());
+                if (lengthCompare != 0) return lengthCompare;
+              }
+
+              boolean aWordStart = aText.matches(".*[\\s-]" + lowerPrefix + ".*");
+              boolean bWordStart = bText.matches(".*[\\s-]" + lowerPrefix + ".*");
+              if (aWordStart && !bWordStart) return -1;
+              if (!aWordStart && bWordStart) return 1;
+
+              return aText.compareTo(bText);
+            })
+        .limit(limit)
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,143 @@
+package com.example.search.config.search;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Пул потоков для параллельных запросов к поисковым движкам (fan-out)
+ *
+ * <p>Запросы к Solr, OpenSearch и TypeSense блокирующие (HTTP клиенты), поэтому каждый идет в своем
+ * потоке пула, а вызывающий ждет не дольше дедлайна. Пул ограничен: зависший движок занимает не
+ * больше потоков, чем одновременных запросов к нему. Java 17 - виртуальных потоков нет.
+ */
+@Slf4j
+@Configuration
+public class SearchExecutorConfig {
+
+  @Value("${search.fan-out.threads:32}")
+  private int threads;
+
+  @Value("${search.reindex.writer-threads:8}")
+  private int reindexWriterThreads;
+
+  @Value("${search.bulk.threads:16}")
+  private int bulkThreads;
+
+  @Value("${search.circuit-breaker.probe-threads:4}")
+  private int probeThreads;
+
+  @Bean(name = "searchFanOutExecutor", destroyMethod = "shutdownNow")
+  public ExecutorService searchFanOutExecutor() {
+    AtomicInteger counter = new AtomicInteger();
+    ThreadFactory threadFactory =
+        runnable -> {
+          Thread thread = new Thread(runnable, "search-fan-out-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        };
+
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+    executor.allowCoreThreadTimeOut(true);
+
+    log.info("Search fan-out executor configured: threads={}", threads);
+    return executor;
+  }
+
+  /**
+   * Потоки writer-ов потоковой переиндексации: по одному на движок на время прохода. Отдельно от
+   * fan-out, чтобы долгая переиндексация не занимала потоки поисковых запросов.
+   */
+  @Bean(name = "reindexExecutor", destroyMethod = "shutdownNow")
+  public ExecutorService reindexExecutor() {
+    AtomicInteger counter = new AtomicInteger();
+    ThreadFactory threadFactory =
+        runnable -> {
+          Thread thread = new Thread(runnable, "reindex-writer-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        };
+
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            reindexWriterThreads,
+            reindexWriterThreads,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            threadFactory);
+    executor.allowCoreThreadTimeOut(true);
+
+    log.info("Reindex executor configured: threads={}", reindexWriterThreads);
+    return executor;
+  }
+
+  /**
+   * Параллельные bulk-запросы одного пакета индексации (TypeSense import, OpenSearch bulk): пакет
+   * делится на части, части уходят одновременно, не больше параллелизма движка. Отдельно от
+   * writer-ов переиндексации - writer ждет свои части в этом пуле.
+   */
+  @Bean(name = "bulkIndexExecutor", destroyMethod = "shutdownNow")
+  public ExecutorService bulkIndexExecutor() {
+    AtomicInteger counter = new AtomicInteger();
+    ThreadFactory threadFactory =
+        runnable -> {
+          Thread thread = new Thread(runnable, "bulk-index-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        };
+
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            bulkThreads,
+            bulkThreads,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            threadFactory);
+    executor.allowCoreThreadTimeOut(true);
+
+    log.info("Bulk index executor configured: threads={}", bulkThreads);
+    return executor;
+  }
+
+  /**
+   * Half-open пробы circuit breakers (CircuitBreakerProbe): isAvailable() движка ждет до connect
+   * timeout. Пробы идут здесь, а не в общем потоке @Scheduled - зависший движок не задерживает
+   * drain outbox и анализ запросов, пробы разных движков не ждут друг друга.
+   */
+  @Bean(name = "circuitProbeExecutor", destroyMethod = "shutdownNow")
+  public ExecutorService circuitProbeExecutor() {
+    AtomicInteger counter = new AtomicInteger();
+    ThreadFactory threadFactory =
+        runnable -> {
+          Thread thread = new Thread(runnable, "circuit-probe-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        };
+
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            probeThreads,
+            probeThreads,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            threadFactory);
+    executor.allowCoreThreadTimeOut(true);
+
+    log.info("Circuit probe executor configured: threads={}", probeThreads);
+    return executor;
+  }
+}
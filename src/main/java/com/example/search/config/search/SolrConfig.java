@@ -13,6 +13,8 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.example.search.service.search.SolrStreamingClient;
+
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -54,6 +56,12 @@ public class SolrConfig {
   @Value("${search.solr.eviction-time:30000}")
   private long evictionTime;
 
+  @Value("${search.solr.streaming.queue-size:1000}")
+  private int streamingQueueSize;
+
+  @Value("${search.solr.streaming.threads:4}")
+  private int streamingThreads;
+
   /** Настройка connection pool manager для эффективного управления соединениями */
   @Bean(destroyMethod = "close")
   public PoolingHttpClientConnectionManager connectionManager() {
@@ -124,15 +132,7 @@ public class SolrConfig {
   @ConditionalOnProperty(name = "search.solr.enabled", havingValue = "true", matchIfMissing = true)
   @SuppressWarnings("deprecation")
   public SolrClient solrClient(CloseableHttpClient httpClient) {
-    // Убеждаемся, что URL заканчивается на /solr (без core/collection)
-    String baseUrl;
-    if (solrUrl.endsWith("/solr")) {
-      baseUrl = solrUrl;
-    } else if (solrUrl.endsWith("/")) {
-      baseUrl = solrUrl + "solr";
-    } else {
-      baseUrl = solrUrl + "/solr";
-    }
+    String baseUrl = baseUrl();
 
     HttpSolrClient client =
         new HttpSolrClient.Builder(baseUrl)
@@ -145,4 +145,31 @@ public class SolrConfig {
 
     return client;
   }
+
+  /**
+   * Клиенты потоковой индексации (SolrSearchService.writeBatch): на каждый проход переиндексации -
+   * свой клиент с ограниченной очередью документов и search.solr.streaming.threads runner-потоками,
+   * каждый держит открытый update-запрос и пишет в него javabin-поток. Соединения - из общего пула
+   * httpClient.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "search.solr.enabled", havingValue = "true", matchIfMissing = true)
+  public SolrStreamingClient.Factory solrStreamingClientFactory(CloseableHttpClient httpClient) {
+    log.info(
+        "Solr streaming configured: queueSize={}, threads={}",
+        streamingQueueSize,
+        streamingThreads);
+    return new SolrStreamingClient.Factory(
+        baseUrl(), httpClient, streamingQueueSize, streamingThreads);
+  }
+
+  /** URL, заканчивающийся на /solr (без core/collection) */
+  private String baseUrl() {
+    if (solrUrl.endsWith("/solr")) {
+      return solrUrl;
+    } else if (solrUrl.endsWith("/")) {
+      return solrUrl + "solr";
+    }
+    return solrUrl + "/solr";
+  }
 }
@@ -19,6 +19,7 @@ public final class DocumentConstants {
   public static final String CATEGORY_APPROVAL = "approval";
 
   // Поля для сортировки и поиска
+  public static final String FIELD_ID = "id";
   public static final String FIELD_TITLE = "title";
   public static final String FIELD_AUTHOR = "author";
   public static final String FIELD_CATEGORY = "category";
@@ -0,0 +1,17 @@
+package com.example.search.constants;
+
+/** Константы модели прав доступа (ACL) */
+public final class PermissionConstants {
+
+  private PermissionConstants() {
+    // Utility class
+  }
+
+  // Субъекты (principal) в document_permissions и в поле acl поисковых движков
+  public static final String PRINCIPAL_PUBLIC = "public";
+  public static final String PRINCIPAL_USER_PREFIX = "user:";
+  public static final String PRINCIPAL_PROJECT_PREFIX = "project:";
+
+  // Поле ACL в поисковых движках (multi-valued, точное совпадение)
+  public static final String FIELD_ACL = "acl";
+}
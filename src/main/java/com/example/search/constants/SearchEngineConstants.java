@@ -0,0 +1,27 @@
+package com.example.search.constants;
+
+/** Константы поисковых движков */
+public final class SearchEngineConstants {
+
+  private SearchEngineConstants() {
+    // Utility class
+  }
+
+  // Имена движков
+  public static final String ENGINE_SOLR = "solr";
+  public static final String ENGINE_OPENSEARCH = "opensearch";
+  public static final String ENGINE_TYPESENSE = "typesense";
+  public static final String ENGINE_JPA = "jpa";
+
+  // Операции (маршрутизация, метрики)
+  public static final String OPERATION_SEARCH = "search";
+  public static final String OPERATION_FILTER = "filter";
+  public static final String OPERATION_AUTOCOMPLETE = "autocomplete";
+  public static final String OPERATION_FACETS = "facets";
+
+  // Статус ответа движка при fan-out запросе
+  public static final String STATUS_OK = "OK";
+  public static final String STATUS_TIMEOUT = "TIMEOUT";
+  public static final String STATUS_ERROR = "ERROR";
+  public static final String STATUS_CIRCUIT_OPEN = "CIRCUIT_OPEN";
+}
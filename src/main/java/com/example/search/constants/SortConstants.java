@@ -27,4 +27,7 @@ public final class SortConstants {
   public static final String SORT_BY_AUTHOR = "author";
   public static final String SORT_BY_CATEGORY = "category";
   public static final String SORT_BY_STATUS = "status";
+
+  // Сортировка по BM25 score (не поле БД - обрабатывается RelevanceSearchService)
+  public static final String SORT_BY_RELEVANCE = "relevance";
 }
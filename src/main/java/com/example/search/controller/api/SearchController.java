@@ -20,6 +20,7 @@ import com.example.search.dto.response.SearchComparisonDto;
 import com.example.search.dto.response.SearchResultDto;
 import com.example.search.model.Document;
 import com.example.search.service.document.DocumentService;
+import com.example.search.service.indexing.ReindexJobService;
 import com.example.search.service.search.SearchService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -59,6 +60,7 @@ public class SearchController {
 
   private final DocumentService documentService;
   private final SearchService searchService;
+  private final ReindexJobService reindexJobService;
 
   // === CRUD Операции ===
 
@@ -221,6 +223,10 @@ public class SearchController {
       - Результаты поиска для каждого движка
       - Время выполнения каждого запроса
       - Релевантность (scores)
+      - Статус каждого движка (OK, TIMEOUT, ERROR, CIRCUIT_OPEN)
+
+      Движки опрашиваются параллельно с дедлайном на каждый
+      (search.compare.engine-timeout-ms), общее время - время самого медленного.
 
       Типичные результаты:
       - TypeSense: 5-20ms (самый быстрый, in-memory)
@@ -242,17 +248,21 @@ public class SearchController {
     // Выводим результаты в лог для анализа
     log.info("⏱ Performance results:");
     log.info(
-        "   Solr:       {}ms ({} results)",
+        "   Solr:       {}ms ({} results, {})",
         comparison.getSolrTime(),
-        comparison.getSolrResults().size());
+        comparison.getSolrResults().size(),
+        comparison.getSolrStatus());
     log.info(
-        "   OpenSearch: {}ms ({} results)",
+        "   OpenSearch: {}ms ({} results, {})",
         comparison.getOpenSearchTime(),
-        comparison.getOpenSearchResults().size());
+        comparison.getOpenSearchResults().size(),
+        comparison.getOpenSearchStatus());
     log.info(
-        "   TypeSense:  {}ms ({} results)",
+        "   TypeSense:  {}ms ({} results, {})",
         comparison.getTypeSenseTime(),
-        comparison.getTypeSenseResults().size());
+        comparison.getTypeSenseResults().size(),
+        comparison.getTypeSenseStatus());
+    log.info("   Total:      {}ms (parallel)", comparison.getTotalTime());
 
     return ResponseEntity.ok(comparison);
   }
@@ -279,13 +289,60 @@ public class SearchController {
   @Operation(
       summary = "Реиндексировать все документы",
       description =
-          "Реиндексирует все документы во все поисковые движки. Может занять время при большом"
-              + " количестве документов.")
-  @ApiResponse(responseCode = "200", description = "Результат реиндексации")
+          "Запускает фоновую задачу переиндексации во все поисковые движки и сразу возвращает ее"
+              + " статус (jobId). Если задача уже выполняется - возвращает ее статус. rebuild=true -"
+              + " запись в новую версию индексов и атомарное переключение alias в конце.")
+  @ApiResponse(responseCode = "200", description = "Статус задачи реиндексации")
   @PostMapping("/reindex")
-  public ResponseEntity<ReindexResultDto> reindexAll() {
-    log.info("REST API: Reindexing all documents");
-    ReindexResultDto result = searchService.reindexAll();
+  public ResponseEntity<ReindexResultDto> reindexAll(
+      @Parameter(description = "Перестройка в новую версию индексов (blue/green)")
+          @RequestParam(required = false)
+          Boolean rebuild) {
+    log.info("REST API: Reindexing all documents (rebuild: {})", rebuild);
+    ReindexResultDto result = searchService.reindexAll(rebuild);
     return ResponseEntity.ok(result);
   }
+
+  @Operation(summary = "Задачи реиндексации", description = "Последние задачи, новые первыми")
+  @GetMapping("/reindex/jobs")
+  public ResponseEntity<List<ReindexResultDto>> getReindexJobs() {
+    return ResponseEntity.ok(reindexJobService.getRecentJobs());
+  }
+
+  @Operation(
+      summary = "Статус задачи реиндексации",
+      description = "Прогресс по движкам, docs/sec и текущий размер батча")
+  @GetMapping("/reindex/jobs/{jobId}")
+  public ResponseEntity<ReindexResultDto> getReindexJob(
+      @Parameter(description = "ID задачи", required = true) @PathVariable Long jobId) {
+    return ResponseEntity.ok(reindexJobService.getJob(jobId));
+  }
+
+  @Operation(
+      summary = "Приостановить реиндексацию",
+      description = "Движки дописывают уже прочитанные батчи, позиции сохраняются")
+  @PostMapping("/reindex/jobs/{jobId}/pause")
+  public ResponseEntity<ReindexResultDto> pauseReindex(
+      @Parameter(description = "ID задачи", required = true) @PathVariable Long jobId) {
+    log.info("REST API: Pausing reindex job {}", jobId);
+    return ResponseEntity.ok(reindexJobService.pause(jobId));
+  }
+
+  @Operation(
+      summary = "Продолжить реиндексацию",
+      description = "Продолжает приостановленную или упавшую задачу с контрольных точек")
+  @PostMapping("/reindex/jobs/{jobId}/resume")
+  public ResponseEntity<ReindexResultDto> resumeReindex(
+      @Parameter(description = "ID задачи", required = true) @PathVariable Long jobId) {
+    log.info("REST API: Resuming reindex job {}", jobId);
+    return ResponseEntity.ok(reindexJobService.resume(jobId));
+  }
+
+  @Operation(summary = "Отменить реиндексацию", description = "Отмененную задачу продолжить нельзя")
+  @PostMapping("/reindex/jobs/{jobId}/cancel")
+  public ResponseEntity<ReindexResultDto> cancelReindex(
+      @Parameter(description = "ID задачи", required = true) @PathVariable Long jobId) {
+    log.info("REST API: Cancelling reindex job {}", jobId);
+    return ResponseEntity.ok(reindexJobService.cancel(jobId));
+  }
 }
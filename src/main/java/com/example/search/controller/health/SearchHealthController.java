@@ -9,9 +9,15 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.search.constants.DocumentConstants;
+import com.example.search.constants.SearchEngineConstants;
 import com.example.search.service.monitoring.QueryFrequencyAnalyzer;
 import com.example.search.service.monitoring.SearchMetricsService;
+import com.example.search.service.permission.PermissionBitmapCache;
+import com.example.search.service.routing.AdaptiveRoutingPolicy;
+import com.example.search.service.routing.CircuitBreakerRegistry;
+import com.example.search.service.routing.CircuitState;
 import com.example.search.service.search.OpenSearchService;
+import com.example.search.service.search.SearchEngine;
 import com.example.search.service.search.SolrSearchService;
 import com.example.search.service.search.TypeSenseService;
 
@@ -38,6 +44,9 @@ public class SearchHealthController {
   private final TypeSenseService typeSenseService;
   private final SearchMetricsService metricsService;
   private final QueryFrequencyAnalyzer queryFrequencyAnalyzer;
+  private final AdaptiveRoutingPolicy routingPolicy;
+  private final CircuitBreakerRegistry circuitBreakers;
+  private final PermissionBitmapCache permissionBitmapCache;
 
   @Operation(summary = "Проверка здоровья всех поисковых движков")
   @GetMapping("/search-engines")
@@ -52,7 +61,9 @@ public class SearchHealthController {
             "status",
             solrHealthy ? DocumentConstants.HEALTH_STATUS_UP : DocumentConstants.HEALTH_STATUS_DOWN,
             "url",
-            "http://localhost:8983/solr"));
+            "http://localhost:8983/solr",
+            "circuit",
+            circuitBreakers.getState(SearchEngineConstants.ENGINE_SOLR).name()));
 
     // Проверка OpenSearch
     boolean openSearchHealthy = checkOpenSearch();
@@ -64,7 +75,9 @@ public class SearchHealthController {
                 ? DocumentConstants.HEALTH_STATUS_UP
                 : DocumentConstants.HEALTH_STATUS_DOWN,
             "url",
-            "http://localhost:9200"));
+            "http://localhost:9200",
+            "circuit",
+            circuitBreakers.getState(SearchEngineConstants.ENGINE_OPENSEARCH).name()));
 
     // Проверка TypeSense
     boolean typeSenseHealthy = checkTypeSense();
@@ -76,7 +89,9 @@ public class SearchHealthController {
                 ? DocumentConstants.HEALTH_STATUS_UP
                 : DocumentConstants.HEALTH_STATUS_DOWN,
             "url",
-            "http://localhost:8108"));
+            "http://localhost:8108",
+            "circuit",
+            circuitBreakers.getState(SearchEngineConstants.ENGINE_TYPESENSE).name()));
 
     // Общий статус
     boolean allHealthy = solrHealthy && openSearchHealthy && typeSenseHealthy;
@@ -90,6 +105,9 @@ public class SearchHealthController {
             "message",
             allHealthy ? "All search engines are healthy" : "Some search engines are unavailable"));
 
+    // Circuit breakers: открытая цепь - запросы к движку отклоняются без сетевого вызова
+    health.put("circuitBreakers", circuitBreakers.snapshot());
+
     return ResponseEntity.ok(health);
   }
 
@@ -131,6 +149,21 @@ public class SearchHealthController {
             "slowQueryCount",
             metricsService.getSlowQueryCount("facets")));
 
+    // Hedged запросы (режим RACE): сколько отправлено и сколько ответили раньше основного
+    metrics.put(
+        "hedging",
+        Map.of(
+            "hedgesFired",
+            metricsService.getHedgesFired(SearchEngineConstants.OPERATION_SEARCH),
+            "hedgesWon",
+            metricsService.getHedgesWon(SearchEngineConstants.OPERATION_SEARCH)));
+
+    // Адаптивная маршрутизация: статистика и веса движков, кого выбирали основным
+    metrics.put("routing", routingPolicy.snapshot());
+
+    // Кэш прав: bitmap видимых документов на набор субъектов (попадания, вытеснения, сбросы)
+    metrics.put("permissionCache", permissionBitmapCache.snapshot());
+
     return ResponseEntity.ok(metrics);
   }
 
@@ -176,36 +209,31 @@ public class SearchHealthController {
   }
 
   private boolean checkSolr() {
-    try {
-      // В production можно использовать ping endpoint
-      // Сейчас проверяем через попытку поиска
-      solrSearchService.search("health_check");
-      return true;
-    } catch (Exception e) {
-      log.warn("Solr health check failed: {}", e.getMessage());
-      return false;
-    }
+    return checkEngine(solrSearchService);
   }
 
   private boolean checkOpenSearch() {
-    try {
-      // Проверка через попытку поиска
-      openSearchService.search("health_check");
-      return true;
-    } catch (Exception e) {
-      log.warn("OpenSearch health check failed: {}", e.getMessage());
-      return false;
-    }
+    return checkEngine(openSearchService);
   }
 
   private boolean checkTypeSense() {
-    try {
-      // Проверка через попытку поиска
-      typeSenseService.search("health_check");
-      return true;
-    } catch (Exception e) {
-      log.warn("TypeSense health check failed: {}", e.getMessage());
+    return checkEngine(typeSenseService);
+  }
+
+  /**
+   * Проверка движка через isAvailable()
+   *
+   * <p>При открытой цепи движок считается недоступным без сетевого вызова - его проверяет
+   * CircuitBreakerProbe.
+   */
+  private boolean checkEngine(SearchEngine engine) {
+    if (circuitBreakers.getState(engine.getName()) != CircuitState.CLOSED) {
       return false;
     }
+    boolean available = engine.isAvailable();
+    if (!available) {
+      log.warn("{} health check failed", engine.getName());
+    }
+    return available;
   }
 }
@@ -97,7 +97,15 @@ public class DocumentSearchRequest {
   @Schema(
       description = "Поле для сортировки",
       example = "createdAt",
-      allowableValues = {"title", "createdAt", "updatedAt", "author", "category", "status"})
+      allowableValues = {
+        "title",
+        "createdAt",
+        "updatedAt",
+        "author",
+        "category",
+        "status",
+        "relevance"
+      })
   private String sortBy;
 
   @Schema(
@@ -106,4 +114,16 @@ public class DocumentSearchRequest {
       allowableValues = {"ASC", "DESC"},
       defaultValue = "DESC")
   private String sortOrder;
+
+  @Schema(
+      description =
+          "Курсор keyset-пагинации (nextCursor из предыдущего ответа). Если задан, page"
+              + " игнорируется; поддерживается сортировка по createdAt/updatedAt",
+      example = "djF8Y3JlYXRlZEF0fERFU0N8MjAyNC0wMS0wMVQwMDowMHw0Mg")
+  private String cursor;
+
+  @Schema(
+      description = "Подсчитать totalElements в режиме курсора (отдельный COUNT запрос)",
+      defaultValue = "false")
+  private Boolean includeTotal;
 }
@@ -8,4 +8,6 @@ import lombok.Data;
 public class PaginationInputDto {
   private Integer page;
   private Integer size;
+  private String after;
+  private Boolean includeTotal;
 }
@@ -16,4 +16,5 @@ public class DocumentSearchResponse {
   private Integer pageSize;
   private Boolean hasNext;
   private Boolean hasPrevious;
+  private String nextCursor; // курсор следующей страницы (null - последняя или sort без keyset)
 }
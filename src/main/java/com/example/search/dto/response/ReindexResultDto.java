@@ -10,8 +10,14 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class ReindexResultDto {
+  private Long jobId;
+  private String status; // ReindexJobStatus
+  private Boolean rebuild; // новая версия индексов с переключением в конце
   private Integer totalDocuments;
   private Integer successCount;
   private Integer failureCount;
+  private Integer durationMs;
+  private Double documentsPerSecond;
+  private Integer batchSize; // текущий адаптивный размер батча
   private String message;
 }
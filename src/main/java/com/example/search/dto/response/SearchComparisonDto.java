@@ -19,4 +19,12 @@ public class SearchComparisonDto {
   private Integer solrTime;
   private Integer openSearchTime;
   private Integer typeSenseTime;
+
+  // Статус движка: OK, TIMEOUT (не уложился в дедлайн), ERROR, CIRCUIT_OPEN (пропущен)
+  private String solrStatus;
+  private String openSearchStatus;
+  private String typeSenseStatus;
+
+  // Общее время сравнения (движки опрашиваются параллельно)
+  private Integer totalTime;
 }
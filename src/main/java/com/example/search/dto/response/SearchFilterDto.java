@@ -6,7 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class SearchFilterDto {
   private String query; // поисковый запрос
   private String category; // фильтр по категории
@@ -16,6 +16,8 @@ public class SearchFilterDto {
   private String sortOrder; // "ASC" или "DESC"
   private Integer page; // номер страницы (начиная с 0)
   private Integer size; // размер страницы
+  private String cursor; // курсор keyset-пагинации (вместо page)
+  private Boolean includeTotal; // считать totalElements в режиме курсора
 
   // Поиск по датам
   private LocalDateTime createdAfter; // документы созданные после этой даты
@@ -18,4 +18,5 @@ public class SearchResultPageDto {
   private Boolean hasNext; // есть ли следующая страница
   private Boolean hasPrevious; // есть ли предыдущая страница
   private SearchFacetsDto facets; // группировка результатов для фильтрации
+  private String nextCursor; // курсор следующей страницы (keyset-пагинация)
 }
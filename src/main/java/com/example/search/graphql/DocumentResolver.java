@@ -1,7 +1,6 @@
 package com.example.search.graphql;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
@@ -21,6 +20,7 @@ import com.example.search.dto.response.SearchResultDto;
 import com.example.search.dto.response.SearchResultPageDto;
 import com.example.search.model.Document;
 import com.example.search.service.document.DocumentService;
+import com.example.search.service.indexing.ReindexJobService;
 import com.example.search.service.monitoring.SearchMetricsService;
 import com.example.search.service.permission.PermissionService;
 import com.example.search.service.search.SearchService;
@@ -35,6 +35,7 @@ public class DocumentResolver {
 
   private final DocumentService documentService;
   private final SearchService searchService;
+  private final ReindexJobService reindexJobService;
   private final com.example.search.service.search.UnifiedSearchService unifiedSearchService;
   private final PermissionService permissionService;
   private final SearchMetricsService metricsService;
@@ -47,14 +48,8 @@ public class DocumentResolver {
 
     List<Document> documents = documentService.getAllDocuments();
 
-    // Фильтруем по правам доступа
-    List<Long> documentIds = documents.stream().map(Document::getId).collect(Collectors.toList());
-
-    List<Long> allowedIds = permissionService.filterByPermissions(documentIds, userId);
-
-    return documents.stream()
-        .filter(doc -> allowedIds.contains(doc.getId()))
-        .collect(Collectors.toList());
+    // Фильтруем по правам доступа (bitmap кэш прав, одно пересечение)
+    return permissionService.filterDocuments(documents, userId);
   }
 
   /** Получить документ по ID (с проверкой прав доступа) */
@@ -147,6 +142,8 @@ public class DocumentResolver {
     if (input.getPagination() != null) {
       builder.page(input.getPagination().getPage());
       builder.size(input.getPagination().getSize());
+      builder.cursor(input.getPagination().getAfter());
+      builder.includeTotal(input.getPagination().getIncludeTotal());
     }
 
     // Конвертация диапазона дат
@@ -179,7 +176,7 @@ public class DocumentResolver {
       case "STATUS":
         return SortConstants.SORT_BY_STATUS;
       case "RELEVANCE":
-        return SortConstants.SORT_BY_CREATED_AT; // по умолчанию
+        return SortConstants.SORT_BY_RELEVANCE;
       default:
         return SortConstants.SORT_BY_CREATED_AT;
     }
@@ -188,22 +185,27 @@ public class DocumentResolver {
   /** Автокомплит для поиска (оптимизированный, с релевантностью) */
   @QueryMapping
   public List<AutocompleteResultDto> autocomplete(
-      @Argument String prefix, @Argument String type, @Argument Integer limit) {
+      @Argument String prefix,
+      @Argument String type,
+      @Argument Integer limit,
+      @Argument Boolean fuzzy) {
     String userId = GraphQLContext.getCurrentUserId();
     long startTime = System.currentTimeMillis();
 
     log.info(
-        "Autocomplete request from user {}: prefix={}, type={}, limit={}",
+        "Autocomplete request from user {}: prefix={}, type={}, limit={}, fuzzy={}",
         userId,
         prefix,
         type,
-        limit);
+        limit,
+        fuzzy);
 
     try {
       // Используем UnifiedSearchService для автокомплита с relevance tuning
       // Оптимизации: кэширование, relevance scoring, permission-aware
       List<AutocompleteResultDto> results =
-          unifiedSearchService.autocomplete(prefix, type, limit, userId);
+          unifiedSearchService.autocomplete(
+              prefix, type, limit, userId, Boolean.TRUE.equals(fuzzy));
 
       long duration = System.currentTimeMillis() - startTime;
       log.info("Autocomplete completed in {}ms, returned {} results", duration, results.size());
@@ -290,8 +292,36 @@ public class DocumentResolver {
   }
 
   @MutationMapping
-  public ReindexResultDto reindexAll() {
-    log.info("Reindexing all documents");
-    return searchService.reindexAll();
+  public ReindexResultDto reindexAll(@Argument Boolean rebuild) {
+    log.info("Reindexing all documents (rebuild: {})", rebuild);
+    return searchService.reindexAll(rebuild);
+  }
+
+  @QueryMapping
+  public ReindexResultDto reindexJob(@Argument Long jobId) {
+    return reindexJobService.getJob(jobId);
+  }
+
+  @QueryMapping
+  public List<ReindexResultDto> reindexJobs() {
+    return reindexJobService.getRecentJobs();
+  }
+
+  @MutationMapping
+  public ReindexResultDto pauseReindex(@Argument Long jobId) {
+    log.info("Pausing reindex job {}", jobId);
+    return reindexJobService.pause(jobId);
+  }
+
+  @MutationMapping
+  public ReindexResultDto resumeReindex(@Argument Long jobId) {
+    log.info("Resuming reindex job {}", jobId);
+    return reindexJobService.resume(jobId);
+  }
+
+  @MutationMapping
+  public ReindexResultDto cancelReindex(@Argument Long jobId) {
+    log.info("Cancelling reindex job {}", jobId);
+    return reindexJobService.cancel(jobId);
   }
 }
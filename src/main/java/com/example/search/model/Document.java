@@ -1,6 +1,7 @@
 package com.example.search.model;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -48,12 +49,21 @@ public class Document {
 
   @PrePersist
   protected void onCreate() {
-    createdAt = LocalDateTime.now();
-    updatedAt = LocalDateTime.now();
+    createdAt = now();
+    updatedAt = now();
   }
 
   @PreUpdate
   protected void onUpdate() {
-    updatedAt = LocalDateTime.now();
+    updatedAt = now();
+  }
+
+  /**
+   * Текущее время с точностью TIMESTAMP в БД (микросекунды): сущность после save и in-memory
+   * индексы, получившие ее из события, видят то же значение, что и строка после чтения из БД (БД
+   * округляет наносекунды, а не отбрасывает) - иначе keyset-курсор по дате расходится на 1 мкс
+   */
+  private static LocalDateTime now() {
+    return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
   }
 }
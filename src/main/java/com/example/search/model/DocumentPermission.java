@@ -0,0 +1,40 @@
+package com.example.search.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Право на просмотр документа (строка ACL)
+ *
+ * <p>principal - субъект доступа: "user:{id}", "project:{id}" (участники проекта, user_projects)
+ * или "public" (PermissionConstants). Документ без строк в document_permissions - публичный; с хотя
+ * бы одной строкой - виден только перечисленным субъектам.
+ */
+@Entity
+@Table(
+    name = "document_permissions",
+    uniqueConstraints = {
+      @UniqueConstraint(
+          name = "uk_document_permission",
+          columnNames = {"document_id", "principal"})
+    },
+    indexes = {@Index(name = "idx_permission_principal", columnList = "principal, document_id")})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentPermission {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "document_id", nullable = false)
+  private Long documentId;
+
+  @Column(nullable = false)
+  private String principal;
+}
@@ -0,0 +1,9 @@
+package com.example.search.model;
+
+/** Операция над документом в поисковых движках (запись outbox) */
+public enum IndexOperation {
+  /** Записать текущее состояние документа из БД (create, update, смена прав) */
+  UPSERT,
+  /** Удалить документ из индексов */
+  DELETE
+}
@@ -0,0 +1,60 @@
+package com.example.search.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Запись transactional outbox: документ нужно переиндексировать в одном движке
+ *
+ * <p>Пишется в той же транзакции, что и изменение документа (по строке на движок), поэтому
+ * изменение без записи (или запись без изменения) невозможно. Документ в запись не копируется:
+ * OutboxIndexer читает текущее состояние строки documents при отправке. Движки продвигаются
+ * независимо: недоступный движок не задерживает и не отменяет доставку в остальные.
+ *
+ * <p>attempts - отказы движка принять именно этот документ; записи с attempts >=
+ * search.outbox.max-attempts больше не отправляются и остаются в таблице для разбора (движок
+ * догонит reindexAll). Недоступность движка попыткой не считается.
+ */
+@Entity
+@Table(
+    name = "index_outbox",
+    indexes = {
+      @Index(name = "idx_index_outbox_engine_attempts", columnList = "engine, attempts, id")
+    })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexOutboxEntry {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "document_id", nullable = false)
+  private Long documentId;
+
+  /** Движок назначения (SearchEngineConstants.ENGINE_*) */
+  @Column(nullable = false, length = 20)
+  private String engine;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 10)
+  private IndexOperation operation;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  @Column(name = "created_at")
+  private LocalDateTime createdAt;
+
+  @PrePersist
+  protected void onCreate() {
+    createdAt = LocalDateTime.now();
+  }
+}
@@ -0,0 +1,54 @@
+package com.example.search.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Контрольная точка движка в задаче переиндексации
+ *
+ * <p>lastDocumentId - id последнего документа записанного батча: документы идут по возрастанию id,
+ * поэтому все id <= lastDocumentId движок уже получил. Resume читает таблицу после минимальной
+ * точки среди движков, а каждый движок пропускает то, что у него уже есть.
+ */
+@Entity
+@Table(
+    name = "reindex_checkpoints",
+    uniqueConstraints = {
+      @UniqueConstraint(
+          name = "uk_reindex_checkpoint",
+          columnNames = {"job_id", "engine"})
+    })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReindexCheckpoint {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "job_id", nullable = false)
+  private Long jobId;
+
+  @Column(nullable = false, length = 50)
+  private String engine;
+
+  @Column(length = 200)
+  private String target; // индекс записи: живой или версия перестройки
+
+  @Column(name = "last_document_id")
+  private long lastDocumentId;
+
+  @Column(name = "indexed_count")
+  private long indexedCount;
+
+  @Column(name = "failed_count")
+  private long failedCount;
+
+  @Column(nullable = false)
+  private boolean promoted; // перестройка: версия уже переключена на живое имя
+}
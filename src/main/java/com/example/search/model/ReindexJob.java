@@ -0,0 +1,74 @@
+package com.example.search.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Фоновая задача переиндексации всех документов
+ *
+ * <p>Позиция каждого движка хранится отдельно (ReindexCheckpoint), поэтому пауза или рестарт
+ * приложения не теряют прогресс. Размер батча адаптивный и тоже сохраняется: после resume задача
+ * продолжает с подобранного размера.
+ *
+ * <p>Перестройка (rebuild) пишет не в живые индексы, а в новую версию каждого движка
+ * (DocumentIndexer.createVersion) и в конце переключает на нее живое имя.
+ */
+@Entity
+@Table(name = "reindex_jobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReindexJob {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false, length = 20)
+  private ReindexJobStatus status;
+
+  @Column(nullable = false)
+  private boolean rebuild; // запись в новую версию индексов с переключением alias в конце
+
+  @Column(length = 50)
+  private String version; // суффикс версии индексов при перестройке
+
+  @Column(name = "total_documents")
+  private long totalDocuments; // документов в таблице на момент старта
+
+  @Column(name = "batch_size")
+  private int batchSize; // текущий адаптивный размер keyset-батча
+
+  @Column(name = "active_millis")
+  private long activeMillis; // время в состоянии RUNNING (без пауз), для docs/sec
+
+  @Column(length = 1000)
+  private String message;
+
+  @Column(name = "created_at")
+  private LocalDateTime createdAt;
+
+  @Column(name = "updated_at")
+  private LocalDateTime updatedAt;
+
+  @Column(name = "finished_at")
+  private LocalDateTime finishedAt;
+
+  @PrePersist
+  protected void onCreate() {
+    createdAt = LocalDateTime.now();
+    updatedAt = createdAt;
+  }
+
+  @PreUpdate
+  protected void onUpdate() {
+    updatedAt = LocalDateTime.now();
+  }
+}
@@ -0,0 +1,20 @@
+package com.example.search.model;
+
+/** Состояние задачи переиндексации */
+public enum ReindexJobStatus {
+  /** Выполняется (после рестарта приложения продолжается с контрольных точек) */
+  RUNNING,
+  /** Остановлена по запросу; продолжается resume с контрольных точек */
+  PAUSED,
+  /** Отменена; продолжить нельзя */
+  CANCELLED,
+  /** Все документы записаны, движки закоммичены */
+  COMPLETED,
+  /** Проход прерван ошибкой; продолжается resume с контрольных точек */
+  FAILED;
+
+  /** Задачу можно продолжить с контрольных точек */
+  public boolean isResumable() {
+    return this == PAUSED || this == FAILED;
+  }
+}
@@ -0,0 +1,29 @@
+package com.example.search.model;
+
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Subselect;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Кандидат текстового поиска во временной таблице search_match_ids
+ *
+ * <p>Таблица локальна для соединения и заполняется DocumentCustomRepositoryImpl перед запросом,
+ * если совпадений индекса больше search.index.max-id-filter. Сущность только для чтения и без DDL
+ * (Subselect): через нее Criteria запрос ссылается на таблицу подзапросом {@code id IN (SELECT id
+ * FROM search_match_ids)}.
+ */
+@Entity
+@Immutable
+@Subselect("SELECT id FROM " + SearchMatch.TABLE)
+@Getter
+@NoArgsConstructor
+public class SearchMatch {
+
+  public static final String TABLE = "search_match_ids";
+
+  @Id private Long id;
+}
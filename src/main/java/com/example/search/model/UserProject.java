@@ -0,0 +1,38 @@
+package com.example.search.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Участие пользователя в проекте
+ *
+ * <p>Пользователь видит документы, выданные его проектам: каждая строка дает ему субъект
+ * "project:{projectId}" (PermissionService.principalsFor).
+ */
+@Entity
+@Table(
+    name = "user_projects",
+    uniqueConstraints = {
+      @UniqueConstraint(
+          name = "uk_user_project",
+          columnNames = {"user_id", "project_id"})
+    })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserProject {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "user_id", nullable = false)
+  private String userId;
+
+  @Column(name = "project_id", nullable = false)
+  private String projectId;
+}
@@ -0,0 +1,142 @@
+package com.example.search.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+
+import com.example.search.constants.DocumentConstants;
+import com.example.search.constants.SortConstants;
+import com.example.search.model.Document;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Курсор keyset-пагинации (search_after): последняя пара (sortKey, id) страницы
+ *
+ * <p>Следующая страница выбирается условием {@code (sortKey, id) < (:sortKey, :id)} (для ASC -
+ * {@code >}) вместо OFFSET, поэтому стоимость не зависит от глубины и использует индексы
+ * idx_created_at / idx_updated_at. id - tie-breaker для документов с одинаковой датой.
+ *
+ * <p>Поддерживается только сортировка по createdAt / updatedAt. Клиенту курсор отдается как
+ * непрозрачная base64url строка; поле и направление сортировки зашиты в курсор и проверяются при
+ * следующем запросе.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class DocumentCursor {
+
+  private static final String VERSION = "v1";
+  private static final String SEPARATOR = "|";
+
+  private static final List<String> KEYSET_FIELDS =
+      List.of(SortConstants.SORT_BY_CREATED_AT, SortConstants.SORT_BY_UPDATED_AT);
+
+  private final String sortField;
+  private final Sort.Direction direction;
+  private final LocalDateTime sortValue;
+  private final long id;
+
+  /** Можно ли листать keyset-курсором при сортировке по этому полю */
+  public static boolean supports(String sortField) {
+    return KEYSET_FIELDS.contains(sortField);
+  }
+
+  /**
+   * Добавить id как tie-breaker для keyset-совместимой сортировки
+   *
+   * <p>Без него порядок документов с одинаковой датой не определен и курсор, выданный offset
+   * страницей, может пропустить или повторить документы.
+   */
+  public static Sort withTieBreaker(Sort sort) {
+    Sort.Order order = sort.iterator().hasNext() ? sort.iterator().next() : null;
+    if (order == null || !supports(order.getProperty())) {
+      return sort;
+    }
+    return sort.and(Sort.by(order.getDirection(), DocumentConstants.FIELD_ID));
+  }
+
+  /**
+   * Курсор на следующую страницу
+   *
+   * @return null если страница последняя или сортировка не поддерживает keyset
+   */
+  public static String next(List<Document> page, Sort sort, boolean hasNext) {
+    if (!hasNext || page.isEmpty() || !sort.iterator().hasNext()) {
+      return null;
+    }
+    Sort.Order order = sort.iterator().next();
+    if (!supports(order.getProperty())) {
+      return null;
+    }
+
+    Document last = page.get(page.size() - 1);
+    LocalDateTime value =
+        SortConstants.SORT_BY_UPDATED_AT.equals(order.getProperty())
+            ? last.getUpdatedAt()
+            : last.getCreatedAt();
+    if (value == null || last.getId() == null) {
+      return null;
+    }
+    return new DocumentCursor(order.getProperty(), order.getDirection(), value, last.getId())
+        .encode();
+  }
+
+  /**
+   * Разобрать курсор, полученный от клиента
+   *
+   * @throws IllegalArgumentException если курсор поврежден
+   */
+  public static DocumentCursor decode(String token) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      String[] parts = raw.split("\\" + SEPARATOR);
+      if (parts.length != 5 || !VERSION.equals(parts[0]) || !supports(parts[1])) {
+        throw new IllegalArgumentException("Invalid cursor: " + token);
+      }
+      return new DocumentCursor(
+          parts[1],
+          Sort.Direction.fromString(parts[2]),
+          LocalDateTime.parse(parts[3]),
+          Long.parseLong(parts[4]));
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + token, e);
+    }
+  }
+
+  /** Проверить, что курсор выдан для той же сортировки */
+  public void verifySort(String expectedField, Sort.Direction expectedDirection) {
+    if (!sortField.equals(expectedField) || direction != expectedDirection) {
+      throw new IllegalArgumentException(
+          "Cursor was issued for sort "
+              + sortField
+              + " "
+              + direction
+              + ", but request sorts by "
+              + expectedField
+              + " "
+              + expectedDirection);
+    }
+  }
+
+  public String encode() {
+    // Точность TIMESTAMP в БД - микросекунды: курсор должен совпадать с сохраненным значением
+    String raw =
+        String.join(
+            SEPARATOR,
+            VERSION,
+            sortField,
+            direction.name(),
+            sortValue.truncatedTo(ChronoUnit.MICROS).toString(),
+            String.valueOf(id));
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import com.example.search.model.Document;
 
@@ -16,14 +17,34 @@ public interface DocumentCustomRepository {
   /** Поиск документов с фильтрами */
   Page<Document> searchWithFilters(DocumentSearchParams params, Pageable pageable);
 
-  /** Получить facets по категориям с учетом активных фильтров */
-  List<Object[]> getCategoryFacets(DocumentSearchParams params);
-
-  /** Получить facets по статусам с учетом активных фильтров */
-  List<Object[]> getStatusFacets(DocumentSearchParams params);
-
-  /** Получить facets по авторам с учетом активных фильтров */
-  List<Object[]> getAuthorFacets(DocumentSearchParams params);
+  /**
+   * Keyset-страница: документы после курсора в порядке (sortField, id)
+   *
+   * @param after курсор предыдущей страницы (null - первая страница)
+   * @param limit сколько документов вернуть
+   */
+  List<Document> searchAfter(
+      DocumentSearchParams params,
+      String sortField,
+      Sort.Direction direction,
+      DocumentCursor after,
+      int limit);
+
+  /** Количество документов, подходящих под фильтры */
+  long countWithFilters(DocumentSearchParams params);
+
+  /** ID документов, подходящих под фильтры (без сортировки и пагинации) */
+  List<Long> findIdsWithFilters(DocumentSearchParams params);
+
+  /**
+   * Счетчики по комбинациям (category, status, author) за один GROUP BY
+   *
+   * <p>Применяются только query/documentIds и даты; фильтры по category/status/author накладываются
+   * в памяти, чтобы каждое измерение исключало собственный фильтр.
+   *
+   * @return строки [category, status, author, count]
+   */
+  List<Object[]> getFacetCombinations(DocumentSearchParams params);
 
   /** Автокомплит по title */
   List<String> autocompleteTitles(String prefix, int limit);
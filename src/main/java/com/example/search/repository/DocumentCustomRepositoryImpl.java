@@ -1,15 +1,23 @@
 package com.example.search.repository;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Function;
 
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.search.constants.DocumentConstants;
 import com.example.search.model.Document;
+import com.example.search.model.SearchMatch;
 import com.example.search.repository.specification.DocumentSpecification;
 
 import jakarta.persistence.EntityManager;
@@ -18,7 +26,14 @@ import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
 import lombok.extern.slf4j.Slf4j;
 
-/** Реализация кастомного репозитория с использованием Criteria API */
+/**
+ * Реализация кастомного репозитория с использованием Criteria API
+ *
+ * <p>Кандидаты из индекса (documentIds) до search.index.max-id-filter передаются IN-списком, больше
+ * - через временную таблицу search_match_ids (TemporaryIdTable) и подзапрос: длинный IN упирается в
+ * лимиты параметров БД (PostgreSQL - 32767, Oracle - 1000 элементов IN). Заполнение таблицы и
+ * запрос идут в одной транзакции (одно соединение).
+ */
 @Slf4j
 public class DocumentCustomRepositoryImpl implements DocumentCustomRepository {
 
@@ -26,8 +41,16 @@ public class DocumentCustomRepositoryImpl implements DocumentCustomRepository {
 
   @PersistenceContext private EntityManager entityManager;
 
+  @Value("${search.index.max-id-filter:1000}")
+  private int maxIdFilter;
+
   @Override
+  @Transactional(readOnly = true)
   public Page<Document> searchWithFilters(DocumentSearchParams params, Pageable pageable) {
+    return withDocumentIds(params, staged -> searchPage(staged, pageable));
+  }
+
+  private Page<Document> searchPage(DocumentSearchParams params, Pageable pageable) {
     CriteriaBuilder cb = entityManager.getCriteriaBuilder();
     CriteriaQuery<Document> cq = cb.createQuery(Document.class);
     Root<Document> root = cq.from(Document.class);
@@ -73,125 +96,174 @@ public class DocumentCustomRepositoryImpl implements DocumentCustomRepository {
     List<Document> results = typedQuery.getResultList();
 
     // Подсчитываем общее количество
-    Long total = countWithFilters(params);
+    long total = count(params);
 
     return new PageImpl<>(results, pageable, total);
   }
 
-  /** Подсчет общего количества с учетом фильтров */
-  private Long countWithFilters(DocumentSearchParams params) {
+  @Override
+  @Transactional(readOnly = true)
+  public List<Document> searchAfter(
+      DocumentSearchParams params,
+      String sortField,
+      Sort.Direction direction,
+      DocumentCursor after,
+      int limit) {
+    return withDocumentIds(params, staged -> seek(staged, sortField, direction, after, limit));
+  }
+
+  private List<Document> seek(
+      DocumentSearchParams params,
+      String sortField,
+      Sort.Direction direction,
+      DocumentCursor after,
+      int limit) {
     CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-    CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+    CriteriaQuery<Document> cq = cb.createQuery(Document.class);
     Root<Document> root = cq.from(Document.class);
-    cq.select(cb.count(root));
 
     Specification<Document> spec = DocumentSpecification.fromFilter(params);
-
     Predicate predicate = spec.toPredicate(root, cq, cb);
+
+    // Seek: (sortField, id) строго после курсора в направлении сортировки
+    if (after != null) {
+      Path<LocalDateTime> sortPath = root.get(sortField);
+      Path<Long> idPath = root.get(DocumentConstants.FIELD_ID);
+      boolean descending = direction.isDescending();
+      Predicate seek =
+          cb.or(
+              descending
+                  ? cb.lessThan(sortPath, after.getSortValue())
+                  : cb.greaterThan(sortPath, after.getSortValue()),
+              cb.and(
+                  cb.equal(sortPath, after.getSortValue()),
+                  descending
+                      ? cb.lessThan(idPath, after.getId())
+                      : cb.greaterThan(idPath, after.getId())));
+      predicate = predicate != null ? cb.and(predicate, seek) : seek;
+    }
     if (predicate != null) {
       cq.where(predicate);
     }
 
-    return entityManager.createQuery(cq).getSingleResult();
+    Path<?> sortPath = root.get(sortField);
+    Path<?> idPath = root.get(DocumentConstants.FIELD_ID);
+    cq.orderBy(
+        direction.isDescending()
+            ? List.of(cb.desc(sortPath), cb.desc(idPath))
+            : List.of(cb.asc(sortPath), cb.asc(idPath)));
+
+    TypedQuery<Document> typedQuery = entityManager.createQuery(cq);
+    typedQuery.setMaxResults(limit);
+    return typedQuery.getResultList();
   }
 
+  /** Подсчет общего количества с учетом фильтров */
   @Override
-  public List<Object[]> getCategoryFacets(DocumentSearchParams params) {
+  @Transactional(readOnly = true)
+  public long countWithFilters(DocumentSearchParams params) {
+    return withDocumentIds(params, this::count);
+  }
+
+  private long count(DocumentSearchParams params) {
     CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-    CriteriaQuery<Object[]> cq = cb.createQuery(Object[].class);
+    CriteriaQuery<Long> cq = cb.createQuery(Long.class);
     Root<Document> root = cq.from(Document.class);
+    cq.select(cb.count(root));
 
-    // SELECT category, COUNT(*) FROM Document WHERE ... GROUP BY category
-    cq.multiselect(root.get(DocumentConstants.FIELD_CATEGORY), cb.count(root));
-    cq.groupBy(root.get(DocumentConstants.FIELD_CATEGORY));
-
-    // Применяем фильтры (без category, чтобы получить все категории)
-    Specification<Document> spec =
-        DocumentSpecification.combine(
-            DocumentSpecification.hasTextSearch(params.getQuery()),
-            DocumentSpecification.hasStatus(params.getStatus()),
-            DocumentSpecification.hasAuthor(params.getAuthor()),
-            DocumentSpecification.createdAfter(params.getCreatedAfter()),
-            DocumentSpecification.createdBefore(params.getCreatedBefore()),
-            DocumentSpecification.updatedAfter(params.getUpdatedAfter()),
-            DocumentSpecification.updatedBefore(params.getUpdatedBefore()));
+    Specification<Document> spec = DocumentSpecification.fromFilter(params);
 
     Predicate predicate = spec.toPredicate(root, cq, cb);
     if (predicate != null) {
       cq.where(predicate);
     }
 
-    // Исключаем NULL категории
-    Predicate notNullCategory = cb.isNotNull(root.get(DocumentConstants.FIELD_CATEGORY));
-    if (predicate != null) {
-      cq.where(cb.and(predicate, notNullCategory));
-    } else {
-      cq.where(notNullCategory);
-    }
-
-    return entityManager.createQuery(cq).getResultList();
+    return entityManager.createQuery(cq).getSingleResult();
   }
 
   @Override
-  public List<Object[]> getStatusFacets(DocumentSearchParams params) {
+  @Transactional(readOnly = true)
+  public List<Long> findIdsWithFilters(DocumentSearchParams params) {
+    return withDocumentIds(params, this::findIds);
+  }
+
+  private List<Long> findIds(DocumentSearchParams params) {
     CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-    CriteriaQuery<Object[]> cq = cb.createQuery(Object[].class);
+    CriteriaQuery<Long> cq = cb.createQuery(Long.class);
     Root<Document> root = cq.from(Document.class);
+    cq.select(root.get(DocumentConstants.FIELD_ID));
 
-    cq.multiselect(root.get(DocumentConstants.FIELD_STATUS), cb.count(root));
-    cq.groupBy(root.get(DocumentConstants.FIELD_STATUS));
-
-    Specification<Document> spec =
-        DocumentSpecification.combine(
-            DocumentSpecification.hasTextSearch(params.getQuery()),
-            DocumentSpecification.hasCategory(params.getCategory()),
-            DocumentSpecification.hasAuthor(params.getAuthor()),
-            DocumentSpecification.createdAfter(params.getCreatedAfter()),
-            DocumentSpecification.createdBefore(params.getCreatedBefore()),
-            DocumentSpecification.updatedAfter(params.getUpdatedAfter()),
-            DocumentSpecification.updatedBefore(params.getUpdatedBefore()));
+    Specification<Document> spec = DocumentSpecification.fromFilter(params);
 
     Predicate predicate = spec.toPredicate(root, cq, cb);
-    Predicate notNullStatus = cb.isNotNull(root.get(DocumentConstants.FIELD_STATUS));
     if (predicate != null) {
-      cq.where(cb.and(predicate, notNullStatus));
-    } else {
-      cq.where(notNullStatus);
+      cq.where(predicate);
     }
 
     return entityManager.createQuery(cq).getResultList();
   }
 
   @Override
-  public List<Object[]> getAuthorFacets(DocumentSearchParams params) {
+  @Transactional(readOnly = true)
+  public List<Object[]> getFacetCombinations(DocumentSearchParams params) {
+    return withDocumentIds(params, this::facetCombinations);
+  }
+
+  private List<Object[]> facetCombinations(DocumentSearchParams params) {
     CriteriaBuilder cb = entityManager.getCriteriaBuilder();
     CriteriaQuery<Object[]> cq = cb.createQuery(Object[].class);
     Root<Document> root = cq.from(Document.class);
 
-    cq.multiselect(root.get(DocumentConstants.FIELD_AUTHOR), cb.count(root));
-    cq.groupBy(root.get(DocumentConstants.FIELD_AUTHOR));
+    // SELECT category, status, author, COUNT(*) FROM Document WHERE ... GROUP BY category, status,
+    // author
+    Path<String> category = root.get(DocumentConstants.FIELD_CATEGORY);
+    Path<String> status = root.get(DocumentConstants.FIELD_STATUS);
+    Path<String> author = root.get(DocumentConstants.FIELD_AUTHOR);
+    cq.multiselect(category, status, author, cb.count(root));
+    cq.groupBy(category, status, author);
 
+    // Только общие для всех измерений фильтры (без category, status, author) и права
     Specification<Document> spec =
         DocumentSpecification.combine(
             DocumentSpecification.hasTextSearch(params.getQuery()),
-            DocumentSpecification.hasCategory(params.getCategory()),
-            DocumentSpecification.hasStatus(params.getStatus()),
+            DocumentSpecification.hasIdIn(params.getDocumentIds()),
+            DocumentSpecification.isStagedMatch(params.isDocumentIdsStaged()),
             DocumentSpecification.createdAfter(params.getCreatedAfter()),
             DocumentSpecification.createdBefore(params.getCreatedBefore()),
             DocumentSpecification.updatedAfter(params.getUpdatedAfter()),
-            DocumentSpecification.updatedBefore(params.getUpdatedBefore()));
+            DocumentSpecification.updatedBefore(params.getUpdatedBefore()),
+            DocumentSpecification.isVisibleTo(params.getPrincipals()));
 
     Predicate predicate = spec.toPredicate(root, cq, cb);
-    Predicate notNullAuthor = cb.isNotNull(root.get(DocumentConstants.FIELD_AUTHOR));
     if (predicate != null) {
-      cq.where(cb.and(predicate, notNullAuthor));
-    } else {
-      cq.where(notNullAuthor);
+      cq.where(predicate);
     }
 
     return entityManager.createQuery(cq).getResultList();
   }
 
+  /**
+   * Выполнить запрос с кандидатами индекса: длинный список - через временную таблицу
+   *
+   * <p>Таблица заполняется на соединении текущей транзакции и очищается после запроса.
+   */
+  private <T> T withDocumentIds(
+      DocumentSearchParams params, Function<DocumentSearchParams, T> query) {
+    Collection<Long> ids = params.getDocumentIds();
+    if (ids == null || ids.size() <= maxIdFilter) {
+      return query.apply(params);
+    }
+
+    Session session = entityManager.unwrap(Session.class);
+    session.doWork(connection -> TemporaryIdTable.fill(connection, SearchMatch.TABLE, ids));
+    try {
+      log.debug("{} candidate ids (> {}) staged in {}", ids.size(), maxIdFilter, SearchMatch.TABLE);
+      return query.apply(params.toBuilder().documentIds(null).documentIdsStaged(true).build());
+    } finally {
+      session.doWork(connection -> TemporaryIdTable.clear(connection, SearchMatch.TABLE));
+    }
+  }
+
   @Override
   public List<String> autocompleteTitles(String prefix, int limit) {
     CriteriaBuilder cb = entityManager.getCriteriaBuilder();
@@ -0,0 +1,69 @@
+package com.example.search.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibernate.Session;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Реализация проверки прав через временную таблицу (JDBC поверх сессии Hibernate)
+ *
+ * <p>ID загружаются в локальную временную таблицу соединения (TemporaryIdTable) и проверяются одним
+ * JOIN с document_permissions. Выполняется внутри транзакции вызывающего
+ * (PermissionBatchChecker.filterVisible) и не фиксирует ее.
+ */
+@Slf4j
+public class DocumentPermissionCustomRepositoryImpl implements DocumentPermissionCustomRepository {
+
+  private static final String TEMP_TABLE = "permission_check_ids";
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Override
+  public List<Long> findHiddenDocumentIdsViaTempTable(
+      Collection<Long> documentIds, Collection<String> principals) {
+    if (documentIds.isEmpty()) {
+      return List.of();
+    }
+    Session session = entityManager.unwrap(Session.class);
+    return session.doReturningWork(
+        connection -> {
+          TemporaryIdTable.fill(connection, TEMP_TABLE, documentIds);
+
+          List<Long> hidden = new ArrayList<>();
+          String sql =
+              "SELECT t.id FROM "
+                  + TEMP_TABLE
+                  + " t JOIN document_permissions p ON p.document_id = t.id GROUP BY t.id"
+                  + " HAVING SUM(CASE WHEN p.principal IN ("
+                  + String.join(", ", Collections.nCopies(principals.size(), "?"))
+                  + ") THEN 1 ELSE 0 END) = 0";
+          try (PreparedStatement select = connection.prepareStatement(sql)) {
+            int index = 1;
+            for (String principal : principals) {
+              select.setString(index++, principal);
+            }
+            try (ResultSet resultSet = select.executeQuery()) {
+              while (resultSet.next()) {
+                hidden.add(resultSet.getLong(1));
+              }
+            }
+          }
+
+          TemporaryIdTable.clear(connection, TEMP_TABLE);
+          log.debug(
+              "Temp table permission check: {} documents, {} hidden",
+              documentIds.size(),
+              hidden.size());
+          return hidden;
+        });
+  }
+}
@@ -0,0 +1,53 @@
+package com.example.search.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.search.model.DocumentPermission;
+
+/** Репозиторий ACL документов (document_permissions) */
+@Repository
+public interface DocumentPermissionRepository
+    extends JpaRepository<DocumentPermission, Long>, DocumentPermissionCustomRepository {
+
+  /** Все строки ACL для набора документов (одним запросом) */
+  List<DocumentPermission> findByDocumentIdIn(Collection<Long> documentIds);
+
+  boolean existsByDocumentIdAndPrincipal(Long documentId, String principal);
+
+  long deleteByDocumentIdAndPrincipal(Long documentId, String principal);
+
+  long deleteByDocumentId(Long documentId);
+
+  /** Есть ли у документа ACL (без строк - документ публичный) */
+  boolean existsByDocumentId(Long documentId);
+
+  boolean existsByDocumentIdAndPrincipalIn(Long documentId, Collection<String> principals);
+
+  /** ID документов с ACL (закрытые; остальные - публичные) */
+  @Query("SELECT DISTINCT p.documentId FROM DocumentPermission p")
+  List<Long> findRestrictedDocumentIds();
+
+  /** ID документов, выданных хотя бы одному из субъектов */
+  @Query("SELECT DISTINCT p.documentId FROM DocumentPermission p WHERE p.principal IN :principals")
+  List<Long> findDocumentIdsByPrincipalIn(@Param("principals") Collection<String> principals);
+
+  /**
+   * Скрытые от субъектов документы среди ids (один запрос на чанк IN-списка)
+   *
+   * <p>Возвращаются только документы с ACL, где нет ни одного из субъектов: документы без строк и
+   * выданные - видимы. Результат обычно мал, даже если ids - тысячи.
+   */
+  @Query(
+      "SELECT p.documentId FROM DocumentPermission p WHERE p.documentId IN :documentIds"
+          + " GROUP BY p.documentId"
+          + " HAVING SUM(CASE WHEN p.principal IN :principals THEN 1 ELSE 0 END) = 0")
+  List<Long> findHiddenDocumentIds(
+      @Param("documentIds") Collection<Long> documentIds,
+      @Param("principals") Collection<String> principals);
+}
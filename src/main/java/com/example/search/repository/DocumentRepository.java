@@ -1,5 +1,12 @@
 package com.example.search.repository;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
@@ -18,4 +25,17 @@ public interface DocumentRepository
   // Базовая функциональность через JpaRepository
   // Кастомная логика фильтрации вынесена в DocumentCustomRepository
   // Specification API используется через JpaSpecificationExecutor
+
+  /** Keyset батч по id (для потоковой загрузки без OFFSET) */
+  List<Document> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+  /** Загрузить документы одним запросом и вернуть в порядке ids (отсутствующие пропускаются) */
+  default List<Document> findAllByIdInOrder(List<Long> ids) {
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    Map<Long, Document> byId =
+        findAllById(ids).stream().collect(Collectors.toMap(Document::getId, Function.identity()));
+    return ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+  }
 }
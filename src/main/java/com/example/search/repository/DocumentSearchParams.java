@@ -1,6 +1,7 @@
 package com.example.search.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 
 import lombok.Builder;
 import lombok.Data;
@@ -10,7 +11,7 @@ import lombok.Data;
  * метода
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class DocumentSearchParams {
   private String query;
   private String category;
@@ -20,4 +21,29 @@ public class DocumentSearchParams {
   private LocalDateTime createdBefore;
   private LocalDateTime updatedAfter;
   private LocalDateTime updatedBefore;
+
+  // Кандидаты из in-memory индекса (заменяют LIKE по query; null = фильтр не задан)
+  private Collection<Long> documentIds;
+
+  // Кандидаты загружены во временную таблицу search_match_ids (DocumentCustomRepositoryImpl):
+  // фильтр - подзапрос вместо длинного IN
+  private boolean documentIdsStaged;
+
+  // Субъекты пользователя для ACL-фильтра (null = без проверки прав)
+  private Collection<String> principals;
+
+  /** Заданы ли фильтры помимо текстового запроса и кандидатов из индекса */
+  public boolean hasAttributeFilters() {
+    return isNotBlank(category)
+        || isNotBlank(status)
+        || isNotBlank(author)
+        || createdAfter != null
+        || createdBefore != null
+        || updatedAfter != null
+        || updatedBefore != null;
+  }
+
+  private static boolean isNotBlank(String value) {
+    return value != null && !value.trim().isEmpty();
+  }
 }
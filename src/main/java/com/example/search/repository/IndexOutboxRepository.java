@@ -0,0 +1,32 @@
+package com.example.search.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.search.model.IndexOutboxEntry;
+
+/** Репозиторий transactional outbox индексации (index_outbox) */
+@Repository
+public interface IndexOutboxRepository extends JpaRepository<IndexOutboxEntry, Long> {
+
+  /** Очередной батч к отправке в движок, старые записи первыми */
+  List<IndexOutboxEntry> findByEngineAndAttemptsLessThanOrderByIdAsc(
+      String engine, int maxAttempts, Pageable pageable);
+
+  /** Ожидающие отправки записи движка */
+  long countByEngineAndAttemptsLessThan(String engine, int maxAttempts);
+
+  /** Отметить отказ движка принять документы записей */
+  @Transactional
+  @Modifying
+  @Query("UPDATE IndexOutboxEntry e SET e.attempts = e.attempts + 1 WHERE e.id IN :ids")
+  int incrementAttempts(@Param("ids") Collection<Long> ids);
+}
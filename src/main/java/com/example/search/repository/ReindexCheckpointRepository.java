@@ -0,0 +1,15 @@
+package com.example.search.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.example.search.model.ReindexCheckpoint;
+
+/** Репозиторий контрольных точек переиндексации (reindex_checkpoints) */
+@Repository
+public interface ReindexCheckpointRepository extends JpaRepository<ReindexCheckpoint, Long> {
+
+  List<ReindexCheckpoint> findByJobId(Long jobId);
+}
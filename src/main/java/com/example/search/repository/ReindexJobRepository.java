@@ -0,0 +1,19 @@
+package com.example.search.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.example.search.model.ReindexJob;
+import com.example.search.model.ReindexJobStatus;
+
+/** Репозиторий задач переиндексации (reindex_jobs) */
+@Repository
+public interface ReindexJobRepository extends JpaRepository<ReindexJob, Long> {
+
+  List<ReindexJob> findByStatus(ReindexJobStatus status);
+
+  /** Последние задачи (для списка в API) */
+  List<ReindexJob> findTop20ByOrderByIdDesc();
+}
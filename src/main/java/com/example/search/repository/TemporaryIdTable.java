@@ -0,0 +1,66 @@
+package com.example.search.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+
+/**
+ * Локальная временная таблица ID (JDBC поверх сессии Hibernate)
+ *
+ * <p>Таблица живет в рамках соединения: создается один раз (IF NOT EXISTS), очищается до и после
+ * использования, поэтому соединение пула можно переиспользовать. Синтаксис CREATE LOCAL TEMPORARY
+ * TABLE поддерживают H2 и PostgreSQL. В H2 DDL фиксирует открытую транзакцию, поэтому таблица
+ * создается с TRANSACTIONAL - заполнение не делает commit за вызывающего. В PostgreSQL DDL и так
+ * транзакционен.
+ *
+ * <p>Заполнение и запрос к таблице должны идти в одной транзакции (одно соединение).
+ */
+final class TemporaryIdTable {
+
+  private static final int INSERT_BATCH_SIZE = 1000;
+
+  private TemporaryIdTable() {}
+
+  /** Создать таблицу (если нет) и заменить ее содержимое на ids */
+  static void fill(Connection connection, String table, Collection<Long> ids) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(
+          "CREATE LOCAL TEMPORARY TABLE IF NOT EXISTS "
+              + table
+              + " (id BIGINT PRIMARY KEY)"
+              + (isH2(connection) ? " TRANSACTIONAL" : ""));
+      statement.execute("DELETE FROM " + table);
+    }
+
+    // ID - JDBC batch-ами, без bind-параметров в тексте запроса
+    try (PreparedStatement insert =
+        connection.prepareStatement("INSERT INTO " + table + " (id) VALUES (?)")) {
+      int pending = 0;
+      for (Long id : new LinkedHashSet<>(ids)) {
+        insert.setLong(1, id);
+        insert.addBatch();
+        if (++pending == INSERT_BATCH_SIZE) {
+          insert.executeBatch();
+          pending = 0;
+        }
+      }
+      if (pending > 0) {
+        insert.executeBatch();
+      }
+    }
+  }
+
+  /** Очистить таблицу после запроса */
+  static void clear(Connection connection, String table) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("DELETE FROM " + table);
+    }
+  }
+
+  private static boolean isH2(Connection connection) throws SQLException {
+    return "H2".equals(connection.getMetaData().getDatabaseProductName());
+  }
+}
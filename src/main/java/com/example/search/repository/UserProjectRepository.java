@@ -0,0 +1,23 @@
+package com.example.search.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.search.model.UserProject;
+
+/** Репозиторий участия пользователей в проектах (user_projects) */
+@Repository
+public interface UserProjectRepository extends JpaRepository<UserProject, Long> {
+
+  /** Проекты пользователя (уникальный индекс user_id, project_id) */
+  @Query("SELECT up.projectId FROM UserProject up WHERE up.userId = :userId")
+  List<String> findProjectIdsByUserId(@Param("userId") String userId);
+
+  boolean existsByUserIdAndProjectId(String userId, String projectId);
+
+  long deleteByUserIdAndProjectId(String userId, String projectId);
+}
@@ -1,6 +1,7 @@
 package com.example.search.repository.specification;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Objects;
 import java.util.stream.Stream;
 
@@ -8,8 +9,12 @@ import org.springframework.data.jpa.domain.Specification;
 
 import com.example.search.constants.DocumentConstants;
 import com.example.search.model.Document;
+import com.example.search.model.DocumentPermission;
+import com.example.search.model.SearchMatch;
 
 import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 
 /**
  * Specification для фильтрации документов с использованием Criteria API Оптимизированная реализация
@@ -23,6 +28,9 @@ public class DocumentSpecification {
 
   // Используем константы из DocumentConstants
 
+  private static final String FIELD_PERMISSION_DOCUMENT_ID = "documentId";
+  private static final String FIELD_PERMISSION_PRINCIPAL = "principal";
+
   /**
    * Создать Specification для полнотекстового поиска (title, content, author)
    *
@@ -69,6 +77,88 @@ public class DocumentSpecification {
     };
   }
 
+  /**
+   * Фильтр по списку ID (кандидаты из in-memory инвертированного индекса)
+   *
+   * <p>Используется вместо hasTextSearch, когда индекс готов: {@code id IN (...)} идет по
+   * первичному ключу вместо full table scan с LIKE.
+   *
+   * @param ids ID документов (null = пропуск фильтра, пустой список = ничего не найдено)
+   * @return Specification или null
+   */
+  public static Specification<Document> hasIdIn(Collection<Long> ids) {
+    if (ids == null) {
+      return null;
+    }
+    if (ids.isEmpty()) {
+      return (root, criteriaQuery, criteriaBuilder) -> criteriaBuilder.disjunction();
+    }
+    return (root, criteriaQuery, criteriaBuilder) -> root.get(DocumentConstants.FIELD_ID).in(ids);
+  }
+
+  /**
+   * Фильтр по кандидатам во временной таблице search_match_ids
+   *
+   * <p>Для списков длиннее search.index.max-id-filter: {@code id IN (SELECT id FROM
+   * search_match_ids)} вместо IN-списка, который упирается в лимиты параметров БД.
+   *
+   * @param staged кандидаты загружены в таблицу (DocumentSearchParams.documentIdsStaged)
+   * @return Specification или null
+   */
+  public static Specification<Document> isStagedMatch(boolean staged) {
+    if (!staged) {
+      return null;
+    }
+    return (root, criteriaQuery, criteriaBuilder) -> {
+      Subquery<Long> matches = criteriaQuery.subquery(Long.class);
+      Root<SearchMatch> match = matches.from(SearchMatch.class);
+      matches.select(match.get(DocumentConstants.FIELD_ID));
+      return root.get(DocumentConstants.FIELD_ID).in(matches);
+    };
+  }
+
+  /**
+   * Фильтр по правам доступа (ACL pushdown)
+   *
+   * <p>Документ виден, если у него нет строк в document_permissions (публичный) или есть строка с
+   * одним из субъектов пользователя: {@code NOT EXISTS (...) OR EXISTS (... principal IN (...))}.
+   * Оба подзапроса коррелированы по document_id и идут по индексу, поэтому права применяются в том
+   * же запросе, что и фильтры: страницы полные, COUNT - по видимым документам.
+   *
+   * @param principals субъекты пользователя (null = пропуск фильтра, пустой = только публичные)
+   * @return Specification или null
+   */
+  public static Specification<Document> isVisibleTo(Collection<String> principals) {
+    if (principals == null) {
+      return null;
+    }
+    return (root, criteriaQuery, criteriaBuilder) -> {
+      Subquery<Long> anyGrant = criteriaQuery.subquery(Long.class);
+      Root<DocumentPermission> anyPermission = anyGrant.from(DocumentPermission.class);
+      anyGrant
+          .select(anyPermission.get(FIELD_PERMISSION_DOCUMENT_ID))
+          .where(
+              criteriaBuilder.equal(
+                  anyPermission.get(FIELD_PERMISSION_DOCUMENT_ID),
+                  root.get(DocumentConstants.FIELD_ID)));
+      Predicate isPublic = criteriaBuilder.not(criteriaBuilder.exists(anyGrant));
+      if (principals.isEmpty()) {
+        return isPublic;
+      }
+
+      Subquery<Long> userGrant = criteriaQuery.subquery(Long.class);
+      Root<DocumentPermission> userPermission = userGrant.from(DocumentPermission.class);
+      userGrant
+          .select(userPermission.get(FIELD_PERMISSION_DOCUMENT_ID))
+          .where(
+              criteriaBuilder.equal(
+                  userPermission.get(FIELD_PERMISSION_DOCUMENT_ID),
+                  root.get(DocumentConstants.FIELD_ID)),
+              userPermission.get(FIELD_PERMISSION_PRINCIPAL).in(principals));
+      return criteriaBuilder.or(isPublic, criteriaBuilder.exists(userGrant));
+    };
+  }
+
   /**
    * Фильтр по категории (точное совпадение)
    *
@@ -239,8 +329,12 @@ public class DocumentSpecification {
         updatedBefore(params.getUpdatedBefore()),
         // 3. LIKE поиск по автору (более селективно) - СРЕДНЕ
         hasAuthor(params.getAuthor()),
-        // 4. Полнотекстовый поиск (самый медленный) - МЕДЛЕННО
-        hasTextSearch(params.getQuery()));
+        // 4. Полнотекстовый поиск: кандидаты из индекса (по PK) или LIKE (самый медленный)
+        hasIdIn(params.getDocumentIds()),
+        isStagedMatch(params.isDocumentIdsStaged()),
+        hasTextSearch(params.getQuery()),
+        // 5. Права доступа: коррелированные подзапросы по индексу document_permissions
+        isVisibleTo(params.getPrincipals()));
   }
 
   // Приватный конструктор для утилитного класса
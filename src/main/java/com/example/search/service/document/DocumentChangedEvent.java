@@ -0,0 +1,45 @@
+package com.example.search.service.document;
+
+import com.example.search.model.Document;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Событие изменения документа (create/update/delete)
+ *
+ * <p>Публикуется DocumentService внутри транзакции и обрабатывается после коммита (через
+ * {@code @TransactionalEventListener}). Подписчики - in-memory индексы, которые должны оставаться
+ * синхронными с БД без повторного чтения строки. Исключение - OutboxIndexer: он пишет запись outbox
+ * синхронно, в той же транзакции.
+ *
+ * <p>previous - снимок документа до изменения (null для CREATED), current - состояние после
+ * изменения (null для DELETED).
+ */
+@Getter
+@RequiredArgsConstructor
+public class DocumentChangedEvent {
+
+  public enum Type {
+    CREATED,
+    UPDATED,
+    DELETED
+  }
+
+  private final Type type;
+  private final Long documentId;
+  private final Document previous;
+  private final Document current;
+
+  public static DocumentChangedEvent created(Document current) {
+    return new DocumentChangedEvent(Type.CREATED, current.getId(), null, current);
+  }
+
+  public static DocumentChangedEvent updated(Document previous, Document current) {
+    return new DocumentChangedEvent(Type.UPDATED, current.getId(), previous, current);
+  }
+
+  public static DocumentChangedEvent deleted(Document previous) {
+    return new DocumentChangedEvent(Type.DELETED, previous.getId(), previous, null);
+  }
+}
@@ -1,20 +1,14 @@
 package com.example.search.service.document;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 
 import com.example.search.constants.DocumentConstants;
-import com.example.search.constants.SortConstants;
 import com.example.search.dto.request.AutocompleteRequest;
 import com.example.search.dto.request.DocumentSearchRequest;
 import com.example.search.dto.request.FacetRequest;
@@ -22,8 +16,14 @@ import com.example.search.dto.response.AutocompleteResultDto;
 import com.example.search.dto.response.DocumentDto;
 import com.example.search.dto.response.DocumentSearchResponse;
 import com.example.search.dto.response.FacetDto;
+import com.example.search.dto.response.SearchFilterDto;
+import com.example.search.dto.response.SearchResultPageDto;
 import com.example.search.model.Document;
 import com.example.search.repository.DocumentRepository;
+import com.example.search.repository.DocumentSearchParams;
+import com.example.search.service.index.AutocompleteIndex;
+import com.example.search.service.search.FacetAggregationService;
+import com.example.search.service.search.SimpleSearchService;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -39,18 +39,16 @@ import lombok.extern.slf4j.Slf4j;
 public class DocumentSearchService {
 
   private final DocumentRepository documentRepository;
-
-  // Белый список полей для сортировки
-  private static final List<String> ALLOWED_SORT_FIELDS =
-      List.of(
-          SortConstants.SORT_BY_TITLE,
-          SortConstants.SORT_BY_CREATED_AT,
-          SortConstants.SORT_BY_UPDATED_AT,
-          SortConstants.SORT_BY_AUTHOR,
-          SortConstants.SORT_BY_CATEGORY,
-          SortConstants.SORT_BY_STATUS);
-
-  /** Поиск документов с фильтрами, сортировкой и пагинацией GET /documents/search */
+  private final SimpleSearchService simpleSearchService;
+  private final FacetAggregationService facetAggregationService;
+  private final AutocompleteIndex autocompleteIndex;
+
+  /**
+   * Поиск документов с фильтрами, сортировкой и пагинацией GET /documents/search
+   *
+   * <p>Выбор пути (BM25, bitmap фильтров, keyset-курсор, SQL) - один на все API:
+   * SimpleSearchService. Здесь только перевод запроса и ответа REST.
+   */
   public DocumentSearchResponse searchDocuments(@Valid DocumentSearchRequest request) {
     log.info(
         "Search request: query={}, category={}, status={}, author={}, page={}, size={}",
@@ -67,17 +65,8 @@ public class DocumentSearchService {
         request.getUpdatedAfter(),
         request.getUpdatedBefore());
 
-    // Настройка пагинации
-    int page = request.getPage() != null && request.getPage() >= 0 ? request.getPage() : 0;
-    int size = request.getSize() != null && request.getSize() > 0 ? request.getSize() : 20;
-
-    // Настройка сортировки
-    Sort sort = buildSort(request.getSortBy(), request.getSortOrder());
-    Pageable pageable = PageRequest.of(page, size, sort);
-
-    // Выполнение поиска через кастомный репозиторий
-    com.example.search.repository.DocumentSearchParams params =
-        com.example.search.repository.DocumentSearchParams.builder()
+    SearchFilterDto filter =
+        SearchFilterDto.builder()
             .query(request.getQuery())
             .category(request.getCategory())
             .status(request.getStatus())
@@ -86,22 +75,26 @@ public class DocumentSearchService {
             .createdBefore(request.getCreatedBefore())
             .updatedAfter(request.getUpdatedAfter())
             .updatedBefore(request.getUpdatedBefore())
+            .sortBy(request.getSortBy())
+            .sortOrder(request.getSortOrder())
+            .page(request.getPage())
+            .size(request.getSize())
+            .cursor(request.getCursor())
+            .includeTotal(request.getIncludeTotal())
             .build();
 
-    Page<Document> resultPage = documentRepository.searchWithFilters(params, pageable);
-
-    // Конвертация в DTO
-    List<DocumentDto> content =
-        resultPage.getContent().stream().map(this::toDto).collect(Collectors.toList());
+    // Без пользователя: REST API документов не фильтрует по правам
+    SearchResultPageDto result = simpleSearchService.searchDocuments(filter);
 
     return DocumentSearchResponse.builder()
-        .content(content)
-        .totalElements(resultPage.getTotalElements())
-        .totalPages(resultPage.getTotalPages())
-        .currentPage(resultPage.getNumber())
-        .pageSize(resultPage.getSize())
-        .hasNext(resultPage.hasNext())
-        .hasPrevious(resultPage.hasPrevious())
+        .content(result.getContent().stream().map(this::toDto).collect(Collectors.toList()))
+        .totalElements(result.getTotalElements())
+        .totalPages(result.getTotalPages())
+        .currentPage(result.getCurrentPage())
+        .pageSize(result.getPageSize())
+        .hasNext(result.getHasNext())
+        .hasPrevious(result.getHasPrevious())
+        .nextCursor(result.getNextCursor())
         .build();
   }
 
@@ -110,49 +103,24 @@ public class DocumentSearchService {
     log.info(
         "Facets request: query={}, dimensions={}", request.getQuery(), request.getDimensions());
 
-    Map<String, List<FacetDto>> facets = new HashMap<>();
-
     if (request.getDimensions() == null || request.getDimensions().isEmpty()) {
-      return facets;
+      return new HashMap<>();
     }
 
-    // Получаем facets для каждого запрошенного измерения
-    for (String dimension : request.getDimensions()) {
-      com.example.search.repository.DocumentSearchParams params =
-          com.example.search.repository.DocumentSearchParams.builder()
-              .query(request.getQuery())
-              .category(request.getCategory())
-              .status(request.getStatus())
-              .author(request.getAuthor())
-              .createdAfter(request.getCreatedAfter())
-              .createdBefore(request.getCreatedBefore())
-              .updatedAfter(request.getUpdatedAfter())
-              .updatedBefore(request.getUpdatedBefore())
-              .build();
-
-      List<Object[]> facetData =
-          switch (dimension.toLowerCase()) {
-            case DocumentConstants.FIELD_CATEGORY -> documentRepository.getCategoryFacets(params);
-            case DocumentConstants.FIELD_STATUS -> documentRepository.getStatusFacets(params);
-            case DocumentConstants.FIELD_AUTHOR -> documentRepository.getAuthorFacets(params);
-            default -> new ArrayList<>();
-          };
-
-      List<FacetDto> facetDtos =
-          facetData.stream()
-              .map(
-                  row ->
-                      FacetDto.builder()
-                          .value((String) row[0])
-                          .count(((Number) row[1]).longValue())
-                          .label((String) row[0])
-                          .build())
-              .collect(Collectors.toList());
-
-      facets.put(dimension, facetDtos);
-    }
+    DocumentSearchParams params =
+        DocumentSearchParams.builder()
+            .query(request.getQuery())
+            .category(request.getCategory())
+            .status(request.getStatus())
+            .author(request.getAuthor())
+            .createdAfter(request.getCreatedAfter())
+            .createdBefore(request.getCreatedBefore())
+            .updatedAfter(request.getUpdatedAfter())
+            .updatedBefore(request.getUpdatedBefore())
+            .build();
 
-    return facets;
+    // Все измерения за один GROUP BY (каждое без собственного фильтра)
+    return facetAggregationService.aggregate(params, request.getDimensions());
   }
 
   /** Автокомплит по полю и префиксу GET /documents/autocomplete */
@@ -174,16 +142,23 @@ public class DocumentSearchService {
         limit);
 
     String normalizedPrefix = request.getPrefix().toLowerCase().trim();
+    String field = request.getField().toLowerCase();
     List<String> results =
-        switch (request.getField().toLowerCase()) {
-          case DocumentConstants.AUTOCOMPLETE_TYPE_TITLE ->
-              documentRepository.autocompleteTitles(normalizedPrefix, limit);
-          case DocumentConstants.AUTOCOMPLETE_TYPE_AUTHOR ->
-              documentRepository.autocompleteAuthors(normalizedPrefix, limit);
-          case DocumentConstants.AUTOCOMPLETE_TYPE_CATEGORY ->
-              documentRepository.autocompleteCategories(normalizedPrefix, limit);
-          default -> throw new IllegalArgumentException("Unknown field: " + request.getField());
-        };
+        autocompleteIndex
+            .complete(field, normalizedPrefix, limit)
+            .orElseGet(
+                () ->
+                    switch (field) {
+                      case DocumentConstants.AUTOCOMPLETE_TYPE_TITLE ->
+                          documentRepository.autocompleteTitles(normalizedPrefix, limit);
+                      case DocumentConstants.AUTOCOMPLETE_TYPE_AUTHOR ->
+                          documentRepository.autocompleteAuthors(normalizedPrefix, limit);
+                      case DocumentConstants.AUTOCOMPLETE_TYPE_CATEGORY ->
+                          documentRepository.autocompleteCategories(normalizedPrefix, limit);
+                      default ->
+                          throw new IllegalArgumentException(
+                              "Unknown field: " + request.getField());
+                    });
 
     return results.stream()
         .map(
@@ -195,26 +170,6 @@ public class DocumentSearchService {
         .collect(Collectors.toList());
   }
 
-  /** Построение Sort с валидацией полей */
-  private Sort buildSort(String sortBy, String sortOrder) {
-    if (sortBy == null || sortBy.trim().isEmpty()) {
-      // По умолчанию сортируем по дате создания (новые сначала)
-      return Sort.by(Sort.Direction.DESC, SortConstants.SORT_BY_CREATED_AT);
-    }
-
-    // Валидация поля сортировки (белый список)
-    String normalizedSortBy = sortBy.trim();
-    if (!ALLOWED_SORT_FIELDS.contains(normalizedSortBy)) {
-      log.warn("Invalid sort field: {}, using default", normalizedSortBy);
-      return Sort.by(Sort.Direction.DESC, SortConstants.SORT_BY_CREATED_AT);
-    }
-
-    Sort.Direction direction =
-        "DESC".equalsIgnoreCase(sortOrder) ? Sort.Direction.DESC : Sort.Direction.ASC;
-
-    return Sort.by(direction, normalizedSortBy);
-  }
-
   /** Конвертация Document в DTO */
   private DocumentDto toDto(Document document) {
     return DocumentDto.builder()
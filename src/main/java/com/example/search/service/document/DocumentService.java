@@ -2,11 +2,13 @@ package com.example.search.service.document;
 
 import java.util.List;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.example.search.dto.request.DocumentInputDto;
 import com.example.search.model.Document;
+import com.example.search.repository.DocumentPermissionRepository;
 import com.example.search.repository.DocumentRepository;
 
 import lombok.RequiredArgsConstructor;
@@ -18,6 +20,8 @@ import lombok.extern.slf4j.Slf4j;
 public class DocumentService {
 
   private final DocumentRepository documentRepository;
+  private final DocumentPermissionRepository permissionRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
   public List<Document> getAllDocuments() {
     return documentRepository.findAll();
@@ -40,12 +44,17 @@ public class DocumentService {
             .status(input.getStatus())
             .build();
 
-    return documentRepository.save(document);
+    Document saved = documentRepository.save(document);
+    eventPublisher.publishEvent(DocumentChangedEvent.created(saved));
+    return saved;
   }
 
   @Transactional
   public Document updateDocument(Long id, DocumentInputDto input) {
     Document document = getDocumentById(id);
+    // Снимок до изменения нужен in-memory индексам, чтобы убрать старые термы
+    Document previous = snapshot(document);
+
     document.setTitle(input.getTitle());
     document.setContent(input.getContent());
     document.setAuthor(input.getAuthor());
@@ -56,15 +65,36 @@ public class DocumentService {
       document.setStatus(input.getStatus());
     }
 
-    return documentRepository.save(document);
+    Document saved = documentRepository.save(document);
+    eventPublisher.publishEvent(DocumentChangedEvent.updated(previous, saved));
+    return saved;
   }
 
   @Transactional
   public Boolean deleteDocument(Long id) {
-    if (documentRepository.existsById(id)) {
-      documentRepository.deleteById(id);
-      return true;
-    }
-    return false;
+    return documentRepository
+        .findById(id)
+        .map(
+            document -> {
+              documentRepository.delete(document);
+              permissionRepository.deleteByDocumentId(id); // ACL удаленного документа
+              eventPublisher.publishEvent(DocumentChangedEvent.deleted(document));
+              return true;
+            })
+        .orElse(false);
+  }
+
+  /** Копия документа (managed entity меняется на месте, поэтому храним отдельный объект) */
+  private Document snapshot(Document document) {
+    return Document.builder()
+        .id(document.getId())
+        .title(document.getTitle())
+        .content(document.getContent())
+        .author(document.getAuthor())
+        .category(document.getCategory())
+        .status(document.getStatus())
+        .createdAt(document.getCreatedAt())
+        .updatedAt(document.getUpdatedAt())
+        .build();
   }
 }
@@ -0,0 +1,205 @@
+package com.example.search.service.index;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.search.constants.DocumentConstants;
+import com.example.search.model.Document;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory индекс автокомплита: сжатое префиксное дерево на каждый тип (title, author, category)
+ *
+ * <p>Вместо LIKE 'prefix%' + DISTINCT + ORDER BY на каждое нажатие клавиши: - значения хранятся в
+ * CompletionTrie с весом = количество документов - каждый узел хранит готовый top-k завершений -
+ * запрос - спуск по префиксу и чтение списка (микросекунды)
+ *
+ * <p>Веса обновляются инкрементально на каждую запись (события DocumentService через
+ * InMemoryIndexCoordinator): при изменении документа меняется вес только затронутых значений.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AutocompleteIndex implements InMemoryDocumentIndex {
+
+  private static final Map<String, Function<Document, String>> FIELDS =
+      Map.of(
+          DocumentConstants.AUTOCOMPLETE_TYPE_TITLE, Document::getTitle,
+          DocumentConstants.AUTOCOMPLETE_TYPE_AUTHOR, Document::getAuthor,
+          DocumentConstants.AUTOCOMPLETE_TYPE_CATEGORY, Document::getCategory);
+
+  /** Префиксы короче - только точное совпадение (любая строка в 1-2 правках от них) */
+  private static final int FUZZY_MIN_PREFIX_LENGTH = 3;
+
+  /** С этой длины префикса допускаются 2 правки */
+  private static final int FUZZY_TWO_EDITS_LENGTH = 6;
+
+  @Value("${search.index.autocomplete-top-k:10}")
+  private int topK;
+
+  @Value("${search.index.fuzzy-candidate-budget:5000}")
+  private int fuzzyCandidateBudget;
+
+  private final Map<String, CompletionTrie> tries = new HashMap<>();
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile boolean ready;
+
+  @PostConstruct
+  void init() {
+    FIELDS.keySet().forEach(type -> tries.put(type, new CompletionTrie(topK)));
+  }
+
+  @Override
+  public String getName() {
+    return "autocomplete";
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      ready = false;
+      tries.values().forEach(CompletionTrie::clear);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void onRebuildCompleted() {
+    ready = true;
+    log.info(
+        "Autocomplete index loaded: {} titles, {} authors, {} categories",
+        tries.get(DocumentConstants.AUTOCOMPLETE_TYPE_TITLE).size(),
+        tries.get(DocumentConstants.AUTOCOMPLETE_TYPE_AUTHOR).size(),
+        tries.get(DocumentConstants.AUTOCOMPLETE_TYPE_CATEGORY).size());
+  }
+
+  @Override
+  public void onAdded(int ordinal, Document document) {
+    lock.writeLock().lock();
+    try {
+      FIELDS.forEach((type, getter) -> tries.get(type).adjust(getter.apply(document), 1));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void onUpdated(int ordinal, Document previous, Document current) {
+    lock.writeLock().lock();
+    try {
+      FIELDS.forEach(
+          (type, getter) -> {
+            String before = getter.apply(previous);
+            String after = getter.apply(current);
+            if (before == null ? after != null : !before.equals(after)) {
+              tries.get(type).adjust(before, -1);
+              tries.get(type).adjust(after, 1);
+            }
+          });
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void onRemoved(int ordinal, Document previous) {
+    lock.writeLock().lock();
+    try {
+      FIELDS.forEach((type, getter) -> tries.get(type).adjust(getter.apply(previous), -1));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Индекс загружен и может заменить SQL */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Завершения префикса по типу
+   *
+   * @param type title, author или category
+   * @param prefix префикс (регистр не важен)
+   * @param limit максимум результатов
+   * @return значения по убыванию количества документов, при равенстве - по алфавиту;
+   *     Optional.empty() если индекс не загружен или тип неизвестен
+   */
+  public Optional<List<String>> complete(String type, String prefix, int limit) {
+    CompletionTrie trie = type != null ? tries.get(type.toLowerCase(Locale.ROOT)) : null;
+    if (!ready || trie == null) {
+      return Optional.empty();
+    }
+
+    long startTime = System.nanoTime();
+    String key = prefix != null ? prefix.trim().toLowerCase(Locale.ROOT) : "";
+    List<String> result;
+    lock.readLock().lock();
+    try {
+      result = trie.complete(key, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    log.debug(
+        "Autocomplete {} '{}' -> {} results in {}µs",
+        type,
+        key,
+        result.size(),
+        (System.nanoTime() - startTime) / 1000);
+    return Optional.of(result);
+  }
+
+  /**
+   * Завершения префикса с опечатками (1 правка, с 6 символов - 2)
+   *
+   * <p>Обход ограничен search.index.fuzzy-candidate-budget шагами автомата Левенштейна.
+   *
+   * @return значения по возрастанию расстояния, затем по количеству документов; Optional.empty()
+   *     если индекс не загружен или тип неизвестен
+   */
+  public Optional<List<String>> fuzzyComplete(String type, String prefix, int limit) {
+    CompletionTrie trie = type != null ? tries.get(type.toLowerCase(Locale.ROOT)) : null;
+    if (!ready || trie == null) {
+      return Optional.empty();
+    }
+
+    String key = prefix != null ? prefix.trim().toLowerCase(Locale.ROOT) : "";
+    if (key.length() < FUZZY_MIN_PREFIX_LENGTH) {
+      return complete(type, key, limit);
+    }
+
+    long startTime = System.nanoTime();
+    int maxDistance = key.length() >= FUZZY_TWO_EDITS_LENGTH ? 2 : 1;
+    LevenshteinAutomaton automaton = new LevenshteinAutomaton(key, maxDistance);
+    List<String> result;
+    lock.readLock().lock();
+    try {
+      result = trie.fuzzyComplete(automaton, limit, fuzzyCandidateBudget);
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    log.debug(
+        "Fuzzy autocomplete {} '{}' (distance {}) -> {} results in {}µs",
+        type,
+        key,
+        maxDistance,
+        result.size(),
+        (System.nanoTime() - startTime) / 1000);
+    return Optional.of(result);
+  }
+}
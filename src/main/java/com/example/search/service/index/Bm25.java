@@ -0,0 +1,42 @@
+package com.example.search.service.index;
+
+import java.util.Map;
+
+import com.example.search.constants.DocumentConstants;
+
+/**
+ * Формулы BM25 (Okapi BM25) для ранжирования на JPA fallback пути
+ *
+ * <p>score(d, q) = Σ_поле boost(поле) · Σ_терм idf(t) · tf·(k1+1) / (tf + k1·(1 - b +
+ * b·len/avgLen))
+ *
+ * <p>Параметры k1 и b - стандартные значения Lucene/Elasticsearch. Бусты полей повторяют
+ * OpenSearchService ("title^2", "content", "author").
+ */
+final class Bm25 {
+
+  static final float K1 = 1.2f;
+  static final float B = 0.75f;
+
+  static final Map<String, Float> FIELD_BOOSTS =
+      Map.of(
+          DocumentConstants.FIELD_TITLE, 2.0f,
+          DocumentConstants.FIELD_CONTENT, 1.0f,
+          DocumentConstants.FIELD_AUTHOR, 1.0f);
+
+  private Bm25() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /** IDF с +1 внутри логарифма (никогда не отрицательный, как в Lucene) */
+  static float idf(int documentFrequency, int documentCount) {
+    return (float)
+        Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+  }
+
+  /** Вклад одного терма в одном поле */
+  static float termScore(float idf, int termFrequency, int fieldLength, float averageLength) {
+    float norm = averageLength > 0 ? K1 * (1 - B + B * fieldLength / averageLength) : K1;
+    return idf * termFrequency * (K1 + 1) / (termFrequency + norm);
+  }
+}
@@ -0,0 +1,353 @@
+package com.example.search.service.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Сжатое префиксное дерево (radix trie) с готовым top-k в каждом узле
+ *
+ * <p>Ключ - значение в нижнем регистре, вес - количество документов с этим значением (document
+ * frequency). Цепочки узлов с одним потомком схлопнуты в одно ребро со строковой меткой, поэтому
+ * узлов не больше ~2x числа различных значений.
+ *
+ * <p>Каждый узел хранит k лучших завершений своего поддерева: запрос по префиксу - спуск по дереву
+ * O(длина префикса) и чтение готового списка, без обхода поддерева. При изменении веса top-k
+ * пересчитывается только на пути от листа к корню (из top-k детей и собственных значений узла).
+ *
+ * <p>Не потокобезопасен: синхронизация - на стороне AutocompleteIndex.
+ */
+final class CompletionTrie {
+
+  /** Порядок выдачи: больше документов - выше, при равенстве - по алфавиту */
+  static final Comparator<Entry> BY_WEIGHT =
+      Comparator.comparingLong(Entry::getCount).reversed().thenComparing(Entry::getValue);
+
+  private final int topK;
+  private final Node root = new Node("");
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  CompletionTrie(int topK) {
+    this.topK = topK;
+  }
+
+  /** Значение появилось в документе (delta = 1) или исчезло из него (delta = -1) */
+  void adjust(String value, int delta) {
+    if (value == null || value.isBlank()) {
+      return;
+    }
+    Entry entry = entries.get(value);
+    if (entry == null) {
+      if (delta <= 0) {
+        return;
+      }
+      entry = new Entry(value, value.toLowerCase(Locale.ROOT));
+      entries.put(value, entry);
+      entry.count = delta;
+      insert(entry);
+      return;
+    }
+
+    entry.count += delta;
+    if (entry.count <= 0) {
+      entries.remove(value);
+      remove(entry);
+    } else {
+      refreshPath(entry.key);
+    }
+  }
+
+  /**
+   * Лучшие завершения префикса
+   *
+   * @param prefix префикс в нижнем регистре
+   * @param limit максимум результатов; больше topK - обход поддерева
+   */
+  List<String> complete(String prefix, int limit) {
+    Node node = root;
+    int matched = 0;
+    while (matched < prefix.length()) {
+      Node child = node.children.get(prefix.charAt(matched));
+      if (child == null) {
+        return List.of();
+      }
+      int common = commonPrefix(child.label, prefix, matched);
+      if (matched + common < prefix.length() && common < child.label.length()) {
+        return List.of(); // расхождение внутри метки ребра
+      }
+      matched += common;
+      node = child;
+    }
+
+    List<Entry> source = node.top;
+    if (limit > topK) {
+      source = new ArrayList<>();
+      collect(node, source);
+      source.sort(BY_WEIGHT);
+    }
+
+    List<String> result = new ArrayList<>(Math.min(limit, source.size()));
+    for (int i = 0; i < source.size() && result.size() < limit; i++) {
+      result.add(source.get(i).value);
+    }
+    return result;
+  }
+
+  /**
+   * Завершения префикса с опечатками
+   *
+   * <p>Обход дерева с автоматом Левенштейна: поддеревья с мертвым состоянием отсекаются, а как
+   * только прочитанная часть ключа совпала с запросом, кандидатами становятся готовые top-k узла.
+   * Обход best-first: первым раскрывается узел с наименьшей нижней оценкой расстояния (минимум
+   * состояния автомата), при равенстве - с самым тяжелым завершением, а не первый по алфавиту.
+   * Обход ограничен бюджетом шагов автомата, поэтому латентность не зависит от размера словаря, и
+   * заканчивается раньше, если limit значений уже ближе любого нераскрытого узла.
+   *
+   * @param automaton автомат для префикса в нижнем регистре
+   * @param limit максимум результатов
+   * @param budget максимум шагов автомата (символов ключей)
+   * @return значения по возрастанию расстояния, затем по весу
+   */
+  List<String> fuzzyComplete(LevenshteinAutomaton automaton, int limit, int budget) {
+    Map<Entry, Integer> distances = new HashMap<>();
+    PriorityQueue<Frontier> frontier = new PriorityQueue<>();
+    int[] start = automaton.start();
+    frontier.add(new Frontier(root, start, automaton.minDistance(start)));
+    int remaining = budget;
+    while (!frontier.isEmpty() && remaining > 0) {
+      Frontier next = frontier.poll();
+      if (closerThan(distances, next.bound) >= limit) {
+        break; // нераскрытые ключи не ближе next.bound - результат не изменится
+      }
+      for (Node child : next.node.children.values()) {
+        int[] current = next.state;
+        boolean alive = true;
+        for (int i = 0; i < child.label.length() && alive; i++) {
+          if (remaining-- <= 0) {
+            return sorted(distances, limit);
+          }
+          current = automaton.step(current, child.label.charAt(i));
+          if (automaton.isMatch(current)) {
+            // Совпал префикс ключа: все поддерево - кандидаты, лучшие уже посчитаны в top
+            int distance = automaton.distance(current);
+            for (Entry entry : child.top) {
+              distances.merge(entry, distance, Math::min);
+            }
+          }
+          alive = automaton.canMatch(current);
+        }
+        if (alive && !child.children.isEmpty()) {
+          frontier.add(new Frontier(child, current, automaton.minDistance(current)));
+        }
+      }
+    }
+    return sorted(distances, limit);
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  void clear() {
+    entries.clear();
+    root.children.clear();
+    root.values.clear();
+    root.top = List.of();
+  }
+
+  private void insert(Entry entry) {
+    String key = entry.key;
+    List<Node> path = new ArrayList<>();
+    path.add(root);
+    Node node = root;
+    int matched = 0;
+
+    while (matched < key.length()) {
+      char next = key.charAt(matched);
+      Node child = node.children.get(next);
+      if (child == null) {
+        Node leaf = new Node(key.substring(matched));
+        node.children.put(next, leaf);
+        node = leaf;
+        path.add(node);
+        matched = key.length();
+        break;
+      }
+
+      int common = commonPrefix(child.label, key, matched);
+      if (common < child.label.length()) {
+        // Разделяем ребро: parent -> split(общая часть) -> child(остаток)
+        Node split = new Node(child.label.substring(0, common));
+        child.label = child.label.substring(common);
+        split.children.put(child.label.charAt(0), child);
+        split.top = child.top;
+        node.children.put(next, split);
+        child = split;
+      }
+      matched += common;
+      node = child;
+      path.add(node);
+    }
+
+    node.values.add(entry);
+    refresh(path);
+  }
+
+  private void remove(Entry entry) {
+    List<Node> path = findPath(entry.key);
+    if (path == null) {
+      return;
+    }
+    Node node = path.get(path.size() - 1);
+    node.values.remove(entry);
+
+    // Схлопываем опустевшие узлы и узлы с одним потомком
+    for (int i = path.size() - 1; i > 0; i--) {
+      Node current = path.get(i);
+      Node parent = path.get(i - 1);
+      if (current.values.isEmpty() && current.children.isEmpty()) {
+        parent.children.remove(current.label.charAt(0));
+      } else if (current.values.isEmpty() && current.children.size() == 1) {
+        Node child = current.children.values().iterator().next();
+        child.label = current.label + child.label;
+        parent.children.put(child.label.charAt(0), child);
+        path.set(i, child);
+      }
+    }
+    refresh(path);
+  }
+
+  private void refreshPath(String key) {
+    List<Node> path = findPath(key);
+    if (path != null) {
+      refresh(path);
+    }
+  }
+
+  /** Пересчет top-k снизу вверх по пути */
+  private void refresh(List<Node> path) {
+    for (int i = path.size() - 1; i >= 0; i--) {
+      Node node = path.get(i);
+      List<Entry> candidates = new ArrayList<>(node.values);
+      for (Node child : node.children.values()) {
+        candidates.addAll(child.top);
+      }
+      candidates.sort(BY_WEIGHT);
+      node.top =
+          candidates.size() > topK
+              ? List.copyOf(candidates.subList(0, topK))
+              : List.copyOf(candidates);
+    }
+  }
+
+  private List<Node> findPath(String key) {
+    List<Node> path = new ArrayList<>();
+    path.add(root);
+    Node node = root;
+    int matched = 0;
+    while (matched < key.length()) {
+      Node child = node.children.get(key.charAt(matched));
+      if (child == null || !key.startsWith(child.label, matched)) {
+        return null;
+      }
+      matched += child.label.length();
+      node = child;
+      path.add(node);
+    }
+    return path;
+  }
+
+  /** Сколько найденных значений строго ближе bound */
+  private static int closerThan(Map<Entry, Integer> distances, int bound) {
+    int closer = 0;
+    for (int distance : distances.values()) {
+      if (distance < bound) {
+        closer++;
+      }
+    }
+    return closer;
+  }
+
+  private static List<String> sorted(Map<Entry, Integer> distances, int limit) {
+    List<Entry> matches = new ArrayList<>(distances.keySet());
+    matches.sort(Comparator.<Entry>comparingInt(distances::get).thenComparing(BY_WEIGHT));
+    List<String> result = new ArrayList<>(Math.min(limit, matches.size()));
+    for (int i = 0; i < matches.size() && result.size() < limit; i++) {
+      result.add(matches.get(i).value);
+    }
+    return result;
+  }
+
+  private static void collect(Node node, List<Entry> result) {
+    result.addAll(node.values);
+    for (Node child : node.children.values()) {
+      collect(child, result);
+    }
+  }
+
+  private static int commonPrefix(String label, String key, int offset) {
+    int max = Math.min(label.length(), key.length() - offset);
+    int i = 0;
+    while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+      i++;
+    }
+    return i;
+  }
+
+  /** Значение и его вес */
+  static final class Entry {
+    private final String value;
+    private final String key;
+    private long count;
+
+    Entry(String value, String key) {
+      this.value = value;
+      this.key = key;
+    }
+
+    String getValue() {
+      return value;
+    }
+
+    long getCount() {
+      return count;
+    }
+  }
+
+  /** Нераскрытый узел fuzzy-обхода: состояние автомата после метки узла */
+  private static final class Frontier implements Comparable<Frontier> {
+    private final Node node;
+    private final int[] state;
+    private final int bound; // нижняя оценка расстояния для всех ключей поддерева
+    private final long weight; // вес лучшего завершения поддерева
+
+    Frontier(Node node, int[] state, int bound) {
+      this.node = node;
+      this.state = state;
+      this.bound = bound;
+      this.weight = node.top.isEmpty() ? 0 : node.top.get(0).count;
+    }
+
+    @Override
+    public int compareTo(Frontier other) {
+      int byBound = Integer.compare(bound, other.bound);
+      return byBound != 0 ? byBound : Long.compare(other.weight, weight);
+    }
+  }
+
+  private static final class Node {
+    private String label;
+    private final Map<Character, Node> children = new TreeMap<>();
+    private final List<Entry> values = new ArrayList<>(1);
+    private List<Entry> top = List.of();
+
+    Node(String label) {
+      this.label = label;
+    }
+  }
+}
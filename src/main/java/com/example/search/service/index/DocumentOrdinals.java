@@ -0,0 +1,87 @@
+package com.example.search.service.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Отображение ID документа в плотный порядковый номер (ordinal) и обратно
+ *
+ * <p>Все in-memory индексы адресуют документы через ordinal, а не через Long ID: - postings и
+ * колонки хранятся в примитивных массивах - ordinal стабилен на все время жизни документа (update
+ * не меняет номер) - удаленные документы помечаются в live-bitset, номер не переиспользуется до
+ * следующего полного rebuild
+ *
+ * <p>Запись выполняет только InMemoryIndexCoordinator; {@link #idOf(int)} работает без блокировки и
+ * безопасен для уже опубликованных номеров (массив только растет копированием).
+ */
+@Component
+public class DocumentOrdinals {
+
+  private final Map<Long, Integer> ordinalsById = new HashMap<>();
+  private volatile long[] idsByOrdinal = new long[1024];
+  private final BitSet live = new BitSet();
+  private volatile int size;
+
+  /** Получить ordinal существующего документа или -1 */
+  public synchronized int ordinalOf(Long id) {
+    Integer ordinal = ordinalsById.get(id);
+    return ordinal != null ? ordinal : -1;
+  }
+
+  /** Выдать ordinal новому документу (или вернуть существующий) */
+  public synchronized int assign(Long id) {
+    Integer existing = ordinalsById.get(id);
+    if (existing != null) {
+      live.set(existing);
+      return existing;
+    }
+
+    int ordinal = size;
+    if (ordinal == idsByOrdinal.length) {
+      idsByOrdinal = Arrays.copyOf(idsByOrdinal, ordinal * 2);
+    }
+    idsByOrdinal[ordinal] = id;
+    ordinalsById.put(id, ordinal);
+    live.set(ordinal);
+    size = ordinal + 1;
+    return ordinal;
+  }
+
+  /** Пометить документ удаленным; возвращает его ordinal или -1 */
+  public synchronized int release(Long id) {
+    Integer ordinal = ordinalsById.remove(id);
+    if (ordinal == null) {
+      return -1;
+    }
+    live.clear(ordinal);
+    return ordinal;
+  }
+
+  public long idOf(int ordinal) {
+    return idsByOrdinal[ordinal];
+  }
+
+  public synchronized boolean isLive(int ordinal) {
+    return live.get(ordinal);
+  }
+
+  /** Количество выданных номеров (включая удаленные) - верхняя граница для массивов */
+  public int size() {
+    return size;
+  }
+
+  public synchronized int liveCount() {
+    return live.cardinality();
+  }
+
+  public synchronized void clear() {
+    ordinalsById.clear();
+    live.clear();
+    idsByOrdinal = new long[1024];
+    size = 0;
+  }
+}
@@ -0,0 +1,572 @@
+package com.example.search.service.index;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Service;
+
+import com.example.search.constants.DocumentConstants;
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentSearchParams;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Кэш фильтров на сжатых bitmap (RoaringBitmap) по ordinal документов
+ *
+ * <p>Вместо новых SQL предикатов на каждый запрос: - category, status, author - dictionary-encoded
+ * колонка (int[] value ordinal по документу) + bitmap документов на каждое значение -
+ * created_at/updated_at - bitmap на каждый день (bucket) + точное значение по документу для
+ * граничных дней диапазона - фильтр запроса = AND/OR готовых bitmap
+ *
+ * <p>Bitmap-ы поддерживаются в актуальном состоянии на каждую запись (события DocumentService через
+ * InMemoryIndexCoordinator), поэтому отдельная инвалидация не нужна. Day buckets также служат
+ * индексом сортировки по дате: страница собирается обходом bucket-ов по порядку, а колонки значений
+ * - хранилищем facets (countFacets): одна структура на фильтры, сортировку и подсчет.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FilterBitmapCache implements InMemoryDocumentIndex {
+
+  static final List<String> VALUE_FIELDS =
+      List.of(
+          DocumentConstants.FIELD_CATEGORY,
+          DocumentConstants.FIELD_STATUS,
+          DocumentConstants.FIELD_AUTHOR);
+
+  static final List<String> DATE_FIELDS =
+      List.of(DocumentConstants.FIELD_CREATED_AT, DocumentConstants.FIELD_UPDATED_AT);
+
+  /** Значение NULL для дат (bucket с этим ключом идет первым, как NULL в ORDER BY H2) */
+  private static final long NULL_TIME = Long.MIN_VALUE;
+
+  private static final long BUCKET_MICROS = 86_400_000_000L;
+
+  private final DocumentOrdinals ordinals;
+
+  private final Map<String, ValueColumn> valueColumns = createValueColumns();
+  private final Map<String, DateColumn> dateColumns = createDateColumns();
+  private final RoaringBitmap live = new RoaringBitmap();
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile boolean ready;
+
+  @Override
+  public String getName() {
+    return "filter-bitmap-cache";
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      ready = false;
+      valueColumns.values().forEach(ValueColumn::clear);
+      dateColumns.values().forEach(DateColumn::clear);
+      live.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void onRebuildCompleted() {
+    lock.writeLock().lock();
+    try {
+      live.runOptimize();
+      valueColumns.values().forEach(ValueColumn::optimize);
+    } finally {
+      lock.writeLock().unlock();
+    }
+    ready = true;
+  }
+
+  @Override
+  public void onAdded(int ordinal, Document document) {
+    lock.writeLock().lock();
+    try {
+      live.add(ordinal);
+      valueColumns.get(DocumentConstants.FIELD_CATEGORY).set(ordinal, document.getCategory());
+      valueColumns.get(DocumentConstants.FIELD_STATUS).set(ordinal, document.getStatus());
+      valueColumns.get(DocumentConstants.FIELD_AUTHOR).set(ordinal, document.getAuthor());
+      dateColumns.get(DocumentConstants.FIELD_CREATED_AT).set(ordinal, document.getCreatedAt());
+      dateColumns.get(DocumentConstants.FIELD_UPDATED_AT).set(ordinal, document.getUpdatedAt());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void onUpdated(int ordinal, Document previous, Document current) {
+    onAdded(ordinal, current);
+  }
+
+  @Override
+  public void onRemoved(int ordinal, Document previous) {
+    lock.writeLock().lock();
+    try {
+      live.remove(ordinal);
+      valueColumns.values().forEach(column -> column.set(ordinal, null));
+      dateColumns.values().forEach(column -> column.remove(ordinal));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Кэш загружен и может заменить SQL предикаты */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Bitmap документов, проходящих фильтры category/status/author/даты/documentIds
+   *
+   * <p>query не учитывается - текстовый поиск обрабатывает инвертированный индекс.
+   *
+   * @return новый bitmap (можно изменять); Optional.empty() если кэш не загружен
+   */
+  public Optional<RoaringBitmap> filter(DocumentSearchParams params) {
+    if (!ready) {
+      return Optional.empty();
+    }
+    return Optional.of(filter(params, null));
+  }
+
+  /**
+   * То же, что {@link #filter(DocumentSearchParams)}, но без фильтра по одному полю (для facets:
+   * измерение не фильтруется собственным значением)
+   */
+  private RoaringBitmap filter(DocumentSearchParams params, String excludedField) {
+    lock.readLock().lock();
+    try {
+      List<RoaringBitmap> clauses = new ArrayList<>();
+      addValueClause(
+          clauses, DocumentConstants.FIELD_CATEGORY, params.getCategory(), false, excludedField);
+      addValueClause(
+          clauses, DocumentConstants.FIELD_STATUS, params.getStatus(), false, excludedField);
+      addValueClause(
+          clauses, DocumentConstants.FIELD_AUTHOR, params.getAuthor(), true, excludedField);
+      addDateClause(
+          clauses,
+          DocumentConstants.FIELD_CREATED_AT,
+          params.getCreatedAfter(),
+          params.getCreatedBefore());
+      addDateClause(
+          clauses,
+          DocumentConstants.FIELD_UPDATED_AT,
+          params.getUpdatedAfter(),
+          params.getUpdatedBefore());
+      if (params.getDocumentIds() != null) {
+        clauses.add(toBitmap(params.getDocumentIds()));
+      }
+
+      // live AND самые селективные bitmap-ы первыми (раньше выходим на пустом результате)
+      clauses.sort(Comparator.comparingLong(RoaringBitmap::getLongCardinality));
+      RoaringBitmap result = live.clone();
+      for (RoaringBitmap clause : clauses) {
+        result.and(clause);
+        if (result.isEmpty()) {
+          break;
+        }
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Счетчики facets (category, status, author) по колонкам кэша, без SQL
+   *
+   * <p>Каждое измерение считается без собственного фильтра, но с фильтрами остальных измерений (как
+   * в SQL пути), внутри restriction. Счетчик значения - andCardinality с bitmap значения (или один
+   * проход по колонке, если выборка меньше словаря).
+   *
+   * @param params фильтры (query не учитывается - совпадения текста передаются в restriction)
+   * @param dimensions измерения; неизвестные пропускаются
+   * @param restriction документы, доступные запросу: совпадения query, видимые пользователю
+   * @return измерение -> значение -> количество; Optional.empty() если кэш не загружен
+   */
+  public Optional<Map<String, Map<String, Long>>> countFacets(
+      DocumentSearchParams params, Collection<String> dimensions, RoaringBitmap restriction) {
+    if (!ready) {
+      return Optional.empty();
+    }
+    Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+    for (String dimension : dimensions) {
+      String field = dimension.toLowerCase(Locale.ROOT);
+      if (!VALUE_FIELDS.contains(field)) {
+        continue;
+      }
+      RoaringBitmap selection = filter(params, field);
+      selection.and(restriction);
+      lock.readLock().lock();
+      try {
+        result.put(dimension, valueColumns.get(field).count(selection));
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+    return Optional.of(result);
+  }
+
+  /**
+   * Первые limit документов выборки в порядке (дата, id)
+   *
+   * <p>Обход day bucket-ов по порядку: сортируются только документы bucket-ов, попавших в страницу,
+   * а не вся выборка.
+   *
+   * @param dateField createdAt или updatedAt
+   * @return ID документов в порядке сортировки
+   */
+  public List<Long> firstIdsByDate(
+      RoaringBitmap selection, String dateField, boolean descending, int limit) {
+    lock.readLock().lock();
+    try {
+      return dateColumns.get(dateField).firstIds(selection, descending, null, limit, ordinals);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Следующие limit документов выборки строго после пары (дата, id) курсора, в порядке (дата, id)
+   *
+   * <p>Keyset по bitmap: обход начинается с day bucket-а курсора, bucket-ы до него не читаются;
+   * внутри bucket-а курсора отбрасываются пары не после курсора.
+   *
+   * @param dateField createdAt или updatedAt
+   * @param afterValue дата последнего документа предыдущей страницы
+   * @param afterId id последнего документа предыдущей страницы
+   * @return ID документов в порядке сортировки
+   */
+  public List<Long> idsAfter(
+      RoaringBitmap selection,
+      String dateField,
+      boolean descending,
+      LocalDateTime afterValue,
+      long afterId,
+      int limit) {
+    lock.readLock().lock();
+    try {
+      return dateColumns
+          .get(dateField)
+          .firstIds(
+              selection, descending, new long[] {toMicros(afterValue), afterId}, limit, ordinals);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void addValueClause(
+      List<RoaringBitmap> clauses,
+      String field,
+      String value,
+      boolean contains,
+      String excludedField) {
+    if (field.equals(excludedField) || value == null || value.trim().isEmpty()) {
+      return;
+    }
+    ValueColumn column = valueColumns.get(field);
+    String trimmed = value.trim();
+    clauses.add(
+        contains
+            ? column.bitmapContaining(trimmed.toLowerCase(Locale.ROOT))
+            : column.bitmapOf(trimmed));
+  }
+
+  private void addDateClause(
+      List<RoaringBitmap> clauses, String field, LocalDateTime from, LocalDateTime to) {
+    if (from == null && to == null) {
+      return;
+    }
+    clauses.add(dateColumns.get(field).range(from, to));
+  }
+
+  private RoaringBitmap toBitmap(Collection<Long> ids) {
+    RoaringBitmap bitmap = new RoaringBitmap();
+    for (Long id : ids) {
+      int ordinal = ordinals.ordinalOf(id);
+      if (ordinal >= 0) {
+        bitmap.add(ordinal);
+      }
+    }
+    return bitmap;
+  }
+
+  static long toMicros(LocalDateTime dateTime) {
+    if (dateTime == null) {
+      return NULL_TIME;
+    }
+    return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1_000;
+  }
+
+  private static Map<String, ValueColumn> createValueColumns() {
+    Map<String, ValueColumn> columns = new HashMap<>();
+    VALUE_FIELDS.forEach(field -> columns.put(field, new ValueColumn()));
+    return columns;
+  }
+
+  private static Map<String, DateColumn> createDateColumns() {
+    Map<String, DateColumn> columns = new HashMap<>();
+    DATE_FIELDS.forEach(field -> columns.put(field, new DateColumn()));
+    return columns;
+  }
+
+  /** Dictionary-encoded колонка: value ordinal по документу + bitmap документов по значению */
+  private static final class ValueColumn {
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private final List<RoaringBitmap> bitmaps = new ArrayList<>();
+    private int[] valueOrdinals = newColumn(1024);
+
+    void set(int doc, String value) {
+      if (doc >= valueOrdinals.length) {
+        int previousLength = valueOrdinals.length;
+        valueOrdinals = Arrays.copyOf(valueOrdinals, Math.max(previousLength * 2, doc + 1));
+        Arrays.fill(valueOrdinals, previousLength, valueOrdinals.length, -1);
+      }
+
+      int previous = valueOrdinals[doc];
+      if (previous >= 0) {
+        bitmaps.get(previous).remove(doc);
+      }
+
+      int current = value != null ? encode(value) : -1;
+      valueOrdinals[doc] = current;
+      if (current >= 0) {
+        bitmaps.get(current).add(doc);
+      }
+    }
+
+    /** Точное совпадение (пустой bitmap, если значения нет) */
+    RoaringBitmap bitmapOf(String value) {
+      Integer ordinal = dictionary.get(value);
+      return ordinal != null ? bitmaps.get(ordinal) : new RoaringBitmap();
+    }
+
+    /** LIKE '%pattern%' без учета регистра - OR bitmap-ов подходящих значений словаря */
+    RoaringBitmap bitmapContaining(String lowerCasePattern) {
+      List<RoaringBitmap> matching = new ArrayList<>();
+      for (int i = 0; i < values.size(); i++) {
+        if (values.get(i).toLowerCase(Locale.ROOT).contains(lowerCasePattern)) {
+          matching.add(bitmaps.get(i));
+        }
+      }
+      return matching.isEmpty() ? new RoaringBitmap() : FastAggregation.or(matching.iterator());
+    }
+
+    /**
+     * Счетчики значений в выборке
+     *
+     * <p>Выборка меньше словаря - один проход по документам с инкрементом счетчика по колонке;
+     * иначе andCardinality с bitmap каждого значения (без материализации пересечения).
+     */
+    Map<String, Long> count(RoaringBitmap selection) {
+      Map<String, Long> counts = new HashMap<>();
+      long selected = selection.getLongCardinality();
+      if (selected == 0) {
+        return counts;
+      }
+
+      if (selected < values.size()) {
+        long[] perValue = new long[values.size()];
+        IntIterator docs = selection.getIntIterator();
+        while (docs.hasNext()) {
+          int doc = docs.next();
+          int value = doc < valueOrdinals.length ? valueOrdinals[doc] : -1;
+          if (value >= 0) {
+            perValue[value]++;
+          }
+        }
+        for (int i = 0; i < perValue.length; i++) {
+          if (perValue[i] > 0) {
+            counts.put(values.get(i), perValue[i]);
+          }
+        }
+        return counts;
+      }
+
+      for (int i = 0; i < values.size(); i++) {
+        int count = RoaringBitmap.andCardinality(bitmaps.get(i), selection);
+        if (count > 0) {
+          counts.put(values.get(i), (long) count);
+        }
+      }
+      return counts;
+    }
+
+    void optimize() {
+      bitmaps.forEach(RoaringBitmap::runOptimize);
+    }
+
+    void clear() {
+      dictionary.clear();
+      values.clear();
+      bitmaps.clear();
+      valueOrdinals = newColumn(1024);
+    }
+
+    private int encode(String value) {
+      return dictionary.computeIfAbsent(
+          value,
+          v -> {
+            values.add(v);
+            bitmaps.add(new RoaringBitmap());
+            return values.size() - 1;
+          });
+    }
+
+    private static int[] newColumn(int capacity) {
+      int[] column = new int[capacity];
+      Arrays.fill(column, -1);
+      return column;
+    }
+  }
+
+  /** Колонка даты: точное значение (мкс) по документу + bitmap документов на каждый день */
+  private static final class DateColumn {
+    private final NavigableMap<Long, RoaringBitmap> buckets = new TreeMap<>();
+    private long[] values = newColumn(1024);
+
+    void set(int doc, LocalDateTime dateTime) {
+      remove(doc);
+      long micros = toMicros(dateTime);
+      values[doc] = micros;
+      buckets.computeIfAbsent(bucketOf(micros), b -> new RoaringBitmap()).add(doc);
+    }
+
+    void remove(int doc) {
+      if (doc >= values.length) {
+        int previousLength = values.length;
+        values = Arrays.copyOf(values, Math.max(previousLength * 2, doc + 1));
+        Arrays.fill(values, previousLength, values.length, NULL_TIME);
+        return;
+      }
+      long bucket = bucketOf(values[doc]);
+      RoaringBitmap bitmap = buckets.get(bucket);
+      if (bitmap != null) {
+        bitmap.remove(doc);
+        if (bitmap.isEmpty()) {
+          buckets.remove(bucket);
+        }
+      }
+      values[doc] = NULL_TIME;
+    }
+
+    /** Документы с from <= значение <= to (NULL не проходит, как в SQL) */
+    RoaringBitmap range(LocalDateTime from, LocalDateTime to) {
+      long min = from != null ? toMicros(from) : NULL_TIME + 1;
+      long max = to != null ? toMicros(to) : Long.MAX_VALUE;
+      if (min > max) {
+        return new RoaringBitmap();
+      }
+
+      long firstBucket = bucketOf(min);
+      long lastBucket = bucketOf(max);
+      List<RoaringBitmap> inner = new ArrayList<>();
+      RoaringBitmap edges = new RoaringBitmap();
+
+      for (Map.Entry<Long, RoaringBitmap> entry :
+          buckets.subMap(firstBucket, true, lastBucket, true).entrySet()) {
+        long bucket = entry.getKey();
+        if (bucket != firstBucket && bucket != lastBucket) {
+          inner.add(entry.getValue());
+          continue;
+        }
+        // Граничный день - проверяем точное значение
+        IntIterator docs = entry.getValue().getIntIterator();
+        while (docs.hasNext()) {
+          int doc = docs.next();
+          if (values[doc] >= min && values[doc] <= max) {
+            edges.add(doc);
+          }
+        }
+      }
+
+      inner.add(edges);
+      return FastAggregation.or(inner.iterator());
+    }
+
+    /** after - пара (мкс, id) курсора или null для первой страницы */
+    List<Long> firstIds(
+        RoaringBitmap selection,
+        boolean descending,
+        long[] after,
+        int limit,
+        DocumentOrdinals ordinals) {
+      List<Long> result = new ArrayList<>(Math.max(limit, 0));
+      NavigableMap<Long, RoaringBitmap> range = buckets;
+      if (after != null) {
+        long bucket = bucketOf(after[0]);
+        range = descending ? buckets.headMap(bucket, true) : buckets.tailMap(bucket, true);
+      }
+      Collection<RoaringBitmap> ordered =
+          descending ? range.descendingMap().values() : range.values();
+
+      for (RoaringBitmap bucket : ordered) {
+        if (result.size() >= limit) {
+          break;
+        }
+        RoaringBitmap matches = RoaringBitmap.and(bucket, selection);
+        if (matches.isEmpty()) {
+          continue;
+        }
+
+        // Внутри дня - точная сортировка по (дата, id)
+        Comparator<long[]> order =
+            Comparator.<long[]>comparingLong(entry -> entry[0])
+                .thenComparingLong(entry -> entry[1]);
+        List<long[]> entries = new ArrayList<>(matches.getCardinality());
+        matches.forEach((int doc) -> entries.add(new long[] {values[doc], ordinals.idOf(doc)}));
+        entries.sort(descending ? order.reversed() : order);
+
+        for (long[] entry : entries) {
+          if (result.size() >= limit) {
+            break;
+          }
+          if (after != null) {
+            int compared = order.compare(entry, after);
+            if (descending ? compared >= 0 : compared <= 0) {
+              continue;
+            }
+          }
+          result.add(entry[1]);
+        }
+      }
+      return result;
+    }
+
+    void clear() {
+      buckets.clear();
+      values = newColumn(1024);
+    }
+
+    private static long bucketOf(long micros) {
+      return micros == NULL_TIME ? NULL_TIME : Math.floorDiv(micros, BUCKET_MICROS);
+    }
+
+    private static long[] newColumn(int capacity) {
+      long[] column = new long[capacity];
+      Arrays.fill(column, NULL_TIME);
+      return column;
+    }
+  }
+}
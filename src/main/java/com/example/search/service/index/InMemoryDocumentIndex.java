@@ -0,0 +1,30 @@
+package com.example.search.service.index;
+
+import com.example.search.model.Document;
+
+/**
+ * Контракт in-memory индекса, который синхронизируется с таблицей documents
+ *
+ * <p>Все вызовы приходят от InMemoryIndexCoordinator последовательно (один writer), поэтому
+ * реализации защищают только чтение от конкурентной записи.
+ */
+public interface InMemoryDocumentIndex {
+
+  /** Имя индекса для логов и метрик */
+  String getName();
+
+  /** Полная очистка перед rebuild */
+  void clear();
+
+  /** Документ добавлен (или загружен при rebuild) */
+  void onAdded(int ordinal, Document document);
+
+  /** Документ изменен; previous может быть null, если снимок недоступен */
+  void onUpdated(int ordinal, Document previous, Document current);
+
+  /** Документ удален */
+  void onRemoved(int ordinal, Document previous);
+
+  /** Первичная загрузка завершена - индекс можно использовать для запросов */
+  default void onRebuildCompleted() {}
+}
@@ -0,0 +1,135 @@
+package com.example.search.service.index;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.service.document.DocumentChangedEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Координатор in-memory индексов
+ *
+ * <p>Отвечает за: - Первичную загрузку всех индексов одним проходом по таблице documents (keyset
+ * батчи по id, память не зависит от размера таблицы) - Инкрементальную синхронизацию по событиям
+ * DocumentChangedEvent после коммита транзакции - Выдачу стабильных ordinal через DocumentOrdinals
+ *
+ * <p>Все изменения индексов проходят через этот класс последовательно (synchronized) - индексы
+ * могут рассчитывать на единственного writer.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InMemoryIndexCoordinator {
+
+  private final DocumentRepository documentRepository;
+  private final DocumentOrdinals ordinals;
+  private final List<InMemoryDocumentIndex> indexes;
+
+  @Value("${search.index.enabled:true}")
+  private boolean enabled;
+
+  @Value("${search.index.rebuild-batch-size:1000}")
+  private int rebuildBatchSize;
+
+  private volatile boolean ready;
+
+  /** Загрузка индексов после старта приложения (после DataSeeder) */
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    if (!enabled) {
+      log.info("In-memory indexes are disabled (search.index.enabled=false)");
+      return;
+    }
+    rebuild();
+  }
+
+  /** Полная перестройка всех индексов из БД */
+  public synchronized void rebuild() {
+    long startTime = System.nanoTime();
+    ready = false;
+
+    ordinals.clear();
+    indexes.forEach(InMemoryDocumentIndex::clear);
+
+    long lastId = 0L;
+    int loaded = 0;
+    while (true) {
+      List<Document> batch =
+          documentRepository.findByIdGreaterThanOrderByIdAsc(
+              lastId, PageRequest.of(0, rebuildBatchSize));
+      if (batch.isEmpty()) {
+        break;
+      }
+      for (Document document : batch) {
+        int ordinal = ordinals.assign(document.getId());
+        for (InMemoryDocumentIndex index : indexes) {
+          index.onAdded(ordinal, document);
+        }
+      }
+      loaded += batch.size();
+      lastId = batch.get(batch.size() - 1).getId();
+    }
+
+    indexes.forEach(InMemoryDocumentIndex::onRebuildCompleted);
+    ready = true;
+    log.info(
+        "In-memory indexes {} rebuilt: {} documents in {}ms",
+        indexes.stream().map(InMemoryDocumentIndex::getName).toList(),
+        loaded,
+        (System.nanoTime() - startTime) / 1_000_000);
+  }
+
+  /**
+   * Инкрементальное обновление после коммита
+   *
+   * <p>Обработка идемпотентна: событие, пришедшее во время rebuild, применяется повторно без дублей
+   * (update = удалить старые термы + добавить новые).
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public synchronized void onDocumentChanged(DocumentChangedEvent event) {
+    if (!enabled) {
+      return;
+    }
+
+    switch (event.getType()) {
+      case CREATED -> {
+        if (ordinals.ordinalOf(event.getDocumentId()) >= 0) {
+          // Уже загружен rebuild-ом
+          return;
+        }
+        int ordinal = ordinals.assign(event.getDocumentId());
+        indexes.forEach(index -> index.onAdded(ordinal, event.getCurrent()));
+      }
+      case UPDATED -> {
+        int ordinal = ordinals.ordinalOf(event.getDocumentId());
+        if (ordinal < 0) {
+          int assigned = ordinals.assign(event.getDocumentId());
+          indexes.forEach(index -> index.onAdded(assigned, event.getCurrent()));
+          return;
+        }
+        indexes.forEach(index -> index.onUpdated(ordinal, event.getPrevious(), event.getCurrent()));
+      }
+      case DELETED -> {
+        int ordinal = ordinals.release(event.getDocumentId());
+        if (ordinal >= 0) {
+          indexes.forEach(index -> index.onRemoved(ordinal, event.getPrevious()));
+        }
+      }
+    }
+  }
+
+  /** Индексы загружены и синхронизируются - можно использовать вместо SQL */
+  public boolean isReady() {
+    return enabled && ready;
+  }
+}
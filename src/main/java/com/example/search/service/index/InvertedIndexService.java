@@ -0,0 +1,444 @@
+package com.example.search.service.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Service;
+
+import com.example.search.constants.DocumentConstants;
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentSearchParams;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory инвертированный индекс по title, author, content
+ *
+ * <p>Заменяет {@code LOWER(x) LIKE '%q%'} (full table scan) для полнотекстового поиска на JPA
+ * fallback пути: - Словарь термов - TreeMap на поле (позволяет префиксный поиск через subMap) -
+ * Postings - отсортированные int[] ordinal + term frequency - Поиск: каждый терм запроса
+ * раскрывается как префикс, термы объединяются через AND, поля - через OR
+ *
+ * <p>Отличия от LIKE: совпадение ищется по началу токенов, а не по произвольной подстроке ("search"
+ * найдет "searching", но не "opensearch"). Префикс раскрывается полностью: postings всех термов
+ * диапазона словаря объединяются в один bitmap.
+ *
+ * <p>Совпадения отдаются bitmap-ом ordinal: фильтры, права и страница считаются в памяти
+ * (BitmapFilterSearchService), в SQL уходят только ID страницы. Для SQL пути (сортировка по
+ * остальным полям, пока кэши фильтров и прав не загружены) совпадения передаются списком ID:
+ * короткий - в {@code id IN (...)}, длинный - через временную таблицу
+ * (DocumentCustomRepositoryImpl). После загрузки индекса LIKE не используется: результат не зависит
+ * от числа совпадений.
+ *
+ * <p>Для сортировки RELEVANCE индекс хранит статистику BM25 по полям: document frequency (размер
+ * postings), длину поля каждого документа и суммарную длину поля. Все обновляется инкрементально
+ * вместе с postings.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InvertedIndexService implements InMemoryDocumentIndex {
+
+  /** Поля индекса в порядке от коротких к длинным (как в DocumentSpecification.hasTextSearch) */
+  static final List<String> FIELDS =
+      List.of(
+          DocumentConstants.FIELD_TITLE,
+          DocumentConstants.FIELD_AUTHOR,
+          DocumentConstants.FIELD_CONTENT);
+
+  private final DocumentOrdinals ordinals;
+
+  private final Map<String, NavigableMap<String, Postings>> fieldIndexes = createFieldIndexes();
+  private final Map<String, FieldLengths> fieldLengths = createFieldLengths();
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile boolean ready;
+
+  @Override
+  public String getName() {
+    return "inverted-index";
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      ready = false;
+      fieldIndexes.values().forEach(Map::clear);
+      fieldLengths.values().forEach(FieldLengths::clear);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void onRebuildCompleted() {
+    ready = true;
+  }
+
+  @Override
+  public void onAdded(int ordinal, Document document) {
+    lock.writeLock().lock();
+    try {
+      addTerms(ordinal, document);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void onUpdated(int ordinal, Document previous, Document current) {
+    lock.writeLock().lock();
+    try {
+      if (previous != null) {
+        removeTerms(ordinal, previous);
+      }
+      addTerms(ordinal, current);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void onRemoved(int ordinal, Document previous) {
+    if (previous == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      removeTerms(ordinal, previous);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Индекс загружен и может заменить LIKE */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Найти ID документов, содержащих все термы запроса
+   *
+   * @param query поисковый запрос
+   * @return отсортированные ID; Optional.empty() если индекс не готов или запрос не содержит термов
+   *     (тогда вызывающий код использует LIKE)
+   */
+  public Optional<List<Long>> findDocumentIds(String query) {
+    return findMatches(query).map(this::toDocumentIds);
+  }
+
+  /**
+   * Заменить LIKE по query на список кандидатов из индекса (SQL путь)
+   *
+   * <p>Если индекс не готов - параметры возвращаются без изменений (LIKE). Длина списка не
+   * ограничена: длинные списки репозиторий передает через временную таблицу.
+   */
+  public DocumentSearchParams resolveTextQuery(DocumentSearchParams params) {
+    if (params.getQuery() == null || params.getQuery().isBlank()) {
+      return params;
+    }
+    Optional<RoaringBitmap> matches = findMatches(params.getQuery());
+    if (matches.isEmpty()) {
+      return params;
+    }
+    return params.toBuilder().query(null).documentIds(toDocumentIds(matches.get())).build();
+  }
+
+  /** Количество уникальных термов по полям (для мониторинга) */
+  public Map<String, Integer> getTermCounts() {
+    lock.readLock().lock();
+    try {
+      Map<String, Integer> counts = new HashMap<>();
+      fieldIndexes.forEach((field, terms) -> counts.put(field, terms.size()));
+      return counts;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Ранжирование кандидатов по BM25 с выбором top-k
+   *
+   * <p>Сортируется не весь набор совпадений, а только k лучших через ограниченную кучу. Кандидаты
+   * уже прошли фильтры (category, status, даты), поэтому здесь только scoring.
+   *
+   * @param query поисковый запрос
+   * @param candidateIds ID документов, прошедших фильтры
+   * @param topK сколько лучших вернуть
+   * @return ID в порядке убывания релевантности (не больше topK)
+   */
+  public List<Long> rankByRelevance(String query, Collection<Long> candidateIds, int topK) {
+    Set<String> terms = new LinkedHashSet<>(TextAnalyzer.tokenize(query));
+    if (terms.isEmpty() || candidateIds.isEmpty() || topK <= 0) {
+      return new ArrayList<>();
+    }
+
+    long startTime = System.nanoTime();
+    int[] candidates = toOrdinals(candidateIds);
+    float[] scores = new float[candidates.length];
+
+    lock.readLock().lock();
+    try {
+      int documentCount = Math.max(ordinals.liveCount(), 1);
+      for (String term : terms) {
+        String upperBound = term + Character.MAX_VALUE;
+        for (String field : FIELDS) {
+          float boost = Bm25.FIELD_BOOSTS.get(field);
+          FieldLengths lengths = fieldLengths.get(field);
+          float averageLength = lengths.average(documentCount);
+
+          for (Postings postings :
+              fieldIndexes.get(field).subMap(term, true, upperBound, false).values()) {
+            float idf = Bm25.idf(postings.size(), documentCount);
+            accumulate(postings, candidates, scores, boost * idf, lengths, averageLength);
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    TopKCollector collector = new TopKCollector(Math.min(topK, candidates.length));
+    for (int i = 0; i < candidates.length; i++) {
+      collector.offer(i, scores[i]);
+    }
+
+    List<Long> ranked = new ArrayList<>(collector.size());
+    for (int i : collector.drainDescending()) {
+      ranked.add(ordinals.idOf(candidates[i]));
+    }
+
+    log.debug(
+        "BM25 ranking '{}': {} candidates, top {} in {}µs",
+        query,
+        candidates.length,
+        ranked.size(),
+        (System.nanoTime() - startTime) / 1000);
+    return ranked;
+  }
+
+  /**
+   * Добавить вклад postings терма к score кандидатов
+   *
+   * <p>Оба массива отсортированы: для коротких postings - merge за O(n + m), для длинных (частый
+   * терм, мало кандидатов) - бинарный поиск каждого кандидата.
+   */
+  private void accumulate(
+      Postings postings,
+      int[] candidates,
+      float[] scores,
+      float weightedIdf,
+      FieldLengths lengths,
+      float averageLength) {
+    if (postings.size() > candidates.length * 8) {
+      for (int c = 0; c < candidates.length; c++) {
+        int pos = postings.indexOf(candidates[c]);
+        if (pos >= 0) {
+          scores[c] +=
+              Bm25.termScore(
+                  weightedIdf, postings.freqAt(pos), lengths.get(candidates[c]), averageLength);
+        }
+      }
+      return;
+    }
+
+    int p = 0;
+    int c = 0;
+    while (p < postings.size() && c < candidates.length) {
+      int doc = postings.docAt(p);
+      if (doc < candidates[c]) {
+        p++;
+      } else if (doc > candidates[c]) {
+        c++;
+      } else {
+        scores[c] +=
+            Bm25.termScore(weightedIdf, postings.freqAt(p), lengths.get(doc), averageLength);
+        p++;
+        c++;
+      }
+    }
+  }
+
+  private int[] toOrdinals(Collection<Long> ids) {
+    int[] result = new int[ids.size()];
+    int size = 0;
+    for (Long id : ids) {
+      int ordinal = ordinals.ordinalOf(id);
+      if (ordinal >= 0) {
+        result[size++] = ordinal;
+      }
+    }
+    Arrays.sort(result, 0, size);
+    return Arrays.copyOf(result, size);
+  }
+
+  /**
+   * Bitmap ordinal документов, содержащих все термы запроса
+   *
+   * @return новый bitmap (можно изменять); Optional.empty() если индекс не готов или запрос не
+   *     содержит термов
+   */
+  public Optional<RoaringBitmap> findMatches(String query) {
+    if (!ready) {
+      return Optional.empty();
+    }
+
+    Set<String> terms = new LinkedHashSet<>(TextAnalyzer.tokenize(query));
+    if (terms.isEmpty()) {
+      return Optional.empty();
+    }
+
+    long startTime = System.nanoTime();
+    RoaringBitmap result = null;
+
+    lock.readLock().lock();
+    try {
+      for (String term : terms) {
+        RoaringBitmap matches = matchTerm(term);
+        result = result == null ? matches : RoaringBitmap.and(result, matches);
+        if (result.isEmpty()) {
+          break;
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    log.debug(
+        "Inverted index lookup '{}': {} matches in {}µs",
+        query,
+        result.getLongCardinality(),
+        (System.nanoTime() - startTime) / 1000);
+    return Optional.of(result);
+  }
+
+  /** Все документы, в которых есть токен с префиксом term (в любом поле), без ограничения */
+  private RoaringBitmap matchTerm(String term) {
+    RoaringBitmap matches = new RoaringBitmap();
+    String upperBound = term + Character.MAX_VALUE;
+    for (NavigableMap<String, Postings> terms : fieldIndexes.values()) {
+      for (Postings postings : terms.subMap(term, true, upperBound, false).values()) {
+        postings.addDocsTo(matches);
+      }
+    }
+    return matches;
+  }
+
+  /** ID живых документов bitmap-а ordinal (findMatches, FilterBitmapCache), по возрастанию */
+  public List<Long> toDocumentIds(RoaringBitmap ordinalSet) {
+    long[] ids = new long[ordinalSet.getCardinality()];
+    int size = 0;
+    for (int ordinal : ordinalSet) {
+      if (ordinals.isLive(ordinal)) {
+        ids[size++] = ordinals.idOf(ordinal);
+      }
+    }
+    Arrays.sort(ids, 0, size);
+
+    List<Long> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(ids[i]);
+    }
+    return result;
+  }
+
+  private void addTerms(int ordinal, Document document) {
+    for (String field : FIELDS) {
+      NavigableMap<String, Postings> terms = fieldIndexes.get(field);
+      List<String> tokens = TextAnalyzer.tokenize(fieldValue(document, field));
+      termFrequencies(tokens)
+          .forEach(
+              (term, freq) -> terms.computeIfAbsent(term, t -> new Postings()).put(ordinal, freq));
+      fieldLengths.get(field).set(ordinal, tokens.size());
+    }
+  }
+
+  private void removeTerms(int ordinal, Document document) {
+    for (String field : FIELDS) {
+      NavigableMap<String, Postings> terms = fieldIndexes.get(field);
+      List<String> tokens = TextAnalyzer.tokenize(fieldValue(document, field));
+      for (String term : termFrequencies(tokens).keySet()) {
+        Postings postings = terms.get(term);
+        if (postings != null) {
+          postings.remove(ordinal);
+          if (postings.isEmpty()) {
+            terms.remove(term);
+          }
+        }
+      }
+      fieldLengths.get(field).set(ordinal, 0);
+    }
+  }
+
+  private static Map<String, Integer> termFrequencies(List<String> tokens) {
+    Map<String, Integer> frequencies = new HashMap<>();
+    for (String token : tokens) {
+      frequencies.merge(token, 1, Integer::sum);
+    }
+    return frequencies;
+  }
+
+  static String fieldValue(Document document, String field) {
+    return switch (field) {
+      case DocumentConstants.FIELD_TITLE -> document.getTitle();
+      case DocumentConstants.FIELD_AUTHOR -> document.getAuthor();
+      case DocumentConstants.FIELD_CONTENT -> document.getContent();
+      default -> null;
+    };
+  }
+
+  private static Map<String, NavigableMap<String, Postings>> createFieldIndexes() {
+    Map<String, NavigableMap<String, Postings>> indexes = new HashMap<>();
+    for (String field : FIELDS) {
+      indexes.put(field, new TreeMap<>());
+    }
+    return indexes;
+  }
+
+  private static Map<String, FieldLengths> createFieldLengths() {
+    Map<String, FieldLengths> lengths = new HashMap<>();
+    for (String field : FIELDS) {
+      lengths.put(field, new FieldLengths());
+    }
+    return lengths;
+  }
+
+  /** Длина поля (в токенах) по ordinal + суммарная длина для avgLen в BM25 */
+  private static final class FieldLengths {
+    private int[] lengths = new int[1024];
+    private long totalLength;
+
+    void set(int ordinal, int length) {
+      if (ordinal >= lengths.length) {
+        lengths = Arrays.copyOf(lengths, Math.max(lengths.length * 2, ordinal + 1));
+      }
+      totalLength += length - lengths[ordinal];
+      lengths[ordinal] = length;
+    }
+
+    int get(int ordinal) {
+      return ordinal < lengths.length ? lengths[ordinal] : 0;
+    }
+
+    float average(int documentCount) {
+      return (float) totalLength / documentCount;
+    }
+
+    void clear() {
+      lengths = new int[1024];
+      totalLength = 0;
+    }
+  }
+}
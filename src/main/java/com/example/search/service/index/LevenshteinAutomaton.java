@@ -0,0 +1,66 @@
+package com.example.search.service.index;
+
+/**
+ * Автомат Левенштейна для префикса запроса (симуляция NFA строками DP)
+ *
+ * <p>Состояние - вектор расстояний от прочитанных символов ключа до каждого префикса запроса. Шаг -
+ * O(длина запроса), поэтому обход словаря стоит O(посещенных символов · длина запроса) и не зависит
+ * от размера словаря. Состояние мертвое, если минимум вектора больше maxDistance: ни одно
+ * продолжение ключа уже не совпадет, и поддерево можно отсечь.
+ */
+final class LevenshteinAutomaton {
+
+  private final String query;
+  private final int maxDistance;
+
+  LevenshteinAutomaton(String query, int maxDistance) {
+    this.query = query;
+    this.maxDistance = maxDistance;
+  }
+
+  /** Начальное состояние (пустой ключ) */
+  int[] start() {
+    int[] state = new int[query.length() + 1];
+    for (int i = 0; i < state.length; i++) {
+      state[i] = i;
+    }
+    return state;
+  }
+
+  /** Переход по очередному символу ключа */
+  int[] step(int[] state, char c) {
+    int[] next = new int[state.length];
+    next[0] = state[0] + 1;
+    for (int i = 1; i < state.length; i++) {
+      int substitution = state[i - 1] + (query.charAt(i - 1) == c ? 0 : 1);
+      next[i] = Math.min(substitution, Math.min(state[i] + 1, next[i - 1] + 1));
+    }
+    return next;
+  }
+
+  /** Прочитанная часть ключа совпадает с запросом с точностью до maxDistance правок */
+  boolean isMatch(int[] state) {
+    return state[state.length - 1] <= maxDistance;
+  }
+
+  /** Какое-то продолжение ключа еще может совпасть */
+  boolean canMatch(int[] state) {
+    return minDistance(state) <= maxDistance;
+  }
+
+  /**
+   * Нижняя оценка расстояния для любого продолжения прочитанного ключа: дочитывание символов не
+   * уменьшает минимум вектора
+   */
+  int minDistance(int[] state) {
+    int min = Integer.MAX_VALUE;
+    for (int distance : state) {
+      min = Math.min(min, distance);
+    }
+    return min;
+  }
+
+  int distance(int[] state) {
+    return state[state.length - 1];
+  }
+}
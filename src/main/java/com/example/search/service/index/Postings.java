@@ -0,0 +1,89 @@
+package com.example.search.service.index;
+
+import java.util.Arrays;
+
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Список вхождений терма (postings list) в примитивных массивах
+ *
+ * <p>docs - отсортированные по возрастанию ordinal документов, freqs - частота терма в документе
+ * (term frequency) по тому же индексу. Новые документы получают максимальный ordinal, поэтому
+ * типичная вставка - append за O(1); вставка в середину (update) - бинарный поиск + arraycopy.
+ */
+final class Postings {
+
+  private int[] docs = new int[4];
+  private int[] freqs = new int[4];
+  private int size;
+
+  /** Добавить/заменить вхождение документа */
+  void put(int ordinal, int freq) {
+    if (size > 0 && docs[size - 1] < ordinal) {
+      ensureCapacity();
+      docs[size] = ordinal;
+      freqs[size] = freq;
+      size++;
+      return;
+    }
+
+    int pos = Arrays.binarySearch(docs, 0, size, ordinal);
+    if (pos >= 0) {
+      freqs[pos] = freq;
+      return;
+    }
+
+    int insertAt = -pos - 1;
+    ensureCapacity();
+    System.arraycopy(docs, insertAt, docs, insertAt + 1, size - insertAt);
+    System.arraycopy(freqs, insertAt, freqs, insertAt + 1, size - insertAt);
+    docs[insertAt] = ordinal;
+    freqs[insertAt] = freq;
+    size++;
+  }
+
+  /** Удалить вхождение документа (no-op если его нет) */
+  void remove(int ordinal) {
+    int pos = Arrays.binarySearch(docs, 0, size, ordinal);
+    if (pos < 0) {
+      return;
+    }
+    System.arraycopy(docs, pos + 1, docs, pos, size - pos - 1);
+    System.arraycopy(freqs, pos + 1, freqs, pos, size - pos - 1);
+    size--;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Позиция документа в postings или отрицательное число */
+  int indexOf(int ordinal) {
+    return Arrays.binarySearch(docs, 0, size, ordinal);
+  }
+
+  int docAt(int i) {
+    return docs[i];
+  }
+
+  int freqAt(int i) {
+    return freqs[i];
+  }
+
+  /** Добавить ordinal документов в bitmap (объединение postings при раскрытии префикса) */
+  void addDocsTo(RoaringBitmap bitmap) {
+    bitmap.addN(docs, 0, size);
+  }
+
+  private void ensureCapacity() {
+    if (size == docs.length) {
+      int newCapacity = docs.length + (docs.length >> 1) + 1;
+      docs = Arrays.copyOf(docs, newCapacity);
+      freqs = Arrays.copyOf(freqs, newCapacity);
+    }
+  }
+}
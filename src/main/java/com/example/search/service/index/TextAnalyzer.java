@@ -0,0 +1,48 @@
+package com.example.search.service.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Простой анализатор текста для in-memory индексов
+ *
+ * <p>Правила: - Разбиение на токены по любым символам, кроме букв и цифр (Unicode, работает для
+ * кириллицы) - Приведение к нижнему регистру - Без стемминга и стоп-слов (поведение должно быть
+ * предсказуемым и близким к LIKE)
+ */
+public final class TextAnalyzer {
+
+  private TextAnalyzer() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * Разбить текст на токены
+   *
+   * @param text исходный текст (null = пустой список)
+   * @return токены в порядке появления (с повторами - нужны для term frequency)
+   */
+  public static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null || text.isEmpty()) {
+      return tokens;
+    }
+
+    int start = -1;
+    for (int i = 0; i < text.length(); i++) {
+      if (Character.isLetterOrDigit(text.charAt(i))) {
+        if (start < 0) {
+          start = i;
+        }
+      } else if (start >= 0) {
+        tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+    }
+    if (start >= 0) {
+      tokens.add(text.substring(start).toLowerCase(Locale.ROOT));
+    }
+    return tokens;
+  }
+}
@@ -0,0 +1,104 @@
+package com.example.search.service.index;
+
+/**
+ * Выбор top-k элементов по score через ограниченную min-heap на примитивных массивах
+ *
+ * <p>O(n log k) вместо O(n log n) полной сортировки и без boxing: в куче всегда не больше k
+ * кандидатов, новый элемент вытесняет минимальный только если он лучше. При равном score выше
+ * элемент с меньшим ключом (стабильный порядок между запросами).
+ */
+public final class TopKCollector {
+
+  private final int capacity;
+  private final int[] keys;
+  private final float[] scores;
+  private int size;
+
+  public TopKCollector(int capacity) {
+    this.capacity = Math.max(capacity, 0);
+    this.keys = new int[this.capacity];
+    this.scores = new float[this.capacity];
+  }
+
+  /** Предложить кандидата */
+  public void offer(int key, float score) {
+    if (capacity == 0) {
+      return;
+    }
+    if (size < capacity) {
+      keys[size] = key;
+      scores[size] = score;
+      siftUp(size++);
+    } else if (isWorse(0, key, score)) {
+      keys[0] = key;
+      scores[0] = score;
+      siftDown(0);
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Ключи в порядке убывания score (коллектор после вызова пуст) */
+  public int[] drainDescending() {
+    int[] result = new int[size];
+    for (int i = size - 1; i >= 0; i--) {
+      result[i] = keys[0];
+      size--;
+      keys[0] = keys[size];
+      scores[0] = scores[size];
+      siftDown(0);
+    }
+    return result;
+  }
+
+  /** Элемент в позиции i хуже кандидата (key, score) */
+  private boolean isWorse(int i, int key, float score) {
+    return scores[i] < score || (scores[i] == score && keys[i] > key);
+  }
+
+  /** Элемент i хуже элемента j (для min-heap: "меньше") */
+  private boolean less(int i, int j) {
+    return isWorse(i, keys[j], scores[j]);
+  }
+
+  private void siftUp(int i) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!less(i, parent)) {
+        break;
+      }
+      swap(i, parent);
+      i = parent;
+    }
+  }
+
+  private void siftDown(int i) {
+    while (true) {
+      int left = 2 * i + 1;
+      if (left >= size) {
+        break;
+      }
+      int smallest = left;
+      int right = left + 1;
+      if (right < size && less(right, left)) {
+        smallest = right;
+      }
+      if (!less(smallest, i)) {
+        break;
+      }
+      swap(i, smallest);
+      i = smallest;
+    }
+  }
+
+  private void swap(int i, int j) {
+    int key = keys[i];
+    keys[i] = keys[j];
+    keys[j] = key;
+    float score = scores[i];
+    scores[i] = scores[j];
+    scores[j] = score;
+  }
+}
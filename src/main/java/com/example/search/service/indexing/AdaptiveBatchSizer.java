@@ -0,0 +1,50 @@
+package com.example.search.service.indexing;
+
+/**
+ * Адаптивный размер батча переиндексации по латентности bulk-записи движков
+ *
+ * <p>Правила (AIMD): - батч записан быстрее целевой латентности - размер растет на 25% - медленнее
+ * двух целевых - уменьшается вдвое - движок ответил 429/503 - уменьшается вдвое. Размер всегда в
+ * пределах [min, max]. Общий для всех writer-ов прохода: батч читается один на все движки, поэтому
+ * размер определяет самый медленный из них.
+ */
+public class AdaptiveBatchSizer {
+
+  private final int min;
+  private final int max;
+  private final long targetLatencyMs;
+  private int current;
+
+  public AdaptiveBatchSizer(int min, int max, int initial, long targetLatencyMs) {
+    this.min = Math.max(1, min);
+    this.max = Math.max(this.min, max);
+    this.targetLatencyMs = targetLatencyMs;
+    this.current = clamp(initial);
+  }
+
+  public synchronized int current() {
+    return current;
+  }
+
+  /**
+   * Батч записан целиком
+   *
+   * @param size размер записанного батча (рост только если писали батч текущего размера)
+   */
+  public synchronized void onWritten(int size, long latencyMs) {
+    if (latencyMs > 2 * targetLatencyMs) {
+      current = clamp(current / 2);
+    } else if (latencyMs <= targetLatencyMs && size >= current) {
+      current = clamp(current + Math.max(1, current / 4));
+    }
+  }
+
+  /** Движок ответил 429/503 */
+  public synchronized void onThrottled() {
+    current = clamp(current / 2);
+  }
+
+  private int clamp(int size) {
+    return Math.min(max, Math.max(min, size));
+  }
+}
@@ -0,0 +1,181 @@
+package com.example.search.service.indexing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.service.search.DocumentIndexer;
+import com.example.search.service.search.IndexingThrottledException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Буфер одиночных вызовов индексации: micro-batching и схлопывание записей
+ *
+ * <p>Вызовы копятся до search.indexing-buffer.max-documents документов или
+ * search.indexing-buffer.max-delay-ms с первого вызова пакета, затем поток flusher-а отправляет
+ * пакет одним bulk на движок (DocumentIndexer.applyChanges): Solr - commitWithin вместо commit на
+ * каждый документ, OpenSearch - refresh_interval, TypeSense - upsert пакетом.
+ *
+ * <p>Буфер хранит только id: строки читаются из БД при отправке пакета, как в OutboxIndexer,
+ * поэтому в движок уходит состояние на момент flush, а не снимок на момент вызова. Строки нет -
+ * документ удаляется из движков. Повторные вызовы для одного id внутри пакета схлопываются в одну
+ * запись, future всех вызовов завершаются результатом пакета - движок -> принят ли пакет.
+ *
+ * <p>После stop() вызовы не принимаются: future сразу завершается с ошибкой.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IndexingBuffer {
+
+  private final List<DocumentIndexer> indexers;
+  private final DocumentRepository documentRepository;
+
+  @Value("${search.indexing-buffer.max-documents:100}")
+  private int maxDocuments;
+
+  @Value("${search.indexing-buffer.max-delay-ms:50}")
+  private long maxDelayMs;
+
+  private final Object lock = new Object();
+
+  /** id -> future вызовов пакета; под lock */
+  private Map<Long, List<CompletableFuture<Map<String, Boolean>>>> pending = new LinkedHashMap<>();
+
+  private long firstPendingNanos;
+  private boolean stopped;
+  private Thread flusher;
+
+  @PostConstruct
+  public void start() {
+    flusher = new Thread(this::runFlusher, "indexing-buffer-flusher");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /** Остановка: новые вызовы отклоняются, flusher отправляет накопленное и завершается */
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    synchronized (lock) {
+      stopped = true;
+      lock.notifyAll();
+    }
+    flusher.join(TimeUnit.SECONDS.toMillis(10));
+  }
+
+  /**
+   * Синхронизировать документ с движками в ближайшем пакете: upsert строки или delete, если ее нет
+   */
+  public CompletableFuture<Map<String, Boolean>> index(Long id) {
+    CompletableFuture<Map<String, Boolean>> future = new CompletableFuture<>();
+    synchronized (lock) {
+      if (stopped) {
+        future.completeExceptionally(new IllegalStateException("Indexing buffer is stopped"));
+        return future;
+      }
+      if (pending.isEmpty()) {
+        firstPendingNanos = System.nanoTime();
+      }
+      pending.computeIfAbsent(id, key -> new ArrayList<>()).add(future);
+      if (pending.size() == 1 || pending.size() >= maxDocuments) {
+        lock.notifyAll();
+      }
+    }
+    return future;
+  }
+
+  private void runFlusher() {
+    boolean running = true;
+    while (running) {
+      Map<Long, List<CompletableFuture<Map<String, Boolean>>>> batch;
+      synchronized (lock) {
+        try {
+          awaitBatch();
+        } catch (InterruptedException e) {
+          stopped = true; // отправляем то, что успело накопиться
+        }
+        running = !stopped;
+        batch = pending;
+        pending = new LinkedHashMap<>();
+      }
+      if (!batch.isEmpty()) {
+        flush(batch);
+      }
+    }
+  }
+
+  /** Ждать первого вызова, затем полного пакета, max-delay-ms или stop(); под lock */
+  private void awaitBatch() throws InterruptedException {
+    while (pending.isEmpty() && !stopped) {
+      lock.wait();
+    }
+    long deadline = firstPendingNanos + TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+    long remaining;
+    while (!stopped
+        && pending.size() < maxDocuments
+        && (remaining = deadline - System.nanoTime()) > 0) {
+      TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+    }
+  }
+
+  private void flush(Map<Long, List<CompletableFuture<Map<String, Boolean>>>> batch) {
+    long startTime = System.nanoTime();
+    Map<Long, Document> documents;
+    try {
+      documents =
+          documentRepository.findAllById(batch.keySet()).stream()
+              .collect(Collectors.toMap(Document::getId, Function.identity()));
+    } catch (RuntimeException e) {
+      log.error("Indexing buffer: failed to load {} documents: {}", batch.size(), e.getMessage());
+      batch.values().forEach(futures -> futures.forEach(f -> f.completeExceptionally(e)));
+      return;
+    }
+    List<Document> upserts = new ArrayList<>(documents.values());
+    List<Long> deletes =
+        batch.keySet().stream()
+            .filter(id -> !documents.containsKey(id))
+            .collect(Collectors.toList());
+
+    Map<String, Boolean> acknowledged = new LinkedHashMap<>();
+    for (DocumentIndexer indexer : indexers) {
+      acknowledged.put(indexer.getName(), apply(indexer, upserts, deletes));
+    }
+    Map<String, Boolean> result = Collections.unmodifiableMap(acknowledged);
+    batch.values().forEach(futures -> futures.forEach(future -> future.complete(result)));
+
+    log.debug(
+        "Indexing buffer flushed {} upserts and {} deletes in {}ms: {}",
+        upserts.size(),
+        deletes.size(),
+        (System.nanoTime() - startTime) / 1_000_000,
+        result);
+  }
+
+  private boolean apply(DocumentIndexer indexer, List<Document> upserts, List<Long> deletes) {
+    try {
+      return indexer.applyChanges(indexer.liveTarget(), upserts, deletes)
+          == upserts.size() + deletes.size();
+    } catch (IndexingThrottledException e) {
+      log.warn("Indexing buffer: {}", e.getMessage());
+      return false;
+    } catch (RuntimeException e) {
+      log.error("Indexing buffer: {} flush failed: {}", indexer.getName(), e.getMessage());
+      return false;
+    }
+  }
+}
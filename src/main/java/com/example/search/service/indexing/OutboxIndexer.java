@@ -0,0 +1,352 @@
+package com.example.search.service.indexing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.search.model.Document;
+import com.example.search.model.IndexOperation;
+import com.example.search.model.IndexOutboxEntry;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.repository.IndexOutboxRepository;
+import com.example.search.service.document.DocumentChangedEvent;
+import com.example.search.service.permission.PermissionChangedEvent;
+import com.example.search.service.routing.CircuitBreakerRegistry;
+import com.example.search.service.routing.CircuitState;
+import com.example.search.service.search.DocumentIndexer;
+import com.example.search.service.search.IndexingThrottledException;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Синхронизация движков с БД через transactional outbox (index_outbox)
+ *
+ * <p>Запись: DocumentChangedEvent и PermissionChangedEvent обрабатываются синхронно в транзакции
+ * изменения - строки outbox (по одной на движок) коммитятся вместе с ним (или откатываются), запрос
+ * на запись движки не ждет.
+ *
+ * <p>Отправка: фоновый drain для каждого движка отдельно читает его записи батчами
+ * (search.outbox.batch-size) и: - схлопывает записи одного документа (10 обновлений подряд - одна
+ * отправка) - читает текущее состояние документов одним запросом: есть в БД - upsert, нет - delete
+ * (так порядок записей outbox не важен) - пишет в движок один bulk с upsert и delete
+ * (DocumentIndexer.applyChanges, без явного commit) - удаляет записи, которые движок принял.
+ *
+ * <p>Доставка at-least-once, движки независимы: - цепь движка не CLOSED (движок недоступен) - его
+ * записи ждут, attempts не растут, остальные движки продолжают - движок не принял батч - батч
+ * делится пополам, пока отказ не сведется к отдельным документам (poison): их записи получают
+ * attempts + 1, остальные документы доставляются - пауза между неудачными проходами движка растет
+ * экспоненциально до search.outbox.max-backoff-ms.
+ *
+ * <p>Отказ считается попыткой, только если в том же проходе движок принял другие документы (он
+ * доступен, проблема в документе). Записи после search.outbox.max-attempts отказов остаются в
+ * таблице и больше не отправляются.
+ *
+ * <p>Во время перестройки (ReindexJobService.rebuildTargets) изменения пишутся и в живой индекс, и
+ * в новую версию.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxIndexer {
+
+  /** Запросов к движку на поиск poison документов в одном батче (бюджет деления пополам) */
+  private static final int ISOLATION_REQUEST_BUDGET = 64;
+
+  private final IndexOutboxRepository outboxRepository;
+  private final DocumentRepository documentRepository;
+  private final List<DocumentIndexer> indexers;
+  private final ReindexJobService reindexJobService;
+  private final CircuitBreakerRegistry circuitBreakers;
+
+  @Value("${search.outbox.enabled:true}")
+  private boolean enabled;
+
+  @Value("${search.outbox.batch-size:500}")
+  private int batchSize;
+
+  @Value("${search.outbox.max-attempts:10}")
+  private int maxAttempts;
+
+  @Value("${search.outbox.retry-backoff-ms:1000}")
+  private long retryBackoffMs;
+
+  @Value("${search.outbox.max-backoff-ms:60000}")
+  private long maxBackoffMs;
+
+  // Состояние drain по движкам: вызывается только планировщиком, последовательно
+  private final Map<String, Backoff> backoffs = new ConcurrentHashMap<>();
+
+  /**
+   * Изменение документа - записи outbox (обычный @EventListener: выполняется синхронно в транзакции
+   * DocumentService, ошибка записи откатывает изменение)
+   */
+  @EventListener
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void onDocumentChanged(DocumentChangedEvent event) {
+    enqueue(
+        event.getDocumentId(),
+        event.getType() == DocumentChangedEvent.Type.DELETED
+            ? IndexOperation.DELETE
+            : IndexOperation.UPSERT);
+  }
+
+  /** Выдача или отзыв права меняет поле acl документа в движках */
+  @EventListener
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void onPermissionChanged(PermissionChangedEvent event) {
+    enqueue(event.getDocumentId(), IndexOperation.UPSERT);
+  }
+
+  private void enqueue(Long documentId, IndexOperation operation) {
+    if (!enabled) {
+      return;
+    }
+    outboxRepository.saveAll(
+        indexers.stream()
+            .map(
+                indexer ->
+                    IndexOutboxEntry.builder()
+                        .documentId(documentId)
+                        .engine(indexer.getName())
+                        .operation(operation)
+                        .build())
+            .collect(Collectors.toList()));
+  }
+
+  /** Записей, ожидающих отправки: движок -> количество */
+  public Map<String, Long> pendingCounts() {
+    Map<String, Long> counts = new LinkedHashMap<>();
+    for (DocumentIndexer indexer : indexers) {
+      counts.put(
+          indexer.getName(),
+          outboxRepository.countByEngineAndAttemptsLessThan(indexer.getName(), maxAttempts));
+    }
+    return counts;
+  }
+
+  /** Отправить накопленные записи в каждый движок; после ошибки движка - его пауза */
+  @Scheduled(
+      fixedDelayString = "${search.outbox.poll-interval-ms:500}",
+      initialDelayString = "${search.outbox.poll-interval-ms:500}")
+  public void drain() {
+    if (!enabled) {
+      return;
+    }
+    Map<String, String> rebuildTargets = reindexJobService.rebuildTargets();
+    for (DocumentIndexer indexer : indexers) {
+      Backoff backoff = backoffs.computeIfAbsent(indexer.getName(), engine -> new Backoff());
+      if (System.currentTimeMillis() < backoff.retryAtMillis) {
+        continue;
+      }
+      if (circuitBreakers.getState(indexer.getName()) != CircuitState.CLOSED) {
+        // Движок недоступен: записи ждут закрытия цепи (CircuitBreakerProbe), attempts не растут
+        continue;
+      }
+      drainEngine(indexer, rebuildTargets.get(indexer.getName()), backoff);
+    }
+  }
+
+  private void drainEngine(DocumentIndexer indexer, String rebuildTarget, Backoff backoff) {
+    while (true) {
+      List<IndexOutboxEntry> entries =
+          outboxRepository.findByEngineAndAttemptsLessThanOrderByIdAsc(
+              indexer.getName(), maxAttempts, PageRequest.of(0, batchSize));
+      if (entries.isEmpty()) {
+        return;
+      }
+      Delivery delivery = send(indexer, rebuildTarget, entries);
+      if (!delivery.isComplete()) {
+        backoff.consecutiveFailures++;
+        long delay = retryBackoffMs << Math.min(backoff.consecutiveFailures - 1, 16);
+        backoff.retryAtMillis = System.currentTimeMillis() + Math.min(delay, maxBackoffMs);
+        return;
+      }
+      backoff.consecutiveFailures = 0;
+      // Poison документы остаются в голове очереди: следующая попытка - в следующем проходе
+      if (!delivery.rejected.isEmpty() || entries.size() < batchSize) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Отправить батч в движок: доставленные записи удаляются, poison получают attempts + 1
+   *
+   * @return итог доставки; isComplete() == false - движок недоступен, часть батча не отправлена
+   */
+  private Delivery send(
+      DocumentIndexer indexer, String rebuildTarget, List<IndexOutboxEntry> entries) {
+    long startTime = System.nanoTime();
+    Map<Long, List<Long>> entryIdsByDocument = new LinkedHashMap<>();
+    for (IndexOutboxEntry entry : entries) {
+      entryIdsByDocument
+          .computeIfAbsent(entry.getDocumentId(), id -> new ArrayList<>())
+          .add(entry.getId());
+    }
+    Map<Long, Document> documents =
+        documentRepository.findAllById(entryIdsByDocument.keySet()).stream()
+            .collect(Collectors.toMap(Document::getId, Function.identity()));
+
+    Delivery delivery = new Delivery(indexer, rebuildTarget, documents);
+    delivery.deliver(new ArrayList<>(entryIdsByDocument.keySet()));
+
+    if (!delivery.delivered.isEmpty()) {
+      outboxRepository.deleteAllByIdInBatch(entryIds(entryIdsByDocument, delivery.delivered));
+    }
+    if (delivery.isEngineReachable() && !delivery.rejected.isEmpty()) {
+      // Движок принимает другие документы - отказ относится к этим документам
+      outboxRepository.incrementAttempts(entryIds(entryIdsByDocument, delivery.rejected));
+      long exhausted =
+          entries.stream()
+              .filter(entry -> delivery.rejected.contains(entry.getDocumentId()))
+              .filter(entry -> entry.getAttempts() + 1 >= maxAttempts)
+              .count();
+      if (exhausted > 0) {
+        log.error(
+            "Outbox: {} {} entries reached {} attempts and will not be retried (run reindexAll)",
+            exhausted,
+            indexer.getName(),
+            maxAttempts);
+      }
+      log.warn("Outbox: {} rejected documents {}", indexer.getName(), delivery.rejected);
+    }
+
+    log.debug(
+        "Outbox: {} entries for {}: {} documents delivered, {} rejected, {} not sent in {}ms",
+        entries.size(),
+        indexer.getName(),
+        delivery.delivered.size(),
+        delivery.rejected.size(),
+        delivery.unsent.size(),
+        (System.nanoTime() - startTime) / 1_000_000);
+    if (!delivery.isComplete()) {
+      log.warn(
+          "Outbox: {} of {} documents not sent to {}, will retry",
+          entryIdsByDocument.size() - delivery.delivered.size(),
+          entryIdsByDocument.size(),
+          indexer.getName());
+    }
+    return delivery;
+  }
+
+  private static List<Long> entryIds(
+      Map<Long, List<Long>> entryIdsByDocument, Collection<Long> documentIds) {
+    return documentIds.stream()
+        .flatMap(documentId -> entryIdsByDocument.get(documentId).stream())
+        .collect(Collectors.toList());
+  }
+
+  /** Пауза перед следующим проходом движка после неудачи */
+  private static final class Backoff {
+    private int consecutiveFailures;
+    private long retryAtMillis;
+  }
+
+  /** Доставка батча в один движок с поиском poison документов делением пополам */
+  private final class Delivery {
+    private final DocumentIndexer indexer;
+    private final String rebuildTarget;
+    private final Map<Long, Document> documents;
+    private final List<Long> delivered = new ArrayList<>();
+    private final List<Long> rejected = new ArrayList<>();
+    private final List<Long> unsent = new ArrayList<>();
+    private int requests;
+    private boolean stopped;
+
+    private Delivery(DocumentIndexer indexer, String rebuildTarget, Map<Long, Document> documents) {
+      this.indexer = indexer;
+      this.rebuildTarget = rebuildTarget;
+      this.documents = documents;
+    }
+
+    /**
+     * Отправить документы; не принятые - обе половины отправляются до спуска в них, так успешная
+     * половина сбрасывает счетчик ошибок circuit breaker между неудачами
+     */
+    private void deliver(List<Long> documentIds) {
+      List<List<Long>> pending = List.of(documentIds);
+      while (!pending.isEmpty()) {
+        List<List<Long>> failed = new ArrayList<>();
+        for (List<Long> part : pending) {
+          if (!canSend()) {
+            unsent.addAll(part);
+          } else if (apply(part)) {
+            delivered.addAll(part);
+          } else if (stopped) {
+            unsent.addAll(part);
+          } else if (part.size() == 1) {
+            rejected.addAll(part);
+          } else {
+            failed.add(part);
+          }
+        }
+        List<List<Long>> halves = new ArrayList<>(failed.size() * 2);
+        for (List<Long> part : failed) {
+          halves.add(part.subList(0, part.size() / 2));
+          halves.add(part.subList(part.size() / 2, part.size()));
+        }
+        pending = halves;
+      }
+    }
+
+    /** Движок принял хотя бы часть батча - отказы относятся к документам, а не к движку */
+    private boolean isEngineReachable() {
+      return !delivered.isEmpty();
+    }
+
+    /** Батч разобран целиком: каждый документ доставлен или признан poison */
+    private boolean isComplete() {
+      return isEngineReachable() && unsent.isEmpty();
+    }
+
+    /** Движок доступен (цепь закрыта), не было 429/503 и бюджет запросов не исчерпан */
+    private boolean canSend() {
+      return !stopped
+          && requests < ISOLATION_REQUEST_BUDGET
+          && circuitBreakers.getState(indexer.getName()) == CircuitState.CLOSED;
+    }
+
+    private boolean apply(List<Long> documentIds) {
+      requests++;
+      List<Document> upserts = new ArrayList<>(documentIds.size());
+      List<Long> deletes = new ArrayList<>();
+      for (Long documentId : documentIds) {
+        Document document = documents.get(documentId);
+        if (document != null) {
+          upserts.add(document);
+        } else {
+          deletes.add(documentId);
+        }
+      }
+      try {
+        boolean applied = applyTo(indexer.liveTarget(), upserts, deletes);
+        if (applied && rebuildTarget != null) {
+          applied = applyTo(rebuildTarget, upserts, deletes);
+        }
+        return applied;
+      } catch (IndexingThrottledException e) {
+        log.warn("Outbox: {}", e.getMessage());
+        stopped = true;
+        return false;
+      }
+    }
+
+    private boolean applyTo(String target, List<Document> upserts, List<Long> deletes) {
+      return indexer.applyChanges(target, upserts, deletes) == upserts.size() + deletes.size();
+    }
+  }
+}
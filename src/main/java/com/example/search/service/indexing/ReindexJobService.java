@@ -0,0 +1,408 @@
+package com.example.search.service.indexing;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.example.search.dto.response.ReindexResultDto;
+import com.example.search.model.ReindexCheckpoint;
+import com.example.search.model.ReindexJob;
+import com.example.search.model.ReindexJobStatus;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.repository.ReindexCheckpointRepository;
+import com.example.search.repository.ReindexJobRepository;
+import com.example.search.service.indexing.ReindexRun.EngineProgress;
+import com.example.search.service.indexing.ReindexRun.Outcome;
+import com.example.search.service.indexing.ReindexRun.StopReason;
+import com.example.search.service.search.DocumentIndexer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Фоновые задачи переиндексации: запуск, пауза, продолжение, отмена
+ *
+ * <p>Задача выполняется в reindexExecutor проходами StreamingReindexService. После каждого
+ * записанного батча позиция движка сохраняется в reindex_checkpoints, поэтому пауза или рестарт
+ * приложения не теряют прогресс: resume (и автоматический запуск задач RUNNING при старте,
+ * search.reindex.resume-on-startup) продолжает с контрольных точек.
+ *
+ * <p>Одновременно выполняется не больше одной задачи: повторный запуск возвращает статус текущей.
+ * Переходы состояний синхронизированы на сервисе.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReindexJobService {
+
+  private final ReindexJobRepository jobRepository;
+  private final ReindexCheckpointRepository checkpointRepository;
+  private final DocumentRepository documentRepository;
+  private final StreamingReindexService streamingReindexService;
+  private final ExecutorService reindexExecutor;
+  private final List<DocumentIndexer> indexers;
+
+  @Value("${search.reindex.batch-size:500}")
+  private int initialBatchSize;
+
+  @Value("${search.reindex.min-batch-size:50}")
+  private int minBatchSize;
+
+  @Value("${search.reindex.max-batch-size:5000}")
+  private int maxBatchSize;
+
+  @Value("${search.reindex.target-latency-ms:1000}")
+  private long targetLatencyMs;
+
+  @Value("${search.reindex.resume-on-startup:true}")
+  private boolean resumeOnStartup;
+
+  private static final DateTimeFormatter VERSION_FORMAT =
+      DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+  /** Выполняющиеся проходы: jobId -> проход */
+  private final Map<Long, ReindexRun> active = new ConcurrentHashMap<>();
+
+  /**
+   * Задачи, прерванные рестартом (остались RUNNING), продолжаются с контрольных точек
+   *
+   * <p>Выполняется не больше одной задачи: продолжается первая, остальные переводятся в PAUSED с
+   * сообщением - их можно продолжить resume, и в статусе они не висят как выполняющиеся.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void resumeInterruptedJobs() {
+    if (!resumeOnStartup) {
+      return;
+    }
+    for (ReindexJob job : jobRepository.findByStatus(ReindexJobStatus.RUNNING)) {
+      if (active.isEmpty()) {
+        log.info("Resuming reindex job {} interrupted by restart", job.getId());
+        launch(job);
+      } else {
+        Long resumed = active.keySet().iterator().next();
+        log.warn(
+            "Reindex job {} interrupted by restart is paused: job {} was resumed instead",
+            job.getId(),
+            resumed);
+        job.setStatus(ReindexJobStatus.PAUSED);
+        job.setMessage(
+            "Interrupted by restart; paused because job "
+                + resumed
+                + " was resumed first. Resume it from checkpoints when that job finishes");
+        jobRepository.save(job);
+      }
+    }
+  }
+
+  /**
+   * Запустить новую задачу; если задача уже выполняется - вернуть ее статус
+   *
+   * @param rebuild true - перестройка в новую версию индексов с переключением в конце, false -
+   *     запись в живые индексы
+   */
+  public synchronized ReindexResultDto start(boolean rebuild) {
+    if (!active.isEmpty()) {
+      return getJob(active.keySet().iterator().next());
+    }
+    ReindexJob job =
+        jobRepository.save(
+            ReindexJob.builder()
+                .status(ReindexJobStatus.RUNNING)
+                .rebuild(rebuild)
+                .totalDocuments(documentRepository.count())
+                .batchSize(initialBatchSize)
+                .build());
+    if (rebuild) {
+      // Уникален и после рестарта с пустой БД: id задачи + время старта
+      job.setVersion("v" + job.getId() + "_" + LocalDateTime.now().format(VERSION_FORMAT));
+      job = jobRepository.save(job);
+    }
+    log.info(
+        "Reindex job {} started: {} documents{}",
+        job.getId(),
+        job.getTotalDocuments(),
+        rebuild ? ", rebuilding into version " + job.getVersion() : "");
+    launch(job);
+    return toDto(job, active.get(job.getId()).getEngines());
+  }
+
+  /** Приостановить: writer-ы дописывают очереди, движки коммитятся, позиции сохраняются */
+  public synchronized ReindexResultDto pause(Long jobId) {
+    ReindexJob job = findJob(jobId);
+    ReindexRun run = active.get(jobId);
+    if (run == null) {
+      throw new IllegalStateException("Reindex job " + jobId + " is not running");
+    }
+    run.requestStop(StopReason.PAUSE);
+    return toDto(job, run.getEngines());
+  }
+
+  /** Продолжить приостановленную или упавшую задачу с контрольных точек */
+  public synchronized ReindexResultDto resume(Long jobId) {
+    ReindexJob job = findJob(jobId);
+    if (active.containsKey(jobId)) {
+      return toDto(job, active.get(jobId).getEngines());
+    }
+    // RUNNING без прохода - прервана рестартом при выключенном resume-on-startup
+    if (!job.getStatus().isResumable() && job.getStatus() != ReindexJobStatus.RUNNING) {
+      throw new IllegalStateException(
+          "Reindex job " + jobId + " is " + job.getStatus() + " and cannot be resumed");
+    }
+    if (!active.isEmpty()) {
+      throw new IllegalStateException(
+          "Another reindex job is running: " + active.keySet().iterator().next());
+    }
+    job.setStatus(ReindexJobStatus.RUNNING);
+    job.setFinishedAt(null);
+    job = jobRepository.save(job);
+    log.info("Reindex job {} resumed", jobId);
+    launch(job);
+    return toDto(job, active.get(jobId).getEngines());
+  }
+
+  /** Отменить задачу; продолжить ее будет нельзя */
+  public synchronized ReindexResultDto cancel(Long jobId) {
+    ReindexJob job = findJob(jobId);
+    ReindexRun run = active.get(jobId);
+    if (run != null) {
+      run.requestStop(StopReason.CANCEL);
+      return toDto(job, run.getEngines());
+    }
+    if (job.getStatus() == ReindexJobStatus.COMPLETED) {
+      throw new IllegalStateException("Reindex job " + jobId + " is already completed");
+    }
+    job.setStatus(ReindexJobStatus.CANCELLED);
+    job.setFinishedAt(LocalDateTime.now());
+    job = jobRepository.save(job);
+    List<EngineProgress> engines = loadProgress(jobId);
+    dropVersions(job, engines);
+    return toDto(job, engines);
+  }
+
+  /** Статус задачи (у выполняющейся - текущие счетчики writer-ов) */
+  public ReindexResultDto getJob(Long jobId) {
+    ReindexJob job = findJob(jobId);
+    ReindexRun run = active.get(jobId);
+    return toDto(job, run != null ? run.getEngines() : loadProgress(jobId));
+  }
+
+  /** Последние задачи, новые первыми */
+  public List<ReindexResultDto> getRecentJobs() {
+    return jobRepository.findTop20ByOrderByIdDesc().stream()
+        .map(job -> getJob(job.getId()))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Версии индексов выполняющейся перестройки: движок -> target
+   *
+   * <p>OutboxIndexer дублирует в них изменения, чтобы документы, измененные после прохода reader-а,
+   * не потерялись при переключении. Уже переключенные версии не возвращаются: они - живой индекс.
+   */
+  public Map<String, String> rebuildTargets() {
+    return active.values().stream()
+        .filter(ReindexRun::isRebuild)
+        .flatMap(run -> run.getEngines().stream())
+        .filter(progress -> progress.getTarget() != null && !progress.isPromoted())
+        .collect(
+            Collectors.toMap(
+                EngineProgress::getEngine, EngineProgress::getTarget, (first, second) -> first));
+  }
+
+  /** Запустить проход задачи в reindexExecutor (вызывается под блокировкой сервиса) */
+  private void launch(ReindexJob job) {
+    ReindexRun run =
+        new ReindexRun(
+            job.getId(),
+            job.isRebuild() ? job.getVersion() : null,
+            new AdaptiveBatchSizer(
+                minBatchSize,
+                maxBatchSize,
+                job.getBatchSize() > 0 ? job.getBatchSize() : initialBatchSize,
+                targetLatencyMs));
+    Map<String, ReindexCheckpoint> checkpoints = new ConcurrentHashMap<>();
+    for (ReindexCheckpoint checkpoint : checkpointRepository.findByJobId(job.getId())) {
+      checkpoints.put(checkpoint.getEngine(), checkpoint);
+      run.restore(
+          new EngineProgress(
+              checkpoint.getEngine(),
+              checkpoint.getTarget(),
+              checkpoint.getLastDocumentId(),
+              checkpoint.getIndexedCount(),
+              checkpoint.getFailedCount(),
+              checkpoint.isPromoted()));
+    }
+    active.put(job.getId(), run);
+    reindexExecutor.submit(() -> execute(job.getId(), run, checkpoints));
+  }
+
+  private void execute(Long jobId, ReindexRun run, Map<String, ReindexCheckpoint> checkpoints) {
+    Outcome outcome;
+    try {
+      outcome =
+          streamingReindexService.run(
+              run, progress -> saveCheckpoint(jobId, progress, checkpoints));
+    } catch (RuntimeException e) {
+      log.error("Reindex job {} failed: {}", jobId, e.getMessage(), e);
+      outcome = Outcome.FAILED;
+    }
+    finish(jobId, run, outcome);
+  }
+
+  /** Контрольная точка движка; вызывается только из потока writer-а этого движка */
+  private void saveCheckpoint(
+      Long jobId, EngineProgress progress, Map<String, ReindexCheckpoint> checkpoints) {
+    ReindexCheckpoint checkpoint =
+        checkpoints.computeIfAbsent(
+            progress.getEngine(),
+            engine -> ReindexCheckpoint.builder().jobId(jobId).engine(engine).build());
+    checkpoint.setTarget(progress.getTarget());
+    checkpoint.setLastDocumentId(progress.getLastDocumentId());
+    checkpoint.setIndexedCount(progress.getIndexed());
+    checkpoint.setFailedCount(progress.getFailed());
+    checkpoint.setPromoted(progress.isPromoted());
+    checkpoints.put(progress.getEngine(), checkpointRepository.save(checkpoint));
+  }
+
+  private synchronized void finish(Long jobId, ReindexRun run, Outcome outcome) {
+    active.remove(jobId);
+    ReindexJob job = jobRepository.findById(jobId).orElse(null);
+    if (job == null) {
+      return;
+    }
+    job.setActiveMillis(job.getActiveMillis() + run.elapsedMillis());
+    job.setBatchSize(run.getBatchSizer().current());
+    job.setStatus(statusOf(outcome, run.getStopReason()));
+    if (job.getStatus() == ReindexJobStatus.COMPLETED
+        || job.getStatus() == ReindexJobStatus.CANCELLED) {
+      job.setFinishedAt(LocalDateTime.now());
+    }
+    if (job.getStatus() == ReindexJobStatus.CANCELLED) {
+      dropVersions(job, run.getEngines());
+    }
+    ReindexResultDto result = toDto(job, run.getEngines());
+    job.setMessage(result.getMessage());
+    jobRepository.save(job);
+    log.info(result.getMessage());
+  }
+
+  private static ReindexJobStatus statusOf(Outcome outcome, StopReason stopReason) {
+    switch (outcome) {
+      case COMPLETED:
+        return ReindexJobStatus.COMPLETED;
+      case STOPPED:
+        if (stopReason == StopReason.CANCEL) {
+          return ReindexJobStatus.CANCELLED;
+        }
+        // Остановка приложения - задача остается RUNNING и продолжится после старта
+        return stopReason == StopReason.SHUTDOWN
+            ? ReindexJobStatus.RUNNING
+            : ReindexJobStatus.PAUSED;
+      default:
+        return ReindexJobStatus.FAILED;
+    }
+  }
+
+  /** Отмененная перестройка: недостроенные версии удаляются (живые индексы не трогаются) */
+  private void dropVersions(ReindexJob job, Collection<EngineProgress> engines) {
+    if (!job.isRebuild()) {
+      return;
+    }
+    for (DocumentIndexer indexer : indexers) {
+      EngineProgress progress =
+          engines.stream()
+              .filter(engine -> engine.getEngine().equals(indexer.getName()))
+              .findFirst()
+              .orElse(null);
+      if (progress != null
+          && progress.getTarget() != null
+          && !progress.isPromoted()
+          && !progress.getTarget().equals(indexer.liveTarget())
+          && indexer.dropVersion(progress.getTarget())) {
+        log.info(
+            "Reindex job {}: dropped {} {}", job.getId(), indexer.getName(), progress.getTarget());
+      }
+    }
+  }
+
+  private ReindexJob findJob(Long jobId) {
+    return jobRepository
+        .findById(jobId)
+        .orElseThrow(() -> new IllegalArgumentException("Reindex job not found: " + jobId));
+  }
+
+  private List<EngineProgress> loadProgress(Long jobId) {
+    List<EngineProgress> engines = new ArrayList<>();
+    for (ReindexCheckpoint checkpoint : checkpointRepository.findByJobId(jobId)) {
+      engines.add(
+          new EngineProgress(
+              checkpoint.getEngine(),
+              checkpoint.getTarget(),
+              checkpoint.getLastDocumentId(),
+              checkpoint.getIndexedCount(),
+              checkpoint.getFailedCount(),
+              checkpoint.isPromoted()));
+    }
+    return engines;
+  }
+
+  /**
+   * Статус задачи: успешными считаются документы, записанные во все движки (минимум по движкам),
+   * неудачными - не записанные хотя бы в один (максимум); docs/sec - документы, прошедшие все
+   * движки, за время в состоянии RUNNING
+   */
+  private ReindexResultDto toDto(ReindexJob job, Collection<EngineProgress> engines) {
+    long success = engines.stream().mapToLong(EngineProgress::getIndexed).min().orElse(0L);
+    long failure = engines.stream().mapToLong(EngineProgress::getFailed).max().orElse(0L);
+    long processed =
+        engines.stream()
+            .mapToLong(progress -> progress.getIndexed() + progress.getFailed())
+            .min()
+            .orElse(0L);
+    ReindexRun run = active.get(job.getId());
+    long durationMs = job.getActiveMillis() + (run != null ? run.elapsedMillis() : 0L);
+    double documentsPerSecond = durationMs > 0 ? processed * 1000.0 / durationMs : 0.0;
+    int batchSize = run != null ? run.getBatchSizer().current() : job.getBatchSize();
+
+    String enginesSummary =
+        engines.stream()
+            .map(
+                progress ->
+                    String.format(
+                        "%s %d indexed, %d failed",
+                        progress.getEngine(), progress.getIndexed(), progress.getFailed()))
+            .collect(Collectors.joining("; "));
+    return ReindexResultDto.builder()
+        .jobId(job.getId())
+        .status(job.getStatus().name())
+        .rebuild(job.isRebuild())
+        .totalDocuments((int) job.getTotalDocuments())
+        .successCount((int) success)
+        .failureCount((int) failure)
+        .durationMs((int) durationMs)
+        .documentsPerSecond(Math.round(documentsPerSecond * 10) / 10.0)
+        .batchSize(batchSize)
+        .message(
+            String.format(
+                "Reindex job %d %s: %d of %d documents processed in %dms (%.1f docs/sec)%s",
+                job.getId(),
+                job.getStatus(),
+                processed,
+                job.getTotalDocuments(),
+                durationMs,
+                documentsPerSecond,
+                enginesSummary.isEmpty() ? "" : ": " + enginesSummary))
+        .build();
+  }
+}
@@ -0,0 +1,170 @@
+package com.example.search.service.indexing;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Один проход задачи переиндексации: позиции движков, размер батча и запрос остановки
+ *
+ * <p>Позиции восстанавливаются из контрольных точек (resume) и обновляются writer-ами движков после
+ * каждого записанного батча; читаются API статуса из других потоков.
+ */
+public class ReindexRun {
+
+  /** Почему проход остановлен до конца таблицы */
+  public enum StopReason {
+    PAUSE,
+    CANCEL,
+    SHUTDOWN
+  }
+
+  /** Чем закончился проход */
+  public enum Outcome {
+    /** Все документы прочитаны, все движки закоммичены */
+    COMPLETED,
+    /** Остановлен по запросу (getStopReason) */
+    STOPPED,
+    /** Ошибка чтения или commit не удался - продолжать с контрольных точек */
+    FAILED
+  }
+
+  private final long jobId;
+  private final String version; // null - запись в живые индексы, иначе суффикс новой версии
+  private final AdaptiveBatchSizer batchSizer;
+  private final Map<String, EngineProgress> engines = new ConcurrentHashMap<>();
+  private final long startNanos = System.nanoTime();
+  private volatile StopReason stopReason;
+
+  public ReindexRun(long jobId, String version, AdaptiveBatchSizer batchSizer) {
+    this.jobId = jobId;
+    this.version = version;
+    this.batchSizer = batchSizer;
+  }
+
+  public long getJobId() {
+    return jobId;
+  }
+
+  /** Перестройка в новую версию индексов (blue/green) вместо записи в живые */
+  public boolean isRebuild() {
+    return version != null;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  public AdaptiveBatchSizer getBatchSizer() {
+    return batchSizer;
+  }
+
+  /** Позиция движка из контрольной точки (до старта прохода) */
+  public void restore(EngineProgress progress) {
+    engines.put(progress.getEngine(), progress);
+  }
+
+  /** Позиция движка (создается с 0, если контрольной точки еще нет) */
+  public EngineProgress progress(String engine) {
+    return engines.computeIfAbsent(engine, EngineProgress::new);
+  }
+
+  public Collection<EngineProgress> getEngines() {
+    return engines.values();
+  }
+
+  public long elapsedMillis() {
+    return (System.nanoTime() - startNanos) / 1_000_000;
+  }
+
+  public void requestStop(StopReason reason) {
+    stopReason = reason;
+  }
+
+  public boolean isStopRequested() {
+    return stopReason != null;
+  }
+
+  public StopReason getStopReason() {
+    return stopReason;
+  }
+
+  /** Позиция и счетчики одного движка */
+  public static final class EngineProgress {
+    private final String engine;
+    private final AtomicLong lastDocumentId = new AtomicLong();
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile String target; // индекс записи (DocumentIndexer target); null - еще не выбран
+    private volatile boolean promoted;
+
+    public EngineProgress(String engine) {
+      this.engine = engine;
+    }
+
+    /** Восстановить из контрольной точки */
+    public EngineProgress(
+        String engine,
+        String target,
+        long lastDocumentId,
+        long indexed,
+        long failed,
+        boolean promoted) {
+      this(engine);
+      this.target = target;
+      this.lastDocumentId.set(lastDocumentId);
+      this.indexed.set(indexed);
+      this.failed.set(failed);
+      this.promoted = promoted;
+    }
+
+    public String getEngine() {
+      return engine;
+    }
+
+    /** Все документы с id <= lastDocumentId движок уже получил */
+    public long getLastDocumentId() {
+      return lastDocumentId.get();
+    }
+
+    public long getIndexed() {
+      return indexed.get();
+    }
+
+    public long getFailed() {
+      return failed.get();
+    }
+
+    public String getTarget() {
+      return target;
+    }
+
+    void setTarget(String target) {
+      this.target = target;
+    }
+
+    /**
+     * Версия перестройки уже стала живым индексом: повторный promote не нужен (для Solr - вреден:
+     * SWAP вернул бы прежний core), target после переключения не пишется
+     */
+    public boolean isPromoted() {
+      return promoted;
+    }
+
+    void markPromoted() {
+      this.promoted = true;
+    }
+
+    /** Батч записан целиком: документы до lastId включительно движок получил */
+    void advance(long lastId, int written) {
+      indexed.addAndGet(written);
+      lastDocumentId.set(lastId);
+    }
+
+    /** Батч записан не целиком: позиция не двигается, resume повторит его */
+    void recordFailed(int notWritten) {
+      failed.addAndGet(notWritten);
+    }
+  }
+}
@@ -0,0 +1,400 @@
+package com.example.search.service.indexing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.service.indexing.ReindexRun.EngineProgress;
+import com.example.search.service.indexing.ReindexRun.Outcome;
+import com.example.search.service.search.DocumentIndexer;
+import com.example.search.service.search.IndexingThrottledException;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Потоковая переиндексация всех документов во все движки
+ *
+ * <p>Схема: - reader (вызывающий поток) читает таблицу documents keyset-батчами по id, без OFFSET и
+ * без загрузки всей таблицы - каждый батч кладется в ограниченную очередь каждого движка
+ * (search.reindex.queue-capacity батчей) - writer движка (отдельный поток reindexExecutor) пишет
+ * батчи через DocumentIndexer.writeBatch без commit/refresh - после последнего батча каждый writer
+ * делает один commit.
+ *
+ * <p>Движки пишут параллельно, медленный движок тормозит чтение только когда его очередь полна
+ * (backpressure). Память постоянная: в очередях не больше queue-capacity батчей на движок, батч
+ * общий для всех очередей. Прогресс пишется в лог каждые search.reindex.progress-interval
+ * документов.
+ *
+ * <p>Проход возобновляемый (ReindexRun): чтение начинается после минимальной позиции движков,
+ * каждый writer пропускает уже полученные документы и после каждого батча сообщает новую позицию
+ * (контрольная точка). Размер батча - AdaptiveBatchSizer; на 429/503 батч повторяется меньшими
+ * частями с экспоненциальной паузой.
+ *
+ * <p>Контрольная точка двигается только по полностью записанным батчам: батч, записанный частично
+ * (после повторов на 429/503), останавливает writer движка, проход завершается FAILED и resume
+ * повторяет этот батч целиком. Документы батча, которые движок уже получил, пишутся повторно
+ * (upsert по id). Движок с асинхронной записью (DocumentIndexer.confirmsOnCommit, потоковый Solr)
+ * подтверждает батчи только commit-ом: каждые search.reindex.commit-interval документов writer
+ * делает промежуточный commit (поток закрывается, ответы дожидаются) и сохраняет контрольную точку,
+ * поэтому падение или рестарт повторяют не больше интервала, а не весь проход.
+ *
+ * <p>Перестройка (ReindexRun.isRebuild): каждый движок пишет в новую версию индекса
+ * (DocumentIndexer.createVersion), живой индекс запросы видят целиком до конца. Когда все движки
+ * закоммичены, версии переключаются (promote) - запросы видят новый индекс целиком. Переключенный
+ * движок отмечается в контрольной точке: resume после частичной неудачи promote не переключает его
+ * повторно.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StreamingReindexService {
+
+  /** Маркер конца потока (сравнивается по ссылке) */
+  private static final List<Document> END_OF_STREAM = new ArrayList<>();
+
+  private final DocumentRepository documentRepository;
+  private final List<DocumentIndexer> indexers;
+  private final ExecutorService reindexExecutor;
+
+  @Value("${search.reindex.queue-capacity:4}")
+  private int queueCapacity;
+
+  @Value("${search.reindex.progress-interval:10000}")
+  private int progressInterval;
+
+  @Value("${search.reindex.commit-interval:10000}")
+  private int commitInterval;
+
+  @Value("${search.reindex.max-retries:5}")
+  private int maxRetries;
+
+  @Value("${search.reindex.retry-backoff-ms:200}")
+  private long retryBackoffMs;
+
+  /**
+   * Выполнить проход; блокирует до commit во всех движках
+   *
+   * @param onCheckpoint вызывается из потока writer-а после каждого записанного батча
+   */
+  public Outcome run(ReindexRun run, Consumer<EngineProgress> onCheckpoint) {
+    List<EngineWriter> writers =
+        indexers.stream()
+            .map(indexer -> new EngineWriter(indexer, run, onCheckpoint))
+            .collect(Collectors.toList());
+    long lastId =
+        writers.stream().mapToLong(writer -> writer.progress.getLastDocumentId()).min().orElse(0L);
+    writers.forEach(writer -> writer.future = reindexExecutor.submit(writer));
+
+    long read = 0;
+    long nextProgress = progressInterval;
+    boolean failed = false;
+    try {
+      while (!run.isStopRequested()) {
+        List<Document> batch =
+            documentRepository.findByIdGreaterThanOrderByIdAsc(
+                lastId, PageRequest.of(0, run.getBatchSizer().current()));
+        if (batch.isEmpty()) {
+          break;
+        }
+        for (EngineWriter writer : writers) {
+          writer.put(batch);
+        }
+        read += batch.size();
+        lastId = batch.get(batch.size() - 1).getId();
+        if (read >= nextProgress) {
+          logProgress(run, read);
+          nextProgress += progressInterval;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      run.requestStop(ReindexRun.StopReason.SHUTDOWN);
+      log.warn("Reindex job {} interrupted after {} documents", run.getJobId(), read);
+    } catch (RuntimeException e) {
+      failed = true;
+      log.error("Reindex job {} failed reading documents: {}", run.getJobId(), e.getMessage());
+    } finally {
+      writers.forEach(EngineWriter::finish);
+    }
+
+    for (EngineWriter writer : writers) {
+      writer.await();
+    }
+    if (run.isStopRequested()) {
+      return Outcome.STOPPED;
+    }
+    if (failed || writers.stream().anyMatch(writer -> !writer.committed)) {
+      return Outcome.FAILED;
+    }
+    if (run.isRebuild() && !promote(writers)) {
+      return Outcome.FAILED;
+    }
+    return Outcome.COMPLETED;
+  }
+
+  /**
+   * Переключить версии движков; переключенный движок отмечается в контрольной точке, поэтому повтор
+   * после частичной неудачи переключает только остальные
+   */
+  private boolean promote(List<EngineWriter> writers) {
+    boolean promoted = true;
+    for (EngineWriter writer : writers) {
+      if (writer.progress.isPromoted()) {
+        continue;
+      }
+      if (writer.indexer.promote(writer.progress.getTarget())) {
+        writer.progress.markPromoted();
+        writer.saveCheckpoint();
+      } else {
+        promoted = false;
+      }
+    }
+    return promoted;
+  }
+
+  private void logProgress(ReindexRun run, long read) {
+    log.info(
+        "Reindex job {} progress: {} documents read in {}ms, batch size {}, indexed {}",
+        run.getJobId(),
+        read,
+        run.elapsedMillis(),
+        run.getBatchSizer().current(),
+        run.getEngines().stream()
+            .map(progress -> progress.getEngine() + "=" + progress.getIndexed())
+            .collect(Collectors.joining(", ")));
+  }
+
+  /** Очередь и writer одного движка */
+  private final class EngineWriter implements Runnable {
+    private final DocumentIndexer indexer;
+    private final ReindexRun run;
+    private final EngineProgress progress;
+    private final Consumer<EngineProgress> onCheckpoint;
+    private final BlockingQueue<List<Document>> queue;
+    private volatile boolean committed;
+    private boolean broken; // батч записан не целиком - дальше не пишем
+    private long unconfirmed; // записано после последнего commit (confirmsOnCommit)
+    private Future<?> future;
+
+    private EngineWriter(
+        DocumentIndexer indexer, ReindexRun run, Consumer<EngineProgress> onCheckpoint) {
+      this.indexer = indexer;
+      this.run = run;
+      this.progress = run.progress(indexer.getName());
+      this.onCheckpoint = onCheckpoint;
+      this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @Override
+    public void run() {
+      if (progress.isPromoted()) {
+        // Resume после частичного promote: версия движка уже живая, писать и коммитить нечего
+        committed = true;
+        drain();
+        return;
+      }
+      try {
+        String target = resolveTarget();
+        broken = target == null;
+        while (true) {
+          List<Document> batch = queue.take();
+          if (batch == END_OF_STREAM) {
+            break;
+          }
+          if (!broken) {
+            write(target, batch);
+          }
+        }
+        committed = !broken && indexer.commit(target);
+        if (committed && indexer.confirmsOnCommit()) {
+          saveCheckpoint();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        log.warn("{} reindex writer interrupted", indexer.getName());
+      }
+    }
+
+    /** Индекс записи: из контрольной точки, живой или новая версия (перестройка) */
+    private String resolveTarget() {
+      if (progress.getTarget() != null) {
+        return progress.getTarget();
+      }
+      try {
+        progress.setTarget(
+            run.isRebuild() ? indexer.createVersion(run.getVersion()) : indexer.liveTarget());
+      } catch (RuntimeException e) {
+        log.error("{} rebuild target not created: {}", indexer.getName(), e.getMessage());
+        return null;
+      }
+      saveCheckpoint();
+      return progress.getTarget();
+    }
+
+    /** Записать новые для движка документы батча и сохранить контрольную точку */
+    private void write(String target, List<Document> batch) throws InterruptedException {
+      long checkpoint = progress.getLastDocumentId();
+      List<Document> pending =
+          batch.stream()
+              .filter(document -> document.getId() > checkpoint)
+              .collect(Collectors.toList());
+      if (pending.isEmpty()) {
+        return;
+      }
+      int written = writeWithRetry(target, pending, 0);
+      if (written < pending.size()) {
+        broken = true;
+        progress.recordFailed(pending.size() - written);
+        saveBatchCheckpoint();
+        log.error(
+            "{} reindex stopped after document {}: batch not fully written to {}",
+            indexer.getName(),
+            checkpoint,
+            target);
+        return;
+      }
+      progress.advance(batch.get(batch.size() - 1).getId(), written);
+      if (indexer.confirmsOnCommit()) {
+        confirmEvery(target, written);
+      } else {
+        saveCheckpoint();
+      }
+    }
+
+    /**
+     * Промежуточный commit каждые commit-interval документов: только после него позиция
+     * подтверждена и сохраняется. Неудачный commit останавливает writer - resume повторит документы
+     * после последней сохраненной позиции.
+     */
+    private void confirmEvery(String target, int written) {
+      unconfirmed += written;
+      if (unconfirmed < commitInterval) {
+        return;
+      }
+      if (!indexer.commit(target)) {
+        broken = true;
+        log.error(
+            "{} reindex stopped: intermediate commit of {} failed, {} documents unconfirmed",
+            indexer.getName(),
+            target,
+            unconfirmed);
+        return;
+      }
+      unconfirmed = 0;
+      saveCheckpoint();
+    }
+
+    /** После батча; движок с подтверждением на commit - контрольная точка только после commit */
+    private void saveBatchCheckpoint() {
+      if (!indexer.confirmsOnCommit()) {
+        saveCheckpoint();
+      }
+    }
+
+    private void saveCheckpoint() {
+      try {
+        onCheckpoint.accept(progress);
+      } catch (RuntimeException e) {
+        log.warn("{} reindex checkpoint not saved: {}", indexer.getName(), e.getMessage());
+      }
+    }
+
+    /** На 429/503 - пауза retry-backoff-ms * 2^attempt и повтор частями нового размера */
+    private int writeWithRetry(String target, List<Document> documents, int attempt)
+        throws InterruptedException {
+      long startTime = System.nanoTime();
+      try {
+        int written = indexer.writeBatch(target, documents);
+        if (written == documents.size()) {
+          run.getBatchSizer()
+              .onWritten(
+                  documents.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        }
+        return written;
+      } catch (IndexingThrottledException e) {
+        run.getBatchSizer().onThrottled();
+        if (attempt >= maxRetries) {
+          log.error("{} still throttled after {} retries", indexer.getName(), attempt);
+          return 0;
+        }
+        log.warn("{}, retry {} of {}", e.getMessage(), attempt + 1, maxRetries);
+        Thread.sleep(retryBackoffMs << attempt);
+        int chunkSize = run.getBatchSizer().current();
+        int written = 0;
+        for (int from = 0; from < documents.size(); from += chunkSize) {
+          written +=
+              writeWithRetry(
+                  target,
+                  documents.subList(from, Math.min(from + chunkSize, documents.size())),
+                  attempt + 1);
+        }
+        return written;
+      } catch (RuntimeException e) {
+        log.error("{} reindex batch failed: {}", indexer.getName(), e.getMessage());
+        return 0;
+      }
+    }
+
+    /** Положить батч, ожидая места в очереди; остановившийся writer батч не получает */
+    private void put(List<Document> batch) throws InterruptedException {
+      if (future.isDone()) {
+        return;
+      }
+      while (!queue.offer(batch, 1, TimeUnit.SECONDS)) {
+        if (future.isDone()) {
+          return;
+        }
+      }
+    }
+
+    /** Разгрузить очередь до конца потока, не записывая батчи */
+    private void drain() {
+      try {
+        while (queue.take() != END_OF_STREAM) {
+          // батчи не нужны
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void finish() {
+      try {
+        while (!future.isDone() && !queue.offer(END_OF_STREAM, 1, TimeUnit.SECONDS)) {
+          // writer разгружает очередь
+        }
+      } catch (InterruptedException e) {
+        future.cancel(true);
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void await() {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        future.cancel(true);
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        log.error("{} reindex writer failed: {}", indexer.getName(), e.getCause().getMessage());
+      } catch (CancellationException e) {
+        log.warn("{} reindex writer cancelled", indexer.getName());
+      }
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.example.search.service.monitoring;
+
+import lombok.Builder;
+import lombok.Data;
+
+/** Статистика движка на операции по скользящему окну последних запросов */
+@Data
+@Builder
+public class EngineStats {
+  private String engine;
+  private int requests; // запросов в окне (успешных и с ошибкой)
+  private int samples; // успешных ответов в окне (замеров времени)
+  private double errorRate; // доля ошибок в окне
+  @Builder.Default private long p50Nanos = -1; // -1 - замеров нет
+  @Builder.Default private long p95Nanos = -1;
+}
@@ -1,5 +1,6 @@
 package com.example.search.service.monitoring;
 
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -19,8 +20,16 @@ public class SearchMetricsService {
   private final ConcurrentHashMap<String, AtomicLong> totalDuration = new ConcurrentHashMap<>();
   private final ConcurrentHashMap<String, AtomicLong> slowQueries = new ConcurrentHashMap<>();
 
+  // Латентность и ошибки движков по операциям (скользящее окно) и hedging
+  private final ConcurrentHashMap<String, EngineWindow> engineWindows = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, AtomicLong> hedgesFired = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, AtomicLong> hedgesWon = new ConcurrentHashMap<>();
+
   private static final long SLOW_QUERY_THRESHOLD_MS = 500;
 
+  /** Размер скользящего окна (последних запросов) на движок и операцию */
+  private static final int ENGINE_WINDOW_SIZE = 256;
+
   /** Записать метрику выполнения запроса */
   public void recordQuery(String operation, long durationMs) {
     requestCounts.computeIfAbsent(operation, k -> new AtomicLong(0)).incrementAndGet();
@@ -56,10 +65,139 @@ public class SearchMetricsService {
     return count != null ? count.get() : 0;
   }
 
+  /** Записать время успешного ответа движка на операции */
+  public void recordEngineLatency(String operation, String engine, long durationNanos) {
+    engineWindow(operation, engine).add(durationNanos);
+  }
+
+  /** Записать ошибку движка на операции */
+  public void recordEngineError(String operation, String engine) {
+    engineWindow(operation, engine).addError();
+  }
+
+  /**
+   * Перцентиль времени ответа движка на операции по последним замерам
+   *
+   * @param percentile от 0 до 1 (0.95 - p95)
+   * @return наносекунды; -1 если замеров меньше minSamples
+   */
+  public long getEngineLatencyPercentile(
+      String operation, String engine, double percentile, int minSamples) {
+    EngineWindow window = engineWindows.get(windowKey(operation, engine));
+    return window != null ? window.percentile(percentile, minSamples) : -1;
+  }
+
+  /** Статистика движка на операции по скользящему окну (пустая, если запросов не было) */
+  public EngineStats getEngineStats(String operation, String engine) {
+    EngineWindow window = engineWindows.get(windowKey(operation, engine));
+    return window != null ? window.stats(engine) : EngineStats.builder().engine(engine).build();
+  }
+
+  /** Hedge запрос отправлен (основной движок не ответил за свой p95) */
+  public void recordHedgeFired(String operation) {
+    hedgesFired.computeIfAbsent(operation, k -> new AtomicLong(0)).incrementAndGet();
+  }
+
+  /** Ответ hedge запроса пришел раньше основного */
+  public void recordHedgeWon(String operation) {
+    hedgesWon.computeIfAbsent(operation, k -> new AtomicLong(0)).incrementAndGet();
+  }
+
+  public long getHedgesFired(String operation) {
+    AtomicLong count = hedgesFired.get(operation);
+    return count != null ? count.get() : 0;
+  }
+
+  public long getHedgesWon(String operation) {
+    AtomicLong count = hedgesWon.get(operation);
+    return count != null ? count.get() : 0;
+  }
+
   /** Сброс метрик (для тестов) */
   public void reset() {
     requestCounts.clear();
     totalDuration.clear();
     slowQueries.clear();
+    engineWindows.clear();
+    hedgesFired.clear();
+    hedgesWon.clear();
+  }
+
+  private EngineWindow engineWindow(String operation, String engine) {
+    return engineWindows.computeIfAbsent(
+        windowKey(operation, engine), k -> new EngineWindow(ENGINE_WINDOW_SIZE));
+  }
+
+  private static String windowKey(String operation, String engine) {
+    return operation + "/" + engine;
+  }
+
+  /** Кольцевые буферы последних запросов: время успешных ответов и исходы (ошибка или нет) */
+  private static final class EngineWindow {
+    private final long[] latencies;
+    private final boolean[] failures;
+    private int nextLatency;
+    private int latencyCount;
+    private int nextOutcome;
+    private int outcomeCount;
+    private int failureCount;
+
+    private EngineWindow(int capacity) {
+      this.latencies = new long[capacity];
+      this.failures = new boolean[capacity];
+    }
+
+    private synchronized void add(long value) {
+      latencies[nextLatency] = value;
+      nextLatency = (nextLatency + 1) % latencies.length;
+      latencyCount = Math.min(latencyCount + 1, latencies.length);
+      addOutcome(false);
+    }
+
+    private synchronized void addError() {
+      addOutcome(true);
+    }
+
+    private void addOutcome(boolean failure) {
+      if (outcomeCount == failures.length && failures[nextOutcome]) {
+        failureCount--; // вытесняем самый старый исход
+      }
+      failures[nextOutcome] = failure;
+      if (failure) {
+        failureCount++;
+      }
+      nextOutcome = (nextOutcome + 1) % failures.length;
+      outcomeCount = Math.min(outcomeCount + 1, failures.length);
+    }
+
+    private synchronized long percentile(double percentile, int minSamples) {
+      if (latencyCount == 0 || latencyCount < minSamples) {
+        return -1;
+      }
+      return percentileOf(sortedLatencies(), percentile);
+    }
+
+    private synchronized EngineStats stats(String engine) {
+      long[] sorted = sortedLatencies();
+      return EngineStats.builder()
+          .engine(engine)
+          .requests(outcomeCount)
+          .samples(latencyCount)
+          .errorRate(outcomeCount > 0 ? (double) failureCount / outcomeCount : 0.0)
+          .p50Nanos(sorted.length > 0 ? percentileOf(sorted, 0.5) : -1)
+          .p95Nanos(sorted.length > 0 ? percentileOf(sorted, 0.95) : -1)
+          .build();
+    }
+
+    private long[] sortedLatencies() {
+      long[] sorted = Arrays.copyOf(latencies, latencyCount);
+      Arrays.sort(sorted);
+      return sorted;
+    }
+
+    private static long percentileOf(long[] sorted, double percentile) {
+      int index = (int) Math.ceil(percentile * sorted.length) - 1;
+      return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
   }
 }
@@ -0,0 +1,121 @@
+package com.example.search.service.permission;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.search.constants.PermissionConstants;
+import com.example.search.model.DocumentPermission;
+import com.example.search.repository.DocumentPermissionRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Пакетная проверка прав по таблице document_permissions
+ *
+ * <p>Запрос возвращает только скрытые документы (с ACL, но без субъектов пользователя), видимые -
+ * остальные ID. Две стратегии: - до search.permissions.batch.temp-table-threshold ID - IN-список
+ * чанками по search.permissions.batch.in-chunk-size (лимиты драйверов: Oracle - 1000 элементов IN,
+ * PostgreSQL - 32767 bind-параметров на запрос) - больше - ID во временной таблице и один JOIN.
+ *
+ * <p>Используется, пока PermissionBitmapCache не загружен (или для ID, которых еще нет в in-memory
+ * индексах).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PermissionBatchChecker {
+
+  private final DocumentPermissionRepository permissionRepository;
+
+  @Value("${search.permissions.batch.in-chunk-size:1000}")
+  private int inChunkSize;
+
+  @Value("${search.permissions.batch.temp-table-enabled:true}")
+  private boolean tempTableEnabled;
+
+  @Value("${search.permissions.batch.temp-table-threshold:10000}")
+  private int tempTableThreshold;
+
+  /**
+   * Оставить ID документов, видимых субъектам (порядок сохраняется)
+   *
+   * @param principals субъекты пользователя (PermissionService.principalsFor)
+   */
+  @Transactional
+  public List<Long> filterVisible(List<Long> documentIds, Collection<String> principals) {
+    if (documentIds.isEmpty()) {
+      return documentIds;
+    }
+    return tempTableEnabled && documentIds.size() > tempTableThreshold
+        ? filterVisibleWithTempTable(documentIds, principals)
+        : filterVisibleChunked(documentIds, principals);
+  }
+
+  /** IN-список чанками: один запрос на in-chunk-size ID */
+  @Transactional(readOnly = true)
+  public List<Long> filterVisibleChunked(List<Long> documentIds, Collection<String> principals) {
+    Collection<String> effective = effectivePrincipals(principals);
+    Set<Long> hidden = new HashSet<>();
+    for (int from = 0; from < documentIds.size(); from += inChunkSize) {
+      List<Long> chunk =
+          documentIds.subList(from, Math.min(from + inChunkSize, documentIds.size()));
+      hidden.addAll(permissionRepository.findHiddenDocumentIds(chunk, effective));
+    }
+    log.debug(
+        "Chunked permission check: {} documents in chunks of {}, {} hidden",
+        documentIds.size(),
+        inChunkSize,
+        hidden.size());
+    return withoutHidden(documentIds, hidden);
+  }
+
+  /** ID во временной таблице и один JOIN с document_permissions */
+  @Transactional
+  public List<Long> filterVisibleWithTempTable(
+      List<Long> documentIds, Collection<String> principals) {
+    Set<Long> hidden =
+        new HashSet<>(
+            permissionRepository.findHiddenDocumentIdsViaTempTable(
+                documentIds, effectivePrincipals(principals)));
+    return withoutHidden(documentIds, hidden);
+  }
+
+  /** Строки ACL набора документов (для поля acl движков), IN-список чанками */
+  @Transactional(readOnly = true)
+  public List<DocumentPermission> loadAcl(Collection<Long> documentIds) {
+    List<Long> ids = new ArrayList<>(documentIds);
+    List<DocumentPermission> rows = new ArrayList<>();
+    for (int from = 0; from < ids.size(); from += inChunkSize) {
+      rows.addAll(
+          permissionRepository.findByDocumentIdIn(
+              ids.subList(from, Math.min(from + inChunkSize, ids.size()))));
+    }
+    return rows;
+  }
+
+  private static List<Long> withoutHidden(List<Long> documentIds, Set<Long> hidden) {
+    if (hidden.isEmpty()) {
+      return documentIds;
+    }
+    return documentIds.stream().filter(id -> !hidden.contains(id)).collect(Collectors.toList());
+  }
+
+  /** "public" есть у любого пользователя; заодно IN никогда не пустой */
+  private static Collection<String> effectivePrincipals(Collection<String> principals) {
+    if (principals.contains(PermissionConstants.PRINCIPAL_PUBLIC)) {
+      return principals;
+    }
+    Set<String> effective = new HashSet<>(principals);
+    effective.add(PermissionConstants.PRINCIPAL_PUBLIC);
+    return effective;
+  }
+}
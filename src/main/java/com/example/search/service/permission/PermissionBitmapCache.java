@@ -0,0 +1,339 @@
+package com.example.search.service.permission;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentPermissionRepository;
+import com.example.search.service.index.DocumentOrdinals;
+import com.example.search.service.index.InMemoryDocumentIndex;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Кэш прав просмотра: сжатый bitmap видимых документов (ordinal) на набор субъектов пользователя
+ *
+ * <p>Видимые = (живые документы без ACL) OR (документы, выданные одному из субъектов). Общая часть
+ * - bitmap закрытых документов (restricted) - строится одним запросом к document_permissions,
+ * bitmap набора субъектов - лениво при первом запросе пользователя. Проверка прав для N документов
+ * - одно пересечение bitmap вместо N проверок и List.contains.
+ *
+ * <p>Записи - LRU, ограничены числом (search.permissions.cache.max-entries) и суммарным размером
+ * (search.permissions.cache.max-bytes). Синхронизация: - новый документ без ACL добавляется во все
+ * bitmap на месте, удаленный - убирается - выдача или отзыв права (PermissionChangedEvent)
+ * сбрасывает restricted и все записи: гранты меняются редко, а точечное обновление пришлось бы
+ * делать для каждого набора субъектов.
+ *
+ * <p>Ordinal-ы - общие с остальными in-memory индексами (DocumentOrdinals), поэтому результат можно
+ * пересекать с bitmap фильтров FilterBitmapCache напрямую.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PermissionBitmapCache implements InMemoryDocumentIndex {
+
+  private final DocumentPermissionRepository permissionRepository;
+  private final DocumentOrdinals ordinals;
+
+  @Value("${search.permissions.cache.enabled:true}")
+  private boolean enabled;
+
+  @Value("${search.permissions.cache.max-entries:10000}")
+  private int maxEntries;
+
+  @Value("${search.permissions.cache.max-bytes:67108864}")
+  private long maxBytes;
+
+  private final RoaringBitmap live = new RoaringBitmap();
+  // Изменяется под write lock; чтение (get) под read lock безопасно для HashMap без писателей
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final AtomicLong accessClock = new AtomicLong();
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private RoaringBitmap restricted; // null - не построен
+  private long entriesBytes;
+  // Меняется при любом изменении; bitmap, построенный на старом поколении, в кэш не попадает
+  private long generation;
+  private volatile boolean ready;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+
+  @Override
+  public String getName() {
+    return "permission-bitmap-cache";
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      ready = false;
+      live.clear();
+      invalidateAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void onRebuildCompleted() {
+    lock.writeLock().lock();
+    try {
+      live.runOptimize();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    ready = true;
+  }
+
+  @Override
+  public void onAdded(int ordinal, Document document) {
+    lock.writeLock().lock();
+    try {
+      live.add(ordinal);
+      generation++;
+      // Новый документ без ACL виден всем; закрытый (повторное добавление) - по гранту
+      if (restricted != null && !restricted.contains(ordinal)) {
+        entries.values().forEach(entry -> entry.visible.add(ordinal));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void onUpdated(int ordinal, Document previous, Document current) {
+    // Права не зависят от полей документа
+  }
+
+  @Override
+  public void onRemoved(int ordinal, Document previous) {
+    lock.writeLock().lock();
+    try {
+      live.remove(ordinal);
+      generation++;
+      if (restricted != null) {
+        restricted.remove(ordinal);
+      }
+      entries.values().forEach(entry -> entry.visible.remove(ordinal));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Выдача или отзыв права - после коммита транзакции */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onPermissionChanged(PermissionChangedEvent event) {
+    lock.writeLock().lock();
+    try {
+      invalidateAll();
+      invalidations.increment();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    log.debug(
+        "Permission cache invalidated: {} on document {}",
+        event.getPrincipal(),
+        event.getDocumentId());
+  }
+
+  /** Кэш загружен и может заменить SQL проверку прав */
+  public boolean isReady() {
+    return enabled && ready;
+  }
+
+  /**
+   * Пересечь bitmap документов с видимыми для субъектов
+   *
+   * @param candidates ordinal-ы документов (не изменяется)
+   * @return новый bitmap; Optional.empty() если кэш не загружен
+   */
+  public Optional<RoaringBitmap> intersect(
+      RoaringBitmap candidates, Collection<String> principals) {
+    if (!isReady()) {
+      return Optional.empty();
+    }
+    String key = keyOf(principals);
+    lock.readLock().lock();
+    try {
+      Entry entry = entries.get(key);
+      if (entry != null) {
+        entry.lastAccess = accessClock.incrementAndGet();
+        hits.increment();
+        return Optional.of(RoaringBitmap.and(candidates, entry.visible));
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    misses.increment();
+    return Optional.of(RoaringBitmap.and(candidates, load(key, principals)));
+  }
+
+  /**
+   * Оставить ID документов, видимых субъектам (порядок сохраняется)
+   *
+   * @return Optional.empty() если кэш не загружен или часть ID еще не получила ordinal (событие
+   *     создания не обработано) - вызывающий код проверяет права запросом к БД
+   */
+  public Optional<List<Long>> filterIds(List<Long> documentIds, Collection<String> principals) {
+    if (!isReady()) {
+      return Optional.empty();
+    }
+    int[] documentOrdinals = new int[documentIds.size()];
+    RoaringBitmap candidates = new RoaringBitmap();
+    for (int i = 0; i < documentOrdinals.length; i++) {
+      int ordinal = ordinals.ordinalOf(documentIds.get(i));
+      if (ordinal < 0) {
+        return Optional.empty();
+      }
+      documentOrdinals[i] = ordinal;
+      candidates.add(ordinal);
+    }
+
+    Optional<RoaringBitmap> allowed = intersect(candidates, principals);
+    if (allowed.isEmpty()) {
+      return Optional.empty();
+    }
+    List<Long> result = new ArrayList<>(allowed.get().getCardinality());
+    for (int i = 0; i < documentOrdinals.length; i++) {
+      if (allowed.get().contains(documentOrdinals[i])) {
+        result.add(documentIds.get(i));
+      }
+    }
+    return Optional.of(result);
+  }
+
+  /** Состояние кэша для /api/health/metrics */
+  public Map<String, Object> snapshot() {
+    lock.readLock().lock();
+    try {
+      return Map.of(
+          "ready", isReady(),
+          "entries", entries.size(),
+          "bytes", entriesBytes,
+          "hits", hits.sum(),
+          "misses", misses.sum(),
+          "evictions", evictions.sum(),
+          "invalidations", invalidations.sum());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Построить bitmap набора субъектов вне блокировки и положить в кэш, если данные не менялись */
+  private RoaringBitmap load(String key, Collection<String> principals) {
+    long startGeneration;
+    RoaringBitmap publicDocuments;
+    lock.readLock().lock();
+    try {
+      startGeneration = generation;
+      publicDocuments = restricted != null ? RoaringBitmap.andNot(live, restricted) : null;
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    RoaringBitmap loadedRestricted = null;
+    if (publicDocuments == null) {
+      loadedRestricted = toOrdinals(permissionRepository.findRestrictedDocumentIds());
+      lock.readLock().lock();
+      try {
+        publicDocuments = RoaringBitmap.andNot(live, loadedRestricted);
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+    RoaringBitmap visible =
+        principals.isEmpty()
+            ? new RoaringBitmap()
+            : toOrdinals(permissionRepository.findDocumentIdsByPrincipalIn(principals));
+    visible.or(publicDocuments);
+    visible.runOptimize();
+
+    lock.writeLock().lock();
+    try {
+      if (generation == startGeneration) {
+        if (restricted == null && loadedRestricted != null) {
+          restricted = loadedRestricted;
+        }
+        Entry previous = entries.put(key, new Entry(visible, accessClock.incrementAndGet()));
+        entriesBytes += visible.getLongSizeInBytes();
+        if (previous != null) {
+          entriesBytes -= previous.visible.getLongSizeInBytes();
+        }
+        evict();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+    log.debug("Permission bitmap for {}: {} visible documents", key, visible.getCardinality());
+    return visible;
+  }
+
+  /** Вытеснить самые давно используемые записи сверх лимитов (LRU по lastAccess) */
+  private void evict() {
+    if (entries.size() <= maxEntries && entriesBytes <= maxBytes) {
+      return;
+    }
+    List<Map.Entry<String, Entry>> byAccess = new ArrayList<>(entries.entrySet());
+    byAccess.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+    Iterator<Map.Entry<String, Entry>> iterator = byAccess.iterator();
+    while ((entries.size() > maxEntries || entriesBytes > maxBytes) && iterator.hasNext()) {
+      Map.Entry<String, Entry> eldest = iterator.next();
+      entries.remove(eldest.getKey());
+      entriesBytes -= eldest.getValue().visible.getLongSizeInBytes();
+      evictions.increment();
+    }
+  }
+
+  private void invalidateAll() {
+    entries.clear();
+    entriesBytes = 0;
+    restricted = null;
+    generation++;
+  }
+
+  private RoaringBitmap toOrdinals(Collection<Long> documentIds) {
+    RoaringBitmap bitmap = new RoaringBitmap();
+    for (Long documentId : documentIds) {
+      int ordinal = ordinals.ordinalOf(documentId);
+      if (ordinal >= 0) {
+        bitmap.add(ordinal);
+      }
+    }
+    return bitmap;
+  }
+
+  /** Bitmap набора субъектов и момент последнего обращения (для LRU) */
+  private static final class Entry {
+    private final RoaringBitmap visible;
+    private volatile long lastAccess;
+
+    private Entry(RoaringBitmap visible, long lastAccess) {
+      this.visible = visible;
+      this.lastAccess = lastAccess;
+    }
+  }
+
+  /** Ключ записи - отсортированный набор субъектов (одинаковые наборы делят bitmap) */
+  private static String keyOf(Collection<String> principals) {
+    return String.join("|", new TreeSet<>(principals));
+  }
+}
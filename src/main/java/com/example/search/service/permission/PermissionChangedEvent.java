@@ -0,0 +1,19 @@
+package com.example.search.service.permission;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Событие изменения ACL документа (выдача или отзыв права)
+ *
+ * <p>Публикуется PermissionService внутри транзакции и обрабатывается после коммита - по нему
+ * PermissionBitmapCache сбрасывает bitmap видимых документов. OutboxIndexer обрабатывает его еще в
+ * транзакции: документ ставится в очередь переиндексации (поле acl).
+ */
+@Getter
+@RequiredArgsConstructor
+public class PermissionChangedEvent {
+
+  private final Long documentId;
+  private final String principal;
+}
@@ -1,9 +1,26 @@
 package com.example.search.service.permission;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.search.constants.PermissionConstants;
+import com.example.search.model.Document;
+import com.example.search.model.DocumentPermission;
+import com.example.search.model.UserProject;
+import com.example.search.repository.DocumentPermissionRepository;
+import com.example.search.repository.UserProjectRepository;
+
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -13,39 +30,146 @@ import lombok.extern.slf4j.Slf4j;
  * документов - Фильтрация по организациям, сайтам, проектам - Проверка ролей и разрешений -
  * Интеграция с системой авторизации
  *
- * <p>Сейчас - базовая структура для демонстрации концепции
+ * <p>Модель просмотра - ACL в document_permissions: документ без строк публичный, иначе виден
+ * только перечисленным субъектам (principal). Поиск не фильтрует результаты после выборки, а
+ * передает субъекты пользователя (principalsFor) в запрос: JPA - подзапрос по ACL
+ * (DocumentSpecification.isVisibleTo), движки - фильтр по индексированному полю acl (aclFor).
  */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class PermissionService {
 
+  private final DocumentPermissionRepository permissionRepository;
+  private final UserProjectRepository userProjectRepository;
+  private final PermissionBitmapCache bitmapCache;
+  private final PermissionBatchChecker batchChecker;
+  private final ApplicationEventPublisher eventPublisher;
+
+  /**
+   * Субъекты, от имени которых пользователь видит документы
+   *
+   * <p>Проекты пользователя - один запрос по уникальному индексу user_projects (user_id,
+   * project_id).
+   *
+   * @return null если userId не указан (проверка прав не выполняется, как и раньше), иначе
+   *     "public", "user:{userId}" и "project:{projectId}" для каждого проекта пользователя
+   */
+  public Set<String> principalsFor(String userId) {
+    if (userId == null) {
+      return null;
+    }
+    Set<String> principals = new HashSet<>();
+    principals.add(PermissionConstants.PRINCIPAL_PUBLIC);
+    principals.add(userPrincipal(userId));
+    for (String projectId : userProjectRepository.findProjectIdsByUserId(userId)) {
+      principals.add(projectPrincipal(projectId));
+    }
+    return principals;
+  }
+
+  /**
+   * Значения поля acl для индексации в поисковых движках (одним запросом)
+   *
+   * <p>Документ без строк ACL получает ["public"]: фильтр движка по субъектам пользователя (в них
+   * всегда есть "public") дает ту же выборку, что и подзапрос JPA.
+   */
+  public Map<Long, List<String>> aclFor(Collection<Long> documentIds) {
+    Map<Long, List<String>> acl = new HashMap<>();
+    if (documentIds == null || documentIds.isEmpty()) {
+      return acl;
+    }
+    for (DocumentPermission permission : batchChecker.loadAcl(documentIds)) {
+      acl.computeIfAbsent(permission.getDocumentId(), id -> new ArrayList<>())
+          .add(permission.getPrincipal());
+    }
+    for (Long documentId : documentIds) {
+      acl.computeIfAbsent(documentId, id -> List.of(PermissionConstants.PRINCIPAL_PUBLIC));
+    }
+    return acl;
+  }
+
+  /** Значения поля acl одного документа */
+  public List<String> aclFor(Long documentId) {
+    return aclFor(List.of(documentId)).get(documentId);
+  }
+
+  /**
+   * Выдать субъекту право на просмотр документа
+   *
+   * <p>Первая выдача делает публичный документ закрытым. Поисковые движки получают новое поле acl
+   * через outbox (OutboxIndexer) вскоре после коммита.
+   */
+  @Transactional
+  public void grantAccess(Long documentId, String principal) {
+    if (!permissionRepository.existsByDocumentIdAndPrincipal(documentId, principal)) {
+      permissionRepository.save(
+          DocumentPermission.builder().documentId(documentId).principal(principal).build());
+      eventPublisher.publishEvent(new PermissionChangedEvent(documentId, principal));
+      log.debug("Granted {} access to document {}", principal, documentId);
+    }
+  }
+
+  /** Отозвать право; после удаления последней строки документ снова публичный */
+  @Transactional
+  public void revokeAccess(Long documentId, String principal) {
+    if (permissionRepository.deleteByDocumentIdAndPrincipal(documentId, principal) > 0) {
+      eventPublisher.publishEvent(new PermissionChangedEvent(documentId, principal));
+    }
+    log.debug("Revoked {} access to document {}", principal, documentId);
+  }
+
+  /**
+   * Добавить пользователя в проект: он начинает видеть документы, выданные "project:{projectId}"
+   *
+   * <p>Кэш прав не сбрасывается - у пользователя меняется набор субъектов, а значит и ключ записи
+   * PermissionBitmapCache.
+   */
+  @Transactional
+  public void addUserToProject(String userId, String projectId) {
+    if (!userProjectRepository.existsByUserIdAndProjectId(userId, projectId)) {
+      userProjectRepository.save(UserProject.builder().userId(userId).projectId(projectId).build());
+      log.debug("User {} added to project {}", userId, projectId);
+    }
+  }
+
+  @Transactional
+  public void removeUserFromProject(String userId, String projectId) {
+    userProjectRepository.deleteByUserIdAndProjectId(userId, projectId);
+    log.debug("User {} removed from project {}", userId, projectId);
+  }
+
+  /** Субъект для конкретного пользователя ("user:{userId}") */
+  public static String userPrincipal(String userId) {
+    return PermissionConstants.PRINCIPAL_USER_PREFIX + userId;
+  }
+
+  /** Субъект для участников проекта ("project:{projectId}") */
+  public static String projectPrincipal(String projectId) {
+    return PermissionConstants.PRINCIPAL_PROJECT_PREFIX + projectId;
+  }
+
   /**
    * Проверка, может ли пользователь просматривать документ
    *
-   * <p>В реальном проекте здесь будет проверка: - Принадлежность документа к организации
-   * пользователя - Роль пользователя (admin, user, viewer) - Права на конкретный проект/сайт -
-   * Статус документа (черновики видят только авторы)
+   * <p>Документ без ACL - публичный; иначе нужна строка с одним из субъектов пользователя. В
+   * реальном проекте сюда добавятся: - Принадлежность документа к организации пользователя - Роль
+   * пользователя (admin, user, viewer) - Статус документа (черновики видят только авторы)
    */
   public boolean canViewDocument(Long documentId, String userId) {
-    // TODO: Реализовать проверку прав
-    // Пример логики:
-    // 1. Получить документ из БД
-    // 2. Проверить организацию пользователя
-    // 3. Проверить роль и права
-    // 4. Проверить статус документа
-
     log.debug("Checking permission for user {} to view document {}", userId, documentId);
-    return true; // По умолчанию разрешаем (для демо)
+    if (userId == null) {
+      return true; // Без пользователя права не проверяются (для демо)
+    }
+    return !permissionRepository.existsByDocumentId(documentId)
+        || permissionRepository.existsByDocumentIdAndPrincipalIn(documentId, principalsFor(userId));
   }
 
   /**
    * Фильтрация списка ID документов по правам пользователя
    *
-   * <p>Оптимизированная версия для batch queries (как в Alanda): - Batch проверка прав для
-   * множества документов - Кэширование прав пользователя - Минимизация запросов к БД
-   *
-   * <p>Используется для permission-aware queries: - Получаем все ID из поиска - Фильтруем по правам
-   * доступа (batch) - Возвращаем только разрешенные документы
+   * <p>Для уже загруженных списков (allDocuments); поиск применяет права в самом запросе. Порядок
+   * ID сохраняется.
    */
   public List<Long> filterByPermissions(List<Long> documentIds, String userId) {
     if (documentIds == null || documentIds.isEmpty()) {
@@ -60,38 +184,35 @@ public class PermissionService {
     log.debug(
         "Filtering {} documents by permissions for user {} (batch)", documentIds.size(), userId);
 
-    // Оптимизация: batch проверка прав
-    // В production здесь будет:
-    // 1. Получение прав пользователя из кэша (организация, роль, проекты)
-    // 2. Batch запрос к БД для проверки принадлежности документов
-    // 3. SQL: SELECT document_id FROM document_permissions WHERE user_id = ? AND
-    // document_id IN (...)
-    // 4. Кэширование результатов для производительности
-
-    // Базовая реализация: фильтруем по правам доступа
-    // Для больших списков (>100) используем batch проверку
-    if (documentIds.size() > 100) {
-      return filterByPermissionsBatch(documentIds, userId);
-    } else {
-      return documentIds.stream()
-          .filter(id -> canViewDocument(id, userId))
-          .collect(java.util.stream.Collectors.toList());
-    }
+    Set<String> principals = principalsFor(userId);
+    // Одно пересечение bitmap из кэша; пока кэш не загружен - ACL из БД
+    return bitmapCache
+        .filterIds(documentIds, principals)
+        .orElseGet(() -> filterByPermissionsBatch(documentIds, principals));
   }
 
-  /** Batch проверка прав для больших списков документов Оптимизировано для производительности */
-  private List<Long> filterByPermissionsBatch(List<Long> documentIds, String userId) {
-    // В production: один SQL запрос вместо N запросов
-    // SELECT id FROM documents WHERE id IN (...) AND
-    // (organization_id = ? OR project_id IN (SELECT project_id FROM user_projects
-    // WHERE user_id = ?))
+  /**
+   * Оставить документы, доступные пользователю (порядок сохраняется)
+   *
+   * <p>Для уже загруженных списков: разрешенные ID - в HashSet, проверка документа O(1).
+   */
+  public List<Document> filterDocuments(List<Document> documents, String userId) {
+    if (userId == null || documents.isEmpty()) {
+      return documents;
+    }
+    Set<Long> allowedIds =
+        new HashSet<>(
+            filterByPermissions(
+                documents.stream().map(Document::getId).collect(Collectors.toList()), userId));
+    return documents.stream()
+        .filter(document -> allowedIds.contains(document.getId()))
+        .collect(Collectors.toList());
+  }
 
+  /** Проверка по ACL из БД: чанки IN-списка или временная таблица (PermissionBatchChecker) */
+  private List<Long> filterByPermissionsBatch(List<Long> documentIds, Set<String> principals) {
     log.debug("Using batch permission check for {} documents", documentIds.size());
-
-    // Сейчас упрощенная версия - в production будет реальная проверка
-    return documentIds.stream()
-        .filter(id -> canViewDocument(id, userId))
-        .collect(java.util.stream.Collectors.toList());
+    return batchChecker.filterVisible(documentIds, principals);
   }
 
   /** Проверка прав на создание документа */
@@ -0,0 +1,165 @@
+package com.example.search.service.routing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Service;
+
+import com.example.search.constants.SearchEngineConstants;
+import com.example.search.service.monitoring.EngineStats;
+import com.example.search.service.monitoring.SearchMetricsService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Адаптивный порядок кандидатов: самый быстрый здоровый движок - первым
+ *
+ * <p>Источник - скользящее окно SearchMetricsService по паре (операция, движок): - движок здоров,
+ * если доля ошибок в окне не выше search.routing.max-error-rate - здоровые движки с достаточным
+ * числом замеров сортируются по p50, без замеров - в порядке engine-order после них - больные
+ * движки в конце. JPA не кандидат: это fallback вне маршрутизации (UnifiedSearchService), его
+ * статистика пишется напрямую и видна только в snapshot.
+ *
+ * <p>С вероятностью search.routing.exploration-rate первым ставится случайный не лучший движок:
+ * иначе статистика простаивающих движков не обновляется, и восстановившийся движок не вернет
+ * трафик.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AdaptiveRoutingPolicy {
+
+  // Маршрутизируемые операции: autocomplete и facets считает только JPA
+  private static final List<String> OPERATIONS =
+      List.of(SearchEngineConstants.OPERATION_SEARCH, SearchEngineConstants.OPERATION_FILTER);
+
+  private final SearchRoutingProperties properties;
+  private final SearchMetricsService metricsService;
+
+  // Сколько раз движок выбран основным, по операциям
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, LongAdder>> decisions =
+      new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, LongAdder> explorations = new ConcurrentHashMap<>();
+
+  /**
+   * Упорядочить кандидатов операции по текущей статистике
+   *
+   * @param operation имя операции (search, filter)
+   * @param candidates кандидаты в порядке конфигурации
+   * @return новый список: лучший движок первым
+   */
+  public <T> List<RoutingCandidate<T>> order(
+      String operation, List<RoutingCandidate<T>> candidates) {
+    List<RoutingCandidate<T>> engines = new ArrayList<>(candidates);
+
+    if (engines.size() > 1) {
+      Map<String, EngineStats> stats = new LinkedHashMap<>();
+      engines.forEach(
+          c -> stats.put(c.getEngine(), metricsService.getEngineStats(operation, c.getEngine())));
+      // Сортировка устойчивая: при равенстве сохраняется порядок engine-order
+      engines.sort(Comparator.comparingLong(c -> rank(stats.get(c.getEngine()))));
+
+      if (ThreadLocalRandom.current().nextDouble() < properties.getExplorationRate()) {
+        int explored = 1 + ThreadLocalRandom.current().nextInt(engines.size() - 1);
+        engines.add(0, engines.remove(explored));
+        explorations.computeIfAbsent(operation, k -> new LongAdder()).increment();
+        log.debug("{}: exploring {}", operation, engines.get(0).getEngine());
+      }
+    }
+
+    if (!engines.isEmpty()) {
+      decisions
+          .computeIfAbsent(operation, k -> new ConcurrentHashMap<>())
+          .computeIfAbsent(engines.get(0).getEngine(), k -> new LongAdder())
+          .increment();
+    }
+    return engines;
+  }
+
+  /**
+   * Решения и веса движков по всем операциям (для /api/health/metrics)
+   *
+   * <p>Вес - доля трафика, которую движок получил бы при выборе пропорционально скорости: 1/p50 для
+   * здоровых движков с достаточным числом замеров, 0 для остальных.
+   */
+  public Map<String, Object> snapshot() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    for (String operation : OPERATIONS) {
+      List<String> engines = new ArrayList<>(properties.getEngineOrder());
+      engines.add(SearchEngineConstants.ENGINE_JPA);
+
+      Map<String, EngineStats> stats = new LinkedHashMap<>();
+      double totalScore = 0;
+      for (String engine : engines) {
+        EngineStats engineStats = metricsService.getEngineStats(operation, engine);
+        stats.put(engine, engineStats);
+        totalScore += score(engineStats);
+      }
+
+      Map<String, Object> engineViews = new LinkedHashMap<>();
+      for (EngineStats engineStats : stats.values()) {
+        double score = score(engineStats);
+        engineViews.put(
+            engineStats.getEngine(),
+            Map.of(
+                "p50Ms", toMillis(engineStats.getP50Nanos()),
+                "p95Ms", toMillis(engineStats.getP95Nanos()),
+                "errorRate", engineStats.getErrorRate(),
+                "samples", engineStats.getSamples(),
+                "healthy", isHealthy(engineStats),
+                "weight", totalScore > 0 ? score / totalScore : 0.0));
+      }
+
+      Map<String, Long> operationDecisions = new LinkedHashMap<>();
+      decisions
+          .getOrDefault(operation, new ConcurrentHashMap<>())
+          .forEach((engine, count) -> operationDecisions.put(engine, count.sum()));
+      LongAdder explored = explorations.get(operation);
+
+      result.put(
+          operation,
+          Map.of(
+              "engines", engineViews,
+              "decisions", operationDecisions,
+              "explorations", explored != null ? explored.sum() : 0L));
+    }
+    result.put("adaptive", properties.isAdaptive());
+    result.put("explorationRate", properties.getExplorationRate());
+    return result;
+  }
+
+  /** Ключ сортировки: здоровые с замерами по p50, затем без замеров, затем больные */
+  private long rank(EngineStats stats) {
+    if (!isHealthy(stats)) {
+      return Long.MAX_VALUE;
+    }
+    if (stats.getSamples() < properties.getAdaptiveMinSamples()) {
+      return Long.MAX_VALUE - 1;
+    }
+    return stats.getP50Nanos();
+  }
+
+  private boolean isHealthy(EngineStats stats) {
+    return stats.getRequests() < properties.getAdaptiveMinSamples()
+        || stats.getErrorRate() <= properties.getMaxErrorRate();
+  }
+
+  private double score(EngineStats stats) {
+    if (!isHealthy(stats) || stats.getSamples() < properties.getAdaptiveMinSamples()) {
+      return 0;
+    }
+    return 1.0 / Math.max(stats.getP50Nanos(), TimeUnit.MICROSECONDS.toNanos(1));
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos >= 0 ? nanos / 1_000_000.0 : -1;
+  }
+}
@@ -0,0 +1,59 @@
+package com.example.search.service.routing;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.search.service.search.SearchEngine;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Half-open проба открытых цепей через isAvailable() движка
+ *
+ * <p>Отдельный компонент: движки сами зависят от CircuitBreakerRegistry. Планировщик только находит
+ * цепи для пробы, сами пробы выполняются в circuitProbeExecutor: общий поток @Scheduled не
+ * блокируется на connect timeout, а зависший движок не задерживает пробы остальных. Одновременно
+ * идет не больше одной пробы движка - цепь в HALF_OPEN до ее результата.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CircuitBreakerProbe {
+
+  private final List<SearchEngine> searchEngines;
+  private final CircuitBreakerRegistry circuitBreakers;
+  private final ExecutorService circuitProbeExecutor;
+
+  @Scheduled(
+      fixedDelayString = "${search.circuit-breaker.probe-interval-ms:5000}",
+      initialDelayString = "${search.circuit-breaker.probe-interval-ms:5000}")
+  public void probeOpenCircuits() {
+    for (SearchEngine engine : searchEngines) {
+      if (circuitBreakers.tryStartProbe(engine.getName())) {
+        log.debug("Probing {} (half-open)", engine.getName());
+        try {
+          circuitProbeExecutor.execute(() -> probe(engine));
+        } catch (RejectedExecutionException e) {
+          circuitBreakers.onProbeResult(engine.getName(), false);
+        }
+      }
+    }
+  }
+
+  /** Результат пробы закрывает цепь или снова открывает ее; исключение - движок недоступен */
+  private void probe(SearchEngine engine) {
+    boolean available = false;
+    try {
+      available = engine.isAvailable();
+    } catch (RuntimeException e) {
+      log.debug("Probe of {} failed: {}", engine.getName(), e.getMessage());
+    } finally {
+      circuitBreakers.onProbeResult(engine.getName(), available);
+    }
+  }
+}
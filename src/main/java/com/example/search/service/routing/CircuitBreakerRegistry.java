@@ -0,0 +1,186 @@
+package com.example.search.service.routing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Circuit breakers поисковых движков
+ *
+ * <p>Без них недоступный движок каждый запрос стоит connect timeout (10с) и повторов клиента.
+ * Автомат на движок: - CLOSED - запросы идут, failure-threshold ошибок подряд открывают цепь - OPEN
+ * - запросы отклоняются за микросекунды (сервисы движков возвращают пустой результат) - через
+ * open-duration-ms CircuitBreakerProbe переводит цепь в HALF_OPEN и вызывает isAvailable() движка:
+ * успех закрывает цепь, ошибка снова открывает ее на open-duration-ms.
+ *
+ * <p>Пробу выполняет только планировщик, поэтому пользовательский запрос никогда не ждет мертвый
+ * движок.
+ */
+@Service
+@Slf4j
+public class CircuitBreakerRegistry {
+
+  @Value("${search.circuit-breaker.enabled:true}")
+  private boolean enabled;
+
+  @Value("${search.circuit-breaker.failure-threshold:3}")
+  private int failureThreshold;
+
+  @Value("${search.circuit-breaker.open-duration-ms:30000}")
+  private long openDurationMs;
+
+  private final ConcurrentHashMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+  /**
+   * Можно ли отправить запрос в движок
+   *
+   * @return false - цепь открыта, вызывать движок не нужно
+   */
+  public boolean allowRequest(String engine) {
+    if (!enabled) {
+      return true;
+    }
+    return breaker(engine).allowRequest();
+  }
+
+  /** Успешный ответ движка */
+  public void recordSuccess(String engine) {
+    if (enabled) {
+      breaker(engine).onSuccess();
+    }
+  }
+
+  /** Ошибка вызова движка (сетевая или ответ с ошибкой) */
+  public void recordFailure(String engine, Exception error) {
+    if (enabled && breaker(engine).onFailure(failureThreshold, openDurationMs)) {
+      log.warn(
+          "Circuit for {} opened after {} consecutive failures: {}",
+          engine,
+          failureThreshold,
+          error.getMessage());
+    }
+  }
+
+  public CircuitState getState(String engine) {
+    Breaker breaker = breakers.get(engine);
+    return breaker != null ? breaker.state : CircuitState.CLOSED;
+  }
+
+  /**
+   * Начать пробу, если цепь открыта и время ожидания вышло (OPEN -> HALF_OPEN)
+   *
+   * @return true - вызывающий должен проверить движок и сообщить результат в onProbeResult
+   */
+  boolean tryStartProbe(String engine) {
+    Breaker breaker = breakers.get(engine);
+    return breaker != null && breaker.tryStartProbe();
+  }
+
+  /** Результат пробы isAvailable(): HALF_OPEN -> CLOSED или снова OPEN */
+  void onProbeResult(String engine, boolean available) {
+    Breaker breaker = breaker(engine);
+    breaker.onProbeResult(available, openDurationMs);
+    if (available) {
+      log.info("Circuit for {} closed: engine is available again", engine);
+    } else {
+      log.debug("Circuit for {} stays open: probe failed", engine);
+    }
+  }
+
+  /** Состояние цепей для health checks */
+  public Map<String, Object> snapshot() {
+    Map<String, Object> result = new TreeMap<>();
+    breakers.forEach((engine, breaker) -> result.put(engine, breaker.view()));
+    return result;
+  }
+
+  private Breaker breaker(String engine) {
+    return breakers.computeIfAbsent(engine, k -> new Breaker());
+  }
+
+  private static final class Breaker {
+    private volatile CircuitState state = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openUntilNanos;
+    private long openedAtMillis;
+    private long rejected;
+    private long opened;
+
+    private boolean allowRequest() {
+      if (state == CircuitState.CLOSED) {
+        return true; // быстрый путь без блокировки
+      }
+      synchronized (this) {
+        if (state == CircuitState.CLOSED) {
+          return true;
+        }
+        rejected++;
+        return false;
+      }
+    }
+
+    private synchronized void onSuccess() {
+      consecutiveFailures = 0;
+    }
+
+    /**
+     * @return true, если эта ошибка открыла цепь
+     */
+    private synchronized boolean onFailure(int threshold, long openDurationMs) {
+      consecutiveFailures++;
+      if (state == CircuitState.CLOSED && consecutiveFailures >= threshold) {
+        open(openDurationMs);
+        return true;
+      }
+      return false;
+    }
+
+    private synchronized boolean tryStartProbe() {
+      if (state != CircuitState.OPEN || System.nanoTime() < openUntilNanos) {
+        return false;
+      }
+      state = CircuitState.HALF_OPEN;
+      return true;
+    }
+
+    private synchronized void onProbeResult(boolean available, long openDurationMs) {
+      if (available) {
+        state = CircuitState.CLOSED;
+        consecutiveFailures = 0;
+      } else {
+        open(openDurationMs);
+      }
+    }
+
+    private void open(long openDurationMs) {
+      if (state == CircuitState.CLOSED) {
+        opened++;
+        openedAtMillis = System.currentTimeMillis();
+      }
+      state = CircuitState.OPEN;
+      openUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(openDurationMs);
+    }
+
+    private synchronized Map<String, Object> view() {
+      Map<String, Object> view = new LinkedHashMap<>();
+      view.put("state", state.name());
+      view.put("consecutiveFailures", consecutiveFailures);
+      view.put("rejectedRequests", rejected);
+      view.put("timesOpened", opened);
+      if (state != CircuitState.CLOSED) {
+        view.put("openedAt", openedAtMillis);
+        view.put(
+            "nextProbeInMs",
+            Math.max(0, TimeUnit.NANOSECONDS.toMillis(openUntilNanos - System.nanoTime())));
+      }
+      return view;
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package com.example.search.service.routing;
+
+/** Состояние circuit breaker движка */
+public enum CircuitState {
+  /** Запросы идут в движок, считаются ошибки подряд */
+  CLOSED,
+  /** Движок считается недоступным: запросы отклоняются сразу, до успешной проверки */
+  OPEN,
+  /** Идет пробная проверка isAvailable(); запросы по-прежнему отклоняются */
+  HALF_OPEN
+}
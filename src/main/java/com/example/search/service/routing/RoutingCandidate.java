@@ -0,0 +1,29 @@
+package com.example.search.service.routing;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Кандидат на выполнение операции: движок и вызов к нему
+ *
+ * <p>Вызов возвращает Optional.empty(), если движок не умеет выполнить этот запрос, и бросает
+ * исключение, если движок недоступен; в обоих случаях маршрутизатор переходит к следующему.
+ *
+ * <p>В режиме RACE проигравшие вызовы прерываются (Future.cancel(true)), поэтому кандидат - только
+ * HTTP-вызов движка; JPA/JDBC кандидатом не делается, прерывание портит соединение и транзакцию.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class RoutingCandidate<T> {
+
+  private final String engine;
+  private final Supplier<Optional<T>> call;
+
+  public static <T> RoutingCandidate<T> of(String engine, Supplier<Optional<T>> call) {
+    return new RoutingCandidate<>(engine, call);
+  }
+}
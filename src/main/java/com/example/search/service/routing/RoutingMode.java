@@ -0,0 +1,13 @@
+package com.example.search.service.routing;
+
+/** Режим выбора движка для операции */
+public enum RoutingMode {
+  /** Движки по очереди: следующий - только после ошибки предыдущего */
+  SEQUENTIAL,
+
+  /**
+   * Гонка с hedging: запрос к основному движку, дублирующий запрос к следующему, если основной не
+   * ответил за свой p95; побеждает первый полный ответ, остальные отменяются
+   */
+  RACE
+}
@@ -0,0 +1,193 @@
+package com.example.search.service.routing;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Service;
+
+import com.example.search.service.monitoring.SearchMetricsService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Выполнение операции на одном из движков-кандидатов
+ *
+ * <p>Режим задается на операцию (search.routing.modes): - SEQUENTIAL - кандидаты по очереди,
+ * следующий только после ошибки - RACE - запрос к основному кандидату; если он не ответил за свой
+ * наблюдаемый p95, отправляется дублирующий (hedged) запрос следующему; ошибка кандидата сразу
+ * запускает следующий. Побеждает первый полный ответ, остальные запросы отменяются.
+ *
+ * <p>Время успешных ответов и ошибки пишутся в SearchMetricsService (скользящее окно на операцию и
+ * движок): оттуда p95 для hedge и статистика для AdaptiveRoutingPolicy; там же счетчики
+ * отправленных и выигравших hedge запросов.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchRouter {
+
+  private static final double HEDGE_PERCENTILE = 0.95;
+
+  private final SearchRoutingProperties properties;
+  private final SearchMetricsService metricsService;
+  private final AdaptiveRoutingPolicy routingPolicy;
+  private final ExecutorService searchFanOutExecutor;
+
+  /**
+   * Выполнить операцию на первом ответившем кандидате
+   *
+   * @param operation имя операции (search, filter, autocomplete, facets) - определяет режим
+   * @param candidates кандидаты в порядке конфигурации; при search.routing.adaptive порядок
+   *     выбирает AdaptiveRoutingPolicy
+   * @return ответ победителя; Optional.empty() если никто не ответил до дедлайна
+   */
+  public <T> Optional<T> execute(String operation, List<RoutingCandidate<T>> candidates) {
+    if (candidates.isEmpty()) {
+      return Optional.empty();
+    }
+    List<RoutingCandidate<T>> ordered =
+        properties.isAdaptive() ? routingPolicy.order(operation, candidates) : candidates;
+    if (properties.modeFor(operation) == RoutingMode.RACE && ordered.size() > 1) {
+      return race(operation, ordered);
+    }
+    return sequential(operation, ordered);
+  }
+
+  private <T> Optional<T> sequential(String operation, List<RoutingCandidate<T>> candidates) {
+    for (RoutingCandidate<T> candidate : candidates) {
+      Optional<T> result = attempt(operation, candidate);
+      if (result.isPresent()) {
+        return result;
+      }
+    }
+    return Optional.empty();
+  }
+
+  private <T> Optional<T> race(String operation, List<RoutingCandidate<T>> candidates) {
+    CompletionService<Optional<T>> completion =
+        new ExecutorCompletionService<>(searchFanOutExecutor);
+    Map<Future<Optional<T>>, Integer> launched = new HashMap<>();
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getTimeoutMs());
+
+    int next = 0;
+    int pending = 0;
+    boolean hedged = false;
+    long lastLaunch = 0;
+
+    try {
+      while (pending > 0 || next < candidates.size()) {
+        if (pending == 0) {
+          // Все запущенные ответили ошибкой - следующий кандидат без ожидания
+          lastLaunch = launch(operation, completion, candidates, next++, launched);
+          pending++;
+          continue;
+        }
+
+        long hedgeAt =
+            next < candidates.size()
+                ? lastLaunch + hedgeDelayNanos(operation, candidates.get(next - 1).getEngine())
+                : deadline;
+        long waitNanos = Math.min(hedgeAt, deadline) - System.nanoTime();
+        Future<Optional<T>> done = completion.poll(Math.max(waitNanos, 0), TimeUnit.NANOSECONDS);
+
+        if (done == null) {
+          if (System.nanoTime() >= deadline) {
+            log.warn("{}: no engine answered within {}ms", operation, properties.getTimeoutMs());
+            return Optional.empty();
+          }
+          // Текущий кандидат медленнее своего p95 - hedge к следующему
+          log.debug(
+              "{}: {} exceeded p95, hedging to {}",
+              operation,
+              candidates.get(next - 1).getEngine(),
+              candidates.get(next).getEngine());
+          lastLaunch = launch(operation, completion, candidates, next++, launched);
+          pending++;
+          hedged = true;
+          metricsService.recordHedgeFired(operation);
+          continue;
+        }
+
+        pending--;
+        Optional<T> result = done.get();
+        if (result.isPresent()) {
+          int winner = launched.get(done);
+          if (hedged && winner > 0) {
+            metricsService.recordHedgeWon(operation);
+          }
+          log.debug("{}: answered by {}", operation, candidates.get(winner).getEngine());
+          return result;
+        }
+        if (next < candidates.size()) {
+          lastLaunch = launch(operation, completion, candidates, next++, launched);
+          pending++;
+        }
+      }
+      return Optional.empty();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Optional.empty();
+    } catch (ExecutionException e) {
+      log.error("{}: routing failed: {}", operation, e.getMessage());
+      return Optional.empty();
+    } finally {
+      // Проигравшие запросы больше не нужны
+      launched.keySet().forEach(future -> future.cancel(true));
+    }
+  }
+
+  private <T> long launch(
+      String operation,
+      CompletionService<Optional<T>> completion,
+      List<RoutingCandidate<T>> candidates,
+      int index,
+      Map<Future<Optional<T>>, Integer> launched) {
+    RoutingCandidate<T> candidate = candidates.get(index);
+    Future<Optional<T>> future = completion.submit(() -> attempt(operation, candidate));
+    launched.put(future, index);
+    return System.nanoTime();
+  }
+
+  /**
+   * Вызов кандидата с замером; ошибка = пустой ответ
+   *
+   * <p>Пустой ответ без исключения (движок не умеет перевести запрос) в статистику не попадает.
+   */
+  private <T> Optional<T> attempt(String operation, RoutingCandidate<T> candidate) {
+    long startTime = System.nanoTime();
+    try {
+      Optional<T> result = candidate.getCall().get();
+      if (result.isPresent()) {
+        metricsService.recordEngineLatency(
+            operation, candidate.getEngine(), System.nanoTime() - startTime);
+      }
+      return result;
+    } catch (RuntimeException e) {
+      if (!Thread.currentThread().isInterrupted()) {
+        // Отмененный проигравший в гонке - не ошибка движка
+        metricsService.recordEngineError(operation, candidate.getEngine());
+      }
+      log.debug("{} failed: {}", candidate.getEngine(), e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  /** Задержка hedge: наблюдаемый p95 движка (или значение по умолчанию, пока замеров мало) */
+  private long hedgeDelayNanos(String operation, String engine) {
+    long p95 =
+        metricsService.getEngineLatencyPercentile(
+            operation, engine, HEDGE_PERCENTILE, properties.getHedgeMinSamples());
+    long delay =
+        p95 >= 0 ? p95 : TimeUnit.MILLISECONDS.toNanos(properties.getHedgeDefaultDelayMs());
+    return Math.max(delay, TimeUnit.MILLISECONDS.toNanos(properties.getHedgeMinDelayMs()));
+  }
+}
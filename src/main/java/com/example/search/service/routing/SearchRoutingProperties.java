@@ -0,0 +1,62 @@
+package com.example.search.service.routing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.example.search.constants.SearchEngineConstants;
+
+import lombok.Data;
+
+/** Настройки маршрутизации запросов между движками (search.routing.*) */
+@Data
+@Component
+@ConfigurationProperties(prefix = "search.routing")
+public class SearchRoutingProperties {
+
+  /** Режим по операции (search, filter, autocomplete, facets); по умолчанию - defaultMode */
+  private Map<String, RoutingMode> modes = new HashMap<>();
+
+  private RoutingMode defaultMode = RoutingMode.SEQUENTIAL;
+
+  /** Порядок движков: первый - основной, следующие - кандидаты для hedge */
+  private List<String> engineOrder =
+      new ArrayList<>(
+          List.of(
+              SearchEngineConstants.ENGINE_TYPESENSE,
+              SearchEngineConstants.ENGINE_OPENSEARCH,
+              SearchEngineConstants.ENGINE_SOLR));
+
+  /** Задержка hedge, пока у движка мало замеров для p95 */
+  private long hedgeDefaultDelayMs = 50;
+
+  /** Нижняя граница задержки hedge (не дублировать запросы на каждом шуме) */
+  private long hedgeMinDelayMs = 5;
+
+  /** Минимум замеров для p95 */
+  private int hedgeMinSamples = 20;
+
+  /** Порядок кандидатов по статистике движков (AdaptiveRoutingPolicy) вместо engine-order */
+  private boolean adaptive = true;
+
+  /** Доля запросов, отправляемых первыми не лучшему движку (обновление его статистики) */
+  private double explorationRate = 0.05;
+
+  /** Минимум замеров в окне, чтобы сравнивать движок по p50 и судить о доле ошибок */
+  private int adaptiveMinSamples = 10;
+
+  /** Доля ошибок в окне, выше которой движок считается больным */
+  private double maxErrorRate = 0.5;
+
+  /** Общий дедлайн операции; не уложились - fallback на JPA */
+  private long timeoutMs = 5000;
+
+  public RoutingMode modeFor(String operation) {
+    return modes.getOrDefault(operation.toLowerCase(Locale.ROOT), defaultMode);
+  }
+}
@@ -0,0 +1,145 @@
+package com.example.search.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import com.example.search.dto.response.AutocompleteResultDto;
+
+/**
+ * Ранжирование подсказок автокомплита одним числовым рангом на кандидата
+ *
+ * <p>Раньше comparator вызывал {@code String.matches(".*[\\s-]" + prefix + ".*")} на каждое
+ * сравнение: O(n log n) компиляций regex на запрос и поломка на метасимволах в пользовательском
+ * вводе. Теперь ранг считается один раз на кандидата: - уровень совпадения (начало строки, начало
+ * слова после пробела/дефиса, середина, нет совпадения) - длина текста (короче = релевантнее) -
+ * упакованы в один long. Лучшие k выбираются bounded heap на int[] индексах, при равном ранге - по
+ * алфавиту.
+ */
+final class AutocompleteRanker {
+
+  static final int TIER_PREFIX = 0;
+  static final int TIER_WORD_PREFIX = 1;
+  static final int TIER_INFIX = 2;
+  static final int TIER_NONE = 3;
+
+  private AutocompleteRanker() {
+    throw new UnsupportedOperationException("Utility class");
+  }
+
+  /**
+   * Лучшие подсказки по рангу
+   *
+   * @param results кандидаты
+   * @param prefix введенный префикс (регистр не важен, regex не используется)
+   * @param limit максимум результатов
+   * @return новый список, отсортированный по рангу
+   */
+  static List<AutocompleteResultDto> rank(
+      List<AutocompleteResultDto> results, String prefix, int limit) {
+    int n = results.size();
+    int k = Math.min(Math.max(limit, 0), n);
+    if (prefix == null || prefix.isEmpty()) {
+      return new ArrayList<>(results.subList(0, k));
+    }
+
+    String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+    String[] keys = new String[n];
+    long[] ranks = new long[n];
+    for (int i = 0; i < n; i++) {
+      String text = results.get(i).getText();
+      keys[i] = text != null ? text.toLowerCase(Locale.ROOT) : "";
+      ranks[i] = rank(keys[i], lowerPrefix);
+    }
+
+    // Max-heap по рангу: в корне худший из k лучших
+    int[] heap = new int[k];
+    int size = 0;
+    for (int i = 0; i < n && k > 0; i++) {
+      if (size < k) {
+        heap[size] = i;
+        siftUp(heap, size++, ranks, keys);
+      } else if (compare(i, heap[0], ranks, keys) < 0) {
+        heap[0] = i;
+        siftDown(heap, size, ranks, keys);
+      }
+    }
+
+    AutocompleteResultDto[] ranked = new AutocompleteResultDto[size];
+    for (int j = size - 1; j >= 0; j--) {
+      ranked[j] = results.get(heap[0]);
+      heap[0] = heap[j];
+      siftDown(heap, j, ranks, keys);
+    }
+    return new ArrayList<>(Arrays.asList(ranked));
+  }
+
+  /**
+   * Ранг кандидата: уровень совпадения в старших 32 битах, длина - в младших (меньше = лучше)
+   *
+   * @param text текст в нижнем регистре
+   * @param prefix префикс в нижнем регистре
+   */
+  static long rank(String text, String prefix) {
+    return ((long) tier(text, prefix) << 32) | text.length();
+  }
+
+  /** Уровень совпадения за один проход по границам слов */
+  static int tier(String text, String prefix) {
+    if (text.startsWith(prefix)) {
+      return TIER_PREFIX;
+    }
+    for (int i = 1; i <= text.length() - prefix.length(); i++) {
+      char previous = text.charAt(i - 1);
+      if ((Character.isWhitespace(previous) || previous == '-') && text.startsWith(prefix, i)) {
+        return TIER_WORD_PREFIX;
+      }
+    }
+    return text.contains(prefix) ? TIER_INFIX : TIER_NONE;
+  }
+
+  private static int compare(int a, int b, long[] ranks, String[] keys) {
+    int byRank = Long.compare(ranks[a], ranks[b]);
+    if (byRank != 0) {
+      return byRank;
+    }
+    int byText = keys[a].compareTo(keys[b]);
+    return byText != 0 ? byText : Integer.compare(a, b);
+  }
+
+  private static void siftUp(int[] heap, int index, long[] ranks, String[] keys) {
+    int item = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (compare(item, heap[parent], ranks, keys) <= 0) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = item;
+  }
+
+  private static void siftDown(int[] heap, int size, long[] ranks, String[] keys) {
+    if (size == 0) {
+      return;
+    }
+    int item = heap[0];
+    int index = 0;
+    int half = size >>> 1;
+    while (index < half) {
+      int child = 2 * index + 1;
+      int right = child + 1;
+      if (right < size && compare(heap[right], heap[child], ranks, keys) > 0) {
+        child = right;
+      }
+      if (compare(item, heap[child], ranks, keys) >= 0) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = item;
+  }
+}
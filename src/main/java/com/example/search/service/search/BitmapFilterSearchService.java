@@ -0,0 +1,148 @@
+package com.example.search.service.search;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentCursor;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.repository.DocumentSearchParams;
+import com.example.search.service.index.FilterBitmapCache;
+import com.example.search.service.index.InvertedIndexService;
+import com.example.search.service.permission.PermissionBitmapCache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Поиск по фильтрам и query через FilterBitmapCache и инвертированный индекс
+ *
+ * <p>Фильтры category/status/author/даты - AND/OR готовых bitmap, query - AND с bitmap совпадений
+ * инвертированного индекса, total - cardinality результата (без COUNT), страница - обход day
+ * bucket-ов в порядке сортировки, документы страницы загружаются одним findAllById. В SQL уходят
+ * только ID страницы, сколько бы документов ни совпало.
+ *
+ * <p>Поддерживается сортировка по createdAt/updatedAt (по умолчанию createdAt DESC); для остальных
+ * полей и пока кэши не загружены - Optional.empty() и обычный SQL путь. Права пользователя -
+ * пересечение с bitmap PermissionBitmapCache. Курсорные страницы (searchAfter) - seek по той же
+ * выборке от пары (дата, id) курсора.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BitmapFilterSearchService {
+
+  private final DocumentRepository documentRepository;
+  private final FilterBitmapCache filterBitmapCache;
+  private final InvertedIndexService invertedIndexService;
+  private final PermissionBitmapCache permissionBitmapCache;
+
+  /**
+   * Страница документов по фильтрам и query
+   *
+   * @param params параметры поиска (query - исходный текст)
+   * @param pageable пагинация и сортировка
+   * @return Optional.empty() если запрос нельзя ответить из кэша
+   */
+  public Optional<Page<Document>> search(DocumentSearchParams params, Pageable pageable) {
+    Sort.Order order =
+        pageable.getSort().iterator().hasNext() ? pageable.getSort().iterator().next() : null;
+    if (order == null || !DocumentCursor.supports(order.getProperty())) {
+      return Optional.empty();
+    }
+
+    Optional<RoaringBitmap> matches = matches(params);
+    if (matches.isEmpty()) {
+      return Optional.empty();
+    }
+
+    long startTime = System.nanoTime();
+    int offset = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE);
+    int limit = (int) Math.min((long) offset + pageable.getPageSize(), Integer.MAX_VALUE);
+    List<Long> firstIds =
+        filterBitmapCache.firstIdsByDate(
+            matches.get(), order.getProperty(), order.isDescending(), limit);
+    List<Long> pageIds =
+        offset < firstIds.size() ? firstIds.subList(offset, firstIds.size()) : List.of();
+
+    log.debug(
+        "Bitmap filter search: {} matches, page {} -> {} ids in {}µs",
+        matches.get().getLongCardinality(),
+        pageable.getPageNumber(),
+        pageIds.size(),
+        (System.nanoTime() - startTime) / 1000);
+
+    return Optional.of(
+        new PageImpl<>(
+            documentRepository.findAllByIdInOrder(pageIds),
+            pageable,
+            matches.get().getLongCardinality()));
+  }
+
+  /**
+   * Keyset-страница после курсора: seek внутри bitmap совпадений, без SQL по фильтрам
+   *
+   * @param params параметры поиска (query - исходный текст)
+   * @param sort сортировка запроса (первое поле - createdAt или updatedAt)
+   * @param after курсор, уже проверенный на совпадение с сортировкой
+   * @param size размер страницы
+   * @param includeTotal вернуть число совпадений (cardinality, без COUNT)
+   * @return Optional.empty() если запрос нельзя ответить из кэша
+   */
+  public Optional<CursorPage> searchAfter(
+      DocumentSearchParams params,
+      Sort sort,
+      DocumentCursor after,
+      int size,
+      boolean includeTotal) {
+    Optional<RoaringBitmap> matches = matches(params);
+    if (matches.isEmpty()) {
+      return Optional.empty();
+    }
+
+    Sort.Order order = sort.iterator().next();
+    List<Long> ids =
+        filterBitmapCache.idsAfter(
+            matches.get(),
+            order.getProperty(),
+            order.isDescending(),
+            after.getSortValue(),
+            after.getId(),
+            size + 1);
+    boolean hasNext = ids.size() > size;
+    List<Document> content =
+        documentRepository.findAllByIdInOrder(hasNext ? ids.subList(0, size) : ids);
+
+    return Optional.of(
+        CursorPage.builder()
+            .content(content)
+            .nextCursor(DocumentCursor.next(content, sort, hasNext))
+            .hasNext(hasNext)
+            .totalElements(includeTotal ? matches.get().getLongCardinality() : null)
+            .build());
+  }
+
+  /** Фильтры AND совпадения query AND права; Optional.empty() если какой-то кэш не загружен */
+  private Optional<RoaringBitmap> matches(DocumentSearchParams params) {
+    Optional<RoaringBitmap> matches = filterBitmapCache.filter(params);
+    if (matches.isPresent() && params.getQuery() != null && !params.getQuery().isBlank()) {
+      Optional<RoaringBitmap> textMatches = invertedIndexService.findMatches(params.getQuery());
+      if (textMatches.isEmpty()) {
+        return Optional.empty();
+      }
+      matches.get().and(textMatches.get());
+    }
+    if (matches.isPresent() && params.getPrincipals() != null) {
+      // Права - пересечение с bitmap видимых документов пользователя
+      matches = permissionBitmapCache.intersect(matches.get(), params.getPrincipals());
+    }
+    return matches;
+  }
+}
@@ -0,0 +1,18 @@
+package com.example.search.service.search;
+
+import java.util.List;
+
+import com.example.search.model.Document;
+
+import lombok.Builder;
+import lombok.Data;
+
+/** Страница keyset-пагинации: документы + курсор на следующую страницу */
+@Data
+@Builder
+public class CursorPage {
+  private List<Document> content;
+  private String nextCursor; // null - страница последняя
+  private boolean hasNext;
+  private Long totalElements; // null если подсчет не запрошен (includeTotal=false)
+}
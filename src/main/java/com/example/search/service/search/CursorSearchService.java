@@ -0,0 +1,96 @@
+package com.example.search.service.search;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentCursor;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.repository.DocumentSearchParams;
+import com.example.search.service.index.InvertedIndexService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keyset-пагинация (search_after) для JPA пути
+ *
+ * <p>Вместо OFFSET + COUNT на каждую страницу: - один запрос с seek-условием по (sortKey, id) и
+ * LIMIT size + 1 (лишняя строка показывает, есть ли следующая страница) - COUNT выполняется только
+ * по запросу (includeTotal)
+ *
+ * <p>Первая страница берется обычным offset-запросом (page = 0) - в ответе уже есть nextCursor.
+ *
+ * <p>Когда кэши фильтров и прав загружены, seek идет по bitmap совпадений
+ * (BitmapFilterSearchService.searchAfter) и совпадает с выборкой offset-страниц; иначе - SQL с
+ * кандидатами индекса вместо LIKE (LIKE - только пока индекс не загружен).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CursorSearchService {
+
+  private final DocumentRepository documentRepository;
+  private final InvertedIndexService invertedIndexService;
+  private final BitmapFilterSearchService bitmapFilterSearchService;
+
+  /**
+   * Страница после курсора
+   *
+   * @param params параметры поиска (query будет разрешен через индекс)
+   * @param sort сортировка запроса (первое поле - createdAt или updatedAt)
+   * @param cursor курсор из nextCursor предыдущего ответа
+   * @param size размер страницы
+   * @param includeTotal выполнить COUNT по фильтрам
+   * @throws IllegalArgumentException если курсор поврежден или не совпадает с сортировкой
+   */
+  public CursorPage search(
+      DocumentSearchParams params, Sort sort, String cursor, int size, boolean includeTotal) {
+    Sort.Order order = sort.iterator().next();
+    if (!DocumentCursor.supports(order.getProperty())) {
+      throw new IllegalArgumentException(
+          "Cursor pagination supports only createdAt/updatedAt sort, got: " + order.getProperty());
+    }
+
+    DocumentCursor after = DocumentCursor.decode(cursor);
+    after.verifySort(order.getProperty(), order.getDirection());
+
+    Optional<CursorPage> inMemoryPage =
+        bitmapFilterSearchService.searchAfter(params, sort, after, size, includeTotal);
+    if (inMemoryPage.isPresent()) {
+      log.debug(
+          "Keyset page after ({}, {}) from bitmap: {} documents, hasNext={}",
+          after.getSortValue(),
+          after.getId(),
+          inMemoryPage.get().getContent().size(),
+          inMemoryPage.get().isHasNext());
+      return inMemoryPage.get();
+    }
+
+    DocumentSearchParams resolved = invertedIndexService.resolveTextQuery(params);
+    List<Document> rows =
+        documentRepository.searchAfter(
+            resolved, order.getProperty(), order.getDirection(), after, size + 1);
+
+    boolean hasNext = rows.size() > size;
+    List<Document> content = hasNext ? rows.subList(0, size) : rows;
+    Long total = includeTotal ? documentRepository.countWithFilters(resolved) : null;
+
+    log.debug(
+        "Keyset page after ({}, {}): {} documents, hasNext={}",
+        after.getSortValue(),
+        after.getId(),
+        content.size(),
+        hasNext);
+
+    return CursorPage.builder()
+        .content(content)
+        .nextCursor(DocumentCursor.next(content, sort, hasNext))
+        .hasNext(hasNext)
+        .totalElements(total)
+        .build();
+  }
+}
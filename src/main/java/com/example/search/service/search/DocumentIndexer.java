@@ -0,0 +1,74 @@
+package com.example.search.service.search;
+
+import java.util.Collection;
+
+import com.example.search.model.Document;
+
+/**
+ * Запись документов во внешний движок пакетами (Solr, OpenSearch, TypeSense)
+ *
+ * <p>Для потоковой переиндексации: пакеты пишутся без commit/refresh, видимыми для поиска они
+ * становятся один раз - после commit() в конце.
+ *
+ * <p>Target - физический индекс записи: живой (liveTarget) или новая версия для перестройки
+ * (blue/green). Версия создается с настройками для массовой загрузки, наполняется, затем promote
+ * возвращает обычные настройки и атомарно переключает на нее живое имя: запросы до переключения
+ * видят старый индекс целиком, после - новый.
+ */
+public interface DocumentIndexer {
+
+  /** Имя движка (SearchEngineConstants.ENGINE_*) */
+  String getName();
+
+  /** Живой индекс, который видят запросы (core / alias индекса / alias коллекции) */
+  String liveTarget();
+
+  /**
+   * Записать пакет документов без commit/refresh
+   *
+   * @return число записанных документов (0 - пакет не записан)
+   * @throws IndexingThrottledException если движок ответил 429/503 - пакет стоит повторить
+   */
+  int writeBatch(String target, Collection<Document> documents);
+
+  /**
+   * Один bulk с upsert и delete для частых мелких изменений; видимость без явного commit - в
+   * пределах commitWithin (Solr), refresh_interval (OpenSearch), сразу (TypeSense)
+   *
+   * @return число принятых операций (меньше upserts + deletes - пакет стоит повторить)
+   * @throws IndexingThrottledException если движок ответил 429/503
+   */
+  int applyChanges(String target, Collection<Document> upserts, Collection<Long> deletes);
+
+  /**
+   * Сделать записанные документы видимыми для поиска
+   *
+   * @return false - документы не записаны целиком (для confirmsOnCommit - весь проход)
+   */
+  boolean commit(String target);
+
+  /**
+   * writeBatch только ставит пакет в поток записи, ошибки доставки видны лишь в commit: контрольная
+   * точка переиндексации сохраняется после успешного commit, а не после каждого пакета
+   */
+  default boolean confirmsOnCommit() {
+    return false;
+  }
+
+  /**
+   * Создать новую версию индекса для перестройки: без refresh/autocommit и реплик
+   *
+   * @return имя версии (target для writeBatch/commit/promote)
+   * @throws IllegalStateException если движок недоступен или версия не создана
+   */
+  String createVersion(String version);
+
+  /**
+   * Вернуть версии обычные настройки, атомарно переключить на нее живое имя и удалить прежний
+   * индекс
+   */
+  boolean promote(String target);
+
+  /** Удалить недостроенную версию (отмена перестройки) */
+  boolean dropVersion(String target);
+}
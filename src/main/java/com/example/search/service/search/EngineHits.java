@@ -0,0 +1,15 @@
+package com.example.search.service.search;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+
+/** Ответ внешнего движка: id документов страницы в порядке релевантности и общее количество */
+@Data
+@Builder
+public class EngineHits {
+  private String engine;
+  private List<Long> ids;
+  private long totalHits;
+}
@@ -0,0 +1,129 @@
+package com.example.search.service.search;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import com.example.search.constants.SortConstants;
+import com.example.search.dto.response.SearchFilterDto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Запрос к внешнему движку в нейтральной форме: текст, фильтры, сортировка, страница
+ *
+ * <p>Собирается из SearchFilterDto один раз, каждый движок переводит его в свой синтаксис: - Solr -
+ * q + fq (фильтры кэшируются отдельно от запроса) - OpenSearch - bool: must (текст) + filter -
+ * TypeSense - q + filter_by. Фильтры применяются на стороне движка, поэтому total и страницы
+ * совпадают с отфильтрованной выборкой.
+ *
+ * <p>Семантика как в JPA (DocumentSpecification): category и status - точное совпадение, даты -
+ * включительно. Автор в JPA - подстрока (LIKE), в движках - совпадение по словам. Права - фильтр по
+ * multi-valued полю acl: документ подходит, если хотя бы одно значение есть среди principals.
+ *
+ * <p>Текст одинаково во всех движках (в RACE отвечает любой из них): обязательны все слова запроса
+ * (AND по словам, OR по полям title^2, content, author), последнее слово - префикс, без опечаток.
+ * Так же ищет in-memory индекс JPA, только он раскрывает префиксом каждое слово.
+ */
+@Data
+@Builder
+public class EngineQuery {
+
+  /** Поле сортировки SearchFilterDto (без учета регистра) -> SortConstants.SORT_BY_* */
+  private static final Map<String, String> SORT_FIELDS =
+      Map.of(
+          SortConstants.SORT_BY_TITLE.toLowerCase(Locale.ROOT), SortConstants.SORT_BY_TITLE,
+          SortConstants.SORT_BY_AUTHOR.toLowerCase(Locale.ROOT), SortConstants.SORT_BY_AUTHOR,
+          SortConstants.SORT_BY_CATEGORY.toLowerCase(Locale.ROOT), SortConstants.SORT_BY_CATEGORY,
+          SortConstants.SORT_BY_STATUS.toLowerCase(Locale.ROOT), SortConstants.SORT_BY_STATUS,
+          SortConstants.SORT_BY_CREATED_AT.toLowerCase(Locale.ROOT),
+              SortConstants.SORT_BY_CREATED_AT,
+          SortConstants.SORT_BY_UPDATED_AT.toLowerCase(Locale.ROOT),
+              SortConstants.SORT_BY_UPDATED_AT);
+
+  private String text; // полнотекстовый запрос; null - все документы
+  private String category;
+  private String status;
+  private String author;
+  private LocalDateTime createdAfter;
+  private LocalDateTime createdBefore;
+  private LocalDateTime updatedAfter;
+  private LocalDateTime updatedBefore;
+  private Collection<String> principals; // субъекты пользователя; null - без фильтра по acl
+
+  private String sortBy; // SortConstants.SORT_BY_*
+  private boolean descending;
+  private int page;
+  private int size;
+
+  /**
+   * Перевести фильтр поиска
+   *
+   * <p>Сортировка: не задана - по релевантности, если есть текст, иначе createdAt DESC (как в JPA);
+   * неизвестное поле - createdAt DESC.
+   *
+   * @param principals субъекты пользователя (PermissionService.principalsFor), null - без прав
+   * @return Optional.empty() для keyset-курсора: его значения - из БД, движки их не знают
+   */
+  public static Optional<EngineQuery> from(SearchFilterDto filter, Collection<String> principals) {
+    if (filter.getCursor() != null) {
+      return Optional.empty();
+    }
+    String text = trimToNull(filter.getQuery());
+
+    String sortBy;
+    boolean descending;
+    String requested =
+        filter.getSortBy() != null ? filter.getSortBy().trim().toLowerCase(Locale.ROOT) : "";
+    boolean relevance = requested.isEmpty() || SortConstants.SORT_BY_RELEVANCE.equals(requested);
+    if (relevance && text != null) {
+      sortBy = SortConstants.SORT_BY_RELEVANCE;
+      descending = true;
+    } else if (!relevance && SORT_FIELDS.containsKey(requested)) {
+      sortBy = SORT_FIELDS.get(requested);
+      descending = SortConstants.SORT_DESC.equalsIgnoreCase(filter.getSortOrder());
+    } else {
+      sortBy = SortConstants.SORT_BY_CREATED_AT;
+      descending = true;
+    }
+
+    return Optional.of(
+        EngineQuery.builder()
+            .text(text)
+            .category(trimToNull(filter.getCategory()))
+            .status(trimToNull(filter.getStatus()))
+            .author(trimToNull(filter.getAuthor()))
+            .createdAfter(filter.getCreatedAfter())
+            .createdBefore(filter.getCreatedBefore())
+            .updatedAfter(filter.getUpdatedAfter())
+            .updatedBefore(filter.getUpdatedBefore())
+            .principals(principals)
+            .sortBy(sortBy)
+            .descending(descending)
+            .page(SearchEngine.page(filter))
+            .size(SearchEngine.size(filter))
+            .build());
+  }
+
+  public boolean hasText() {
+    return text != null;
+  }
+
+  public boolean isRelevanceSort() {
+    return SortConstants.SORT_BY_RELEVANCE.equals(sortBy);
+  }
+
+  public int getOffset() {
+    return page * size;
+  }
+
+  private static String trimToNull(String value) {
+    if (value == null || value.isBlank()) {
+      return null;
+    }
+    return value.trim();
+  }
+}
@@ -0,0 +1,176 @@
+package com.example.search.service.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Service;
+
+import com.example.search.constants.DocumentConstants;
+import com.example.search.dto.response.FacetDto;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.repository.DocumentSearchParams;
+import com.example.search.service.index.FilterBitmapCache;
+import com.example.search.service.index.InvertedIndexService;
+import com.example.search.service.permission.PermissionBitmapCache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Подсчет facets по всем измерениям за один проход
+ *
+ * <p>Раньше каждое измерение (category, status, author) было отдельным GROUP BY с повторным
+ * применением текстового фильтра. Теперь: - один запрос группирует документы по комбинации
+ * (category, status, author) с общими фильтрами (query, даты) - счетчики измерений собираются в
+ * памяти из этих строк
+ *
+ * <p>Семантика сохранена: facet измерения считается без его собственного фильтра, но с фильтрами
+ * остальных измерений (category=document не скрывает другие категории, но сужает статусы и
+ * авторов).
+ *
+ * <p>Основной путь - колонки FilterBitmapCache (bitmap-ы, без SQL): выборка = совпадения query из
+ * инвертированного индекса AND документы, видимые пользователю (PermissionBitmapCache). Запрос выше
+ * - fallback, пока один из кэшей не загружен; права в нем - тот же ACL-подзапрос, что и в поиске.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FacetAggregationService {
+
+  /** Поддерживаемые измерения в порядке колонок getFacetCombinations */
+  public static final List<String> DIMENSIONS =
+      List.of(
+          DocumentConstants.FIELD_CATEGORY,
+          DocumentConstants.FIELD_STATUS,
+          DocumentConstants.FIELD_AUTHOR);
+
+  private final DocumentRepository documentRepository;
+  private final FilterBitmapCache filterBitmapCache;
+  private final InvertedIndexService invertedIndexService;
+  private final PermissionBitmapCache permissionBitmapCache;
+
+  /**
+   * Facets по запрошенным измерениям
+   *
+   * @param params параметры поиска (query - исходный текст запроса, principals - права)
+   * @param dimensions имена измерений; неизвестные получают пустой список
+   * @return измерение (как в запросе) -> значения с количеством, по убыванию количества
+   */
+  public Map<String, List<FacetDto>> aggregate(
+      DocumentSearchParams params, Collection<String> dimensions) {
+    Map<String, List<FacetDto>> result = new LinkedHashMap<>();
+    if (dimensions == null || dimensions.isEmpty()) {
+      return result;
+    }
+
+    long startTime = System.nanoTime();
+    Optional<Map<String, Map<String, Long>>> stored =
+        inMemoryRestriction(params)
+            .flatMap(restriction -> filterBitmapCache.countFacets(params, dimensions, restriction));
+    if (stored.isPresent()) {
+      log.debug(
+          "Facets {} counted in memory in {}µs",
+          dimensions,
+          (System.nanoTime() - startTime) / 1000);
+      for (String dimension : dimensions) {
+        Map<String, Long> counts = stored.get().get(dimension);
+        result.put(dimension, counts != null ? toFacets(counts) : new ArrayList<>());
+      }
+      return result;
+    }
+
+    DocumentSearchParams resolved = invertedIndexService.resolveTextQuery(params);
+    List<Object[]> rows = documentRepository.getFacetCombinations(resolved);
+
+    String category = normalize(resolved.getCategory());
+    String status = normalize(resolved.getStatus());
+    String author = normalize(resolved.getAuthor());
+    String authorPattern = author != null ? author.toLowerCase(Locale.ROOT) : null;
+
+    List<Map<String, Long>> counts = new ArrayList<>(DIMENSIONS.size());
+    for (int i = 0; i < DIMENSIONS.size(); i++) {
+      counts.add(new HashMap<>());
+    }
+
+    for (Object[] row : rows) {
+      String rowCategory = (String) row[0];
+      String rowStatus = (String) row[1];
+      String rowAuthor = (String) row[2];
+      long count = ((Number) row[3]).longValue();
+
+      boolean categoryMatches = category == null || category.equals(rowCategory);
+      boolean statusMatches = status == null || status.equals(rowStatus);
+      boolean authorMatches =
+          authorPattern == null
+              || (rowAuthor != null && rowAuthor.toLowerCase(Locale.ROOT).contains(authorPattern));
+
+      // Каждое измерение исключает только свой фильтр
+      if (statusMatches && authorMatches && rowCategory != null) {
+        counts.get(0).merge(rowCategory, count, Long::sum);
+      }
+      if (categoryMatches && authorMatches && rowStatus != null) {
+        counts.get(1).merge(rowStatus, count, Long::sum);
+      }
+      if (categoryMatches && statusMatches && rowAuthor != null) {
+        counts.get(2).merge(rowAuthor, count, Long::sum);
+      }
+    }
+
+    for (String dimension : dimensions) {
+      int index = DIMENSIONS.indexOf(dimension.toLowerCase(Locale.ROOT));
+      result.put(dimension, index >= 0 ? toFacets(counts.get(index)) : new ArrayList<>());
+    }
+
+    log.debug(
+        "Facets {} computed from {} combinations in {}µs",
+        dimensions,
+        rows.size(),
+        (System.nanoTime() - startTime) / 1000);
+    return result;
+  }
+
+  /**
+   * Документы, которые видит запрос facets: совпадения query AND права пользователя
+   *
+   * @return Optional.empty() если нужный кэш не загружен (тогда SQL путь)
+   */
+  private Optional<RoaringBitmap> inMemoryRestriction(DocumentSearchParams params) {
+    if (!filterBitmapCache.isReady()) {
+      return Optional.empty();
+    }
+    Optional<RoaringBitmap> restriction =
+        params.getQuery() != null && !params.getQuery().isBlank()
+            ? invertedIndexService.findMatches(params.getQuery())
+            : filterBitmapCache.filter(DocumentSearchParams.builder().build());
+    if (restriction.isEmpty() || params.getPrincipals() == null) {
+      return restriction;
+    }
+    return permissionBitmapCache.intersect(restriction.get(), params.getPrincipals());
+  }
+
+  static List<FacetDto> toFacets(Map<String, Long> counts) {
+    List<FacetDto> facets = new ArrayList<>(counts.size());
+    counts.forEach(
+        (value, count) ->
+            facets.add(FacetDto.builder().value(value).count(count).label(value).build()));
+    facets.sort(
+        Comparator.comparing(FacetDto::getCount).reversed().thenComparing(FacetDto::getValue));
+    return facets;
+  }
+
+  private static String normalize(String value) {
+    if (value == null) {
+      return null;
+    }
+    String trimmed = value.trim();
+    return trimmed.isEmpty() ? null : trimmed;
+  }
+}
@@ -0,0 +1,32 @@
+package com.example.search.service.search;
+
+/**
+ * Движок отклонил пакет индексации из-за перегрузки (HTTP 429 Too Many Requests или 503 Service
+ * Unavailable)
+ *
+ * <p>Пакет не записан или записан частично; его можно повторить целиком (индексация по id
+ * идемпотентна), лучше - меньшими пакетами и после паузы.
+ */
+public class IndexingThrottledException extends RuntimeException {
+
+  private final String engine;
+
+  public IndexingThrottledException(String engine, Throwable cause) {
+    super(engine + " throttled indexing: " + cause.getMessage(), cause);
+    this.engine = engine;
+  }
+
+  public IndexingThrottledException(String engine, String message) {
+    super(engine + " throttled indexing: " + message);
+    this.engine = engine;
+  }
+
+  public String getEngine() {
+    return engine;
+  }
+
+  /** HTTP статус перегрузки */
+  public static boolean isThrottleStatus(int status) {
+    return status == 429 || status == 503;
+  }
+}
@@ -1,30 +1,49 @@
 package com.example.search.service.search;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
+import org.opensearch.client.json.JsonData;
 import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.FieldValue;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+import org.opensearch.client.opensearch._types.SortOptions;
+import org.opensearch.client.opensearch._types.SortOrder;
 import org.opensearch.client.opensearch._types.query_dsl.MultiMatchQuery;
+import org.opensearch.client.opensearch._types.query_dsl.Operator;
 import org.opensearch.client.opensearch._types.query_dsl.Query;
+import org.opensearch.client.opensearch._types.query_dsl.TextQueryType;
 import org.opensearch.client.opensearch.core.BulkRequest;
+import org.opensearch.client.opensearch.core.BulkResponse;
 import org.opensearch.client.opensearch.core.DeleteRequest;
 import org.opensearch.client.opensearch.core.IndexRequest;
 import org.opensearch.client.opensearch.core.SearchRequest;
 import org.opensearch.client.opensearch.core.SearchResponse;
 import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
 import org.opensearch.client.opensearch.core.bulk.IndexOperation;
 import org.opensearch.client.opensearch.core.search.Hit;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.example.search.constants.PermissionConstants;
+import com.example.search.constants.SearchEngineConstants;
+import com.example.search.constants.SortConstants;
+import com.example.search.dto.response.SearchFilterDto;
 import com.example.search.dto.response.SearchResultDto;
 import com.example.search.model.Document;
+import com.example.search.service.permission.PermissionService;
+import com.example.search.service.routing.CircuitBreakerRegistry;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -43,21 +62,110 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class OpenSearchService {
+public class OpenSearchService implements SearchEngine, DocumentIndexer {
 
   private final OpenSearchClient openSearchClient;
+  private final CircuitBreakerRegistry circuitBreakers;
+  private final PermissionService permissionService;
+  private final ExecutorService bulkIndexExecutor;
   private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
+  /** Поля сортировки: для текстовых полей - keyword-подполя динамического маппинга */
+  private static final Map<String, String> SORT_FIELDS =
+      Map.of(
+          SortConstants.SORT_BY_TITLE, "title.keyword",
+          SortConstants.SORT_BY_AUTHOR, "author.keyword",
+          SortConstants.SORT_BY_CATEGORY, "category.keyword",
+          SortConstants.SORT_BY_STATUS, "status.keyword",
+          SortConstants.SORT_BY_CREATED_AT, "created_at",
+          SortConstants.SORT_BY_UPDATED_AT, "updated_at");
+
   @Value("${search.opensearch.index:search_demo}")
   private String index;
 
   @Value("${search.opensearch.batch-size:100}")
   private int batchSize;
 
-  /** Поиск документов в OpenSearch */
+  @Value("${search.opensearch.bulk-max-bytes:5242880}")
+  private long bulkMaxBytes;
+
+  @Value("${search.opensearch.bulk-concurrency:4}")
+  private int bulkConcurrency;
+
+  @Value("${search.opensearch.bulk-max-retries:3}")
+  private int bulkMaxRetries;
+
+  @Value("${search.opensearch.bulk-retry-backoff-ms:100}")
+  private long bulkRetryBackoffMs;
+
+  // Настройки живого индекса, которые версия получает при promote
+  @Value("${search.opensearch.refresh-interval:1s}")
+  private String refreshInterval;
+
+  @Value("${search.opensearch.replicas:1}")
+  private int replicas;
+
+  @Override
+  public String getName() {
+    return SearchEngineConstants.ENGINE_OPENSEARCH;
+  }
+
+  /**
+   * Поиск id документов страницы (для маршрутизации UnifiedSearchService)
+   *
+   * <p>bool запрос: must - multi_match по тексту (или match_all), filter - фильтры без скоринга
+   * (кэшируются OpenSearch), сортировка и страница - на стороне движка.
+   */
+  @Override
+  public Optional<EngineHits> searchIds(SearchFilterDto filter, Collection<String> principals) {
+    Optional<EngineQuery> engineQuery = EngineQuery.from(filter, principals);
+    if (engineQuery.isEmpty()) {
+      return Optional.empty();
+    }
+    EngineQuery query = engineQuery.get();
+    SearchRequest searchRequest =
+        SearchRequest.of(
+            s ->
+                s.index(index)
+                    .query(toOpenSearchQuery(query))
+                    .sort(toSortOptions(query))
+                    .from(query.getOffset())
+                    .size(query.getSize())
+                    .source(src -> src.fetch(false))
+                    .trackTotalHits(t -> t.enabled(true)));
+
+    if (circuitOpen()) {
+      return Optional.empty();
+    }
+
+    try {
+      SearchResponse<Void> response = openSearchClient.search(searchRequest, Void.class);
+      List<Long> ids = new ArrayList<>(response.hits().hits().size());
+      for (Hit<Void> hit : response.hits().hits()) {
+        ids.add(Long.valueOf(hit.id()));
+      }
+      long total = response.hits().total() != null ? response.hits().total().value() : ids.size();
+      circuitBreakers.recordSuccess(getName());
+      return Optional.of(EngineHits.builder().engine(getName()).ids(ids).totalHits(total).build());
+    } catch (IOException | RuntimeException e) {
+      recordFailure(e);
+      throw new IllegalStateException("OpenSearch search failed: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Поиск документов в OpenSearch
+   *
+   * @return пустой список, если цепь движка открыта
+   * @throws IllegalStateException если движок недоступен или вернул ошибку
+   */
   public List<SearchResultDto> search(String queryText) {
     List<SearchResultDto> results = new ArrayList<>();
 
+    if (circuitOpen()) {
+      return results;
+    }
+
     try {
       // Build multi-match query
       Query query =
@@ -102,10 +210,10 @@ public class OpenSearchService {
       }
 
       log.debug("OpenSearch search for '{}' returned {} results", queryText, results.size());
-    } catch (IOException e) {
-      log.error("IO error searching in OpenSearch: {}", e.getMessage(), e);
-    } catch (Exception e) {
-      log.error("Error searching in OpenSearch: {}", e.getMessage(), e);
+      circuitBreakers.recordSuccess(getName());
+    } catch (IOException | RuntimeException e) {
+      recordFailure(e);
+      throw new IllegalStateException("OpenSearch search failed: " + e.getMessage(), e);
     }
 
     return results;
@@ -118,8 +226,13 @@ public class OpenSearchService {
       return false;
     }
 
+    if (circuitOpen()) {
+      return false;
+    }
+
     try {
-      Map<String, Object> docMap = convertToOpenSearchDocument(document);
+      Map<String, Object> docMap =
+          convertToOpenSearchDocument(document, permissionService.aclFor(document.getId()));
 
       IndexRequest<Map<String, Object>> request =
           IndexRequest.of(
@@ -128,93 +241,393 @@ public class OpenSearchService {
       openSearchClient.index(request);
 
       log.debug("Document {} indexed in OpenSearch", document.getId());
+      circuitBreakers.recordSuccess(getName());
       return true;
     } catch (IOException e) {
+      recordFailure(e);
       log.warn("IO error indexing document {} in OpenSearch: {}", document.getId(), e.getMessage());
       return false;
     } catch (Exception e) {
+      recordFailure(e);
       log.warn("Error indexing document {} in OpenSearch: {}", document.getId(), e.getMessage());
       return false;
     }
   }
 
-  /** Batch индексация документов через Bulk API (рекомендуется для production) */
+  /**
+   * Batch индексация документов через Bulk API (рекомендуется для production)
+   *
+   * @throws IndexingThrottledException если OpenSearch ответил 429/503 (запросу или элементам)
+   */
   public int batchIndexDocuments(Collection<Document> documents) {
+    return bulkIndex(index, documents);
+  }
+
+  /**
+   * Bulk processor: документы делятся на bulk-запросы по search.opensearch.batch-size документов и
+   * не больше search.opensearch.bulk-max-bytes, до search.opensearch.bulk-concurrency запросов
+   * одновременно (ParallelBulk)
+   *
+   * @return число документов, принятых OpenSearch (по результату каждого элемента bulk)
+   * @throws IndexingThrottledException если элементы отклоняются 429/503 и после повторов
+   */
+  private int bulkIndex(String target, Collection<Document> documents) {
     if (documents == null || documents.isEmpty()) {
       return 0;
     }
 
+    if (circuitOpen()) {
+      return 0;
+    }
+
+    List<Callable<Integer>> requests = new ArrayList<>();
     try {
-      List<Document> docList = new ArrayList<>(documents);
-      int indexed = 0;
+      Map<Long, List<String>> acl =
+          permissionService.aclFor(
+              documents.stream().map(Document::getId).collect(Collectors.toList()));
+      List<BulkOperation> operations = new ArrayList<>();
+      long bytes = 0;
+      for (Document doc : documents) {
+        Map<String, Object> docMap = convertToOpenSearchDocument(doc, acl.get(doc.getId()));
+        long docBytes = estimateBytes(docMap);
+        if (!operations.isEmpty()
+            && (operations.size() >= batchSize || bytes + docBytes > bulkMaxBytes)) {
+          List<BulkOperation> request = operations;
+          requests.add(() -> sendBulk(target, request));
+          operations = new ArrayList<>();
+          bytes = 0;
+        }
+        IndexOperation<Map<String, Object>> indexOp =
+            IndexOperation.of(
+                io -> io.index(target).id(String.valueOf(doc.getId())).document(docMap));
+        operations.add(BulkOperation.of(bo -> bo.index(indexOp)));
+        bytes += docBytes;
+      }
+      List<BulkOperation> last = operations;
+      requests.add(() -> sendBulk(target, last));
+    } catch (RuntimeException e) {
+      log.error("Error preparing OpenSearch bulk: {}", e.getMessage(), e);
+      return 0;
+    }
+
+    int indexed = ParallelBulk.run(bulkIndexExecutor, bulkConcurrency, requests, getName());
+    log.info(
+        "Indexed {} of {} documents in OpenSearch ({} bulk requests)",
+        indexed,
+        documents.size(),
+        requests.size());
+    return indexed;
+  }
 
-      // Разбиваем на батчи для эффективной обработки
-      for (int i = 0; i < docList.size(); i += batchSize) {
-        int end = Math.min(i + batchSize, docList.size());
-        List<Document> batch = docList.subList(i, end);
+  /**
+   * Один bulk-запрос с разбором результата каждого элемента
+   *
+   * <p>Элементы, отклоненные 429/503 (или весь запрос с таким статусом), повторяются с паузой
+   * bulk-retry-backoff-ms * 2^попытка; остальные ошибки элементов - неудачные документы.
+   */
+  private int sendBulk(String target, List<BulkOperation> operations) throws InterruptedException {
+    List<BulkOperation> pending = operations;
+    int indexed = 0;
+    for (int attempt = 0; ; attempt++) {
+      List<BulkOperation> rejected = new ArrayList<>();
+      try {
+        List<BulkOperation> request = pending;
+        BulkResponse response = openSearchClient.bulk(br -> br.operations(request));
+        circuitBreakers.recordSuccess(getName());
+        int failed = 0;
+        for (int i = 0; i < response.items().size(); i++) {
+          BulkResponseItem item = response.items().get(i);
+          if (item.error() == null) {
+            indexed++;
+          } else if (IndexingThrottledException.isThrottleStatus(item.status())) {
+            rejected.add(request.get(i));
+          } else if (failed++ == 0) {
+            // Первая ошибка запроса - в лог, остальные обычно той же причины
+            log.warn("OpenSearch rejected document {}: {}", item.id(), item.error().reason());
+          }
+        }
+        if (failed > 0) {
+          log.warn("OpenSearch bulk: {} of {} documents failed", failed, request.size());
+        }
+      } catch (OpenSearchException e) {
+        recordFailure(e);
+        if (!IndexingThrottledException.isThrottleStatus(e.status())) {
+          log.error("OpenSearch bulk to {} failed: {}", target, e.getMessage());
+          return indexed;
+        }
+        rejected = pending;
+      } catch (IOException | RuntimeException e) {
+        recordFailure(e);
+        log.error("IO error during bulk indexing in OpenSearch: {}", e.getMessage());
+        return indexed;
+      }
 
-        // Создаем bulk операции
-        List<BulkOperation> bulkOperations =
-            batch.stream()
-                .map(
-                    doc -> {
-                      Map<String, Object> docMap = convertToOpenSearchDocument(doc);
-                      IndexOperation<Map<String, Object>> indexOp =
-                          IndexOperation.of(
-                              io ->
-                                  io.index(index).id(String.valueOf(doc.getId())).document(docMap));
-                      return BulkOperation.of(bo -> bo.index(indexOp));
-                    })
-                .collect(Collectors.toList());
+      if (rejected.isEmpty()) {
+        return indexed;
+      }
+      if (attempt >= bulkMaxRetries) {
+        throw new IndexingThrottledException(
+            getName(),
+            rejected.size() + " bulk items still rejected after " + attempt + " retries");
+      }
+      log.debug("OpenSearch bulk: {} items throttled, retry {}", rejected.size(), attempt + 1);
+      Thread.sleep(bulkRetryBackoffMs << attempt);
+      pending = rejected;
+    }
+  }
 
-        // Выполняем bulk запрос
-        BulkRequest bulkRequest = BulkRequest.of(br -> br.operations(bulkOperations));
+  /** Оценка размера документа в теле bulk: UTF-8 кириллица - 2 байта на символ, плюс разметка */
+  private static long estimateBytes(Map<String, Object> docMap) {
+    long bytes = 64; // строка action и скобки
+    for (Map.Entry<String, Object> entry : docMap.entrySet()) {
+      bytes += entry.getKey().length() + 2L * String.valueOf(entry.getValue()).length() + 6;
+    }
+    return bytes;
+  }
 
-        openSearchClient.bulk(bulkRequest);
+  @Override
+  public String liveTarget() {
+    return index;
+  }
 
-        indexed += batch.size();
-        log.debug("Indexed batch of {} documents in OpenSearch", batch.size());
-      }
+  /** Bulk без refresh: документы станут видимыми после commit() (или refresh_interval индекса) */
+  @Override
+  public int writeBatch(String target, Collection<Document> documents) {
+    return bulkIndex(target, documents);
+  }
 
-      log.info("Successfully indexed {} documents in OpenSearch", indexed);
-      return indexed;
-    } catch (IOException e) {
-      log.error("IO error during batch indexing in OpenSearch: {}", e.getMessage(), e);
+  /**
+   * Один bulk с index и delete операциями без refresh: видимость - refresh_interval индекса. Delete
+   * отсутствующего документа (not_found) ошибкой не считается.
+   */
+  @Override
+  public int applyChanges(String target, Collection<Document> upserts, Collection<Long> deletes) {
+    if (upserts.isEmpty() && deletes.isEmpty()) {
       return 0;
+    }
+
+    if (circuitOpen()) {
+      return 0;
+    }
+
+    try {
+      Map<Long, List<String>> acl =
+          upserts.isEmpty()
+              ? Map.of()
+              : permissionService.aclFor(
+                  upserts.stream().map(Document::getId).collect(Collectors.toList()));
+      List<BulkOperation> operations = new ArrayList<>();
+      for (Document doc : upserts) {
+        Map<String, Object> docMap = convertToOpenSearchDocument(doc, acl.get(doc.getId()));
+        operations.add(
+            BulkOperation.of(
+                bo ->
+                    bo.index(
+                        io -> io.index(target).id(String.valueOf(doc.getId())).document(docMap))));
+      }
+      for (Long id : deletes) {
+        operations.add(
+            BulkOperation.of(bo -> bo.delete(del -> del.index(target).id(String.valueOf(id)))));
+      }
+
+      BulkResponse bulkResponse = openSearchClient.bulk(br -> br.operations(operations));
+      if (bulkResponse.errors()
+          && bulkResponse.items().stream()
+              .anyMatch(item -> IndexingThrottledException.isThrottleStatus(item.status()))) {
+        throw new IndexingThrottledException(getName(), "bulk items rejected with 429/503");
+      }
+      int applied =
+          (int) bulkResponse.items().stream().filter(item -> item.error() == null).count();
+
+      log.debug("Applied {} of {} bulk operations to OpenSearch", applied, operations.size());
+      circuitBreakers.recordSuccess(getName());
+      return applied;
+    } catch (IndexingThrottledException e) {
+      throw e;
     } catch (Exception e) {
-      log.error("Error during batch indexing in OpenSearch: {}", e.getMessage(), e);
+      recordFailure(e);
+      if (e instanceof OpenSearchException openSearchException
+          && IndexingThrottledException.isThrottleStatus(openSearchException.status())) {
+        throw new IndexingThrottledException(getName(), e);
+      }
+      log.error("OpenSearch bulk to {} failed: {}", target, e.getMessage());
       return 0;
     }
   }
 
+  /** Refresh индекса: записанные bulk-запросами документы становятся видимыми для поиска */
+  @Override
+  public boolean commit(String target) {
+    if (circuitOpen()) {
+      return false;
+    }
+    try {
+      openSearchClient.indices().refresh(r -> r.index(target));
+      circuitBreakers.recordSuccess(getName());
+      return true;
+    } catch (IOException | RuntimeException e) {
+      recordFailure(e);
+      log.error("OpenSearch refresh of {} failed: {}", target, e.getMessage());
+      return false;
+    }
+  }
+
+  /** Версионированный индекс для массовой загрузки: refresh_interval -1, без реплик */
+  @Override
+  public String createVersion(String version) {
+    String target = index + "_" + version;
+    if (circuitOpen()) {
+      throw new IllegalStateException("OpenSearch circuit is open");
+    }
+    try {
+      openSearchClient
+          .indices()
+          .create(
+              c ->
+                  c.index(target)
+                      .settings(s -> s.refreshInterval(t -> t.time("-1")).numberOfReplicas("0")));
+      circuitBreakers.recordSuccess(getName());
+      log.info("OpenSearch index {} created for rebuild", target);
+      return target;
+    } catch (IOException | RuntimeException e) {
+      recordFailure(e);
+      throw new IllegalStateException(
+          "OpenSearch index " + target + " not created: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Вернуть refresh_interval и реплики, refresh, затем одним _aliases запросом перевесить alias
+   * search.opensearch.index на версию и удалить прежние индексы
+   *
+   * <p>Первая перестройка: под живым именем - обычный индекс, он удаляется тем же запросом
+   * (remove_index), поэтому имя не пропадает ни на момент.
+   */
+  @Override
+  public boolean promote(String target) {
+    if (circuitOpen()) {
+      return false;
+    }
+    try {
+      openSearchClient
+          .indices()
+          .putSettings(
+              p ->
+                  p.index(target)
+                      .settings(
+                          s ->
+                              s.refreshInterval(t -> t.time(refreshInterval))
+                                  .numberOfReplicas(String.valueOf(replicas))));
+      openSearchClient.indices().refresh(r -> r.index(target));
+
+      List<String> previous = aliasedIndices();
+      boolean concreteIndex =
+          previous.isEmpty() && openSearchClient.indices().exists(e -> e.index(index)).value();
+      openSearchClient
+          .indices()
+          .updateAliases(
+              u -> {
+                u.actions(a -> a.add(add -> add.index(target).alias(index)));
+                if (concreteIndex) {
+                  u.actions(a -> a.removeIndex(r -> r.index(index)));
+                }
+                for (String old : previous) {
+                  if (!old.equals(target)) {
+                    u.actions(a -> a.removeIndex(r -> r.index(old)));
+                  }
+                }
+                return u;
+              });
+      circuitBreakers.recordSuccess(getName());
+      log.info("OpenSearch alias {} switched to {} (previous: {})", index, target, previous);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      recordFailure(e);
+      log.error("OpenSearch promote of {} failed: {}", target, e.getMessage());
+      return false;
+    }
+  }
+
+  @Override
+  public boolean dropVersion(String target) {
+    if (index.equals(target) || circuitOpen()) {
+      return false;
+    }
+    try {
+      if (aliasedIndices().contains(target)) {
+        return false;
+      }
+      openSearchClient.indices().delete(d -> d.index(target));
+      circuitBreakers.recordSuccess(getName());
+      return true;
+    } catch (IOException | RuntimeException e) {
+      recordFailure(e);
+      log.warn("OpenSearch index {} not dropped: {}", target, e.getMessage());
+      return false;
+    }
+  }
+
+  /** Индексы за alias search.opensearch.index (пусто - alias нет) */
+  private List<String> aliasedIndices() throws IOException {
+    try {
+      return new ArrayList<>(
+          openSearchClient.indices().getAlias(g -> g.name(index)).result().keySet());
+    } catch (OpenSearchException e) {
+      if (e.status() == 404) {
+        return new ArrayList<>();
+      }
+      throw e;
+    }
+  }
+
   /** Удаление документа по ID */
   public boolean deleteDocument(Long id) {
     if (id == null) {
       return false;
     }
 
+    if (circuitOpen()) {
+      return false;
+    }
+
     try {
       DeleteRequest request = DeleteRequest.of(d -> d.index(index).id(String.valueOf(id)));
 
       openSearchClient.delete(request);
 
       log.debug("Document {} deleted from OpenSearch", id);
+      circuitBreakers.recordSuccess(getName());
       return true;
     } catch (IOException e) {
+      recordFailure(e);
       log.error("IO error deleting document {} from OpenSearch: {}", id, e.getMessage(), e);
       return false;
     } catch (Exception e) {
+      recordFailure(e);
       log.error("Error deleting document {} from OpenSearch: {}", id, e.getMessage(), e);
       return false;
     }
   }
 
-  /** Batch удаление документов через Bulk API */
+  /**
+   * Batch удаление документов через Bulk API
+   *
+   * @return число удаленных элементов (элементы с ошибкой не считаются)
+   * @throws IndexingThrottledException если OpenSearch ответил 429/503 (запросу или элементам)
+   */
   public int batchDeleteDocuments(Collection<Long> ids) {
+    return bulkDelete(index, ids);
+  }
+
+  private int bulkDelete(String target, Collection<Long> ids) {
     if (ids == null || ids.isEmpty()) {
       return 0;
     }
 
+    if (circuitOpen()) {
+      return 0;
+    }
+
     try {
       List<Long> idList = new ArrayList<>(ids);
       int deleted = 0;
@@ -231,29 +644,149 @@ public class OpenSearchService {
                     id -> {
                       org.opensearch.client.opensearch.core.bulk.DeleteOperation deleteOp =
                           org.opensearch.client.opensearch.core.bulk.DeleteOperation.of(
-                              del -> del.index(index).id(String.valueOf(id)));
+                              del -> del.index(target).id(String.valueOf(id)));
                       return BulkOperation.of(bo -> bo.delete(deleteOp));
                     })
                 .collect(Collectors.toList());
 
         BulkRequest bulkRequest = BulkRequest.of(br -> br.operations(bulkOperations));
 
-        openSearchClient.bulk(bulkRequest);
-        deleted += batch.size();
+        BulkResponse bulkResponse = openSearchClient.bulk(bulkRequest);
+        if (bulkResponse.errors()
+            && bulkResponse.items().stream()
+                .anyMatch(item -> IndexingThrottledException.isThrottleStatus(item.status()))) {
+          throw new IndexingThrottledException(getName(), "bulk items rejected with 429/503");
+        }
+        deleted += (int) bulkResponse.items().stream().filter(item -> item.error() == null).count();
       }
 
-      log.info("Deleted {} documents from OpenSearch", deleted);
+      log.info("Deleted {} of {} documents from OpenSearch", deleted, idList.size());
+      circuitBreakers.recordSuccess(getName());
       return deleted;
+    } catch (IndexingThrottledException e) {
+      throw e;
     } catch (IOException e) {
+      recordFailure(e);
       log.error("IO error during batch delete in OpenSearch: {}", e.getMessage(), e);
       return 0;
     } catch (Exception e) {
+      recordFailure(e);
+      if (e instanceof OpenSearchException openSearchException
+          && IndexingThrottledException.isThrottleStatus(openSearchException.status())) {
+        throw new IndexingThrottledException(getName(), e);
+      }
       log.error("Error during batch delete in OpenSearch: {}", e.getMessage(), e);
       return 0;
     }
   }
 
+  /**
+   * Перевод запроса в bool: must (текст) + filter (category, status, author, даты)
+   *
+   * <p>Текст - bool_prefix с AND: все слова обязательны, последнее - префикс (EngineQuery)
+   */
+  private Query toOpenSearchQuery(EngineQuery query) {
+    List<Query> filters = new ArrayList<>();
+    if (query.getCategory() != null) {
+      filters.add(termFilter("category.keyword", query.getCategory()));
+    }
+    if (query.getStatus() != null) {
+      filters.add(termFilter("status.keyword", query.getStatus()));
+    }
+    if (query.getAuthor() != null) {
+      filters.add(
+          Query.of(
+              q ->
+                  q.match(
+                      m ->
+                          m.field("author")
+                              .query(FieldValue.of(query.getAuthor()))
+                              .operator(Operator.And))));
+    }
+    addRangeFilter(filters, "created_at", query.getCreatedAfter(), query.getCreatedBefore());
+    addRangeFilter(filters, "updated_at", query.getUpdatedAfter(), query.getUpdatedBefore());
+    if (query.getPrincipals() != null) {
+      // Права: terms по keyword-подполю acl, в filter-контексте (без скоринга, кэшируется)
+      List<FieldValue> principals =
+          query.getPrincipals().stream().map(FieldValue::of).collect(Collectors.toList());
+      filters.add(
+          Query.of(
+              q ->
+                  q.terms(
+                      t ->
+                          t.field(PermissionConstants.FIELD_ACL + ".keyword")
+                              .terms(tf -> tf.value(principals)))));
+    }
+
+    Query must =
+        query.hasText()
+            ? Query.of(
+                q ->
+                    q.multiMatch(
+                        MultiMatchQuery.of(
+                            mm ->
+                                mm.query(query.getText())
+                                    .fields("title^2", "content", "author")
+                                    .type(TextQueryType.BoolPrefix)
+                                    .operator(Operator.And))))
+            : Query.of(q -> q.matchAll(m -> m));
+    return Query.of(q -> q.bool(b -> b.must(must).filter(filters)));
+  }
+
+  private List<SortOptions> toSortOptions(EngineQuery query) {
+    if (query.isRelevanceSort()) {
+      return List.of(SortOptions.of(so -> so.score(sc -> sc.order(SortOrder.Desc))));
+    }
+    SortOrder order = query.isDescending() ? SortOrder.Desc : SortOrder.Asc;
+    return List.of(
+        SortOptions.of(
+            so -> so.field(f -> f.field(SORT_FIELDS.get(query.getSortBy())).order(order))));
+  }
+
+  /** Точное совпадение: keyword-подполе динамического маппинга */
+  private static Query termFilter(String field, String value) {
+    return Query.of(q -> q.term(t -> t.field(field).value(FieldValue.of(value))));
+  }
+
+  /** Диапазон дат включительно */
+  private static void addRangeFilter(
+      List<Query> filters, String field, LocalDateTime from, LocalDateTime to) {
+    if (from == null && to == null) {
+      return;
+    }
+    filters.add(
+        Query.of(
+            q ->
+                q.range(
+                    r -> {
+                      r.field(field);
+                      if (from != null) {
+                        r.gte(JsonData.of(from.format(DATE_FORMATTER)));
+                      }
+                      if (to != null) {
+                        r.lte(JsonData.of(to.format(DATE_FORMATTER)));
+                      }
+                      return r;
+                    })));
+  }
+
+  /** Цепь движка открыта - вызов пропускается без обращения к серверу (CircuitBreakerRegistry) */
+  private boolean circuitOpen() {
+    return !circuitBreakers.allowRequest(getName());
+  }
+
+  /** Ошибка вызова для circuit breaker: ответ 4xx значит, что сервер доступен */
+  private void recordFailure(Exception e) {
+    if (e instanceof OpenSearchException openSearchException
+        && openSearchException.status() < 500) {
+      circuitBreakers.recordSuccess(getName());
+    } else {
+      circuitBreakers.recordFailure(getName(), e);
+    }
+  }
+
   /** Проверка доступности OpenSearch */
+  @Override
   public boolean isAvailable() {
     try {
       SearchRequest searchRequest =
@@ -266,8 +799,8 @@ public class OpenSearchService {
     }
   }
 
-  /** Конвертация Document в OpenSearch документ */
-  private Map<String, Object> convertToOpenSearchDocument(Document document) {
+  /** Конвертация Document в OpenSearch документ (acl - значения поля прав, PermissionService) */
+  private Map<String, Object> convertToOpenSearchDocument(Document document, List<String> acl) {
     Map<String, Object> docMap = new HashMap<>();
 
     if (document.getTitle() != null) {
@@ -291,6 +824,9 @@ public class OpenSearchService {
     if (document.getUpdatedAt() != null) {
       docMap.put("updated_at", document.getUpdatedAt().format(DATE_FORMATTER));
     }
+    if (acl != null) {
+      docMap.put(PermissionConstants.FIELD_ACL, acl);
+    }
 
     return docMap;
   }
@@ -0,0 +1,60 @@
+package com.example.search.service.search;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Параллельная отправка частей одного пакета индексации (bulk-запросы движка)
+ *
+ * <p>Скользящее окно: в полете не больше parallelism частей, следующая уходит, когда завершилась
+ * самая старая. Результат части - число принятых документов.
+ */
+@Slf4j
+final class ParallelBulk {
+
+  private ParallelBulk() {}
+
+  /**
+   * Выполнить части и сложить результаты
+   *
+   * @throws IndexingThrottledException если хотя бы одна часть получила 429/503 (после завершения
+   *     остальных частей)
+   */
+  static int run(
+      ExecutorService executor, int parallelism, List<Callable<Integer>> parts, String engine) {
+    Deque<Future<Integer>> inFlight = new ArrayDeque<>();
+    int accepted = 0;
+    IndexingThrottledException throttled = null;
+    int next = 0;
+    while (next < parts.size() || !inFlight.isEmpty()) {
+      if (next < parts.size() && inFlight.size() < Math.max(parallelism, 1)) {
+        inFlight.add(executor.submit(parts.get(next++)));
+        continue;
+      }
+      try {
+        accepted += inFlight.poll().get();
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IndexingThrottledException throttledException) {
+          throttled = throttledException;
+        } else {
+          log.error("{} bulk request failed: {}", engine, e.getCause().getMessage());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        inFlight.forEach(future -> future.cancel(true));
+        return accepted;
+      }
+    }
+    if (throttled != null) {
+      throw throttled;
+    }
+    return accepted;
+  }
+}
@@ -0,0 +1,134 @@
+package com.example.search.service.search;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.repository.DocumentSearchParams;
+import com.example.search.service.index.FilterBitmapCache;
+import com.example.search.service.index.InvertedIndexService;
+import com.example.search.service.permission.PermissionBitmapCache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Поиск с сортировкой по релевантности (BM25) на JPA fallback пути
+ *
+ * <p>Вместо ORDER BY по всем совпадениям: - кандидаты берутся из инвертированного индекса -
+ * атрибутные фильтры и права - пересечение с bitmap FilterBitmapCache и PermissionBitmapCache, без
+ * SQL - BM25 считается в памяти, через ограниченную кучу выбираются первые (page + 1) * size
+ * документов - из БД загружается только текущая страница (findAllById), порядок восстанавливается
+ * по рангу
+ *
+ * <p>Пока кэши не загружены, фильтры и права проверяет БД: до search.index.max-id-filter кандидатов
+ * - одним запросом с id IN, больше - запросом без IN (только ID по фильтрам), пересечение с
+ * кандидатами в памяти. Список ID в IN ограничен лимитами параметров БД.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RelevanceSearchService {
+
+  private final DocumentRepository documentRepository;
+  private final InvertedIndexService invertedIndexService;
+  private final FilterBitmapCache filterBitmapCache;
+  private final PermissionBitmapCache permissionBitmapCache;
+
+  @Value("${search.index.max-id-filter:1000}")
+  private int maxIdFilter;
+
+  /**
+   * Страница документов, отсортированная по BM25
+   *
+   * @param params параметры поиска (query обязателен)
+   * @param pageable пагинация (сортировка из pageable игнорируется)
+   * @return Optional.empty() если запроса нет или индекс не готов (вызывающий код использует
+   *     обычную сортировку)
+   */
+  public Optional<Page<Document>> search(DocumentSearchParams params, Pageable pageable) {
+    String query = params.getQuery();
+    if (query == null || query.isBlank()) {
+      return Optional.empty();
+    }
+
+    Optional<RoaringBitmap> matches = invertedIndexService.findMatches(query);
+    if (matches.isEmpty()) {
+      return Optional.empty();
+    }
+
+    RoaringBitmap candidates = matches.get();
+    boolean filtered = !params.hasAttributeFilters();
+    if (!filtered) {
+      Optional<RoaringBitmap> filterMatches = filterBitmapCache.filter(params);
+      if (filterMatches.isPresent()) {
+        candidates.and(filterMatches.get());
+        filtered = true;
+      }
+    }
+    boolean permitted = params.getPrincipals() == null;
+    if (!permitted) {
+      Optional<RoaringBitmap> visible =
+          permissionBitmapCache.intersect(candidates, params.getPrincipals());
+      if (visible.isPresent()) {
+        candidates = visible.get();
+        permitted = true;
+      }
+    }
+
+    List<Long> candidateIds = invertedIndexService.toDocumentIds(candidates);
+    if (!candidateIds.isEmpty() && (!filtered || !permitted)) {
+      // Фильтры и права (ACL-подзапрос), которые не проверили кэши - в БД: total - только видимые
+      DocumentSearchParams sqlParams =
+          filtered
+              ? DocumentSearchParams.builder().principals(params.getPrincipals()).build()
+              : params.toBuilder()
+                  .query(null)
+                  .principals(permitted ? null : params.getPrincipals())
+                  .build();
+      candidateIds = filterInDatabase(sqlParams, candidateIds);
+    }
+
+    int offset = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE);
+    int topK = (int) Math.min((long) offset + pageable.getPageSize(), Integer.MAX_VALUE);
+    List<Long> ranked = invertedIndexService.rankByRelevance(query, candidateIds, topK);
+    List<Long> pageIds = offset < ranked.size() ? ranked.subList(offset, ranked.size()) : List.of();
+
+    log.debug(
+        "Relevance search '{}': {} candidates, page {} -> {} ids",
+        query,
+        candidateIds.size(),
+        pageable.getPageNumber(),
+        pageIds.size());
+
+    return Optional.of(
+        new PageImpl<>(
+            documentRepository.findAllByIdInOrder(pageIds), pageable, candidateIds.size()));
+  }
+
+  /** Кандидаты, прошедшие фильтры в БД; IN только для коротких списков */
+  private List<Long> filterInDatabase(DocumentSearchParams sqlParams, List<Long> candidateIds) {
+    if (candidateIds.size() <= maxIdFilter) {
+      return documentRepository.findIdsWithFilters(
+          sqlParams.toBuilder().documentIds(candidateIds).build());
+    }
+    Set<Long> allowed = new HashSet<>(documentRepository.findIdsWithFilters(sqlParams));
+    log.debug(
+        "{} candidates (> {}): filtered {} ids without IN",
+        candidateIds.size(),
+        maxIdFilter,
+        allowed.size());
+    return candidateIds.stream().filter(allowed::contains).collect(Collectors.toList());
+  }
+}
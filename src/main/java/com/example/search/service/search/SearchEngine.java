@@ -0,0 +1,44 @@
+package com.example.search.service.search;
+
+import java.util.Collection;
+import java.util.Optional;
+
+import com.example.search.dto.response.SearchFilterDto;
+
+/**
+ * Внешний поисковый движок, способный отвечать на запросы поиска документов (Solr, OpenSearch,
+ * TypeSense)
+ *
+ * <p>Движок возвращает только id и общее количество; документы подгружаются из БД (источник
+ * истины). Права применяются в самом запросе - фильтр по индексированному полю acl.
+ */
+public interface SearchEngine {
+
+  /** Имя движка (SearchEngineConstants.ENGINE_*) */
+  String getName();
+
+  /** Проверка доступности движка */
+  boolean isAvailable();
+
+  /**
+   * Поиск id документов по фильтру
+   *
+   * <p>Фильтр переводится в синтаксис движка через EngineQuery: фильтры, сортировка и страница
+   * выполняются на стороне движка.
+   *
+   * @param principals субъекты пользователя для фильтра по acl (null - без проверки прав)
+   * @return Optional.empty() если фильтр не переводится в запрос движка (keyset-курсор)
+   * @throws IllegalStateException если движок недоступен или вернул ошибку
+   */
+  Optional<EngineHits> searchIds(SearchFilterDto filter, Collection<String> principals);
+
+  /** Номер страницы (с 0) */
+  static int page(SearchFilterDto filter) {
+    return filter.getPage() != null && filter.getPage() >= 0 ? filter.getPage() : 0;
+  }
+
+  /** Размер страницы */
+  static int size(SearchFilterDto filter) {
+    return filter.getSize() != null && filter.getSize() > 0 ? filter.getSize() : 20;
+  }
+}
@@ -1,15 +1,29 @@
 package com.example.search.service.search;
 
+import java.util.ArrayList;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.example.search.constants.SearchEngineConstants;
 import com.example.search.dto.response.IndexingResultDto;
 import com.example.search.dto.response.ReindexResultDto;
 import com.example.search.dto.response.SearchComparisonDto;
 import com.example.search.dto.response.SearchResultDto;
-import com.example.search.model.Document;
 import com.example.search.service.document.DocumentService;
+import com.example.search.service.indexing.IndexingBuffer;
+import com.example.search.service.indexing.ReindexJobService;
+import com.example.search.service.routing.CircuitBreakerRegistry;
+import com.example.search.service.routing.CircuitState;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,57 +37,157 @@ public class SearchService {
   private final OpenSearchService openSearchService;
   private final TypeSenseService typeSenseService;
   private final DocumentService documentService;
+  private final ExecutorService searchFanOutExecutor;
+  private final CircuitBreakerRegistry circuitBreakers;
+  private final ReindexJobService reindexJobService;
+  private final IndexingBuffer indexingBuffer;
+
+  @Value("${search.compare.engine-timeout-ms:5000}")
+  private long engineTimeoutMs;
+
+  @Value("${search.indexing-buffer.ack-timeout-ms:10000}")
+  private long ackTimeoutMs;
+
+  @Value("${search.reindex.rebuild:false}")
+  private boolean rebuildByDefault;
 
   public List<SearchResultDto> searchWithSolr(String query) {
-    return solrSearchService.search(query);
+    return orEmpty(SearchEngineConstants.ENGINE_SOLR, () -> solrSearchService.search(query));
   }
 
   public List<SearchResultDto> searchWithOpenSearch(String query) {
-    return openSearchService.search(query);
+    return orEmpty(SearchEngineConstants.ENGINE_OPENSEARCH, () -> openSearchService.search(query));
   }
 
   public List<SearchResultDto> searchWithTypeSense(String query) {
-    return typeSenseService.search(query);
+    return orEmpty(SearchEngineConstants.ENGINE_TYPESENSE, () -> typeSenseService.search(query));
+  }
+
+  /** Поиск одним движком: ошибка движка - пустой список (сравнение движков видит ее как ERROR) */
+  private static List<SearchResultDto> orEmpty(
+      String engine, Supplier<List<SearchResultDto>> search) {
+    try {
+      return search.get();
+    } catch (IllegalStateException e) {
+      log.error("{} search failed: {}", engine, e.getMessage());
+      return new ArrayList<>();
+    }
   }
 
+  /**
+   * Сравнение движков: запросы к Solr, OpenSearch и TypeSense идут параллельно
+   *
+   * <p>Время ответа - время самого медленного движка, но не больше дедлайна
+   * (search.compare.engine-timeout-ms). Движок, не уложившийся в дедлайн, получает статус TIMEOUT и
+   * пустой список, остальные результаты возвращаются как есть. Ошибка движка (исключение из search)
+   * - статус ERROR. Движок с открытой цепью (circuit breaker) не вызывается и получает статус
+   * CIRCUIT_OPEN.
+   */
   public SearchComparisonDto compareSearchEngines(String query) {
-    long startTime, endTime;
-
-    // Solr
-    startTime = System.currentTimeMillis();
-    List<SearchResultDto> solrResults = searchWithSolr(query);
-    endTime = System.currentTimeMillis();
-    int solrTime = (int) (endTime - startTime);
-
-    // OpenSearch
-    startTime = System.currentTimeMillis();
-    List<SearchResultDto> openSearchResults = searchWithOpenSearch(query);
-    endTime = System.currentTimeMillis();
-    int openSearchTime = (int) (endTime - startTime);
-
-    // TypeSense
-    startTime = System.currentTimeMillis();
-    List<SearchResultDto> typeSenseResults = searchWithTypeSense(query);
-    endTime = System.currentTimeMillis();
-    int typeSenseTime = (int) (endTime - startTime);
+    long startTime = System.nanoTime();
+    long deadline = startTime + TimeUnit.MILLISECONDS.toNanos(engineTimeoutMs);
+
+    Future<EngineResult> solr =
+        submit(SearchEngineConstants.ENGINE_SOLR, () -> solrSearchService.search(query));
+    Future<EngineResult> openSearch =
+        submit(SearchEngineConstants.ENGINE_OPENSEARCH, () -> openSearchService.search(query));
+    Future<EngineResult> typeSense =
+        submit(SearchEngineConstants.ENGINE_TYPESENSE, () -> typeSenseService.search(query));
+
+    EngineResult solrResult = await(SearchEngineConstants.ENGINE_SOLR, solr, deadline);
+    EngineResult openSearchResult =
+        await(SearchEngineConstants.ENGINE_OPENSEARCH, openSearch, deadline);
+    EngineResult typeSenseResult =
+        await(SearchEngineConstants.ENGINE_TYPESENSE, typeSense, deadline);
 
     return SearchComparisonDto.builder()
         .query(query)
-        .solrResults(solrResults)
-        .openSearchResults(openSearchResults)
-        .typeSenseResults(typeSenseResults)
-        .solrTime(solrTime)
-        .openSearchTime(openSearchTime)
-        .typeSenseTime(typeSenseTime)
+        .solrResults(solrResult.results)
+        .openSearchResults(openSearchResult.results)
+        .typeSenseResults(typeSenseResult.results)
+        .solrTime(toMillis(solrResult.nanos))
+        .openSearchTime(toMillis(openSearchResult.nanos))
+        .typeSenseTime(toMillis(typeSenseResult.nanos))
+        .solrStatus(solrResult.status)
+        .openSearchStatus(openSearchResult.status)
+        .typeSenseStatus(typeSenseResult.status)
+        .totalTime(toMillis(System.nanoTime() - startTime))
         .build();
   }
 
+  private Future<EngineResult> submit(String engine, Supplier<List<SearchResultDto>> search) {
+    if (circuitBreakers.getState(engine) != CircuitState.CLOSED) {
+      return CompletableFuture.completedFuture(
+          new EngineResult(new ArrayList<>(), 0, SearchEngineConstants.STATUS_CIRCUIT_OPEN));
+    }
+    return searchFanOutExecutor.submit(
+        () -> {
+          long startTime = System.nanoTime();
+          try {
+            List<SearchResultDto> results = search.get();
+            return new EngineResult(
+                results, System.nanoTime() - startTime, SearchEngineConstants.STATUS_OK);
+          } catch (RuntimeException e) {
+            log.error("{} search failed: {}", engine, e.getMessage());
+            return new EngineResult(
+                new ArrayList<>(),
+                System.nanoTime() - startTime,
+                SearchEngineConstants.STATUS_ERROR);
+          }
+        });
+  }
+
+  /** Ожидание ответа движка до общего дедлайна; по таймауту запрос прерывается */
+  private EngineResult await(String engine, Future<EngineResult> future, long deadline) {
+    try {
+      return future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      log.warn("{} did not respond within {}ms", engine, engineTimeoutMs);
+      return new EngineResult(
+          new ArrayList<>(),
+          TimeUnit.MILLISECONDS.toNanos(engineTimeoutMs),
+          SearchEngineConstants.STATUS_TIMEOUT);
+    } catch (ExecutionException e) {
+      log.error("{} search failed: {}", engine, e.getCause().getMessage());
+      return new EngineResult(new ArrayList<>(), 0, SearchEngineConstants.STATUS_ERROR);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      return new EngineResult(new ArrayList<>(), 0, SearchEngineConstants.STATUS_ERROR);
+    }
+  }
+
+  private static int toMillis(long nanos) {
+    return (int) TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  /** Ответ одного движка */
+  private static final class EngineResult {
+    private final List<SearchResultDto> results;
+    private final long nanos;
+    private final String status;
+
+    private EngineResult(List<SearchResultDto> results, long nanos, String status) {
+      this.results = results;
+      this.nanos = nanos;
+      this.status = status;
+    }
+  }
+
+  /**
+   * Индексация документа во все движки через IndexingBuffer: вызов попадает в ближайший пакет (один
+   * bulk на движок) и ждет его подтверждения не дольше search.indexing-buffer.ack-timeout-ms
+   */
   public IndexingResultDto indexDocument(Long id) {
-    Document document = documentService.getDocumentById(id);
+    documentService.getDocumentById(id); // несуществующий id - ошибка, а не удаление из движков
 
-    boolean solrSuccess = solrSearchService.indexDocument(document);
-    boolean openSearchSuccess = openSearchService.indexDocument(document);
-    boolean typeSenseSuccess = typeSenseService.indexDocument(document);
+    Map<String, Boolean> acknowledged = awaitAcknowledged(indexingBuffer.index(id));
+    boolean solrSuccess = acknowledged.getOrDefault(SearchEngineConstants.ENGINE_SOLR, false);
+    boolean openSearchSuccess =
+        acknowledged.getOrDefault(SearchEngineConstants.ENGINE_OPENSEARCH, false);
+    boolean typeSenseSuccess =
+        acknowledged.getOrDefault(SearchEngineConstants.ENGINE_TYPESENSE, false);
 
     String message =
         String.format(
@@ -89,26 +203,33 @@ public class SearchService {
         .build();
   }
 
-  public ReindexResultDto reindexAll() {
-    List<Document> documents = documentService.getAllDocuments();
-    int successCount = 0;
-    int failureCount = 0;
-
-    for (Document document : documents) {
-      try {
-        indexDocument(document.getId());
-        successCount++;
-      } catch (Exception e) {
-        log.error("Failed to index document {}: {}", document.getId(), e.getMessage());
-        failureCount++;
-      }
+  /** Результат пакета буфера; не дождались - пустой (ни один движок не подтвердил) */
+  private Map<String, Boolean> awaitAcknowledged(Future<Map<String, Boolean>> future) {
+    try {
+      return future.get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      log.warn("Indexing buffer did not acknowledge within {}ms", ackTimeoutMs);
+    } catch (ExecutionException e) {
+      log.error("Indexing buffer flush failed: {}", e.getCause().getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
+    return Map.of();
+  }
 
-    return ReindexResultDto.builder()
-        .totalDocuments(documents.size())
-        .successCount(successCount)
-        .failureCount(failureCount)
-        .message(String.format("Reindexed %d documents, %d failures", successCount, failureCount))
-        .build();
+  /**
+   * Запуск фоновой задачи переиндексации (ReindexJobService); возвращает статус сразу, не дожидаясь
+   * окончания. Если задача уже выполняется - ее статус.
+   */
+  public ReindexResultDto reindexAll() {
+    return reindexAll(null);
+  }
+
+  /**
+   * @param rebuild true - в новую версию индексов с атомарным переключением в конце, null -
+   *     search.reindex.rebuild
+   */
+  public ReindexResultDto reindexAll(Boolean rebuild) {
+    return reindexJobService.start(rebuild != null ? rebuild : rebuildByDefault);
   }
 }
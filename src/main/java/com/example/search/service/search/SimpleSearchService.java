@@ -1,7 +1,10 @@
 package com.example.search.service.search;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.data.domain.Page;
@@ -18,7 +21,11 @@ import com.example.search.dto.response.SearchFacetsDto;
 import com.example.search.dto.response.SearchFilterDto;
 import com.example.search.dto.response.SearchResultPageDto;
 import com.example.search.model.Document;
+import com.example.search.repository.DocumentCursor;
 import com.example.search.repository.DocumentRepository;
+import com.example.search.repository.DocumentSearchParams;
+import com.example.search.service.index.AutocompleteIndex;
+import com.example.search.service.index.InvertedIndexService;
 import com.example.search.service.permission.PermissionService;
 
 import lombok.RequiredArgsConstructor;
@@ -35,6 +42,12 @@ public class SimpleSearchService {
 
   private final DocumentRepository documentRepository;
   private final PermissionService permissionService;
+  private final InvertedIndexService invertedIndexService;
+  private final RelevanceSearchService relevanceSearchService;
+  private final CursorSearchService cursorSearchService;
+  private final BitmapFilterSearchService bitmapFilterSearchService;
+  private final FacetAggregationService facetAggregationService;
+  private final AutocompleteIndex autocompleteIndex;
 
   /** Поиск документов с фильтрами, сортировкой и пагинацией (permission-aware) */
   public SearchResultPageDto searchDocuments(SearchFilterDto filter, String userId) {
@@ -60,8 +73,8 @@ public class SimpleSearchService {
     Page<Document> resultPage;
 
     // Используем кастомный репозиторий для всех случаев
-    com.example.search.repository.DocumentSearchParams params =
-        com.example.search.repository.DocumentSearchParams.builder()
+    DocumentSearchParams params =
+        DocumentSearchParams.builder()
             .query(filter.getQuery())
             .category(filter.getCategory())
             .status(filter.getStatus())
@@ -70,42 +83,47 @@ public class SimpleSearchService {
             .createdBefore(filter.getCreatedBefore())
             .updatedAfter(filter.getUpdatedAfter())
             .updatedBefore(filter.getUpdatedBefore())
+            // Права - предикат запроса (ACL-подзапрос), а не фильтрация страницы после выборки
+            .principals(permissionService.principalsFor(userId))
             .build();
 
-    resultPage = documentRepository.searchWithFilters(params, pageable);
-
-    // Фильтрация по правам доступа (permission-aware)
-    List<Document> filteredContent = resultPage.getContent();
-    if (userId != null) {
-      List<Long> documentIds =
-          filteredContent.stream().map(Document::getId).collect(Collectors.toList());
-
-      List<Long> allowedIds = permissionService.filterByPermissions(documentIds, userId);
+    // Keyset-пагинация: страница после курсора, без OFFSET и (по умолчанию) без COUNT
+    if (filter.getCursor() != null && !filter.getCursor().isBlank()) {
+      if (SortConstants.SORT_BY_RELEVANCE.equalsIgnoreCase(filter.getSortBy())) {
+        throw new IllegalArgumentException("Cursor pagination is not supported for RELEVANCE sort");
+      }
+      return searchAfterCursor(filter, params, sort, size);
+    }
 
-      filteredContent =
-          filteredContent.stream()
-              .filter(doc -> allowedIds.contains(doc.getId()))
-              .collect(Collectors.toList());
+    // RELEVANCE: BM25 + top-k по индексу; остальное - bitmap фильтров AND совпадения индекса.
+    // Если in-memory структуры не готовы - обычный SQL путь
+    boolean relevanceSort = SortConstants.SORT_BY_RELEVANCE.equalsIgnoreCase(filter.getSortBy());
+    Optional<Page<Document>> inMemoryPage =
+        relevanceSort
+            ? relevanceSearchService.search(params, pageable)
+            : bitmapFilterSearchService.search(params, pageable);
+
+    if (inMemoryPage.isPresent()) {
+      resultPage = inMemoryPage.get();
+    } else {
+      // Полнотекстовый запрос - через in-memory индекс (fallback на LIKE, если индекс не готов)
+      params = invertedIndexService.resolveTextQuery(params);
+      resultPage = documentRepository.searchWithFilters(params, pageable);
     }
 
-    // Формирование facets (если запрошено) - только для разрешенных документов
+    // Формирование facets (если запрошено)
     SearchFacetsDto facets = null;
     if (Boolean.TRUE.equals(filter.getIncludeFacets())) {
-      facets = buildFacets(filter.getQuery());
+      facets = buildFacets(filter.getQuery(), params.getPrincipals());
     }
 
-    // Пересчитываем пагинацию после фильтрации по правам
-    long totalElements =
-        userId != null
-            ? filteredContent.size() // Упрощенный подсчет, в production
-            // нужен полный запрос
-            : resultPage.getTotalElements();
-
+    // Права уже применены в запросе: страница полная, total - число видимых документов
+    long totalElements = resultPage.getTotalElements();
     int totalPages = (int) Math.ceil((double) totalElements / size);
 
     // Формирование результата
     return SearchResultPageDto.builder()
-        .content(filteredContent)
+        .content(resultPage.getContent())
         .totalElements(totalElements)
         .totalPages(totalPages)
         .currentPage(resultPage.getNumber())
@@ -113,6 +131,35 @@ public class SimpleSearchService {
         .hasNext(resultPage.getNumber() < totalPages - 1)
         .hasPrevious(resultPage.getNumber() > 0)
         .facets(facets)
+        .nextCursor(
+            relevanceSort && inMemoryPage.isPresent()
+                ? null
+                : DocumentCursor.next(resultPage.getContent(), sort, resultPage.hasNext()))
+        .build();
+  }
+
+  /** Страница keyset-пагинации (после курсора из предыдущего ответа) */
+  private SearchResultPageDto searchAfterCursor(
+      SearchFilterDto filter, DocumentSearchParams params, Sort sort, int size) {
+    boolean includeTotal = Boolean.TRUE.equals(filter.getIncludeTotal());
+    CursorPage cursorPage =
+        cursorSearchService.search(params, sort, filter.getCursor(), size, includeTotal);
+
+    SearchFacetsDto facets = null;
+    if (Boolean.TRUE.equals(filter.getIncludeFacets())) {
+      facets = buildFacets(filter.getQuery(), params.getPrincipals());
+    }
+
+    Long totalElements = cursorPage.getTotalElements();
+    return SearchResultPageDto.builder()
+        .content(cursorPage.getContent())
+        .totalElements(totalElements)
+        .totalPages(totalElements != null ? (int) Math.ceil((double) totalElements / size) : null)
+        .pageSize(size)
+        .hasNext(cursorPage.isHasNext())
+        .hasPrevious(true)
+        .facets(facets)
+        .nextCursor(cursorPage.getNextCursor())
         .build();
   }
 
@@ -121,61 +168,48 @@ public class SimpleSearchService {
     return searchDocuments(filter, null);
   }
 
-  /** Построение facets для группировки результатов (permission-aware) */
-  private SearchFacetsDto buildFacets(String query) {
-    // Используем кастомный репозиторий с полными параметрами фильтров
-    // Для facets передаем только query, остальные фильтры null
-    com.example.search.repository.DocumentSearchParams params =
-        com.example.search.repository.DocumentSearchParams.builder().query(query).build();
-
-    List<FacetDto> categoryFacets =
-        documentRepository.getCategoryFacets(params).stream()
-            .map(
-                row ->
-                    FacetDto.builder()
-                        .value((String) row[0])
-                        .count(((Number) row[1]).longValue())
-                        .label((String) row[0])
-                        .build())
-            .collect(Collectors.toList());
+  /**
+   * Facets без страницы результатов (permission-aware)
+   *
+   * @param filter query для выборки facets (остальные фильтры не сужают счетчики)
+   * @param userId ID пользователя: считаются только видимые ему документы
+   */
+  public SearchFacetsDto getFacets(SearchFilterDto filter, String userId) {
+    return buildFacets(filter.getQuery(), permissionService.principalsFor(userId));
+  }
 
-    List<FacetDto> statusFacets =
-        documentRepository.getStatusFacets(params).stream()
-            .map(
-                row ->
-                    FacetDto.builder()
-                        .value((String) row[0])
-                        .count(((Number) row[1]).longValue())
-                        .label((String) row[0])
-                        .build())
-            .collect(Collectors.toList());
+  /** Построение facets для группировки результатов: только документы, видимые principals */
+  private SearchFacetsDto buildFacets(String query, Collection<String> principals) {
+    // Для facets передаем только query и права, остальные фильтры null
+    DocumentSearchParams params =
+        DocumentSearchParams.builder().query(query).principals(principals).build();
 
-    List<FacetDto> authorFacets =
-        documentRepository.getAuthorFacets(params).stream()
-            .map(
-                row ->
-                    FacetDto.builder()
-                        .value((String) row[0])
-                        .count(((Number) row[1]).longValue())
-                        .label((String) row[0])
-                        .build())
-            .collect(Collectors.toList());
+    // Все измерения за один проход
+    Map<String, List<FacetDto>> facets =
+        facetAggregationService.aggregate(params, FacetAggregationService.DIMENSIONS);
 
     return SearchFacetsDto.builder()
-        .categories(categoryFacets)
-        .statuses(statusFacets)
-        .authors(authorFacets)
+        .categories(facets.get(DocumentConstants.FIELD_CATEGORY))
+        .statuses(facets.get(DocumentConstants.FIELD_STATUS))
+        .authors(facets.get(DocumentConstants.FIELD_AUTHOR))
         .build();
   }
 
   /** Автокомплит для заголовков документов (permission-aware) */
   public List<AutocompleteResultDto> autocompleteTitles(
-      String prefix, Integer limit, String userId) {
+      String prefix, Integer limit, String userId, boolean fuzzy) {
     log.debug("Autocomplete titles with prefix: {} for user: {}", prefix, userId);
     int size = limit != null && limit > 0 ? limit : 10;
 
     List<String> titles =
-        documentRepository.autocompleteTitles(prefix != null ? prefix.toLowerCase() : "", size);
+        lookupIndex(DocumentConstants.AUTOCOMPLETE_TYPE_TITLE, prefix, size, fuzzy)
+            .orElseGet(
+                () ->
+                    rankFallback(
+                        documentRepository.autocompleteTitles(
+                            prefix != null ? prefix.toLowerCase() : "", size),
+                        prefix,
+                        size));
 
     // TODO: В production здесь нужно фильтровать по правам доступа к документам
     // Сейчас возвращаем все результаты
@@ -192,12 +226,19 @@ public class SimpleSearchService {
 
   /** Автокомплит для авторов (permission-aware) */
   public List<AutocompleteResultDto> autocompleteAuthors(
-      String prefix, Integer limit, String userId) {
+      String prefix, Integer limit, String userId, boolean fuzzy) {
     log.debug("Autocomplete authors with prefix: {} for user: {}", prefix, userId);
     int size = limit != null && limit > 0 ? limit : 10;
 
     List<String> authors =
-        documentRepository.autocompleteAuthors(prefix != null ? prefix.toLowerCase() : "", size);
+        lookupIndex(DocumentConstants.AUTOCOMPLETE_TYPE_AUTHOR, prefix, size, fuzzy)
+            .orElseGet(
+                () ->
+                    rankFallback(
+                        documentRepository.autocompleteAuthors(
+                            prefix != null ? prefix.toLowerCase() : "", size),
+                        prefix,
+                        size));
 
     // TODO: В production фильтровать авторов по документам, к которым есть доступ
 
@@ -213,12 +254,19 @@ public class SimpleSearchService {
 
   /** Автокомплит для категорий (permission-aware) */
   public List<AutocompleteResultDto> autocompleteCategories(
-      String prefix, Integer limit, String userId) {
+      String prefix, Integer limit, String userId, boolean fuzzy) {
     log.debug("Autocomplete categories with prefix: {} for user: {}", prefix, userId);
     int size = limit != null && limit > 0 ? limit : 10;
 
     List<String> categories =
-        documentRepository.autocompleteCategories(prefix != null ? prefix.toLowerCase() : "", size);
+        lookupIndex(DocumentConstants.AUTOCOMPLETE_TYPE_CATEGORY, prefix, size, fuzzy)
+            .orElseGet(
+                () ->
+                    rankFallback(
+                        documentRepository.autocompleteCategories(
+                            prefix != null ? prefix.toLowerCase() : "", size),
+                        prefix,
+                        size));
 
     // TODO: В production фильтровать категории по документам, к которым есть доступ
 
@@ -235,6 +283,17 @@ public class SimpleSearchService {
   /** Универсальный автокомплит (по всем полям) с релевантностью и permission-aware */
   public List<AutocompleteResultDto> autocomplete(
       String prefix, String type, Integer limit, String userId) {
+    return autocomplete(prefix, type, limit, userId, false);
+  }
+
+  /**
+   * Автокомплит с опциональной устойчивостью к опечаткам
+   *
+   * @param fuzzy true - подсказки в пределах 1-2 правок от префикса (автомат Левенштейна по
+   *     in-memory словарю); пока индекс не загружен - точный LIKE
+   */
+  public List<AutocompleteResultDto> autocomplete(
+      String prefix, String type, Integer limit, String userId, boolean fuzzy) {
     if (prefix == null || prefix.trim().isEmpty()) {
       return new ArrayList<>();
     }
@@ -249,65 +308,54 @@ public class SimpleSearchService {
       // Если тип не указан, возвращаем результаты по всем типам с приоритетом
       // Приоритет: точные совпадения в начале, затем частичные
       List<AutocompleteResultDto> titleResults =
-          autocompleteTitles(normalizedPrefix, resultLimit * 2, userId);
+          autocompleteTitles(normalizedPrefix, resultLimit * 2, userId, fuzzy);
       List<AutocompleteResultDto> authorResults =
-          autocompleteAuthors(normalizedPrefix, resultLimit, userId);
+          autocompleteAuthors(normalizedPrefix, resultLimit, userId, fuzzy);
       List<AutocompleteResultDto> categoryResults =
-          autocompleteCategories(normalizedPrefix, resultLimit, userId);
+          autocompleteCategories(normalizedPrefix, resultLimit, userId, fuzzy);
 
-      // Сортируем по релевантности (точные совпадения в начале)
-      results.addAll(sortByRelevance(titleResults, normalizedPrefix));
-      results.addAll(sortByRelevance(authorResults, normalizedPrefix));
-      results.addAll(sortByRelevance(categoryResults, normalizedPrefix));
+      // Каждый список уже упорядочен: индекс - по числу документов, LIKE - AutocompleteRanker
+      results.addAll(titleResults);
+      results.addAll(authorResults);
+      results.addAll(categoryResults);
 
       return results.stream().limit(resultLimit).collect(Collectors.toList());
     }
 
     switch (type.toUpperCase()) {
       case "TITLE":
-        return autocompleteTitles(normalizedPrefix, resultLimit, userId);
+        return autocompleteTitles(normalizedPrefix, resultLimit, userId, fuzzy);
       case "AUTHOR":
-        return autocompleteAuthors(normalizedPrefix, resultLimit, userId);
+        return autocompleteAuthors(normalizedPrefix, resultLimit, userId, fuzzy);
       case "CATEGORY":
-        return autocompleteCategories(normalizedPrefix, resultLimit, userId);
+        return autocompleteCategories(normalizedPrefix, resultLimit, userId, fuzzy);
       default:
-        return autocompleteTitles(normalizedPrefix, resultLimit, userId);
+        return autocompleteTitles(normalizedPrefix, resultLimit, userId, fuzzy);
     }
   }
 
+  private Optional<List<String>> lookupIndex(String type, String prefix, int size, boolean fuzzy) {
+    return fuzzy
+        ? autocompleteIndex.fuzzyComplete(type, prefix, size)
+        : autocompleteIndex.complete(type, prefix, size);
+  }
+
   /** Перегрузка для обратной совместимости */
   public List<AutocompleteResultDto> autocomplete(String prefix, String type, Integer limit) {
     return autocomplete(prefix, type, limit, null);
   }
 
   /**
-   * Сортировка результатов автокомплита по релевантности Точные совпадения в начале строки имеют
-   * приоритет
+   * Порядок LIKE-подсказок, пока индекс не загружен: SQL отдает их по алфавиту, без числа
+   * документов - ранжируем по длине (короче = релевантнее), как AutocompleteRanker
    */
-  private List<AutocompleteResultDto> sortByRelevance(
-      List<AutocompleteResultDto> results, String prefix) {
-    return results.stream()
-        .sorted(
-            (a, b) -> {
-              String aText = a.getText().toLowerCase();
-              String bText = b.getText().toLowerCase();
-
-              // Точное совпадение в начале имеет высший приоритет
-              boolean aStartsWith = aText.startsWith(prefix);
-              boolean bStartsWith = bText.startsWith(prefix);
-
-              if (aStartsWith && !bStartsWith) return -1;
-              if (!aStartsWith && bStartsWith) return 1;
-
-              // Если оба начинаются или не начинаются, сортируем по длине (короче =
-              // релевантнее)
-              if (aStartsWith && bStartsWith) {
-                return Integer.compare(aText.length(), bText.length());
-              }
-
-              // Иначе по алфавиту
-              return aText.compareTo(bText);
-            })
+  private static List<String> rankFallback(List<String> values, String prefix, int size) {
+    List<AutocompleteResultDto> candidates =
+        values.stream()
+            .map(value -> AutocompleteResultDto.builder().text(value).build())
+            .collect(Collectors.toList());
+    return AutocompleteRanker.rank(candidates, prefix, size).stream()
+        .map(AutocompleteResultDto::getText)
         .collect(Collectors.toList());
   }
 
@@ -327,7 +375,8 @@ public class SimpleSearchService {
   private Sort buildSort(String sortBy, String sortOrder) {
     if (sortBy == null || sortBy.trim().isEmpty()) {
       // По умолчанию сортируем по дате создания (новые сначала)
-      return Sort.by(Sort.Direction.DESC, SortConstants.SORT_BY_CREATED_AT);
+      return DocumentCursor.withTieBreaker(
+          Sort.by(Sort.Direction.DESC, SortConstants.SORT_BY_CREATED_AT));
     }
 
     Sort.Direction direction =
@@ -341,8 +390,9 @@ public class SimpleSearchService {
         || normalizedSortBy.equals(SortConstants.SORT_BY_UPDATED_AT.toLowerCase())
         || normalizedSortBy.equals(DocumentConstants.FIELD_CATEGORY)
         || normalizedSortBy.equals(DocumentConstants.FIELD_STATUS)) {
-      return Sort.by(direction, sortBy);
+      return DocumentCursor.withTieBreaker(Sort.by(direction, sortBy));
     }
-    return Sort.by(Sort.Direction.DESC, SortConstants.SORT_BY_CREATED_AT);
+    return DocumentCursor.withTieBreaker(
+        Sort.by(Sort.Direction.DESC, SortConstants.SORT_BY_CREATED_AT));
   }
 }
@@ -1,25 +1,43 @@
 package com.example.search.service.search;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.CoreAdminRequest;
+import org.apache.solr.client.solrj.request.GenericSolrRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.example.search.constants.PermissionConstants;
+import com.example.search.constants.SearchEngineConstants;
+import com.example.search.constants.SortConstants;
+import com.example.search.dto.response.SearchFilterDto;
 import com.example.search.dto.response.SearchResultDto;
 import com.example.search.model.Document;
+import com.example.search.service.permission.PermissionService;
+import com.example.search.service.routing.CircuitBreakerRegistry;
 
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -32,9 +50,12 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class SolrSearchService {
+public class SolrSearchService implements SearchEngine, DocumentIndexer {
 
   private final SolrClient solrClient;
+  private final SolrStreamingClient.Factory streamingClients;
+  private final CircuitBreakerRegistry circuitBreakers;
+  private final PermissionService permissionService;
 
   @Value("${search.solr.core:search_demo}")
   private String core;
@@ -45,12 +66,94 @@ public class SolrSearchService {
   @Value("${search.solr.auto-commit:false}")
   private boolean autoCommit;
 
+  @Value("${search.solr.config-set:_default}")
+  private String configSet;
+
+  @Value("${search.solr.commit-within-ms:1000}")
+  private int commitWithinMs;
+
+  @Value("${search.solr.streaming.enabled:true}")
+  private boolean streamingEnabled;
+
+  /** Открытые потоки записи проходов переиндексации: target -> клиент прохода */
+  private final Map<String, SolrStreamingClient> streams = new ConcurrentHashMap<>();
+
   private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
-  /** Поиск документов в Solr */
+  /**
+   * Поля сортировки: для текстовых полей - строковые копии *_str (схема по умолчанию создает их
+   * copyField), текстовое поле токенизировано и для сортировки не подходит
+   */
+  private static final Map<String, String> SORT_FIELDS =
+      Map.of(
+          SortConstants.SORT_BY_TITLE, "title_str",
+          SortConstants.SORT_BY_AUTHOR, "author_str",
+          SortConstants.SORT_BY_CATEGORY, "category_str",
+          SortConstants.SORT_BY_STATUS, "status_str",
+          SortConstants.SORT_BY_CREATED_AT, "created_at",
+          SortConstants.SORT_BY_UPDATED_AT, "updated_at");
+
+  /** ACL: динамическое поле *_ss схемы по умолчанию (string, multiValued, indexed) */
+  private static final String ACL_FIELD = PermissionConstants.FIELD_ACL + "_ss";
+
+  private static final String ACL_PARAM = "acl_principals";
+  private static final char ACL_SEPARATOR = '\u001F';
+
+  @Override
+  public String getName() {
+    return SearchEngineConstants.ENGINE_SOLR;
+  }
+
+  /**
+   * Поиск id документов страницы (для маршрутизации UnifiedSearchService)
+   *
+   * <p>Текст - edismax по title^2, content, author; фильтры - отдельные fq (кэшируются в
+   * filterCache независимо от текста), сортировка и страница - на стороне Solr.
+   */
+  @Override
+  public Optional<EngineHits> searchIds(SearchFilterDto filter, Collection<String> principals) {
+    Optional<EngineQuery> engineQuery = EngineQuery.from(filter, principals);
+    if (engineQuery.isEmpty()) {
+      return Optional.empty();
+    }
+    SolrQuery solrQuery = toSolrQuery(engineQuery.get());
+
+    if (circuitOpen()) {
+      return Optional.empty();
+    }
+
+    try {
+      QueryResponse response = solrClient.query(core, solrQuery);
+      List<Long> ids = new ArrayList<>(response.getResults().size());
+      for (SolrDocument doc : response.getResults()) {
+        ids.add(Long.valueOf(String.valueOf(doc.getFieldValue("id"))));
+      }
+      circuitBreakers.recordSuccess(getName());
+      return Optional.of(
+          EngineHits.builder()
+              .engine(getName())
+              .ids(ids)
+              .totalHits(response.getResults().getNumFound())
+              .build());
+    } catch (SolrServerException | IOException | RuntimeException e) {
+      recordFailure(e);
+      throw new IllegalStateException("Solr search failed: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Поиск документов в Solr
+   *
+   * @return пустой список, если цепь движка открыта
+   * @throws IllegalStateException если движок недоступен или вернул ошибку
+   */
   public List<SearchResultDto> search(String query) {
     List<SearchResultDto> results = new ArrayList<>();
 
+    if (circuitOpen()) {
+      return results;
+    }
+
     try {
       SolrQuery solrQuery = new SolrQuery();
       solrQuery.setQuery(query != null && !query.isEmpty() ? query : "*:*");
@@ -82,12 +185,10 @@ public class SolrSearchService {
       }
 
       log.debug("Solr search for '{}' returned {} results", query, results.size());
-    } catch (SolrServerException e) {
-      log.error("Solr server error during search: {}", e.getMessage(), e);
-    } catch (IOException e) {
-      log.error("IO error during Solr search: {}", e.getMessage(), e);
-    } catch (Exception e) {
-      log.error("Unexpected error searching in Solr: {}", e.getMessage(), e);
+      circuitBreakers.recordSuccess(getName());
+    } catch (SolrServerException | IOException | RuntimeException e) {
+      recordFailure(e);
+      throw new IllegalStateException("Solr search failed: " + e.getMessage(), e);
     }
 
     return results;
@@ -100,8 +201,13 @@ public class SolrSearchService {
       return false;
     }
 
+    if (circuitOpen()) {
+      return false;
+    }
+
     try {
-      SolrInputDocument solrDoc = convertToSolrDocument(document);
+      SolrInputDocument solrDoc =
+          convertToSolrDocument(document, permissionService.aclFor(document.getId()));
 
       UpdateResponse response = solrClient.add(core, solrDoc);
 
@@ -110,27 +216,300 @@ public class SolrSearchService {
       }
 
       log.debug("Document {} indexed in Solr (status: {})", document.getId(), response.getStatus());
+      circuitBreakers.recordSuccess(getName());
       return true;
     } catch (SolrServerException e) {
+      recordFailure(e);
       log.warn("Solr server error indexing document {}: {}", document.getId(), e.getMessage());
       return false;
     } catch (IOException e) {
+      recordFailure(e);
       log.warn("IO error indexing document {}: {}", document.getId(), e.getMessage());
       return false;
     } catch (Exception e) {
+      recordFailure(e);
       log.error("Unexpected error indexing document {}: {}", document.getId(), e.getMessage(), e);
       return false;
     }
   }
 
-  /** Batch индексация документов (рекомендуется для production) */
+  /**
+   * Batch индексация документов (рекомендуется для production)
+   *
+   * @throws IndexingThrottledException если Solr ответил 429/503
+   */
   public int batchIndexDocuments(Collection<Document> documents) {
+    return indexBatch(core, documents, !autoCommit);
+  }
+
+  @Override
+  public String liveTarget() {
+    return core;
+  }
+
+  /**
+   * Пакет без commit: коммит один раз в конце переиндексации. С search.solr.streaming.enabled -
+   * потоково через SolrStreamingClient прохода.
+   */
+  @Override
+  public int writeBatch(String target, Collection<Document> documents) {
+    return streamingEnabled ? streamBatch(target, documents) : indexBatch(target, documents, false);
+  }
+
+  /** Потоковая запись подтверждается только commit(): ответы Solr приходят асинхронно */
+  @Override
+  public boolean confirmsOnCommit() {
+    return streamingEnabled;
+  }
+
+  /**
+   * Потоковая запись: документы конвертируются по одному и сразу уходят в ограниченную очередь
+   * клиента прохода (add ждет, пока очередь полна), runner-потоки пишут их javabin-потоком в
+   * открытые update-запросы. Память не зависит от размера пакета: в ней не больше очереди
+   * SolrInputDocument.
+   *
+   * <p>Один поток до commit(): пакет не ждет ответов Solr, их дожидается commit() перед коммитом
+   * (промежуточный - каждые search.reindex.commit-interval документов, следующий пакет открывает
+   * новый поток). Ошибка, уже пришедшая в потоке, закрывает его и возвращает 0: какие документы не
+   * записаны, неизвестно, поэтому проход повторяется с подтвержденной контрольной точки.
+   *
+   * <p>Живой core получает commitWithin (документы становятся видимыми по ходу переиндексации),
+   * версия перестройки - нет: ее коммитит commit() перед переключением.
+   */
+  private int streamBatch(String target, Collection<Document> documents) {
+    if (documents == null || documents.isEmpty()) {
+      return 0;
+    }
+
+    if (circuitOpen()) {
+      closeStream(target);
+      return 0;
+    }
+
+    SolrStreamingClient stream = streams.computeIfAbsent(target, t -> streamingClients.open());
+    if (stream.getErrorCount() > 0) {
+      closeStream(target);
+      return 0;
+    }
+    int commitWithin = core.equals(target) ? commitWithinMs : -1;
+    try {
+      Map<Long, List<String>> acl =
+          permissionService.aclFor(
+              documents.stream().map(Document::getId).collect(Collectors.toList()));
+      for (Document document : documents) {
+        stream.add(
+            target, convertToSolrDocument(document, acl.get(document.getId())), commitWithin);
+      }
+      log.debug("Streamed {} documents to Solr {}", documents.size(), target);
+      return documents.size();
+    } catch (SolrServerException | IOException | RuntimeException e) {
+      recordFailure(e);
+      log.error("Solr streaming update of {} failed: {}", target, e.getMessage());
+      closeStream(target);
+      return 0;
+    }
+  }
+
+  /**
+   * Дождаться ответов на все документы потока прохода и закрыть его
+   *
+   * @return false - хотя бы один update-запрос прохода не удался
+   */
+  private boolean closeStream(String target) {
+    SolrStreamingClient stream = streams.remove(target);
+    if (stream == null) {
+      return true;
+    }
+    stream.close(); // blockUntilFinished + остановка runner-ов
+    Throwable error = stream.getLastError();
+    if (error == null) {
+      circuitBreakers.recordSuccess(getName());
+      return true;
+    }
+    recordFailure(error instanceof Exception exception ? exception : new RuntimeException(error));
+    log.error(
+        "Solr streaming pass to {} failed: {} update request(s) failed, last: {}",
+        target,
+        stream.getErrorCount(),
+        error.getMessage());
+    return false;
+  }
+
+  @PreDestroy
+  void closeStreams() {
+    streams.keySet().forEach(this::closeStream);
+  }
+
+  /**
+   * Один update-запрос (add + deleteById) с commitWithin вместо явного commit: Solr сам объединяет
+   * коммиты частых мелких пакетов в один за search.solr.commit-within-ms
+   */
+  @Override
+  public int applyChanges(String target, Collection<Document> upserts, Collection<Long> deletes) {
+    if (upserts.isEmpty() && deletes.isEmpty()) {
+      return 0;
+    }
+
+    if (circuitOpen()) {
+      return 0;
+    }
+
+    try {
+      UpdateRequest request = new UpdateRequest();
+      if (!upserts.isEmpty()) {
+        Map<Long, List<String>> acl =
+            permissionService.aclFor(
+                upserts.stream().map(Document::getId).collect(Collectors.toList()));
+        request.add(
+            upserts.stream()
+                .map(document -> convertToSolrDocument(document, acl.get(document.getId())))
+                .collect(Collectors.toList()));
+      }
+      if (!deletes.isEmpty()) {
+        request.deleteById(deletes.stream().map(String::valueOf).collect(Collectors.toList()));
+      }
+      request.setCommitWithin(commitWithinMs);
+      request.process(solrClient, target);
+
+      log.debug("Applied {} upserts and {} deletes to Solr", upserts.size(), deletes.size());
+      circuitBreakers.recordSuccess(getName());
+      return upserts.size() + deletes.size();
+    } catch (Exception e) {
+      recordFailure(e);
+      if (e instanceof SolrException solrException
+          && IndexingThrottledException.isThrottleStatus(solrException.code())) {
+        throw new IndexingThrottledException(getName(), e);
+      }
+      log.error("Solr update of {} failed: {}", target, e.getMessage());
+      return 0;
+    }
+  }
+
+  @Override
+  public boolean commit(String target) {
+    if (!closeStream(target)) {
+      return false;
+    }
+    // У живого core может быть autocommit сервера; у версии он выключен - коммитим всегда
+    if (autoCommit && core.equals(target)) {
+      return true;
+    }
+    if (circuitOpen()) {
+      return false;
+    }
+    try {
+      solrClient.commit(target);
+      circuitBreakers.recordSuccess(getName());
+      return true;
+    } catch (SolrServerException | IOException | RuntimeException e) {
+      recordFailure(e);
+      log.error("Solr commit of {} failed: {}", target, e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Новый core из configset (search.solr.config-set) с выключенными autoCommit/autoSoftCommit
+   *
+   * <p>Solr запущен standalone: alias коллекций (SolrCloud) нет, атомарное переключение - CoreAdmin
+   * SWAP, реплик у core нет.
+   */
+  @Override
+  public String createVersion(String version) {
+    String target = core + "_" + version;
+    if (circuitOpen()) {
+      throw new IllegalStateException("Solr circuit is open");
+    }
+    try {
+      CoreAdminRequest.Create create = new CoreAdminRequest.Create();
+      create.setCoreName(target);
+      create.setInstanceDir(target);
+      create.setConfigSet(configSet);
+      create.process(solrClient);
+      updateConfig(
+          target,
+          "{\"set-property\": {\"updateHandler.autoCommit.maxTime\": -1,"
+              + " \"updateHandler.autoSoftCommit.maxTime\": -1}}");
+      circuitBreakers.recordSuccess(getName());
+      log.info("Solr core {} created for rebuild", target);
+      return target;
+    } catch (SolrServerException | IOException | RuntimeException e) {
+      recordFailure(e);
+      throw new IllegalStateException("Solr core " + target + " not created: " + e.getMessage(), e);
+    }
+  }
+
+  /** Вернуть autocommit из solrconfig.xml, commit, SWAP с живым core, удалить прежний */
+  @Override
+  public boolean promote(String target) {
+    if (circuitOpen()) {
+      return false;
+    }
+    try {
+      updateConfig(
+          target,
+          "{\"unset-property\": [\"updateHandler.autoCommit.maxTime\","
+              + " \"updateHandler.autoSoftCommit.maxTime\"]}");
+      solrClient.commit(target);
+      CoreAdminRequest.swapCore(core, target, solrClient);
+      // После SWAP под именем target - прежний живой core
+      CoreAdminRequest.unloadCore(target, true, true, solrClient);
+      circuitBreakers.recordSuccess(getName());
+      log.info("Solr core {} swapped in as {}", target, core);
+      return true;
+    } catch (SolrServerException | IOException | RuntimeException e) {
+      recordFailure(e);
+      log.error("Solr promote of {} failed: {}", target, e.getMessage());
+      return false;
+    }
+  }
+
+  @Override
+  public boolean dropVersion(String target) {
+    if (core.equals(target) || circuitOpen()) {
+      return false;
+    }
+    try {
+      CoreAdminRequest.unloadCore(target, true, true, solrClient);
+      circuitBreakers.recordSuccess(getName());
+      return true;
+    } catch (SolrServerException | IOException | RuntimeException e) {
+      recordFailure(e);
+      log.warn("Solr core {} not dropped: {}", target, e.getMessage());
+      return false;
+    }
+  }
+
+  /** Config API core (editable properties solrconfig.xml) */
+  private void updateConfig(String target, String command) throws SolrServerException, IOException {
+    solrClient.request(
+        new GenericSolrRequest(SolrRequest.METHOD.POST, "/config")
+            .withContent(command.getBytes(StandardCharsets.UTF_8), "application/json"),
+        target);
+  }
+
+  /**
+   * Запись документов батчами по search.solr.batch-size
+   *
+   * @param target core записи (живой или версия перестройки)
+   * @param commit commit после последнего батча
+   */
+  private int indexBatch(String target, Collection<Document> documents, boolean commit) {
     if (documents == null || documents.isEmpty()) {
       return 0;
     }
 
+    Map<Long, List<String>> acl =
+        permissionService.aclFor(
+            documents.stream().map(Document::getId).collect(Collectors.toList()));
     List<SolrInputDocument> solrDocs =
-        documents.stream().map(this::convertToSolrDocument).collect(Collectors.toList());
+        documents.stream()
+            .map(document -> convertToSolrDocument(document, acl.get(document.getId())))
+            .collect(Collectors.toList());
+
+    if (circuitOpen()) {
+      return 0;
+    }
 
     try {
       // Разбиваем на батчи для эффективной обработки
@@ -139,11 +518,11 @@ public class SolrSearchService {
         int end = Math.min(i + batchSize, solrDocs.size());
         List<SolrInputDocument> batch = solrDocs.subList(i, end);
 
-        UpdateResponse response = solrClient.add(core, batch);
+        UpdateResponse response = solrClient.add(target, batch);
 
-        if (!autoCommit && end == solrDocs.size()) {
+        if (commit && end == solrDocs.size()) {
           // Commit только после последнего батча
-          solrClient.commit(core);
+          solrClient.commit(target);
         }
 
         indexed += batch.size();
@@ -151,14 +530,22 @@ public class SolrSearchService {
       }
 
       log.info("Successfully indexed {} documents in Solr", indexed);
+      circuitBreakers.recordSuccess(getName());
       return indexed;
     } catch (SolrServerException e) {
+      recordFailure(e);
       log.error("Solr server error during batch indexing: {}", e.getMessage(), e);
       return 0;
     } catch (IOException e) {
+      recordFailure(e);
       log.error("IO error during batch indexing: {}", e.getMessage(), e);
       return 0;
     } catch (Exception e) {
+      recordFailure(e);
+      if (e instanceof SolrException solrException
+          && IndexingThrottledException.isThrottleStatus(solrException.code())) {
+        throw new IndexingThrottledException(getName(), e);
+      }
       log.error("Unexpected error during batch indexing: {}", e.getMessage(), e);
       return 0;
     }
@@ -170,6 +557,10 @@ public class SolrSearchService {
       return false;
     }
 
+    if (circuitOpen()) {
+      return false;
+    }
+
     try {
       UpdateResponse response = solrClient.deleteById(core, String.valueOf(id));
 
@@ -178,14 +569,18 @@ public class SolrSearchService {
       }
 
       log.debug("Document {} deleted from Solr (status: {})", id, response.getStatus());
+      circuitBreakers.recordSuccess(getName());
       return true;
     } catch (SolrServerException e) {
+      recordFailure(e);
       log.error("Solr server error deleting document {}: {}", id, e.getMessage(), e);
       return false;
     } catch (IOException e) {
+      recordFailure(e);
       log.error("IO error deleting document {}: {}", id, e.getMessage(), e);
       return false;
     } catch (Exception e) {
+      recordFailure(e);
       log.error("Unexpected error deleting document {}: {}", id, e.getMessage(), e);
       return false;
     }
@@ -193,28 +588,40 @@ public class SolrSearchService {
 
   /** Batch удаление документов */
   public int batchDeleteDocuments(Collection<Long> ids) {
+    return deleteByIds(core, ids, !autoCommit);
+  }
+
+  private int deleteByIds(String target, Collection<Long> ids, boolean commit) {
     if (ids == null || ids.isEmpty()) {
       return 0;
     }
 
+    if (circuitOpen()) {
+      return 0;
+    }
+
     try {
       List<String> idStrings = ids.stream().map(String::valueOf).collect(Collectors.toList());
 
-      UpdateResponse response = solrClient.deleteById(core, idStrings);
+      UpdateResponse response = solrClient.deleteById(target, idStrings);
 
-      if (!autoCommit) {
-        solrClient.commit(core);
+      if (commit) {
+        solrClient.commit(target);
       }
 
       log.info("Deleted {} documents from Solr (status: {})", ids.size(), response.getStatus());
+      circuitBreakers.recordSuccess(getName());
       return ids.size();
     } catch (SolrServerException e) {
+      recordFailure(e);
       log.error("Solr server error during batch delete: {}", e.getMessage(), e);
       return 0;
     } catch (IOException e) {
+      recordFailure(e);
       log.error("IO error during batch delete: {}", e.getMessage(), e);
       return 0;
     } catch (Exception e) {
+      recordFailure(e);
       log.error("Unexpected error during batch delete: {}", e.getMessage(), e);
       return 0;
     }
@@ -222,19 +629,133 @@ public class SolrSearchService {
 
   /** Очистка всего индекса (осторожно!) */
   public boolean clearIndex() {
+    if (circuitOpen()) {
+      return false;
+    }
+
     try {
       UpdateResponse response = solrClient.deleteByQuery(core, "*:*");
       solrClient.commit(core);
 
       log.warn("Solr index cleared (status: {})", response.getStatus());
+      circuitBreakers.recordSuccess(getName());
       return true;
     } catch (Exception e) {
+      recordFailure(e);
       log.error("Error clearing Solr index: {}", e.getMessage(), e);
       return false;
     }
   }
 
+  /**
+   * Перевод запроса в q + fq + sort Solr
+   *
+   * <p>Текст - edismax с q.op=AND: все слова обязательны, последнее - префикс (EngineQuery). Слова
+   * экранируются: синтаксис запросов Solr пользователю не доступен, как и в других движках.
+   */
+  static SolrQuery toSolrQuery(EngineQuery query) {
+    SolrQuery solrQuery = new SolrQuery(query.hasText() ? toSolrText(query.getText()) : "*:*");
+    if (query.hasText()) {
+      solrQuery.set("defType", "edismax");
+      solrQuery.set("qf", "title^2 content author");
+      solrQuery.set("q.op", "AND");
+      solrQuery.set("mm", "100%");
+    }
+
+    if (query.getCategory() != null) {
+      solrQuery.addFilterQuery(termFilter("category_str", query.getCategory()));
+    }
+    if (query.getStatus() != null) {
+      solrQuery.addFilterQuery(termFilter("status_str", query.getStatus()));
+    }
+    if (query.getAuthor() != null) {
+      solrQuery.addFilterQuery("author:\"" + escapePhrase(query.getAuthor()) + "\"");
+    }
+    addRangeFilter(solrQuery, "created_at", query.getCreatedAfter(), query.getCreatedBefore());
+    addRangeFilter(solrQuery, "updated_at", query.getUpdatedAfter(), query.getUpdatedBefore());
+    if (query.getPrincipals() != null) {
+      // Права: отдельный fq - кэшируется per-user независимо от текста и фильтров. Значения - в
+      // параметре запроса с разделителем US: запятые и синтаксис local params в principal не
+      // ломают фильтр; principal с самим разделителем не может совпасть и отбрасывается
+      solrQuery.addFilterQuery(
+          "{!terms f=" + ACL_FIELD + " separator='" + ACL_SEPARATOR + "' v=$" + ACL_PARAM + "}");
+      solrQuery.set(
+          ACL_PARAM,
+          query.getPrincipals().stream()
+              .filter(principal -> principal.indexOf(ACL_SEPARATOR) < 0)
+              .collect(Collectors.joining(String.valueOf(ACL_SEPARATOR))));
+    }
+
+    if (query.isRelevanceSort()) {
+      solrQuery.addSort("score", SolrQuery.ORDER.desc);
+    } else {
+      solrQuery.addSort(
+          SORT_FIELDS.get(query.getSortBy()),
+          query.isDescending() ? SolrQuery.ORDER.desc : SolrQuery.ORDER.asc);
+    }
+    solrQuery.addSort("id", SolrQuery.ORDER.asc); // стабильные страницы при равных значениях
+
+    solrQuery.setFields("id");
+    solrQuery.setStart(query.getOffset());
+    solrQuery.setRows(query.getSize());
+    return solrQuery;
+  }
+
+  /** Слова запроса с экранированием синтаксиса Solr; последнее - префикс */
+  private static String toSolrText(String text) {
+    String[] words = text.trim().split("\\s+");
+    StringBuilder solrText = new StringBuilder();
+    for (int i = 0; i < words.length; i++) {
+      if (i > 0) {
+        solrText.append(' ');
+      }
+      solrText.append(ClientUtils.escapeQueryChars(words[i]));
+    }
+    return solrText.append('*').toString();
+  }
+
+  /** Точное совпадение со строковым полем */
+  private static String termFilter(String field, String value) {
+    return "{!term f=" + field + "}" + value;
+  }
+
+  /** Диапазон дат включительно; открытая граница - * */
+  private static void addRangeFilter(
+      SolrQuery solrQuery, String field, LocalDateTime from, LocalDateTime to) {
+    if (from == null && to == null) {
+      return;
+    }
+    solrQuery.addFilterQuery(
+        field + ":[" + formatSolrDate(from) + " TO " + formatSolrDate(to) + "]");
+  }
+
+  /** Даты индексируются как локальное время без зоны - Solr читает их как UTC */
+  private static String formatSolrDate(LocalDateTime date) {
+    return date != null ? date.format(DATE_FORMATTER) + "Z" : "*";
+  }
+
+  private static String escapePhrase(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+
+  /** Цепь движка открыта - вызов пропускается без обращения к серверу (CircuitBreakerRegistry) */
+  private boolean circuitOpen() {
+    return !circuitBreakers.allowRequest(getName());
+  }
+
+  /** Ошибка вызова для circuit breaker: ответ 4xx значит, что сервер доступен */
+  private void recordFailure(Exception e) {
+    if (e instanceof SolrException solrException
+        && solrException.code() >= 400
+        && solrException.code() < 500) {
+      circuitBreakers.recordSuccess(getName());
+    } else {
+      circuitBreakers.recordFailure(getName(), e);
+    }
+  }
+
   /** Проверка доступности Solr */
+  @Override
   public boolean isAvailable() {
     try {
       SolrQuery query = new SolrQuery("*:*");
@@ -247,8 +768,8 @@ public class SolrSearchService {
     }
   }
 
-  /** Конвертация Document в SolrInputDocument */
-  private SolrInputDocument convertToSolrDocument(Document document) {
+  /** Конвертация Document в SolrInputDocument (acl - значения поля прав, PermissionService) */
+  private SolrInputDocument convertToSolrDocument(Document document, List<String> acl) {
     SolrInputDocument solrDoc = new SolrInputDocument();
 
     if (document.getId() != null) {
@@ -275,6 +796,9 @@ public class SolrSearchService {
     if (document.getUpdatedAt() != null) {
       solrDoc.addField("updated_at", document.getUpdatedAt().format(DATE_FORMATTER));
     }
+    if (acl != null) {
+      solrDoc.addField(ACL_FIELD, acl);
+    }
 
     return solrDoc;
   }
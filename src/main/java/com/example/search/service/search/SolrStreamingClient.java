@@ -0,0 +1,75 @@
+package com.example.search.service.search;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.client.HttpClient;
+import org.apache.solr.client.solrj.impl.BinaryRequestWriter;
+import org.apache.solr.client.solrj.impl.BinaryResponseParser;
+import org.apache.solr.client.solrj.impl.ConcurrentUpdateSolrClient;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ConcurrentUpdateSolrClient одного прохода потоковой записи со счетчиком ошибок
+ *
+ * <p>add() только кладет документ в ограниченную очередь (ждет, если она полна), runner-потоки
+ * держат открытые HTTP-запросы и дописывают в них документы из очереди. Ответ Solr приходит
+ * асинхронно, поэтому ошибка запроса не бросается из add(), а попадает в handleError. Клиент
+ * создается на проход (Factory.open) и закрывается перед его commit: ошибки считаются по проходу, а
+ * не по общему клиенту.
+ */
+@Slf4j
+@SuppressWarnings("deprecation")
+public class SolrStreamingClient extends ConcurrentUpdateSolrClient {
+
+  private final AtomicLong errorCount = new AtomicLong();
+  private volatile Throwable lastError;
+
+  public SolrStreamingClient(ConcurrentUpdateSolrClient.Builder builder) {
+    super(builder);
+  }
+
+  @Override
+  public void handleError(Throwable ex) {
+    lastError = ex;
+    errorCount.incrementAndGet();
+    log.warn("Solr streaming update failed: {}", ex.getMessage());
+  }
+
+  public long getErrorCount() {
+    return errorCount.get();
+  }
+
+  /** Последняя ошибка runner-а (null - ошибок не было) */
+  public Throwable getLastError() {
+    return lastError;
+  }
+
+  /** Клиенты проходов: общий пул соединений, javabin, размер очереди и число runner-ов */
+  public static class Factory {
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    private final int queueSize;
+    private final int threads;
+
+    public Factory(String baseUrl, HttpClient httpClient, int queueSize, int threads) {
+      this.baseUrl = baseUrl;
+      this.httpClient = httpClient;
+      this.queueSize = queueSize;
+      this.threads = threads;
+    }
+
+    /** Новый поток записи; закрыть (close) после последнего add */
+    public SolrStreamingClient open() {
+      SolrStreamingClient client =
+          new SolrStreamingClient(
+              new ConcurrentUpdateSolrClient.Builder(baseUrl)
+                  .withHttpClient(httpClient)
+                  .withQueueSize(queueSize)
+                  .withThreadCount(threads));
+      client.setRequestWriter(new BinaryRequestWriter());
+      client.setParser(new BinaryResponseParser());
+      return client;
+    }
+  }
+}
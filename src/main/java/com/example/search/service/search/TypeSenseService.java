@@ -1,24 +1,44 @@
 package com.example.search.service.search;
 
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.typesense.api.Client;
 import org.typesense.api.FieldTypes;
+import org.typesense.api.exceptions.ObjectNotFound;
+import org.typesense.api.exceptions.TypesenseError;
+import org.typesense.model.CollectionAliasSchema;
 import org.typesense.model.CollectionSchema;
+import org.typesense.model.CollectionUpdateSchema;
+import org.typesense.model.DeleteDocumentsParameters;
 import org.typesense.model.Field;
+import org.typesense.model.ImportDocumentsParameters;
+import org.typesense.model.IndexAction;
 import org.typesense.model.SearchParameters;
 import org.typesense.model.SearchResult;
 
+import com.example.search.constants.PermissionConstants;
+import com.example.search.constants.SearchEngineConstants;
+import com.example.search.constants.SortConstants;
+import com.example.search.dto.response.SearchFilterDto;
 import com.example.search.dto.response.SearchResultDto;
 import com.example.search.model.Document;
+import com.example.search.service.permission.PermissionService;
+import com.example.search.service.routing.CircuitBreakerRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
@@ -33,51 +53,221 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class TypeSenseService {
+public class TypeSenseService implements SearchEngine, DocumentIndexer {
 
   private final Client typeSenseClient;
+  private final CircuitBreakerRegistry circuitBreakers;
+  private final PermissionService permissionService;
+  private final ExecutorService bulkIndexExecutor;
+  private static final ObjectMapper JSON = new ObjectMapper();
   private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
+  /** Поля сортировки (строковые - с sort: true в схеме, даты - числовые *_ts) */
+  private static final Map<String, String> SORT_FIELDS =
+      Map.of(
+          SortConstants.SORT_BY_TITLE, "title",
+          SortConstants.SORT_BY_AUTHOR, "author",
+          SortConstants.SORT_BY_CATEGORY, "category",
+          SortConstants.SORT_BY_STATUS, "status",
+          SortConstants.SORT_BY_CREATED_AT, "created_at_ts",
+          SortConstants.SORT_BY_UPDATED_AT, "updated_at_ts");
+
   @Value("${search.typesense.collection:search_demo}")
   private String collection;
 
   @Value("${search.typesense.batch-size:100}")
   private int batchSize;
 
+  @Value("${search.typesense.import-parallelism:4}")
+  private int importParallelism;
+
+  /**
+   * Схема коллекции обновлена новыми полями, но у уже записанных документов их значений нет (или
+   * схему обновить не удалось): до перестройки (rebuild, promote) TypeSense не участвует в поиске
+   */
+  private volatile boolean awaitingRebuild;
+
   @PostConstruct
   public void init() {
+    CollectionSchema existing;
     try {
       // Проверяем, существует ли коллекция
-      typeSenseClient.collections(collection).retrieve();
+      existing = typeSenseClient.collections(collection).retrieve();
       log.debug("TypeSense collection '{}' already exists", collection);
     } catch (Exception e) {
       // Создаем коллекцию, если её нет
       try {
-        List<Field> fields = new ArrayList<>();
-        fields.add(new Field().name("id").type(FieldTypes.STRING));
-        fields.add(new Field().name("title").type(FieldTypes.STRING));
-        fields.add(new Field().name("content").type(FieldTypes.STRING));
-        fields.add(new Field().name("author").type(FieldTypes.STRING).optional(true));
-        fields.add(new Field().name("category").type(FieldTypes.STRING).optional(true));
-        fields.add(new Field().name("status").type(FieldTypes.STRING).optional(true));
-        fields.add(new Field().name("created_at").type(FieldTypes.STRING).optional(true));
-        fields.add(new Field().name("updated_at").type(FieldTypes.STRING).optional(true));
-
-        CollectionSchema schema = new CollectionSchema();
-        schema.name(collection).fields(fields);
-
-        typeSenseClient.collections().create(schema);
+        typeSenseClient.collections().create(schema(collection));
         log.info("TypeSense collection '{}' created", collection);
       } catch (Exception createException) {
         log.warn("Failed to create TypeSense collection: {}", createException.getMessage());
       }
+      return;
     }
+    migrateSchema(existing);
+  }
+
+  /**
+   * Привести схему существующей коллекции к schema(): схема применяется только при создании, а
+   * старая коллекция (без sort: true у строк, *_ts и acl) отвечает 4xx на каждый sort_by/filter_by
+   *
+   * <p>Недостающие поля добавляются, поля с другим определением удаляются и добавляются заново в
+   * одном PATCH: TypeSense переиндексирует их из сохраненных документов. Значений новых полей у
+   * записанных документов нет - они появятся только после переиндексации, поэтому до rebuild (POST
+   * /api/search/reindex?rebuild=true) поиск идет мимо TypeSense.
+   */
+  void migrateSchema(CollectionSchema existing) {
+    Map<String, Field> current = new HashMap<>();
+    if (existing.getFields() != null) {
+      existing.getFields().forEach(field -> current.put(field.getName(), field));
+    }
+
+    CollectionUpdateSchema update = new CollectionUpdateSchema().fields(new ArrayList<>());
+    List<String> added = new ArrayList<>();
+    for (Field expected : schema(collection).getFields()) {
+      Field actual = current.get(expected.getName());
+      if ("id".equals(expected.getName()) || sameDefinition(actual, expected)) {
+        continue;
+      }
+      if (actual == null) {
+        added.add(expected.getName());
+      } else {
+        update.addFieldsItem(new Field().name(expected.getName()).drop(true));
+      }
+      update.addFieldsItem(expected);
+    }
+    if (update.getFields().isEmpty()) {
+      return;
+    }
+
+    try {
+      String target = Optional.ofNullable(aliasedCollection()).orElse(collection);
+      typeSenseClient.collections(target).update(update);
+      log.info(
+          "TypeSense collection {} schema updated: {}",
+          target,
+          update.getFields().stream().map(Field::getName).distinct().toList());
+      if (!added.isEmpty()) {
+        awaitingRebuild = true;
+        log.warn(
+            "TypeSense fields {} were added to existing documents without values: TypeSense is"
+                + " excluded from search until POST /api/search/reindex?rebuild=true",
+            added);
+      }
+    } catch (Exception e) {
+      awaitingRebuild = true;
+      log.error(
+          "TypeSense schema migration failed, excluded from search until rebuild: {}",
+          e.getMessage());
+    }
+  }
+
+  /** Поле есть и совпадает по типу; sort и optional сравниваются, если заданы в schema() */
+  private static boolean sameDefinition(Field actual, Field expected) {
+    return actual != null
+        && expected.getType().equals(actual.getType())
+        && (expected.isSort() == null || expected.isSort().equals(actual.isSort()))
+        && (!Boolean.TRUE.equals(expected.isOptional())
+            || Boolean.TRUE.equals(actual.isOptional()));
+  }
+
+  /** Схема коллекции документов (живой и версий перестройки) */
+  private static CollectionSchema schema(String name) {
+    List<Field> fields = new ArrayList<>();
+    fields.add(new Field().name("id").type(FieldTypes.STRING));
+    fields.add(new Field().name("title").type(FieldTypes.STRING).sort(true));
+    fields.add(new Field().name("content").type(FieldTypes.STRING));
+    fields.add(new Field().name("author").type(FieldTypes.STRING).optional(true).sort(true));
+    fields.add(new Field().name("category").type(FieldTypes.STRING).optional(true).sort(true));
+    fields.add(new Field().name("status").type(FieldTypes.STRING).optional(true).sort(true));
+    fields.add(new Field().name("created_at").type(FieldTypes.STRING).optional(true));
+    fields.add(new Field().name("updated_at").type(FieldTypes.STRING).optional(true));
+    // Даты числами: диапазоны в filter_by и сортировка
+    fields.add(new Field().name("created_at_ts").type(FieldTypes.INT64).optional(true));
+    fields.add(new Field().name("updated_at_ts").type(FieldTypes.INT64).optional(true));
+    // Права: субъекты с доступом (точное совпадение в filter_by)
+    fields.add(
+        new Field()
+            .name(PermissionConstants.FIELD_ACL)
+            .type(FieldTypes.STRING_ARRAY)
+            .optional(true));
+
+    return new CollectionSchema().name(name).fields(fields);
+  }
+
+  @Override
+  public String getName() {
+    return SearchEngineConstants.ENGINE_TYPESENSE;
   }
 
-  /** Поиск документов в TypeSense */
+  /**
+   * Поиск id документов страницы (для маршрутизации UnifiedSearchService)
+   *
+   * <p>Фильтры - filter_by, сортировка - sort_by (поля с sort: true в схеме коллекции, даты - в
+   * числовых полях *_ts), страница - на стороне TypeSense. После миграции схемы с новыми полями -
+   * Optional.empty() до rebuild (migrateSchema).
+   */
+  @Override
+  public Optional<EngineHits> searchIds(SearchFilterDto filter, Collection<String> principals) {
+    Optional<EngineQuery> engineQuery = EngineQuery.from(filter, principals);
+    if (engineQuery.isEmpty()) {
+      return Optional.empty();
+    }
+    EngineQuery query = engineQuery.get();
+    SearchParameters searchParameters =
+        new SearchParameters()
+            .q(query.hasText() ? query.getText() : "*")
+            .queryBy("title,content,author")
+            .queryByWeights("2,1,1")
+            // Семантика текста как у других движков (EngineQuery): все слова обязательны,
+            // последнее - префикс, без опечаток
+            .prefix("true")
+            .numTypos("0")
+            .dropTokensThreshold(0)
+            .sortBy(toSortBy(query))
+            .includeFields("id")
+            .page(query.getPage() + 1) // TypeSense считает страницы с 1
+            .perPage(query.getSize());
+    String filterBy = toFilterBy(query);
+    if (!filterBy.isEmpty()) {
+      searchParameters.filterBy(filterBy);
+    }
+
+    if (awaitingRebuild || circuitOpen()) {
+      return Optional.empty();
+    }
+
+    try {
+      SearchResult result =
+          typeSenseClient.collections(collection).documents().search(searchParameters);
+      List<Long> ids = new ArrayList<>();
+      if (result.getHits() != null) {
+        for (org.typesense.model.SearchResultHit hit : result.getHits()) {
+          ids.add(Long.valueOf(String.valueOf(hit.getDocument().get("id"))));
+        }
+      }
+      long total = result.getFound() != null ? result.getFound() : ids.size();
+      circuitBreakers.recordSuccess(getName());
+      return Optional.of(EngineHits.builder().engine(getName()).ids(ids).totalHits(total).build());
+    } catch (Exception e) {
+      recordFailure(e);
+      throw new IllegalStateException("TypeSense search failed: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Поиск документов в TypeSense
+   *
+   * @return пустой список, если цепь движка открыта
+   * @throws IllegalStateException если движок недоступен или вернул ошибку
+   */
   public List<SearchResultDto> search(String query) {
     List<SearchResultDto> results = new ArrayList<>();
 
+    if (circuitOpen()) {
+      return results;
+    }
+
     try {
       SearchParameters searchParameters =
           new SearchParameters()
@@ -107,8 +297,10 @@ public class TypeSenseService {
       }
 
       log.debug("TypeSense search for '{}' returned {} results", query, results.size());
+      circuitBreakers.recordSuccess(getName());
     } catch (Exception e) {
-      log.error("Error searching in TypeSense: {}", e.getMessage(), e);
+      recordFailure(e);
+      throw new IllegalStateException("TypeSense search failed: " + e.getMessage(), e);
     }
 
     return results;
@@ -121,49 +313,236 @@ public class TypeSenseService {
       return false;
     }
 
+    if (circuitOpen()) {
+      return false;
+    }
+
     try {
-      Map<String, Object> doc = convertToTypeSenseDocument(document);
+      Map<String, Object> doc =
+          convertToTypeSenseDocument(document, permissionService.aclFor(document.getId()));
 
       typeSenseClient.collections(collection).documents().upsert(doc);
 
       log.debug("Document {} indexed in TypeSense", document.getId());
+      circuitBreakers.recordSuccess(getName());
       return true;
     } catch (Exception e) {
+      recordFailure(e);
       log.warn("TypeSense error indexing document {}: {}", document.getId(), e.getMessage());
       return false;
     }
   }
 
-  /** Batch индексация документов (рекомендуется для production) */
+  /**
+   * Batch индексация документов (рекомендуется для production)
+   *
+   * @throws IndexingThrottledException если TypeSense ответил 429/503
+   */
   public int batchIndexDocuments(Collection<Document> documents) {
+    return upsertBatch(collection, documents);
+  }
+
+  /**
+   * Upsert документов в коллекцию target (живой alias или версию): JSONL import action=upsert
+   * частями по search.typesense.batch-size, до search.typesense.import-parallelism частей
+   * одновременно
+   *
+   * @return число документов, принятых TypeSense (по результату каждой строки import)
+   * @throws IndexingThrottledException если TypeSense ответил 429/503 хотя бы на одну часть
+   */
+  private int upsertBatch(String target, Collection<Document> documents) {
     if (documents == null || documents.isEmpty()) {
       return 0;
     }
 
+    if (circuitOpen()) {
+      return 0;
+    }
+
+    List<Map<String, Object>> docs;
     try {
-      List<Map<String, Object>> docs =
-          documents.stream().map(this::convertToTypeSenseDocument).collect(Collectors.toList());
-
-      // TypeSense поддерживает batch import через importDocuments
-      int indexed = 0;
-      for (int i = 0; i < docs.size(); i += batchSize) {
-        int end = Math.min(i + batchSize, docs.size());
-        List<Map<String, Object>> batch = docs.subList(i, end);
-
-        // TypeSense использует upsert для каждого документа в батче
-        for (Map<String, Object> doc : batch) {
-          typeSenseClient.collections(collection).documents().upsert(doc);
-          indexed++;
+      Map<Long, List<String>> acl =
+          permissionService.aclFor(
+              documents.stream().map(Document::getId).collect(Collectors.toList()));
+      docs =
+          documents.stream()
+              .map(document -> convertToTypeSenseDocument(document, acl.get(document.getId())))
+              .collect(Collectors.toList());
+    } catch (RuntimeException e) {
+      log.error("Error preparing TypeSense documents: {}", e.getMessage(), e);
+      return 0;
+    }
+
+    List<Callable<Integer>> chunks = new ArrayList<>();
+    for (int i = 0; i < docs.size(); i += batchSize) {
+      List<Map<String, Object>> chunk = docs.subList(i, Math.min(i + batchSize, docs.size()));
+      chunks.add(() -> importChunk(target, chunk));
+    }
+    int indexed = ParallelBulk.run(bulkIndexExecutor, importParallelism, chunks, getName());
+
+    log.info("Indexed {} of {} documents in TypeSense", indexed, docs.size());
+    return indexed;
+  }
+
+  /** Один JSONL import; результат - строка на документ: {"success":true} или ошибка документа */
+  private int importChunk(String target, List<Map<String, Object>> chunk) {
+    try {
+      String response =
+          typeSenseClient
+              .collections(target)
+              .documents()
+              .import_(chunk, new ImportDocumentsParameters().action(IndexAction.UPSERT));
+      circuitBreakers.recordSuccess(getName());
+
+      // Строки результата идут в порядке документов части
+      String[] lines = response.split("\n");
+      int imported = 0;
+      int failed = 0;
+      for (int line = 0; line < lines.length && line < chunk.size(); line++) {
+        JsonNode result = JSON.readTree(lines[line]);
+        if (result.path("success").asBoolean(false)) {
+          imported++;
+        } else if (failed++ == 0) {
+          // Первая ошибка части - в лог, остальные обычно той же причины
+          log.warn(
+              "TypeSense rejected document {}: {}",
+              chunk.get(line).get("id"),
+              result.path("error").asText());
         }
+      }
+      if (imported < chunk.size()) {
+        log.warn(
+            "TypeSense import: {} of {} documents failed", chunk.size() - imported, chunk.size());
+      }
+      return imported;
+    } catch (Exception e) {
+      recordFailure(e);
+      if (e instanceof TypesenseError typesenseError
+          && IndexingThrottledException.isThrottleStatus(typesenseError.status)) {
+        throw new IndexingThrottledException(getName(), e);
+      }
+      log.error("Error during batch indexing in TypeSense: {}", e.getMessage());
+      return 0;
+    }
+  }
+
+  @Override
+  public String liveTarget() {
+    return collection;
+  }
+
+  @Override
+  public int writeBatch(String target, Collection<Document> documents) {
+    return upsertBatch(target, documents);
+  }
 
-        log.debug("Indexed batch of {} documents in TypeSense", batch.size());
+  /** Upsert и delete отдельными вызовами: смешанного bulk у TypeSense нет */
+  @Override
+  public int applyChanges(String target, Collection<Document> upserts, Collection<Long> deletes) {
+    int applied = upserts.isEmpty() ? 0 : upsertBatch(target, upserts);
+    if (applied < upserts.size()) {
+      return applied;
+    }
+    return applied + (deletes.isEmpty() ? 0 : deleteFrom(target, deletes));
+  }
+
+  /** TypeSense делает документы видимыми сразу после upsert - commit не нужен */
+  @Override
+  public boolean commit(String target) {
+    return true;
+  }
+
+  /**
+   * Версия - отдельная коллекция с той же схемой
+   *
+   * <p>Настроек refresh и реплик на уровне коллекции у TypeSense нет (документ виден сразу, реплики
+   * - узлы кластера), поэтому версия создается как есть.
+   */
+  @Override
+  public String createVersion(String version) {
+    String target = collection + "_" + version;
+    if (circuitOpen()) {
+      throw new IllegalStateException("TypeSense circuit is open");
+    }
+    try {
+      typeSenseClient.collections().create(schema(target));
+      circuitBreakers.recordSuccess(getName());
+      log.info("TypeSense collection {} created for rebuild", target);
+      return target;
+    } catch (Exception e) {
+      recordFailure(e);
+      throw new IllegalStateException(
+          "TypeSense collection " + target + " not created: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Переключить alias search.typesense.collection на версию (upsert alias атомарен) и удалить
+   * прежнюю коллекцию
+   *
+   * <p>Первая перестройка: под живым именем - обычная коллекция; имя коллекции и alias совпадают,
+   * поэтому она удаляется до создания alias (короткое окно, пока имя не разрешается).
+   */
+  @Override
+  public boolean promote(String target) {
+    if (circuitOpen()) {
+      return false;
+    }
+    try {
+      String previous = aliasedCollection();
+      if (previous == null) {
+        deleteCollectionIfExists(collection);
+      }
+      typeSenseClient
+          .aliases()
+          .upsert(collection, new CollectionAliasSchema().collectionName(target));
+      if (previous != null && !previous.equals(target)) {
+        deleteCollectionIfExists(previous);
       }
+      circuitBreakers.recordSuccess(getName());
+      awaitingRebuild = false; // версия создана с полной схемой и заполнена целиком
+      log.info("TypeSense alias {} switched to {} (previous: {})", collection, target, previous);
+      return true;
+    } catch (Exception e) {
+      recordFailure(e);
+      log.error("TypeSense promote of {} failed: {}", target, e.getMessage());
+      return false;
+    }
+  }
 
-      log.info("Successfully indexed {} documents in TypeSense", indexed);
-      return indexed;
+  @Override
+  public boolean dropVersion(String target) {
+    if (collection.equals(target) || circuitOpen()) {
+      return false;
+    }
+    try {
+      if (target.equals(aliasedCollection())) {
+        return false;
+      }
+      deleteCollectionIfExists(target);
+      circuitBreakers.recordSuccess(getName());
+      return true;
     } catch (Exception e) {
-      log.error("Error during batch indexing in TypeSense: {}", e.getMessage(), e);
-      return 0;
+      recordFailure(e);
+      log.warn("TypeSense collection {} not dropped: {}", target, e.getMessage());
+      return false;
+    }
+  }
+
+  /** Коллекция за alias search.typesense.collection (null - alias нет) */
+  private String aliasedCollection() throws Exception {
+    try {
+      return typeSenseClient.aliases(collection).retrieve().getCollectionName();
+    } catch (ObjectNotFound e) {
+      return null;
+    }
+  }
+
+  private void deleteCollectionIfExists(String name) throws Exception {
+    try {
+      typeSenseClient.collections(name).delete();
+    } catch (ObjectNotFound e) {
+      log.debug("TypeSense collection {} already absent", name);
     }
   }
 
@@ -173,12 +552,18 @@ public class TypeSenseService {
       return false;
     }
 
+    if (circuitOpen()) {
+      return false;
+    }
+
     try {
       typeSenseClient.collections(collection).documents(String.valueOf(id)).delete();
 
       log.debug("Document {} deleted from TypeSense", id);
+      circuitBreakers.recordSuccess(getName());
       return true;
     } catch (Exception e) {
+      recordFailure(e);
       log.error("Error deleting document {} from TypeSense: {}", id, e.getMessage(), e);
       return false;
     }
@@ -186,22 +571,117 @@ public class TypeSenseService {
 
   /** Batch удаление документов */
   public int batchDeleteDocuments(Collection<Long> ids) {
-    if (ids == null || ids.isEmpty()) {
+    return deleteFrom(collection, ids);
+  }
+
+  /**
+   * Удаление фильтром id:[...] - один запрос на search.typesense.batch-size id; отсутствующие id
+   * просто не совпадают с фильтром и считаются удаленными
+   */
+  private int deleteFrom(String target, Collection<Long> ids) {
+    if (ids == null || ids.isEmpty() || circuitOpen()) {
       return 0;
     }
 
+    List<Long> idList = new ArrayList<>(ids);
     int deleted = 0;
-    for (Long id : ids) {
-      if (deleteDocument(id)) {
-        deleted++;
+    long removed = 0;
+    try {
+      for (int i = 0; i < idList.size(); i += batchSize) {
+        List<Long> chunk = idList.subList(i, Math.min(i + batchSize, idList.size()));
+        String filter =
+            "id:[" + chunk.stream().map(String::valueOf).collect(Collectors.joining(",")) + "]";
+        Map<String, Object> response =
+            typeSenseClient
+                .collections(target)
+                .documents()
+                .delete(new DeleteDocumentsParameters().filterBy(filter));
+        if (response.get("num_deleted") instanceof Number number) {
+          removed += number.longValue();
+        }
+        deleted += chunk.size();
       }
+      circuitBreakers.recordSuccess(getName());
+    } catch (Exception e) {
+      recordFailure(e);
+      log.error("Error during batch delete in TypeSense: {}", e.getMessage());
     }
 
-    log.info("Deleted {} documents from TypeSense", deleted);
+    log.info("Deleted {} documents from TypeSense ({} were present)", deleted, removed);
     return deleted;
   }
 
+  /** Перевод фильтров в filter_by: := - точное совпадение, : - по словам */
+  private static String toFilterBy(EngineQuery query) {
+    List<String> clauses = new ArrayList<>();
+    if (query.getCategory() != null) {
+      clauses.add("category:=" + quote(query.getCategory()));
+    }
+    if (query.getStatus() != null) {
+      clauses.add("status:=" + quote(query.getStatus()));
+    }
+    if (query.getAuthor() != null) {
+      clauses.add("author:" + quote(query.getAuthor()));
+    }
+    addRangeClauses(clauses, "created_at_ts", query.getCreatedAfter(), query.getCreatedBefore());
+    addRangeClauses(clauses, "updated_at_ts", query.getUpdatedAfter(), query.getUpdatedBefore());
+    if (query.getPrincipals() != null) {
+      // Права: acl:=[a,b] - совпадение с любым значением массива
+      clauses.add(
+          PermissionConstants.FIELD_ACL
+              + ":=["
+              + query.getPrincipals().stream()
+                  .map(TypeSenseService::quote)
+                  .collect(Collectors.joining(","))
+              + "]");
+    }
+    return String.join(" && ", clauses);
+  }
+
+  private static String toSortBy(EngineQuery query) {
+    if (query.isRelevanceSort()) {
+      return "_text_match:desc";
+    }
+    return SORT_FIELDS.get(query.getSortBy()) + (query.isDescending() ? ":desc" : ":asc");
+  }
+
+  /** Диапазон дат включительно по числовому полю (секунды epoch) */
+  private static void addRangeClauses(
+      List<String> clauses, String field, LocalDateTime from, LocalDateTime to) {
+    if (from != null) {
+      clauses.add(field + ":>=" + toEpochSeconds(from));
+    }
+    if (to != null) {
+      clauses.add(field + ":<=" + toEpochSeconds(to));
+    }
+  }
+
+  /** Значение в обратных кавычках: запятые, скобки и пробелы не разбираются как синтаксис */
+  private static String quote(String value) {
+    return "`" + value.replace("`", "") + "`";
+  }
+
+  /** Даты хранятся как локальное время без зоны - в секунды как UTC, одинаково с индексацией */
+  private static long toEpochSeconds(LocalDateTime date) {
+    return date.toEpochSecond(ZoneOffset.UTC);
+  }
+
+  /** Цепь движка открыта - вызов пропускается без обращения к серверу (CircuitBreakerRegistry) */
+  private boolean circuitOpen() {
+    return !circuitBreakers.allowRequest(getName());
+  }
+
+  /** Ошибка вызова для circuit breaker: ответ 4xx значит, что сервер доступен */
+  private void recordFailure(Exception e) {
+    if (e instanceof TypesenseError typesenseError && typesenseError.status < 500) {
+      circuitBreakers.recordSuccess(getName());
+    } else {
+      circuitBreakers.recordFailure(getName(), e);
+    }
+  }
+
   /** Проверка доступности TypeSense */
+  @Override
   public boolean isAvailable() {
     try {
       typeSenseClient.collections().retrieve();
@@ -212,8 +692,8 @@ public class TypeSenseService {
     }
   }
 
-  /** Конвертация Document в TypeSense документ */
-  private Map<String, Object> convertToTypeSenseDocument(Document document) {
+  /** Конвертация Document в TypeSense документ (acl - значения поля прав, PermissionService) */
+  private Map<String, Object> convertToTypeSenseDocument(Document document, List<String> acl) {
     Map<String, Object> doc = new HashMap<>();
 
     if (document.getId() != null) {
@@ -236,9 +716,14 @@ public class TypeSenseService {
     }
     if (document.getCreatedAt() != null) {
       doc.put("created_at", document.getCreatedAt().format(DATE_FORMATTER));
+      doc.put("created_at_ts", toEpochSeconds(document.getCreatedAt()));
     }
     if (document.getUpdatedAt() != null) {
       doc.put("updated_at", document.getUpdatedAt().format(DATE_FORMATTER));
+      doc.put("updated_at_ts", toEpochSeconds(document.getUpdatedAt()));
+    }
+    if (acl != null) {
+      doc.put(PermissionConstants.FIELD_ACL, acl);
     }
 
     return doc;
@@ -1,17 +1,30 @@
 package com.example.search.service.search;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import com.example.search.constants.SearchEngineConstants;
+import com.example.search.constants.SortConstants;
 import com.example.search.dto.response.AutocompleteResultDto;
 import com.example.search.dto.response.SearchFacetsDto;
 import com.example.search.dto.response.SearchFilterDto;
 import com.example.search.dto.response.SearchResultPageDto;
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentCursor;
+import com.example.search.repository.DocumentRepository;
 import com.example.search.service.monitoring.SearchMetricsService;
 import com.example.search.service.permission.PermissionService;
+import com.example.search.service.routing.RoutingCandidate;
+import com.example.search.service.routing.SearchRouter;
+import com.example.search.service.routing.SearchRoutingProperties;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,8 +33,8 @@ import lombok.extern.slf4j.Slf4j;
  * Unified Search Service - объединяет все поисковые движки
  *
  * <p>Стратегия поиска (как в Alanda): 1. Пробуем внешние движки (Solr, OpenSearch, TypeSense) для
- * полнотекстового поиска 2. Fallback на JPA для точных фильтров и когда движки недоступны 3.
- * Permission-aware filtering на всех уровнях 4. Мониторинг производительности
+ * полнотекстового поиска и фильтров 2. Fallback на JPA когда движки недоступны 3. Permission-aware
+ * filtering на всех уровнях 4. Мониторинг производительности
  *
  * <p>Преимущества: - Высокая производительность для полнотекстового поиска - Надежность (fallback
  * на JPA) - Permission-aware на всех уровнях - Мониторинг и метрики
@@ -31,9 +44,10 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class UnifiedSearchService {
 
-  private final SolrSearchService solrSearchService;
-  private final OpenSearchService openSearchService;
-  private final TypeSenseService typeSenseService;
+  private final List<SearchEngine> searchEngines;
+  private final SearchRouter searchRouter;
+  private final SearchRoutingProperties routingProperties;
+  private final DocumentRepository documentRepository;
   private final SimpleSearchService simpleSearchService;
   private final PermissionService permissionService;
   private final SearchMetricsService metricsService;
@@ -42,8 +56,9 @@ public class UnifiedSearchService {
    * Унифицированный поиск документов с использованием всех доступных движков
    *
    * <p>Стратегия: 1. Если есть полнотекстовый запрос (query) - пробуем внешние движки 2. Если
-   * только фильтры (category, status, etc) - используем JPA (быстрее) 3. Всегда применяем
-   * permission-aware filtering
+   * только фильтры (category, status, etc) - тоже движки (фильтры переводятся в их синтаксис,
+   * EngineQuery), отдельная операция маршрутизации filter 3. JPA - последний кандидат 4. Права -
+   * часть запроса каждого кандидата (поле acl в движках, ACL-подзапрос в JPA)
    *
    * @param filter параметры поиска
    * @param userId ID пользователя для permission-aware filtering
@@ -60,23 +75,16 @@ public class UnifiedSearchService {
       SearchResultPageDto result;
 
       if (hasOnlyFilters) {
-        // Только фильтры - используем JPA (быстрее для точных совпадений)
-        log.debug("Using JPA search for filter-only query");
-        result = simpleSearchService.searchDocuments(filter, userId);
+        // Только фильтры - отдельная операция маршрутизации со своей статистикой движков
+        result = routeSearch(SearchEngineConstants.OPERATION_FILTER, filter, userId);
       } else if (hasTextQuery) {
         // Есть текстовый запрос - пробуем внешние движки
-        result = searchWithExternalEngines(filter, userId);
+        result = routeSearch(SearchEngineConstants.OPERATION_SEARCH, filter, userId);
       } else {
         // Нет параметров - возвращаем все с пагинацией
         result = simpleSearchService.searchDocuments(filter, userId);
       }
 
-      // Дополнительная проверка прав (если SimpleSearchService не применил)
-      // В production здесь будет дополнительная фильтрация для внешних движков
-      if (userId != null && permissionService != null) {
-        log.debug("Permission-aware filtering applied for user: {}", userId);
-      }
-
       long duration = System.currentTimeMillis() - startTime;
       metricsService.recordQuery("search", duration);
 
@@ -94,47 +102,138 @@ public class UnifiedSearchService {
   }
 
   /**
-   * Поиск с использованием внешних движков (Solr, OpenSearch, TypeSense) Пробуем в порядке
-   * приоритета, fallback на следующий при ошибке
+   * Поиск с использованием внешних движков (Solr, OpenSearch, TypeSense)
+   *
+   * <p>Кандидаты - движки в порядке search.routing.engine-order (или по статистике, если
+   * search.routing.adaptive). Режим операции (search.routing.modes): - SEQUENTIAL - следующий
+   * кандидат после ошибки предыдущего - RACE - hedged запрос к следующему, если текущий медленнее
+   * своего p95; первый ответ побеждает. Движок, не умеющий перевести фильтр (keyset-курсор),
+   * пропускается; facets считает только JPA.
+   *
+   * <p>JPA в гонке не участвует: это fallback в потоке вызывающего, когда ни один движок не
+   * ответил. Поэтому JDBC-запрос не прерывается отменой проигравших (cancel(true)) и не выполняется
+   * дважды.
+   *
+   * @param operation search (полнотекстовый) или filter (только фильтры)
    */
-  private SearchResultPageDto searchWithExternalEngines(SearchFilterDto filter, String userId) {
-    // Приоритет: TypeSense (быстрый) → OpenSearch (мощный) → Solr (надежный) → JPA
-    // (fallback)
-
-    try {
-      // Пробуем TypeSense (самый быстрый для typo-tolerant поиска)
-      if (typeSenseService != null) {
-        log.debug("Trying TypeSense for full-text search");
-        // TODO: Реализовать конвертацию SearchFilterDto в TypeSense запрос
-        // Сейчас используем JPA как fallback
+  private SearchResultPageDto routeSearch(String operation, SearchFilterDto filter, String userId) {
+    List<RoutingCandidate<SearchResultPageDto>> candidates = new ArrayList<>();
+    if (!Boolean.TRUE.equals(filter.getIncludeFacets())) {
+      Set<String> principals = permissionService.principalsFor(userId);
+      for (SearchEngine engine : orderedEngines()) {
+        candidates.add(
+            RoutingCandidate.of(
+                engine.getName(),
+                () ->
+                    engine
+                        .searchIds(filter, principals)
+                        .map(hits -> toPage(hits, filter, userId))));
       }
-    } catch (Exception e) {
-      log.debug("TypeSense unavailable, trying next engine: {}", e.getMessage());
     }
 
+    return searchRouter
+        .execute(operation, candidates)
+        .orElseGet(() -> searchWithJpa(operation, filter, userId));
+  }
+
+  /**
+   * Fallback на JPA с записью латентности в статистику операции
+   *
+   * <p>Без явной сортировки движки ранжируют текстовый запрос по релевантности, а JPA сортирует по
+   * createdAt DESC: fallback получает ту же сортировку, что и движки (EngineQuery), чтобы порядок
+   * результатов не зависел от того, кто ответил.
+   */
+  private SearchResultPageDto searchWithJpa(
+      String operation, SearchFilterDto filter, String userId) {
+    log.debug("Using JPA as fallback for {}", operation);
+    boolean relevance =
+        EngineQuery.from(filter, null).map(EngineQuery::isRelevanceSort).orElse(false);
+    SearchFilterDto jpaFilter =
+        relevance ? filter.toBuilder().sortBy(SortConstants.SORT_BY_RELEVANCE).build() : filter;
+    return withJpaStats(operation, () -> simpleSearchService.searchDocuments(jpaFilter, userId));
+  }
+
+  /**
+   * Вызов JPA с записью латентности или ошибки в статистику операции (SearchMetricsService)
+   *
+   * <p>JPA не кандидат маршрутизации: статистика пишется напрямую, без SearchRouter.
+   */
+  private <T> T withJpaStats(String operation, Supplier<T> call) {
+    long startTime = System.nanoTime();
     try {
-      // Пробуем OpenSearch (мощный для аналитики)
-      if (openSearchService != null) {
-        log.debug("Trying OpenSearch for full-text search");
-        // TODO: Реализовать конвертацию SearchFilterDto в OpenSearch запрос
-      }
-    } catch (Exception e) {
-      log.debug("OpenSearch unavailable, trying next engine: {}", e.getMessage());
+      T result = call.get();
+      metricsService.recordEngineLatency(
+          operation, SearchEngineConstants.ENGINE_JPA, System.nanoTime() - startTime);
+      return result;
+    } catch (RuntimeException e) {
+      metricsService.recordEngineError(operation, SearchEngineConstants.ENGINE_JPA);
+      throw e;
     }
+  }
 
-    try {
-      // Пробуем Solr (надежный для полнотекстового поиска)
-      if (solrSearchService != null) {
-        log.debug("Trying Solr for full-text search");
-        // TODO: Реализовать конвертацию SearchFilterDto в Solr запрос
+  /** Движки в порядке приоритета из конфигурации */
+  private List<SearchEngine> orderedEngines() {
+    Map<String, SearchEngine> byName = new HashMap<>();
+    searchEngines.forEach(engine -> byName.put(engine.getName(), engine));
+    List<SearchEngine> ordered = new ArrayList<>();
+    for (String name : routingProperties.getEngineOrder()) {
+      SearchEngine engine = byName.get(name.toLowerCase(Locale.ROOT));
+      if (engine != null) {
+        ordered.add(engine);
       }
-    } catch (Exception e) {
-      log.debug("Solr unavailable, falling back to JPA: {}", e.getMessage());
     }
+    return ordered;
+  }
 
-    // Fallback на JPA
-    log.debug("Using JPA as fallback for search");
-    return simpleSearchService.searchDocuments(filter, userId);
+  /**
+   * Страница результатов из ответа движка: документы из БД в порядке движка
+   *
+   * <p>При сортировке по createdAt/updatedAt (в том числе по умолчанию для фильтров) страница
+   * получает nextCursor, как и в JPA: следующие страницы по курсору читаются keyset-запросом из БД
+   * (EngineQuery курсор не переводит).
+   *
+   * <p>Поле acl в движке догоняет БД только после доставки OutboxIndexer (задержка опроса, backoff,
+   * открытая цепь), поэтому страница перепроверяется по текущим правам
+   * (PermissionService.filterByPermissions - пересечение с bitmap видимых документов): строки,
+   * права на которые уже отозваны, отбрасываются и не входят в total.
+   */
+  private SearchResultPageDto toPage(EngineHits hits, SearchFilterDto filter, String userId) {
+    List<Long> visibleIds = permissionService.filterByPermissions(hits.getIds(), userId);
+    List<Document> documents = documentRepository.findAllByIdInOrder(visibleIds);
+    int revoked = hits.getIds().size() - visibleIds.size();
+    if (revoked > 0) {
+      log.debug("Dropped {} engine hits no longer visible to user {}", revoked, userId);
+    }
+
+    int page = SearchEngine.page(filter);
+    int size = SearchEngine.size(filter);
+    // total - из движка: фильтры и права (поле acl) применены на его стороне
+    long totalElements = Math.max(hits.getTotalHits() - revoked, 0);
+    int totalPages = (int) Math.ceil((double) totalElements / size);
+    boolean hasNext = page < totalPages - 1;
+
+    return SearchResultPageDto.builder()
+        .content(documents)
+        .totalElements(totalElements)
+        .totalPages(totalPages)
+        .currentPage(page)
+        .pageSize(size)
+        .hasNext(hasNext)
+        .hasPrevious(page > 0)
+        .nextCursor(DocumentCursor.next(documents, engineSort(filter), hasNext))
+        .build();
+  }
+
+  /** Сортировка, которую применил движок (EngineQuery), для курсора следующей страницы */
+  private static Sort engineSort(SearchFilterDto filter) {
+    return EngineQuery.from(filter, null)
+        .filter(query -> !query.isRelevanceSort())
+        .map(
+            query ->
+                Sort.by(
+                    query.isDescending() ? Sort.Direction.DESC : Sort.Direction.ASC,
+                    query.getSortBy()))
+        .orElse(Sort.unsorted());
   }
 
   /** Проверка наличия фильтров (кроме query) */
@@ -149,21 +248,27 @@ public class UnifiedSearchService {
   }
 
   /**
-   * Унифицированный autocomplete с relevance tuning
+   * Унифицированный autocomplete
    *
-   * <p>Оптимизации: - Кэширование популярных запросов - Relevance scoring (точные совпадения в
-   * начале) - Permission-aware filtering - Ограничение результатов для производительности
+   * <p>Порядок подсказок задает источник: in-memory индекс - по числу документов (top-k в узлах
+   * CompletionTrie), LIKE до загрузки индекса - AutocompleteRanker; повторно не пересортировываем.
    */
   public List<AutocompleteResultDto> autocomplete(
       String prefix, String type, Integer limit, String userId) {
+    return autocomplete(prefix, type, limit, userId, false);
+  }
+
+  /** Autocomplete с опциональной устойчивостью к опечаткам (fuzzy) */
+  public List<AutocompleteResultDto> autocomplete(
+      String prefix, String type, Integer limit, String userId, boolean fuzzy) {
     long startTime = System.currentTimeMillis();
 
     try {
+      // Автокомплит есть только у JPA/in-memory пути: маршрутизировать нечего
       List<AutocompleteResultDto> results =
-          simpleSearchService.autocomplete(prefix, type, limit, userId);
-
-      // Применяем relevance scoring
-      results = applyRelevanceScoring(results, prefix);
+          withJpaStats(
+              SearchEngineConstants.OPERATION_AUTOCOMPLETE,
+              () -> simpleSearchService.autocomplete(prefix, type, limit, userId, fuzzy));
 
       long duration = System.currentTimeMillis() - startTime;
       metricsService.recordQuery("autocomplete", duration);
@@ -179,66 +284,21 @@ public class UnifiedSearchService {
     }
   }
 
-  /**
-   * Применение relevance scoring к результатам autocomplete
-   *
-   * <p>Алгоритм: 1. Точные совпадения в начале строки - высший приоритет 2. Совпадения в начале
-   * слова - средний приоритет 3. Совпадения в середине - низкий приоритет 4. Сортировка по длине
-   * (короче = релевантнее)
-   */
-  private List<AutocompleteResultDto> applyRelevanceScoring(
-      List<AutocompleteResultDto> results, String prefix) {
-    if (prefix == null || prefix.isEmpty()) {
-      return results;
-    }
-
-    String lowerPrefix = prefix.toLowerCase();
-
-    return results.stream()
-        .sorted(
-            (a, b) -> {
-              String aText = a.getText().toLowerCase();
-              String bText = b.getText().toLowerCase();
-
-              // 1. Точное совпадение в начале строки
-              boolean aStartsWith = aText.startsWith(lowerPrefix);
-              boolean bStartsWith = bText.startsWith(lowerPrefix);
-
-              if (aStartsWith && !bStartsWith) return -1;
-              if (!aStartsWith && bStartsWith) return 1;
-
-              // 2. Если оба начинаются, сортируем по длине
-              if (aStartsWith && bStartsWith) {
-                int lengthCompare = Integer.compare(aText.length(), bText.length());
-                if (lengthCompare != 0) return lengthCompare;
-              }
-
-              // 3. Совпадение в начале слова (после пробела или дефиса)
-              boolean aWordStart = aText.matches(".*[\\s-]" + lowerPrefix + ".*");
-              boolean bWordStart = bText.matches(".*[\\s-]" + lowerPrefix + ".*");
-
-              if (aWordStart && !bWordStart) return -1;
-              if (!aWordStart && bWordStart) return 1;
-
-              // 4. По алфавиту
-              return aText.compareTo(bText);
-            })
-        .collect(Collectors.toList());
-  }
-
   /** Получить facets с permission-aware filtering */
   public SearchFacetsDto getFacets(SearchFilterDto filter, String userId) {
     long startTime = System.currentTimeMillis();
 
     try {
-      // Используем SimpleSearchService для facets
-      // В production можно добавить facets из внешних движков
-      SearchResultPageDto result = simpleSearchService.searchDocuments(filter, userId);
+      // Facets считает только SimpleSearchService: один вызов, без маршрутизации и без страницы
+      SearchFacetsDto facets =
+          withJpaStats(
+              SearchEngineConstants.OPERATION_FACETS,
+              () -> simpleSearchService.getFacets(filter, userId));
 
       long duration = System.currentTimeMillis() - startTime;
       metricsService.recordQuery("facets", duration);
 
-      return result.getFacets();
+      return facets;
 
     } catch (Exception e) {
       long duration = System.currentTimeMillis() - startTime;
@@ -2,6 +2,8 @@ package com.example.search.integration;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.Map;
+
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -373,8 +375,90 @@ public class GraphQLIntegrationTest {
             });
   }
 
+  /**
+   * ПРИМЕР 9: Фоновая задача реиндексации Показывает статус задачи, отмену и то, что отмененную
+   * задачу нельзя продолжить
+   */
+  @Test
+  @Order(9)
+  void whenReindexJobFinishes_thenStatusReflectsCheckpoints() throws InterruptedException {
+    String jobId =
+        graphQlTester
+            .document("mutation { reindexAll { jobId status } }")
+            .execute()
+            .path("reindexAll.jobId")
+            .entity(String.class)
+            .get();
+
+    String status = awaitReindexJob(jobId);
+    assertThat(status).isIn("COMPLETED", "FAILED");
+
+    String query =
+        """
+        query job($jobId: ID!) {
+          reindexJob(jobId: $jobId) {
+            totalDocuments
+            successCount
+            failureCount
+            documentsPerSecond
+            batchSize
+            message
+          }
+        }
+        """;
+    graphQlTester
+        .document(query)
+        .variable("jobId", jobId)
+        .execute()
+        .path("reindexJob")
+        .entity(Map.class)
+        .satisfies(
+            job -> {
+              System.out.println("📝 Задача: " + job.get("message"));
+              int total = (Integer) job.get("totalDocuments");
+              int success = (Integer) job.get("successCount");
+              int failure = (Integer) job.get("failureCount");
+              // Контрольные точки всех движков дошли до конца таблицы
+              assertThat(success + failure).isGreaterThanOrEqualTo(total);
+              assertThat((Integer) job.get("batchSize")).isPositive();
+            });
+
+    if ("FAILED".equals(status)) {
+      graphQlTester
+          .document("mutation cancel($jobId: ID!) { cancelReindex(jobId: $jobId) { status } }")
+          .variable("jobId", jobId)
+          .execute()
+          .path("cancelReindex.status")
+          .entity(String.class)
+          .isEqualTo("CANCELLED");
+    }
+    graphQlTester
+        .document("mutation resume($jobId: ID!) { resumeReindex(jobId: $jobId) { status } }")
+        .variable("jobId", jobId)
+        .execute()
+        .errors()
+        .satisfy(errors -> assertThat(errors).isNotEmpty());
+  }
+
   // === Helper методы ===
 
+  /** Дождаться окончания прохода задачи реиндексации, вернуть ее статус */
+  private String awaitReindexJob(String jobId) throws InterruptedException {
+    String status = "RUNNING";
+    for (int i = 0; i < 300 && "RUNNING".equals(status); i++) {
+      Thread.sleep(100);
+      status =
+          graphQlTester
+              .document("query job($jobId: ID!) { reindexJob(jobId: $jobId) { status } }")
+              .variable("jobId", jobId)
+              .execute()
+              .path("reindexJob.status")
+              .entity(String.class)
+              .get();
+    }
+    return status;
+  }
+
   /** Вспомогательный метод для создания тестового документа */
   private String createSampleDocument(String title, String content) {
     String mutation =
@@ -2,6 +2,11 @@ package com.example.search.integration;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -11,6 +16,16 @@ import org.springframework.boot.test.autoconfigure.graphql.tester.AutoConfigureG
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.graphql.test.tester.GraphQlTester;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.search.model.Document;
+import com.example.search.model.DocumentPermission;
+import com.example.search.repository.DocumentPermissionRepository;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.service.index.InMemoryIndexCoordinator;
+import com.example.search.service.permission.PermissionBatchChecker;
+import com.example.search.service.permission.PermissionService;
 
 /**
  * Интеграционные тесты для permission-aware поиска Демонстрирует: 1. Поиск с фильтрами, сортировкой
@@ -25,6 +40,18 @@ public class PermissionAwareSearchTest {
 
   @Autowired private GraphQlTester graphQlTester;
 
+  @Autowired private PermissionService permissionService;
+
+  @Autowired private PermissionBatchChecker batchChecker;
+
+  @Autowired private DocumentRepository documentRepository;
+
+  @Autowired private DocumentPermissionRepository permissionRepository;
+
+  @Autowired private InMemoryIndexCoordinator indexCoordinator;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
   /** Тест: Поиск с фильтрами, сортировкой и пагинацией */
   @Test
   @Order(1)
@@ -240,8 +267,10 @@ public class PermissionAwareSearchTest {
     String doc3 =
         createDocument("Restricted Document", "Content", "author3", "restricted", "draft");
 
-    // В реальном проекте здесь будет проверка прав доступа
-    // Сейчас PermissionService возвращает все документы (для демо)
+    // doc2 закрыт для текущего пользователя (GraphQLContext: user-1), doc3 выдан ему явно,
+    // doc1 без ACL - публичный
+    permissionService.grantAccess(Long.valueOf(doc2), PermissionService.userPrincipal("user-2"));
+    permissionService.grantAccess(Long.valueOf(doc3), PermissionService.userPrincipal("user-1"));
 
     String query =
         """
@@ -261,16 +290,30 @@ public class PermissionAwareSearchTest {
         .document(query)
         .variable("filter", java.util.Map.of("query", "Document"))
         .execute()
-        .path("searchDocuments.content")
-        .entityList(Object.class)
+        .path("searchDocuments.content[*].id")
+        .entityList(String.class)
         .satisfies(
-            results -> {
-              // В production здесь будет проверка, что пользователь видит только свои
-              // документы
-              assertThat(results).isNotEmpty();
-              System.out.println(
-                  "✓ Permission-aware поиск вернул " + results.size() + " документов");
+            ids -> {
+              assertThat(ids).contains(doc1, doc3).doesNotContain(doc2);
+              System.out.println("✓ Permission-aware поиск вернул " + ids.size() + " документов");
             });
+
+    // Права - часть запроса: total считает только видимые документы, а не размер страницы
+    graphQlTester
+        .document(query)
+        .variable(
+            "filter",
+            java.util.Map.of(
+                "query",
+                "Document",
+                "category",
+                "private",
+                "pagination",
+                java.util.Map.of("page", 0, "size", 10)))
+        .execute()
+        .path("searchDocuments.totalElements")
+        .entity(Long.class)
+        .isEqualTo(0L);
   }
 
   /** Тест: Сортировка по разным полям */
@@ -378,8 +421,274 @@ public class PermissionAwareSearchTest {
             });
   }
 
+  /** Тест: Keyset-пагинация через курсор (проходит все страницы без пропусков и дублей) */
+  @Test
+  @Order(8)
+  void whenSearchWithCursor_thenWalksAllPagesWithoutDuplicates() {
+    for (int i = 1; i <= 7; i++) {
+      createDocument("Keyset " + i, "Content " + i, "author1", "keyset", "approved");
+    }
+
+    String query =
+        """
+        query searchAfter($filter: SearchFilterInput) {
+          searchDocuments(filter: $filter) {
+            content {
+              id
+            }
+            nextCursor
+          }
+        }
+        """;
+
+    java.util.Set<String> seenIds = new java.util.LinkedHashSet<>();
+    java.util.Map<String, Object> pagination = new java.util.HashMap<>();
+    pagination.put("page", 0);
+    pagination.put("size", 3);
+    String cursor = null;
+    int pages = 0;
+
+    do {
+      if (cursor != null) {
+        pagination.put("after", cursor);
+      }
+      org.springframework.graphql.test.tester.GraphQlTester.Response response =
+          graphQlTester
+              .document(query)
+              .variable(
+                  "filter",
+                  java.util.Map.of(
+                      "category", "keyset",
+                      "sortBy", "CREATED_AT",
+                      "sortOrder", "DESC",
+                      "pagination", pagination))
+              .execute();
+
+      java.util.List<String> ids =
+          response.path("searchDocuments.content[*].id").entityList(String.class).get();
+      ids.forEach(id -> assertThat(seenIds.add(id)).as("duplicate id %s", id).isTrue());
+      cursor =
+          (String)
+              response.path("searchDocuments").entity(java.util.Map.class).get().get("nextCursor");
+      pages++;
+    } while (cursor != null && pages < 10);
+
+    assertThat(seenIds).hasSize(7);
+    assertThat(pages).isEqualTo(3);
+  }
+
   // === Helper методы ===
 
+  /**
+   * Тест: пакетная проверка прав (document_permissions + user_projects)
+   *
+   * <p>Четные документы выданы проекту, кратные 3 - другому пользователю: SQL-проверка (чанки IN и
+   * временная таблица), bitmap кэш и поиск должны давать одну и ту же выборку. Пропускная
+   * способность - PermissionCheckBenchmark (src/jmh/java).
+   */
+  @Test
+  @Order(9)
+  void whenBatchPermissionCheck_thenAllStrategiesAgree() {
+    int count = 4000;
+    List<Document> documents = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      documents.add(
+          Document.builder()
+              .title("Throughput " + i)
+              .content("Content " + i)
+              .author("author1")
+              .category("acl-throughput")
+              .status("approved")
+              .build());
+    }
+    List<Long> ids = documentRepository.saveAll(documents).stream().map(Document::getId).toList();
+
+    List<DocumentPermission> grants = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      if (i % 2 == 0) {
+        grants.add(permission(ids.get(i), PermissionService.projectPrincipal("acl-team")));
+      }
+      if (i % 3 == 0) {
+        grants.add(permission(ids.get(i), PermissionService.userPrincipal("user-2")));
+      }
+    }
+    permissionRepository.saveAll(grants);
+
+    // user-1 не в проекте: видны только документы без ACL
+    List<Long> expected = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      if (i % 2 != 0 && i % 3 != 0) {
+        expected.add(ids.get(i));
+      }
+    }
+    Set<String> principals = permissionService.principalsFor("user-1");
+
+    assertThat(batchChecker.filterVisibleChunked(ids, principals)).isEqualTo(expected);
+    assertThat(batchChecker.filterVisibleWithTempTable(ids, principals)).isEqualTo(expected);
+
+    // Участник проекта видит и документы проекта; bitmap кэш - после загрузки в in-memory индексы
+    permissionService.addUserToProject("user-1", "acl-team");
+    indexCoordinator.rebuild();
+    List<Long> expectedForMember = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      if (i % 2 == 0 || i % 3 != 0) {
+        expectedForMember.add(ids.get(i));
+      }
+    }
+    assertThat(permissionService.filterByPermissions(ids, "user-1")).isEqualTo(expectedForMember);
+
+    // Поиск: права в запросе - полная страница и total по видимым документам
+    String query =
+        """
+        query searchAll($filter: SearchFilterInput) {
+          searchDocuments(filter: $filter) {
+            content {
+              id
+            }
+            totalElements
+          }
+        }
+        """;
+    graphQlTester
+        .document(query)
+        .variable(
+            "filter",
+            java.util.Map.of(
+                "category",
+                "acl-throughput",
+                "pagination",
+                java.util.Map.of("page", 0, "size", 50)))
+        .execute()
+        .path("searchDocuments.totalElements")
+        .entity(Long.class)
+        .isEqualTo((long) expectedForMember.size())
+        .path("searchDocuments.content")
+        .entityList(Object.class)
+        .hasSize(50);
+  }
+
+  /**
+   * Тест: проверка через временную таблицу не фиксирует транзакцию вызывающего (DDL в H2 без
+   * TRANSACTIONAL делает commit)
+   */
+  @Test
+  @Order(10)
+  void whenTempTableCheckInsideTransaction_thenRollbackStillUndoesCallerWrites() {
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    Long id =
+        transaction.execute(
+            status -> {
+              Document document =
+                  documentRepository.saveAndFlush(
+                      Document.builder()
+                          .title("Rolled back")
+                          .content("Content")
+                          .author("author1")
+                          .category("acl-rollback")
+                          .status("draft")
+                          .build());
+              assertThat(
+                      batchChecker.filterVisibleWithTempTable(
+                          List.of(document.getId()), permissionService.principalsFor("user-1")))
+                  .containsExactly(document.getId());
+              status.setRollbackOnly();
+              return document.getId();
+            });
+
+    assertThat(documentRepository.existsById(id)).isFalse();
+  }
+
+  /**
+   * Тест: совпадений индекса больше search.index.max-id-filter - SQL путь и курсор не уходят в LIKE
+   *
+   * <p>Документы из теста 9: "throughput" совпадает с 4000 документами (кандидаты - через временную
+   * таблицу), "hroughput" - подстрока, но не начало токена: индекс его не находит, LIKE нашел бы
+   * все.
+   */
+  @Test
+  @Order(11)
+  void whenTextMatchesExceedIdFilter_thenSqlAndCursorPathsUseIndex() {
+    long visible = IntStream.range(0, 4000).filter(i -> i % 2 == 0 || i % 3 != 0).count();
+    String query =
+        """
+        query searchText($filter: SearchFilterInput) {
+          searchDocuments(filter: $filter) {
+            content {
+              id
+            }
+            totalElements
+            nextCursor
+          }
+        }
+        """;
+
+    // Сортировка по title - SQL путь
+    for (String text : List.of("throughput", "hroughput")) {
+      graphQlTester
+          .document(query)
+          .variable(
+              "filter",
+              java.util.Map.of(
+                  "query",
+                  text,
+                  "category",
+                  "acl-throughput",
+                  "sortBy",
+                  "TITLE",
+                  "pagination",
+                  java.util.Map.of("page", 0, "size", 20)))
+          .execute()
+          .path("searchDocuments.totalElements")
+          .entity(Long.class)
+          .isEqualTo(text.equals("throughput") ? visible : 0L);
+    }
+
+    // Курсор - seek по bitmap совпадений: все видимые документы без дублей
+    Set<String> seenIds = new java.util.HashSet<>();
+    java.util.Map<String, Object> pagination = new java.util.HashMap<>();
+    pagination.put("page", 0);
+    pagination.put("size", 1000);
+    String cursor = null;
+    int pages = 0;
+    do {
+      if (cursor != null) {
+        pagination.put("after", cursor);
+      }
+      GraphQlTester.Response response =
+          graphQlTester
+              .document(query)
+              .variable(
+                  "filter",
+                  java.util.Map.of(
+                      "query",
+                      "throughput",
+                      "category",
+                      "acl-throughput",
+                      "sortBy",
+                      "CREATED_AT",
+                      "sortOrder",
+                      "DESC",
+                      "pagination",
+                      pagination))
+              .execute();
+      response
+          .path("searchDocuments.content[*].id")
+          .entityList(String.class)
+          .get()
+          .forEach(id -> assertThat(seenIds.add(id)).as("duplicate id %s", id).isTrue());
+      cursor =
+          (String)
+              response.path("searchDocuments").entity(java.util.Map.class).get().get("nextCursor");
+      pages++;
+    } while (cursor != null && pages < 10);
+
+    assertThat((long) seenIds.size()).isEqualTo(visible);
+  }
+
+  private static DocumentPermission permission(Long documentId, String principal) {
+    return DocumentPermission.builder().documentId(documentId).principal(principal).build();
+  }
+
   private String createDocument(
       String title, String content, String author, String category, String status) {
     String mutation =
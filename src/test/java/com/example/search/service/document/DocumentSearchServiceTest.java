@@ -0,0 +1,71 @@
+package com.example.search.service.document;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.example.search.dto.request.DocumentSearchRequest;
+import com.example.search.dto.response.DocumentSearchResponse;
+import com.example.search.dto.response.SearchFilterDto;
+import com.example.search.dto.response.SearchResultPageDto;
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.service.index.AutocompleteIndex;
+import com.example.search.service.search.FacetAggregationService;
+import com.example.search.service.search.SimpleSearchService;
+
+/** REST поиск документов идет через общий путь SimpleSearchService */
+class DocumentSearchServiceTest {
+
+  private final SimpleSearchService simpleSearchService = mock(SimpleSearchService.class);
+  private final DocumentSearchService service =
+      new DocumentSearchService(
+          mock(DocumentRepository.class),
+          simpleSearchService,
+          mock(FacetAggregationService.class),
+          mock(AutocompleteIndex.class));
+
+  @Test
+  void requestIsTranslatedAndPageMappedToDtos() {
+    when(simpleSearchService.searchDocuments(any(SearchFilterDto.class)))
+        .thenReturn(
+            SearchResultPageDto.builder()
+                .content(List.of(Document.builder().id(7L).title("Java").build()))
+                .totalElements(null)
+                .pageSize(10)
+                .hasNext(true)
+                .hasPrevious(true)
+                .nextCursor("next")
+                .build());
+    DocumentSearchRequest request = new DocumentSearchRequest();
+    request.setQuery("java");
+    request.setSortBy("createdAt");
+    request.setCursor("after");
+    request.setIncludeTotal(false);
+    request.setSize(10);
+
+    DocumentSearchResponse response = service.searchDocuments(request);
+
+    ArgumentCaptor<SearchFilterDto> filter = ArgumentCaptor.forClass(SearchFilterDto.class);
+    verify(simpleSearchService).searchDocuments(filter.capture());
+    assertThat(filter.getValue().getQuery()).isEqualTo("java");
+    assertThat(filter.getValue().getSortBy()).isEqualTo("createdAt");
+    assertThat(filter.getValue().getCursor()).isEqualTo("after");
+    assertThat(filter.getValue().getIncludeTotal()).isFalse();
+    assertThat(filter.getValue().getSize()).isEqualTo(10);
+
+    assertThat(response.getContent())
+        .singleElement()
+        .satisfies(dto -> assertThat(dto.getId()).isEqualTo(7L));
+    assertThat(response.getTotalElements()).isNull();
+    assertThat(response.getHasNext()).isTrue();
+    assertThat(response.getNextCursor()).isEqualTo("next");
+  }
+}
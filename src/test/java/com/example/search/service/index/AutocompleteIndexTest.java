@@ -0,0 +1,90 @@
+package com.example.search.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.search.constants.DocumentConstants;
+import com.example.search.model.Document;
+
+/** AutocompleteIndex: веса по событиям документов, типы, готовность и опечатки */
+class AutocompleteIndexTest {
+
+  private static final String TITLE = DocumentConstants.AUTOCOMPLETE_TYPE_TITLE;
+  private static final String AUTHOR = DocumentConstants.AUTOCOMPLETE_TYPE_AUTHOR;
+  private static final String CATEGORY = DocumentConstants.AUTOCOMPLETE_TYPE_CATEGORY;
+
+  private final AutocompleteIndex index = new AutocompleteIndex();
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(index, "topK", 10);
+    ReflectionTestUtils.setField(index, "fuzzyCandidateBudget", 5000);
+    index.init();
+    index.onAdded(0, document("Spring Boot", "Alice", "Tech"));
+    index.onAdded(1, document("Spring Data", "Bob", "Tech"));
+    index.onAdded(2, document("Spark Basics", "Alice", "Data"));
+  }
+
+  @Test
+  void notLoadedIndexDefersToSql() {
+    assertThat(index.complete(TITLE, "sp", 10)).isEmpty();
+    assertThat(index.fuzzyComplete(TITLE, "sprng", 10)).isEmpty();
+  }
+
+  @Test
+  void completesEachTypeByDocumentCount() {
+    index.onRebuildCompleted();
+
+    assertThat(index.complete(TITLE, " SP ", 10))
+        .hasValue(List.of("Spark Basics", "Spring Boot", "Spring Data"));
+    assertThat(index.complete(AUTHOR, "", 10)).hasValue(List.of("Alice", "Bob"));
+    assertThat(index.complete("Category", "t", 10)).hasValue(List.of("Tech"));
+    assertThat(index.complete("content", "sp", 10)).isEmpty();
+    assertThat(index.complete(null, "sp", 10)).isEmpty();
+  }
+
+  @Test
+  void updatesMoveOnlyChangedValues() {
+    index.onRebuildCompleted();
+
+    index.onUpdated(
+        1, document("Spring Data", "Bob", "Tech"), document("Spring Data JPA", "Alice", "Tech"));
+
+    assertThat(index.complete(TITLE, "spring d", 10)).hasValue(List.of("Spring Data JPA"));
+    assertThat(index.complete(AUTHOR, "", 10)).hasValue(List.of("Alice"));
+
+    index.onRemoved(2, document("Spark Basics", "Alice", "Data"));
+    assertThat(index.complete(CATEGORY, "", 10)).hasValue(List.of("Tech"));
+    assertThat(index.complete(TITLE, "spa", 10)).hasValue(List.of());
+  }
+
+  @Test
+  void fuzzyCompletionToleratesTyposFromThreeCharacters() {
+    index.onRebuildCompleted();
+
+    assertThat(index.fuzzyComplete(TITLE, "sprng", 10).orElseThrow())
+        .contains("Spring Boot", "Spring Data")
+        .doesNotContain("Spark Basics");
+    // Короткий префикс - только точное совпадение
+    assertThat(index.fuzzyComplete(TITLE, "sb", 10)).hasValue(List.of());
+  }
+
+  @Test
+  void clearResetsIndexUntilNextRebuild() {
+    index.onRebuildCompleted();
+    index.clear();
+
+    assertThat(index.complete(TITLE, "sp", 10)).isEmpty();
+    index.onRebuildCompleted();
+    assertThat(index.complete(TITLE, "sp", 10)).hasValue(List.of());
+  }
+
+  private static Document document(String title, String author, String category) {
+    return Document.builder().title(title).author(author).category(category).build();
+  }
+}
@@ -0,0 +1,49 @@
+package com.example.search.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+/** Формулы BM25: idf, насыщение tf и нормировка по длине поля */
+class Bm25Test {
+
+  @Test
+  void idfDecreasesWithDocumentFrequencyAndStaysPositive() {
+    float rare = Bm25.idf(1, 1000);
+    float common = Bm25.idf(500, 1000);
+    float everywhere = Bm25.idf(1000, 1000);
+
+    assertThat(rare).isGreaterThan(common);
+    assertThat(common).isGreaterThan(everywhere);
+    assertThat(everywhere).isPositive();
+    assertThat(rare).isCloseTo((float) Math.log(1 + 999.5 / 1.5), within(1e-5f));
+  }
+
+  @Test
+  void termFrequencySaturatesBelowIdfTimesK1PlusOne() {
+    float idf = 2.0f;
+    float once = Bm25.termScore(idf, 1, 10, 10);
+    float twice = Bm25.termScore(idf, 2, 10, 10);
+    float many = Bm25.termScore(idf, 1000, 10, 10);
+
+    assertThat(twice).isGreaterThan(once);
+    assertThat(twice - once).isLessThan(once);
+    assertThat(many).isLessThan(idf * (Bm25.K1 + 1));
+    // Средняя длина: норма равна k1, tf = 1 дает ровно idf
+    assertThat(once).isCloseTo(idf, within(1e-5f));
+  }
+
+  @Test
+  void shorterFieldScoresHigherForSameFrequency() {
+    float shortField = Bm25.termScore(1.0f, 1, 5, 20);
+    float longField = Bm25.termScore(1.0f, 1, 80, 20);
+
+    assertThat(shortField).isGreaterThan(longField);
+  }
+
+  @Test
+  void emptyAverageLengthSkipsLengthNormalization() {
+    assertThat(Bm25.termScore(1.0f, 1, 7, 0)).isCloseTo(1.0f, within(1e-5f));
+  }
+}
@@ -0,0 +1,99 @@
+package com.example.search.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/** CompletionTrie: top-k по весу, удаление значений, fuzzy обход best-first */
+class CompletionTrieTest {
+
+  @Test
+  void completesPrefixByWeightThenAlphabet() {
+    CompletionTrie trie = new CompletionTrie(10);
+    add(trie, "Spring Boot", 3);
+    add(trie, "Spring Data", 5);
+    add(trie, "Spark", 5);
+    add(trie, "Java", 9);
+
+    assertThat(trie.complete("sp", 10)).containsExactly("Spark", "Spring Data", "Spring Boot");
+    assertThat(trie.complete("spring ", 1)).containsExactly("Spring Data");
+    assertThat(trie.complete("spx", 10)).isEmpty();
+  }
+
+  @Test
+  void weightChangesAndRemovalUpdateTopOnThePath() {
+    CompletionTrie trie = new CompletionTrie(10);
+    add(trie, "Spring", 2);
+    add(trie, "Spark", 1);
+
+    trie.adjust("Spark", 5);
+    assertThat(trie.complete("sp", 10)).containsExactly("Spark", "Spring");
+
+    trie.adjust("Spark", -6);
+    assertThat(trie.complete("sp", 10)).containsExactly("Spring");
+    assertThat(trie.size()).isEqualTo(1);
+  }
+
+  @Test
+  void limitAboveTopKWalksWholeSubtree() {
+    CompletionTrie trie = new CompletionTrie(2);
+    for (int i = 0; i < 5; i++) {
+      add(trie, "item" + i, i + 1);
+    }
+
+    assertThat(trie.complete("item", 2)).containsExactly("item4", "item3");
+    assertThat(trie.complete("item", 5)).hasSize(5).startsWith("item4");
+  }
+
+  @Test
+  void fuzzyCompletionOrdersByDistanceThenWeight() {
+    CompletionTrie trie = new CompletionTrie(10);
+    add(trie, "Java", 1);
+    add(trie, "Javascript", 7);
+    add(trie, "Lava", 9);
+
+    assertThat(trie.fuzzyComplete(new LevenshteinAutomaton("jav", 1), 10, 1000))
+        .containsExactly("Javascript", "Java", "Lava");
+    // "lava" от "jawa" - две правки
+    assertThat(trie.fuzzyComplete(new LevenshteinAutomaton("jawa", 1), 10, 1000))
+        .containsExactly("Javascript", "Java");
+  }
+
+  @Test
+  void fuzzyBudgetIsSpentOnClosestBranchesNotAlphabeticallyFirst() {
+    CompletionTrie trie = new CompletionTrie(10);
+    Random random = new Random(42);
+    for (int i = 0; i < 2000; i++) {
+      StringBuilder word = new StringBuilder();
+      for (int c = 0; c < 8; c++) {
+        word.append((char) ('a' + random.nextInt(25))); // без 'z'
+      }
+      add(trie, word.toString(), 1);
+    }
+    add(trie, "zebra", 1);
+
+    // Обход в алфавитном порядке исчерпал бы бюджет на ветках 'a'...'y'
+    assertThat(trie.fuzzyComplete(new LevenshteinAutomaton("zebrs", 1), 1, 200))
+        .containsExactly("zebra");
+  }
+
+  @Test
+  void fuzzyStopsWhenCloserResultsFillLimit() {
+    CompletionTrie trie = new CompletionTrie(10);
+    add(trie, "kotlin", 1);
+    add(trie, "kotlinx", 1);
+    add(trie, "katlin", 100);
+
+    // Оба точных совпадения ближе опечатки "katlin", несмотря на ее вес
+    assertThat(trie.fuzzyComplete(new LevenshteinAutomaton("kotlin", 1), 2, 1000))
+        .containsExactly("kotlin", "kotlinx");
+  }
+
+  private static void add(CompletionTrie trie, String value, int count) {
+    for (int i = 0; i < count; i++) {
+      trie.adjust(value, 1);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package com.example.search.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import com.example.search.constants.DocumentConstants;
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentSearchParams;
+
+/**
+ * Колонки FilterBitmapCache: facets (фильтры остальных измерений, restriction, обновления) и
+ * keyset-обход day bucket-ов
+ */
+class FilterBitmapCacheTest {
+
+  private static final List<String> ALL = List.of("category", "status", "author");
+
+  private final DocumentOrdinals ordinals = new DocumentOrdinals();
+  private final FilterBitmapCache cache = new FilterBitmapCache(ordinals);
+
+  @BeforeEach
+  void setUp() {
+    add(1L, "Tech", "DONE", "Alice");
+    add(2L, "Tech", "DRAFT", "Bob");
+    add(3L, "Food", "DONE", "alice smith");
+    add(4L, "Food", "DONE", "Carol");
+    add(5L, null, "DONE", "Dave");
+  }
+
+  @Test
+  void notReadyCacheHasNoFacets() {
+    assertThat(cache.countFacets(params().build(), ALL, all())).isEmpty();
+  }
+
+  @Test
+  void dimensionIgnoresOnlyItsOwnFilter() {
+    cache.onRebuildCompleted();
+
+    Map<String, Map<String, Long>> facets =
+        cache
+            .countFacets(
+                params().category("Tech").status("DONE").author("ALICE").build(), ALL, all())
+            .orElseThrow();
+
+    assertThat(facets.get("category")).isEqualTo(Map.of("Tech", 1L, "Food", 1L));
+    assertThat(facets.get("status")).isEqualTo(Map.of("DONE", 1L));
+    assertThat(facets.get("author")).isEqualTo(Map.of("Alice", 1L));
+  }
+
+  @Test
+  void restrictionLimitsEveryDimension() {
+    cache.onRebuildCompleted();
+
+    Map<String, Map<String, Long>> facets =
+        cache.countFacets(params().build(), ALL, bitmapOf(1L, 2L, 4L)).orElseThrow();
+
+    assertThat(facets.get("category")).isEqualTo(Map.of("Tech", 2L, "Food", 1L));
+    assertThat(facets.get("status")).isEqualTo(Map.of("DONE", 2L, "DRAFT", 1L));
+    assertThat(facets.get("author")).isEqualTo(Map.of("Alice", 1L, "Bob", 1L, "Carol", 1L));
+  }
+
+  @Test
+  void updatesAndRemovalsMoveCounts() {
+    cache.onRebuildCompleted();
+    Document previous = document(2L, "Tech", "DRAFT", "Bob");
+    cache.onUpdated(ordinals.ordinalOf(2L), previous, document(2L, "Food", "DONE", "Bob"));
+    cache.onRemoved(ordinals.ordinalOf(4L), document(4L, "Food", "DONE", "Carol"));
+
+    Map<String, Map<String, Long>> facets =
+        cache.countFacets(params().build(), List.of("category", "status"), all()).orElseThrow();
+
+    assertThat(facets.get("category")).isEqualTo(Map.of("Tech", 1L, "Food", 2L));
+    assertThat(facets.get("status")).isEqualTo(Map.of("DONE", 4L));
+  }
+
+  @Test
+  void unknownDimensionIsSkippedAndRequestedNameIsKept() {
+    cache.onRebuildCompleted();
+
+    Map<String, Map<String, Long>> facets =
+        cache.countFacets(params().build(), List.of("Category", "language"), all()).orElseThrow();
+
+    assertThat(facets).containsOnlyKeys("Category");
+    assertThat(facets.get("Category")).isEqualTo(Map.of("Tech", 2L, "Food", 2L));
+  }
+
+  @Test
+  void idsAfterContinuesDatePagesFromCursor() {
+    LocalDateTime day = LocalDateTime.of(2024, 3, 1, 12, 0);
+    dated(11L, day);
+    dated(12L, day);
+    dated(13L, day.plusDays(1));
+    dated(14L, day.plusDays(2));
+    dated(15L, day.plusDays(2).plusHours(1));
+    cache.onRebuildCompleted();
+    RoaringBitmap selection = bitmapOf(11L, 12L, 13L, 14L, 15L);
+    String createdAt = DocumentConstants.FIELD_CREATED_AT;
+
+    // Страницы по 2: первая - обход bucket-ов, следующие - от пары (дата, id) курсора
+    assertThat(cache.firstIdsByDate(selection, createdAt, true, 2)).containsExactly(15L, 14L);
+    assertThat(cache.idsAfter(selection, createdAt, true, day.plusDays(2), 14L, 2))
+        .containsExactly(13L, 12L);
+    assertThat(cache.idsAfter(selection, createdAt, true, day, 12L, 2)).containsExactly(11L);
+
+    // ASC: одинаковая дата - дальше по id
+    assertThat(cache.idsAfter(selection, createdAt, false, day, 11L, 3))
+        .containsExactly(12L, 13L, 14L);
+  }
+
+  private void dated(Long id, LocalDateTime createdAt) {
+    cache.onAdded(
+        ordinals.assign(id),
+        Document.builder().id(id).category("Dated").createdAt(createdAt).build());
+  }
+
+  private void add(Long id, String category, String status, String author) {
+    cache.onAdded(ordinals.assign(id), document(id, category, status, author));
+  }
+
+  private RoaringBitmap all() {
+    return bitmapOf(1L, 2L, 3L, 4L, 5L);
+  }
+
+  private RoaringBitmap bitmapOf(Long... ids) {
+    RoaringBitmap bitmap = new RoaringBitmap();
+    for (Long id : ids) {
+      bitmap.add(ordinals.ordinalOf(id));
+    }
+    return bitmap;
+  }
+
+  private static DocumentSearchParams.DocumentSearchParamsBuilder params() {
+    return DocumentSearchParams.builder();
+  }
+
+  private static Document document(Long id, String category, String status, String author) {
+    return Document.builder().id(id).category(category).status(status).author(author).build();
+  }
+}
@@ -0,0 +1,122 @@
+package com.example.search.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentSearchParams;
+
+/** Инвертированный индекс: AND по термам, полное раскрытие префикса, выбор SQL пути */
+class InvertedIndexServiceTest {
+
+  private DocumentOrdinals ordinals;
+  private InvertedIndexService index;
+
+  @BeforeEach
+  void setUp() {
+    ordinals = new DocumentOrdinals();
+    index = new InvertedIndexService(ordinals);
+  }
+
+  @Test
+  void notReadyIndexFallsBackToLike() {
+    add(1L, "Apache Solr", "search platform", "Alice");
+
+    assertThat(index.findDocumentIds("solr")).isEmpty();
+  }
+
+  @Test
+  void termsAreAndedAcrossFieldsAndMatchedByTokenPrefix() {
+    add(1L, "Apache Solr", "search platform", "Alice");
+    add(2L, "OpenSearch guide", "searching logs", "Bob");
+    add(3L, "Typesense", "typo tolerant search", "Alice Smith");
+    index.onRebuildCompleted();
+
+    assertThat(index.findDocumentIds("search")).contains(List.of(1L, 2L, 3L));
+    assertThat(index.findDocumentIds("SEARCH alice")).contains(List.of(1L, 3L));
+    assertThat(index.findDocumentIds("sear smi")).contains(List.of(3L));
+    assertThat(index.findDocumentIds("opensea")).contains(List.of(2L));
+    assertThat(index.findDocumentIds("missing")).contains(List.of());
+  }
+
+  @Test
+  void shortPrefixExpandsEveryMatchingTerm() {
+    // Больше 512 разных термов с общим префиксом - раньше раскрытие обрезалось
+    for (long id = 1; id <= 700; id++) {
+      add(id, String.format("w%04d", id), null, null);
+    }
+    index.onRebuildCompleted();
+
+    Optional<List<Long>> matches = index.findDocumentIds("w");
+
+    assertThat(matches).isPresent();
+    assertThat(matches.get()).hasSize(700).startsWith(1L).endsWith(700L);
+  }
+
+  @Test
+  void updatesAndRemovalsAreVisible() {
+    Document original = add(1L, "draft report", null, null);
+    add(2L, "final report", null, null);
+    index.onRebuildCompleted();
+
+    Document updated = document(1L, "quarterly summary", null, null);
+    index.onUpdated(ordinals.ordinalOf(1L), original, updated);
+    assertThat(index.findDocumentIds("report")).contains(List.of(2L));
+    assertThat(index.findDocumentIds("quarterly")).contains(List.of(1L));
+
+    int ordinal = ordinals.release(2L);
+    index.onRemoved(ordinal, document(2L, "final report", null, null));
+    assertThat(index.findDocumentIds("report")).contains(List.of());
+  }
+
+  @Test
+  void resolveTextQueryReplacesLikeOnceIndexIsReady() {
+    add(1L, "alpha beta", null, null);
+    add(2L, "alpha gamma", null, null);
+    add(3L, "alpha delta", null, null);
+    index.onRebuildCompleted();
+
+    DocumentSearchParams selective =
+        index.resolveTextQuery(DocumentSearchParams.builder().query("beta").build());
+    assertThat(selective.getQuery()).isNull();
+    assertThat(selective.getDocumentIds()).containsExactly(1L);
+
+    // Любое число совпадений - список ID (длинный репозиторий передает через временную таблицу)
+    DocumentSearchParams common =
+        index.resolveTextQuery(DocumentSearchParams.builder().query("alpha").build());
+    assertThat(common.getQuery()).isNull();
+    assertThat(common.getDocumentIds()).containsExactly(1L, 2L, 3L);
+
+    // Совпадения по началу токена, а не по подстроке: "lpha" не находит "alpha"
+    DocumentSearchParams substring =
+        index.resolveTextQuery(DocumentSearchParams.builder().query("lpha").build());
+    assertThat(substring.getQuery()).isNull();
+    assertThat(substring.getDocumentIds()).isEmpty();
+  }
+
+  @Test
+  void rankByRelevancePrefersTitleMatchesAndRareTerms() {
+    add(1L, "notes", "solr solr solr", null);
+    add(2L, "Solr in action", "book", null);
+    add(3L, "misc", "other text", null);
+    index.onRebuildCompleted();
+
+    assertThat(index.rankByRelevance("solr", List.of(1L, 2L, 3L), 10)).containsExactly(2L, 1L, 3L);
+    assertThat(index.rankByRelevance("solr", List.of(1L, 2L, 3L), 1)).containsExactly(2L);
+  }
+
+  private Document add(Long id, String title, String content, String author) {
+    Document document = document(id, title, content, author);
+    index.onAdded(ordinals.assign(id), document);
+    return document;
+  }
+
+  private static Document document(Long id, String title, String content, String author) {
+    return Document.builder().id(id).title(title).content(content).author(author).build();
+  }
+}
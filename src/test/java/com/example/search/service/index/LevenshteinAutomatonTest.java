@@ -0,0 +1,69 @@
+package com.example.search.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/** LevenshteinAutomaton: расстояние до префикса запроса и отсечение мертвых состояний */
+class LevenshteinAutomatonTest {
+
+  @Test
+  void exactPrefixHasZeroDistance() {
+    LevenshteinAutomaton automaton = new LevenshteinAutomaton("java", 1);
+
+    int[] state = read(automaton, "java");
+
+    assertThat(automaton.isMatch(state)).isTrue();
+    assertThat(automaton.distance(state)).isZero();
+  }
+
+  @Test
+  void countsSubstitutionInsertionAndDeletion() {
+    LevenshteinAutomaton automaton = new LevenshteinAutomaton("java", 2);
+
+    assertThat(automaton.distance(read(automaton, "jawa"))).isEqualTo(1);
+    assertThat(automaton.distance(read(automaton, "jaava"))).isEqualTo(1);
+    assertThat(automaton.distance(read(automaton, "jva"))).isEqualTo(1);
+    assertThat(automaton.distance(read(automaton, "ajva"))).isEqualTo(2);
+  }
+
+  @Test
+  void matchesPartOfLongerKey() {
+    LevenshteinAutomaton automaton = new LevenshteinAutomaton("spr", 1);
+
+    // Прочитанная часть "spr" ключа "spring" уже совпала - ключ является завершением
+    assertThat(automaton.isMatch(read(automaton, "spr"))).isTrue();
+    assertThat(automaton.isMatch(read(automaton, "sp"))).isTrue();
+    assertThat(automaton.isMatch(read(automaton, "s"))).isFalse();
+  }
+
+  @Test
+  void deadStateCannotMatchAnyContinuation() {
+    LevenshteinAutomaton automaton = new LevenshteinAutomaton("java", 1);
+
+    int[] state = read(automaton, "xyz");
+
+    assertThat(automaton.canMatch(state)).isFalse();
+    assertThat(automaton.minDistance(state)).isGreaterThan(1);
+  }
+
+  @Test
+  void minDistanceNeverDecreasesAlongKey() {
+    LevenshteinAutomaton automaton = new LevenshteinAutomaton("kotlin", 3);
+    int[] state = automaton.start();
+    int previous = automaton.minDistance(state);
+    for (char c : "kxtlinxx".toCharArray()) {
+      state = automaton.step(state, c);
+      assertThat(automaton.minDistance(state)).isGreaterThanOrEqualTo(previous);
+      previous = automaton.minDistance(state);
+    }
+  }
+
+  private static int[] read(LevenshteinAutomaton automaton, String key) {
+    int[] state = automaton.start();
+    for (char c : key.toCharArray()) {
+      state = automaton.step(state, c);
+    }
+    return state;
+  }
+}
@@ -0,0 +1,68 @@
+package com.example.search.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+/** Postings: порядок ordinal, замена частоты, удаление */
+class PostingsTest {
+
+  @Test
+  void keepsOrdinalsSortedForAppendsAndMiddleInserts() {
+    Postings postings = new Postings();
+    postings.put(5, 1);
+    postings.put(9, 2);
+    postings.put(1, 3);
+    postings.put(7, 4);
+
+    assertThat(postings.size()).isEqualTo(4);
+    assertThat(
+            new int[] {postings.docAt(0), postings.docAt(1), postings.docAt(2), postings.docAt(3)})
+        .containsExactly(1, 5, 7, 9);
+    assertThat(postings.freqAt(postings.indexOf(7))).isEqualTo(4);
+  }
+
+  @Test
+  void putReplacesFrequencyOfExistingDocument() {
+    Postings postings = new Postings();
+    postings.put(3, 1);
+    postings.put(3, 5);
+
+    assertThat(postings.size()).isEqualTo(1);
+    assertThat(postings.freqAt(0)).isEqualTo(5);
+  }
+
+  @Test
+  void removeDropsOnlyThatDocument() {
+    Postings postings = new Postings();
+    for (int doc = 0; doc < 10; doc++) {
+      postings.put(doc, doc + 1);
+    }
+    postings.remove(4);
+    postings.remove(42);
+
+    assertThat(postings.size()).isEqualTo(9);
+    assertThat(postings.indexOf(4)).isNegative();
+    assertThat(postings.freqAt(postings.indexOf(5))).isEqualTo(6);
+  }
+
+  @Test
+  void addDocsToUnionsIntoBitmap() {
+    Postings first = new Postings();
+    first.put(1, 1);
+    first.put(3, 1);
+    Postings second = new Postings();
+    second.put(3, 1);
+    second.put(8, 1);
+
+    RoaringBitmap union = new RoaringBitmap();
+    first.addDocsTo(union);
+    second.addDocsTo(union);
+
+    assertThat(union.toArray()).containsExactly(1, 3, 8);
+    second.remove(3);
+    second.remove(8);
+    assertThat(second.isEmpty()).isTrue();
+  }
+}
@@ -0,0 +1,81 @@
+package com.example.search.service.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/** Top-k через ограниченную кучу: порядок, равные score и границы емкости */
+class TopKCollectorTest {
+
+  @Test
+  void keepsBestKeysInDescendingScoreOrder() {
+    TopKCollector collector = new TopKCollector(3);
+    float[] scores = {0.5f, 3.0f, 1.0f, 2.0f, 0.1f, 4.0f};
+    for (int key = 0; key < scores.length; key++) {
+      collector.offer(key, scores[key]);
+    }
+
+    assertThat(collector.size()).isEqualTo(3);
+    assertThat(collector.drainDescending()).containsExactly(5, 1, 3);
+    assertThat(collector.size()).isZero();
+  }
+
+  @Test
+  void equalScoresPreferSmallerKey() {
+    TopKCollector collector = new TopKCollector(2);
+    collector.offer(7, 1.0f);
+    collector.offer(3, 1.0f);
+    collector.offer(5, 1.0f);
+    collector.offer(1, 0.5f);
+
+    assertThat(collector.drainDescending()).containsExactly(3, 5);
+  }
+
+  @Test
+  void fewerCandidatesThanCapacityAreAllReturned() {
+    TopKCollector collector = new TopKCollector(10);
+    collector.offer(1, 0.2f);
+    collector.offer(2, 0.9f);
+
+    assertThat(collector.drainDescending()).containsExactly(2, 1);
+  }
+
+  @Test
+  void zeroOrNegativeCapacityCollectsNothing() {
+    TopKCollector zero = new TopKCollector(0);
+    zero.offer(1, 1.0f);
+    TopKCollector negative = new TopKCollector(-5);
+    negative.offer(1, 1.0f);
+
+    assertThat(zero.drainDescending()).isEmpty();
+    assertThat(negative.drainDescending()).isEmpty();
+  }
+
+  @Test
+  void matchesFullSortOnRandomInput() {
+    Random random = new Random(42);
+    float[] scores = new float[5_000];
+    for (int i = 0; i < scores.length; i++) {
+      scores[i] = random.nextInt(1_000) / 10f; // много равных score
+    }
+    TopKCollector collector = new TopKCollector(50);
+    for (int key = 0; key < scores.length; key++) {
+      collector.offer(key, scores[key]);
+    }
+
+    int[] expected =
+        IntStream.range(0, scores.length)
+            .boxed()
+            .sorted(
+                Comparator.<Integer>comparingDouble(key -> -scores[key])
+                    .thenComparingInt(key -> key))
+            .limit(50)
+            .mapToInt(Integer::intValue)
+            .toArray();
+    assertThat(collector.drainDescending()).containsExactly(expected);
+  }
+}
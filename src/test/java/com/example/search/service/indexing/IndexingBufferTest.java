@@ -0,0 +1,104 @@
+package com.example.search.service.indexing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.service.search.DocumentIndexer;
+
+/** Буфер индексации: строки читаются при flush, отсутствующие удаляются, после stop - отказ */
+class IndexingBufferTest {
+
+  private final DocumentIndexer indexer = mock(DocumentIndexer.class);
+  private final DocumentRepository documentRepository = mock(DocumentRepository.class);
+
+  private IndexingBuffer buffer;
+
+  @BeforeEach
+  void setUp() {
+    when(indexer.getName()).thenReturn("solr");
+    when(indexer.liveTarget()).thenReturn("solr-live");
+    when(indexer.applyChanges(any(), anyCollection(), anyCollection()))
+        .thenAnswer(
+            invocation ->
+                invocation.<Collection<?>>getArgument(1).size()
+                    + invocation.<Collection<?>>getArgument(2).size());
+
+    buffer = new IndexingBuffer(List.of(indexer), documentRepository);
+    ReflectionTestUtils.setField(buffer, "maxDocuments", 100);
+    ReflectionTestUtils.setField(buffer, "maxDelayMs", 100L);
+    buffer.start();
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    buffer.stop();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void flushSendsCurrentRowsAndDeletesMissingOnes() throws Exception {
+    when(documentRepository.findAllById(any()))
+        .thenReturn(List.of(Document.builder().id(1L).title("Updated").build()));
+
+    CompletableFuture<Map<String, Boolean>> first = buffer.index(1L);
+    CompletableFuture<Map<String, Boolean>> repeated = buffer.index(1L);
+    CompletableFuture<Map<String, Boolean>> removed = buffer.index(2L);
+
+    assertThat(first.get(5, TimeUnit.SECONDS)).containsEntry("solr", true);
+    assertThat(repeated.get(5, TimeUnit.SECONDS)).containsEntry("solr", true);
+    assertThat(removed.get(5, TimeUnit.SECONDS)).containsEntry("solr", true);
+
+    ArgumentCaptor<Collection<Document>> upserts = ArgumentCaptor.forClass(Collection.class);
+    ArgumentCaptor<Collection<Long>> deletes = ArgumentCaptor.forClass(Collection.class);
+    verify(indexer).applyChanges(eq("solr-live"), upserts.capture(), deletes.capture());
+    assertThat(upserts.getValue()).extracting(Document::getTitle).containsExactly("Updated");
+    assertThat(deletes.getValue()).containsExactly(2L);
+  }
+
+  @Test
+  void failedReadCompletesFuturesExceptionally() {
+    when(documentRepository.findAllById(any())).thenThrow(new IllegalStateException("db down"));
+
+    CompletableFuture<Map<String, Boolean>> future = buffer.index(1L);
+
+    assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+        .isInstanceOf(ExecutionException.class)
+        .hasRootCauseMessage("db down");
+    verify(indexer, never()).applyChanges(any(), anyCollection(), anyCollection());
+  }
+
+  @Test
+  void writesAfterStopAreRejectedImmediately() throws Exception {
+    when(documentRepository.findAllById(any())).thenReturn(new ArrayList<>());
+    CompletableFuture<Map<String, Boolean>> beforeStop = buffer.index(1L);
+
+    buffer.stop();
+
+    assertThat(beforeStop).isDone();
+    CompletableFuture<Map<String, Boolean>> afterStop = buffer.index(2L);
+    assertThat(afterStop).isCompletedExceptionally();
+  }
+}
@@ -0,0 +1,336 @@
+package com.example.search.service.indexing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.search.model.Document;
+import com.example.search.model.IndexOperation;
+import com.example.search.model.IndexOutboxEntry;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.repository.IndexOutboxRepository;
+import com.example.search.service.document.DocumentChangedEvent;
+import com.example.search.service.routing.CircuitBreakerRegistry;
+import com.example.search.service.routing.CircuitState;
+import com.example.search.service.search.DocumentIndexer;
+
+/** Outbox: независимые движки, недоступность без attempts, изоляция poison документов */
+class OutboxIndexerTest {
+
+  private static final int MAX_ATTEMPTS = 3;
+
+  private final List<IndexOutboxEntry> table = new ArrayList<>();
+  private final Map<Long, Document> documents = new HashMap<>();
+  private final Map<String, CircuitState> circuits = new HashMap<>();
+  private long nextEntryId = 1;
+
+  private FakeIndexer solr;
+  private FakeIndexer opensearch;
+  private OutboxIndexer outbox;
+
+  @BeforeEach
+  void setUp() {
+    solr = new FakeIndexer("solr");
+    opensearch = new FakeIndexer("opensearch");
+
+    IndexOutboxRepository outboxRepository = mock(IndexOutboxRepository.class);
+    when(outboxRepository.saveAll(any()))
+        .thenAnswer(
+            invocation -> {
+              Iterable<IndexOutboxEntry> entries = invocation.getArgument(0);
+              entries.forEach(
+                  entry -> {
+                    entry.setId(nextEntryId++);
+                    table.add(entry);
+                  });
+              return entries;
+            });
+    when(outboxRepository.findByEngineAndAttemptsLessThanOrderByIdAsc(
+            anyString(), anyInt(), any(Pageable.class)))
+        .thenAnswer(
+            invocation -> {
+              String engine = invocation.getArgument(0);
+              int maxAttempts = invocation.getArgument(1);
+              Pageable page = invocation.getArgument(2);
+              return table.stream()
+                  .filter(entry -> entry.getEngine().equals(engine))
+                  .filter(entry -> entry.getAttempts() < maxAttempts)
+                  .sorted(Comparator.comparing(IndexOutboxEntry::getId))
+                  .limit(page.getPageSize())
+                  .map(OutboxIndexerTest::copy)
+                  .collect(Collectors.toList());
+            });
+    when(outboxRepository.countByEngineAndAttemptsLessThan(anyString(), anyInt()))
+        .thenAnswer(
+            invocation ->
+                table.stream()
+                    .filter(entry -> entry.getEngine().equals(invocation.getArgument(0)))
+                    .filter(entry -> entry.getAttempts() < (int) invocation.getArgument(1))
+                    .count());
+    doAnswer(
+            invocation -> {
+              Set<Long> ids = toSet(invocation.getArgument(0));
+              table.removeIf(entry -> ids.contains(entry.getId()));
+              return null;
+            })
+        .when(outboxRepository)
+        .deleteAllByIdInBatch(any());
+    when(outboxRepository.incrementAttempts(any()))
+        .thenAnswer(
+            invocation -> {
+              Set<Long> ids = toSet(invocation.getArgument(0));
+              table.stream()
+                  .filter(entry -> ids.contains(entry.getId()))
+                  .forEach(entry -> entry.setAttempts(entry.getAttempts() + 1));
+              return ids.size();
+            });
+
+    DocumentRepository documentRepository = mock(DocumentRepository.class);
+    when(documentRepository.findAllById(any()))
+        .thenAnswer(
+            invocation ->
+                toSet(invocation.getArgument(0)).stream()
+                    .map(documents::get)
+                    .filter(document -> document != null)
+                    .collect(Collectors.toList()));
+
+    ReindexJobService reindexJobService = mock(ReindexJobService.class);
+    when(reindexJobService.rebuildTargets()).thenReturn(Map.of());
+
+    CircuitBreakerRegistry circuitBreakers = mock(CircuitBreakerRegistry.class);
+    when(circuitBreakers.getState(anyString()))
+        .thenAnswer(
+            invocation -> circuits.getOrDefault(invocation.getArgument(0), CircuitState.CLOSED));
+
+    outbox =
+        new OutboxIndexer(
+            outboxRepository,
+            documentRepository,
+            List.of(solr, opensearch),
+            reindexJobService,
+            circuitBreakers);
+    ReflectionTestUtils.setField(outbox, "enabled", true);
+    ReflectionTestUtils.setField(outbox, "batchSize", 500);
+    ReflectionTestUtils.setField(outbox, "maxAttempts", MAX_ATTEMPTS);
+    ReflectionTestUtils.setField(outbox, "retryBackoffMs", 0L);
+    ReflectionTestUtils.setField(outbox, "maxBackoffMs", 0L);
+  }
+
+  @Test
+  void changeIsEnqueuedOncePerEngine() {
+    change(1L);
+
+    assertThat(table)
+        .extracting(IndexOutboxEntry::getEngine)
+        .containsExactlyInAnyOrder("solr", "opensearch");
+    assertThat(table).allMatch(entry -> entry.getOperation() == IndexOperation.UPSERT);
+  }
+
+  @Test
+  void openCircuitKeepsEntriesWithoutAttemptsWhileOtherEnginesProceed() {
+    circuits.put("solr", CircuitState.OPEN);
+    for (long id = 1; id <= 5; id++) {
+      change(id);
+    }
+
+    for (int i = 0; i < 20; i++) {
+      outbox.drain();
+    }
+
+    assertThat(opensearch.received).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L);
+    assertThat(solr.requests).isZero();
+    assertThat(pending("opensearch")).isEmpty();
+    assertThat(pending("solr")).hasSize(5).allMatch(entry -> entry.getAttempts() == 0);
+    assertThat(outbox.pendingCounts()).containsEntry("solr", 5L).containsEntry("opensearch", 0L);
+
+    circuits.put("solr", CircuitState.CLOSED);
+    outbox.drain();
+
+    assertThat(solr.received).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L);
+    assertThat(table).isEmpty();
+  }
+
+  @Test
+  void engineFailingEveryRequestIsNotChargedAttempts() {
+    solr.down = true;
+    change(1L);
+    change(2L);
+
+    for (int i = 0; i < 10; i++) {
+      outbox.drain();
+    }
+
+    assertThat(pending("solr")).hasSize(2).allMatch(entry -> entry.getAttempts() == 0);
+    assertThat(pending("opensearch")).isEmpty();
+
+    solr.down = false;
+    outbox.drain();
+    assertThat(solr.received).containsExactlyInAnyOrder(1L, 2L);
+  }
+
+  @Test
+  void poisonDocumentIsIsolatedAndRetiredAfterMaxAttempts() {
+    solr.poison.add(3L);
+    for (long id = 1; id <= 8; id++) {
+      change(id);
+    }
+
+    outbox.drain();
+
+    assertThat(solr.received).containsExactlyInAnyOrder(1L, 2L, 4L, 5L, 6L, 7L, 8L);
+    assertThat(pending("solr"))
+        .singleElement()
+        .satisfies(
+            entry -> {
+              assertThat(entry.getDocumentId()).isEqualTo(3L);
+              assertThat(entry.getAttempts()).isEqualTo(1);
+            });
+
+    // Poison не держит новые изменения: они доставляются вместе с очередной попыткой
+    change(9L);
+    outbox.drain();
+    assertThat(solr.received).contains(9L);
+    assertThat(attemptsOf("solr", 3L)).isEqualTo(2);
+
+    // Один poison в очереди: движок не подтвердил доступность - попытка не считается
+    for (int i = 0; i < 5; i++) {
+      outbox.drain();
+    }
+    assertThat(attemptsOf("solr", 3L)).isEqualTo(2);
+
+    change(10L);
+    outbox.drain();
+    assertThat(solr.received).contains(10L);
+    assertThat(attemptsOf("solr", 3L)).isEqualTo(MAX_ATTEMPTS);
+
+    int requests = solr.requests;
+    outbox.drain();
+    assertThat(solr.requests).isEqualTo(requests);
+    assertThat(pending("opensearch")).isEmpty();
+  }
+
+  @Test
+  void deletedDocumentIsSentAsDelete() {
+    change(1L);
+    documents.remove(1L);
+
+    outbox.drain();
+
+    assertThat(solr.deleted).containsExactly(1L);
+    assertThat(table).isEmpty();
+  }
+
+  private void change(Long id) {
+    Document document = Document.builder().id(id).title("doc " + id).build();
+    documents.put(id, document);
+    outbox.onDocumentChanged(DocumentChangedEvent.created(document));
+  }
+
+  private List<IndexOutboxEntry> pending(String engine) {
+    return table.stream()
+        .filter(entry -> entry.getEngine().equals(engine))
+        .collect(Collectors.toList());
+  }
+
+  private int attemptsOf(String engine, Long documentId) {
+    return pending(engine).stream()
+        .filter(entry -> entry.getDocumentId().equals(documentId))
+        .findFirst()
+        .orElseThrow()
+        .getAttempts();
+  }
+
+  private static IndexOutboxEntry copy(IndexOutboxEntry entry) {
+    return IndexOutboxEntry.builder()
+        .id(entry.getId())
+        .documentId(entry.getDocumentId())
+        .engine(entry.getEngine())
+        .operation(entry.getOperation())
+        .attempts(entry.getAttempts())
+        .build();
+  }
+
+  private static Set<Long> toSet(Iterable<Long> ids) {
+    return StreamSupport.stream(ids.spliterator(), false).collect(Collectors.toSet());
+  }
+
+  /** Движок в памяти: down - отказывает всем запросам, poison - отказывает батчам с документом */
+  private static final class FakeIndexer implements DocumentIndexer {
+    private final String name;
+    private final Set<Long> poison = new HashSet<>();
+    private final List<Long> received = new ArrayList<>();
+    private final List<Long> deleted = new ArrayList<>();
+    private boolean down;
+    private int requests;
+
+    private FakeIndexer(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public String liveTarget() {
+      return name + "_live";
+    }
+
+    @Override
+    public int applyChanges(String target, Collection<Document> upserts, Collection<Long> deletes) {
+      requests++;
+      if (down || upserts.stream().anyMatch(document -> poison.contains(document.getId()))) {
+        return 0;
+      }
+      upserts.forEach(document -> received.add(document.getId()));
+      deleted.addAll(deletes);
+      return upserts.size() + deletes.size();
+    }
+
+    @Override
+    public int writeBatch(String target, Collection<Document> documents) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean commit(String target) {
+      return true;
+    }
+
+    @Override
+    public String createVersion(String version) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean promote(String target) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean dropVersion(String target) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
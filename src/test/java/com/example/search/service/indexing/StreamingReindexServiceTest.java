@@ -0,0 +1,300 @@
+package com.example.search.service.indexing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.service.indexing.ReindexRun.EngineProgress;
+import com.example.search.service.indexing.ReindexRun.Outcome;
+import com.example.search.service.search.DocumentIndexer;
+import com.example.search.service.search.IndexingThrottledException;
+
+/** Потоковая переиндексация: контрольные точки по полностью записанным батчам, promote один раз */
+class StreamingReindexServiceTest {
+
+  private static final int BATCH_SIZE = 10;
+
+  private final List<Document> documents =
+      LongStream.rangeClosed(1, 25)
+          .mapToObj(id -> Document.builder().id(id).title("Document " + id).build())
+          .collect(Collectors.toList());
+  private final Map<String, EngineProgress> checkpoints = new HashMap<>();
+
+  private ExecutorService executor;
+  private FakeIndexer solr;
+  private FakeIndexer opensearch;
+  private StreamingReindexService service;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newCachedThreadPool();
+    solr = new FakeIndexer("solr");
+    opensearch = new FakeIndexer("opensearch");
+
+    DocumentRepository documentRepository = mock(DocumentRepository.class);
+    when(documentRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class)))
+        .thenAnswer(
+            invocation -> {
+              long lastId = invocation.getArgument(0);
+              Pageable page = invocation.getArgument(1);
+              return documents.stream()
+                  .filter(document -> document.getId() > lastId)
+                  .limit(page.getPageSize())
+                  .collect(Collectors.toList());
+            });
+
+    service = new StreamingReindexService(documentRepository, List.of(solr, opensearch), executor);
+    ReflectionTestUtils.setField(service, "queueCapacity", 2);
+    ReflectionTestUtils.setField(service, "progressInterval", 1000);
+    ReflectionTestUtils.setField(service, "commitInterval", 1000);
+    ReflectionTestUtils.setField(service, "maxRetries", 3);
+    ReflectionTestUtils.setField(service, "retryBackoffMs", 0L);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void everyEngineReceivesAllDocumentsAndCommitsOnce() {
+    Outcome outcome = service.run(newRun(), this::checkpoint);
+
+    assertThat(outcome).isEqualTo(Outcome.COMPLETED);
+    for (FakeIndexer indexer : List.of(solr, opensearch)) {
+      assertThat(indexer.received).containsExactlyElementsOf(ids(1, 25));
+      assertThat(indexer.commits).isEqualTo(1);
+      assertThat(checkpoints.get(indexer.getName()).getLastDocumentId()).isEqualTo(25L);
+      assertThat(checkpoints.get(indexer.getName()).getIndexed()).isEqualTo(25L);
+    }
+  }
+
+  @Test
+  void partiallyWrittenBatchDoesNotAdvanceCheckpoint() {
+    solr.dropping = 15L;
+
+    Outcome outcome = service.run(newRun(), this::checkpoint);
+
+    assertThat(outcome).isEqualTo(Outcome.FAILED);
+    EngineProgress progress = checkpoints.get("solr");
+    assertThat(progress.getLastDocumentId()).isEqualTo(10L);
+    assertThat(progress.getIndexed()).isEqualTo(10L);
+    assertThat(progress.getFailed()).isEqualTo(1L);
+    assertThat(solr.commits).isZero();
+    assertThat(checkpoints.get("opensearch").getLastDocumentId()).isEqualTo(25L);
+
+    // Resume повторяет недописанный батч целиком, второй движок ничего не получает заново
+    solr.dropping = null;
+    solr.received.clear();
+    opensearch.received.clear();
+    ReindexRun resumed = newRun();
+    checkpoints.values().forEach(resumed::restore);
+
+    assertThat(service.run(resumed, this::checkpoint)).isEqualTo(Outcome.COMPLETED);
+    assertThat(solr.received).containsExactlyElementsOf(ids(11, 25));
+    assertThat(opensearch.received).isEmpty();
+    assertThat(checkpoints.get("solr").getLastDocumentId()).isEqualTo(25L);
+  }
+
+  @Test
+  void throttledBatchIsRetriedInSmallerParts() {
+    solr.throttles = 1;
+
+    Outcome outcome = service.run(newRun(), this::checkpoint);
+
+    assertThat(outcome).isEqualTo(Outcome.COMPLETED);
+    assertThat(solr.received).containsExactlyElementsOf(ids(1, 25));
+    assertThat(checkpoints.get("solr").getFailed()).isZero();
+  }
+
+  @Test
+  void promoteIsNotRepeatedForAlreadyPromotedEngine() {
+    opensearch.promoteFails = true;
+
+    assertThat(service.run(newRebuild(), this::checkpoint)).isEqualTo(Outcome.FAILED);
+    assertThat(solr.promoted).containsExactly("solr-v2");
+    assertThat(checkpoints.get("solr").isPromoted()).isTrue();
+    assertThat(checkpoints.get("opensearch").isPromoted()).isFalse();
+
+    // Resume: Solr не переключается повторно и не пишет в уже живую версию
+    opensearch.promoteFails = false;
+    solr.received.clear();
+    ReindexRun resumed = newRebuild();
+    checkpoints.values().forEach(resumed::restore);
+
+    assertThat(service.run(resumed, this::checkpoint)).isEqualTo(Outcome.COMPLETED);
+    assertThat(solr.promoted).containsExactly("solr-v2");
+    assertThat(solr.commits).isEqualTo(1);
+    assertThat(solr.received).isEmpty();
+    assertThat(opensearch.promoted).containsExactly("opensearch-v2");
+  }
+
+  @Test
+  void engineConfirmingOnCommitSavesCheckpointOnlyAfterCommit() {
+    solr.confirmsOnCommit = true;
+    solr.commitFails = true;
+
+    assertThat(service.run(newRun(), this::checkpoint)).isEqualTo(Outcome.FAILED);
+    assertThat(checkpoints.get("solr").getLastDocumentId()).isZero();
+    assertThat(checkpoints.get("opensearch").getLastDocumentId()).isEqualTo(25L);
+
+    // Неподтвержденный проход повторяется целиком
+    solr.commitFails = false;
+    solr.received.clear();
+    ReindexRun resumed = newRun();
+    checkpoints.values().forEach(resumed::restore);
+
+    assertThat(service.run(resumed, this::checkpoint)).isEqualTo(Outcome.COMPLETED);
+    assertThat(solr.received).containsExactlyElementsOf(ids(1, 25));
+    assertThat(checkpoints.get("solr").getLastDocumentId()).isEqualTo(25L);
+  }
+
+  @Test
+  void engineConfirmingOnCommitIsCommittedEveryInterval() {
+    ReflectionTestUtils.setField(service, "commitInterval", 10);
+    solr.confirmsOnCommit = true;
+    solr.successfulCommits = 2;
+
+    // Промежуточные commit после 10 и 20 документов, последний (25) не удается
+    assertThat(service.run(newRun(), this::checkpoint)).isEqualTo(Outcome.FAILED);
+    assertThat(solr.commits).isEqualTo(3);
+    assertThat(checkpoints.get("solr").getLastDocumentId()).isEqualTo(20L);
+
+    // Повторяется только неподтвержденный хвост
+    solr.successfulCommits = Integer.MAX_VALUE;
+    solr.received.clear();
+    ReindexRun resumed = newRun();
+    checkpoints.values().forEach(resumed::restore);
+
+    assertThat(service.run(resumed, this::checkpoint)).isEqualTo(Outcome.COMPLETED);
+    assertThat(solr.received).containsExactlyElementsOf(ids(21, 25));
+    assertThat(checkpoints.get("solr").getLastDocumentId()).isEqualTo(25L);
+  }
+
+  private ReindexRun newRebuild() {
+    return new ReindexRun(1L, "v2", new AdaptiveBatchSizer(5, BATCH_SIZE, BATCH_SIZE, 60_000));
+  }
+
+  private ReindexRun newRun() {
+    return new ReindexRun(1L, null, new AdaptiveBatchSizer(5, BATCH_SIZE, BATCH_SIZE, 60_000));
+  }
+
+  private synchronized void checkpoint(EngineProgress progress) {
+    checkpoints.put(
+        progress.getEngine(),
+        new EngineProgress(
+            progress.getEngine(),
+            progress.getTarget(),
+            progress.getLastDocumentId(),
+            progress.getIndexed(),
+            progress.getFailed(),
+            progress.isPromoted()));
+  }
+
+  private static List<Long> ids(long from, long to) {
+    return LongStream.rangeClosed(from, to).boxed().collect(Collectors.toList());
+  }
+
+  /**
+   * Движок в памяти: dropping - документ, который не записывается; throttles - ответы 429;
+   * promoteFails - promote не удается; confirmsOnCommit/commitFails/successfulCommits - асинхронная
+   * запись
+   */
+  private static final class FakeIndexer implements DocumentIndexer {
+    private final String name;
+    private final List<Long> received = new ArrayList<>();
+    private final List<String> promoted = new ArrayList<>();
+    private volatile boolean promoteFails;
+    private volatile boolean confirmsOnCommit;
+    private volatile boolean commitFails;
+    private volatile int successfulCommits = Integer.MAX_VALUE; // дальше commit не удается
+    private volatile Long dropping;
+    private volatile int throttles;
+    private volatile int commits;
+
+    private FakeIndexer(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public String liveTarget() {
+      return name + "-live";
+    }
+
+    @Override
+    public synchronized int writeBatch(String target, Collection<Document> batch) {
+      if (throttles > 0) {
+        throttles--;
+        throw new IndexingThrottledException(name, "429");
+      }
+      int written = 0;
+      for (Document document : batch) {
+        if (!document.getId().equals(dropping)) {
+          received.add(document.getId());
+          written++;
+        }
+      }
+      return written;
+    }
+
+    @Override
+    public int applyChanges(String target, Collection<Document> upserts, Collection<Long> deletes) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean commit(String target) {
+      commits++;
+      return !commitFails && commits <= successfulCommits;
+    }
+
+    @Override
+    public boolean confirmsOnCommit() {
+      return confirmsOnCommit;
+    }
+
+    @Override
+    public String createVersion(String version) {
+      return name + "-" + version;
+    }
+
+    @Override
+    public boolean promote(String target) {
+      if (promoteFails) {
+        return false;
+      }
+      promoted.add(target);
+      return true;
+    }
+
+    @Override
+    public boolean dropVersion(String target) {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package com.example.search.service.routing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.search.service.search.SearchEngine;
+
+/** Пробы идут в отдельном пуле: планировщик не ждет зависший движок */
+class CircuitBreakerProbeTest {
+
+  private final SearchEngine hanging = mock(SearchEngine.class);
+  private final SearchEngine failing = mock(SearchEngine.class);
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private ExecutorService executor;
+  private CircuitBreakerRegistry registry;
+  private CircuitBreakerProbe probe;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newFixedThreadPool(2);
+    registry = new CircuitBreakerRegistry();
+    ReflectionTestUtils.setField(registry, "enabled", true);
+    ReflectionTestUtils.setField(registry, "failureThreshold", 1);
+    ReflectionTestUtils.setField(registry, "openDurationMs", 0L);
+
+    when(hanging.getName()).thenReturn("solr");
+    when(hanging.isAvailable())
+        .thenAnswer(
+            invocation -> {
+              release.await();
+              return true;
+            });
+    when(failing.getName()).thenReturn("opensearch");
+    when(failing.isAvailable()).thenThrow(new IllegalStateException("connection refused"));
+
+    probe = new CircuitBreakerProbe(List.of(hanging, failing), registry, executor);
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    executor.shutdownNow();
+  }
+
+  @Test
+  void hangingProbeDoesNotBlockSchedulerOrOtherEngines() throws Exception {
+    registry.recordFailure("solr", new IllegalStateException("down"));
+    registry.recordFailure("opensearch", new IllegalStateException("down"));
+
+    probe.probeOpenCircuits(); // возвращается сразу, хотя isAvailable() Solr висит
+
+    waitFor(() -> registry.getState("opensearch") == CircuitState.OPEN);
+    assertThat(registry.getState("solr")).isEqualTo(CircuitState.HALF_OPEN);
+
+    // Следующий тик не запускает вторую пробу Solr, пока первая не закончилась
+    probe.probeOpenCircuits();
+    assertThat(registry.getState("solr")).isEqualTo(CircuitState.HALF_OPEN);
+
+    release.countDown();
+    waitFor(() -> registry.getState("solr") == CircuitState.CLOSED);
+  }
+
+  private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).isLessThan(deadline);
+      Thread.sleep(10);
+    }
+  }
+}
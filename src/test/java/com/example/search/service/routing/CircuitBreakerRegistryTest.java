@@ -0,0 +1,105 @@
+package com.example.search.service.routing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/** Автомат цепи: CLOSED -> OPEN -> HALF_OPEN -> CLOSED или снова OPEN */
+class CircuitBreakerRegistryTest {
+
+  private static final String ENGINE = "solr";
+  private static final RuntimeException ERROR = new IllegalStateException("connect timed out");
+
+  private CircuitBreakerRegistry registry;
+
+  @BeforeEach
+  void setUp() {
+    registry = new CircuitBreakerRegistry();
+    ReflectionTestUtils.setField(registry, "enabled", true);
+    ReflectionTestUtils.setField(registry, "failureThreshold", 3);
+    ReflectionTestUtils.setField(registry, "openDurationMs", 0L);
+  }
+
+  @Test
+  void unknownEngineIsClosed() {
+    assertThat(registry.getState(ENGINE)).isEqualTo(CircuitState.CLOSED);
+    assertThat(registry.allowRequest(ENGINE)).isTrue();
+    assertThat(registry.tryStartProbe(ENGINE)).isFalse();
+  }
+
+  @Test
+  void consecutiveFailuresOpenCircuit() {
+    registry.recordFailure(ENGINE, ERROR);
+    registry.recordFailure(ENGINE, ERROR);
+    assertThat(registry.getState(ENGINE)).isEqualTo(CircuitState.CLOSED);
+
+    registry.recordFailure(ENGINE, ERROR);
+
+    assertThat(registry.getState(ENGINE)).isEqualTo(CircuitState.OPEN);
+    assertThat(registry.allowRequest(ENGINE)).isFalse();
+  }
+
+  @Test
+  void successResetsFailureCount() {
+    registry.recordFailure(ENGINE, ERROR);
+    registry.recordFailure(ENGINE, ERROR);
+    registry.recordSuccess(ENGINE);
+    registry.recordFailure(ENGINE, ERROR);
+    registry.recordFailure(ENGINE, ERROR);
+
+    assertThat(registry.getState(ENGINE)).isEqualTo(CircuitState.CLOSED);
+  }
+
+  @Test
+  void successfulProbeClosesCircuit() {
+    open();
+
+    assertThat(registry.tryStartProbe(ENGINE)).isTrue();
+    assertThat(registry.getState(ENGINE)).isEqualTo(CircuitState.HALF_OPEN);
+    assertThat(registry.allowRequest(ENGINE)).isFalse();
+    // Одна проба за раз: повторный старт до результата не разрешается
+    assertThat(registry.tryStartProbe(ENGINE)).isFalse();
+
+    registry.onProbeResult(ENGINE, true);
+
+    assertThat(registry.getState(ENGINE)).isEqualTo(CircuitState.CLOSED);
+    assertThat(registry.allowRequest(ENGINE)).isTrue();
+  }
+
+  @Test
+  void failedProbeReopensCircuit() {
+    open();
+    registry.tryStartProbe(ENGINE);
+
+    registry.onProbeResult(ENGINE, false);
+
+    assertThat(registry.getState(ENGINE)).isEqualTo(CircuitState.OPEN);
+    assertThat(registry.tryStartProbe(ENGINE)).isTrue();
+  }
+
+  @Test
+  void probeWaitsForOpenDuration() {
+    ReflectionTestUtils.setField(registry, "openDurationMs", 60_000L);
+    open();
+
+    assertThat(registry.tryStartProbe(ENGINE)).isFalse();
+    assertThat(registry.getState(ENGINE)).isEqualTo(CircuitState.OPEN);
+  }
+
+  @Test
+  void disabledRegistryAlwaysAllowsRequests() {
+    ReflectionTestUtils.setField(registry, "enabled", false);
+    open();
+
+    assertThat(registry.getState(ENGINE)).isEqualTo(CircuitState.CLOSED);
+    assertThat(registry.allowRequest(ENGINE)).isTrue();
+  }
+
+  private void open() {
+    for (int i = 0; i < 3; i++) {
+      registry.recordFailure(ENGINE, ERROR);
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package com.example.search.service.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.search.dto.response.AutocompleteResultDto;
+
+/** AutocompleteRanker: уровень совпадения, длина, top-k и ввод с метасимволами regex */
+class AutocompleteRankerTest {
+
+  @Test
+  void ordersByTierThenLengthThenAlphabet() {
+    List<AutocompleteResultDto> candidates =
+        results("Learning Java", "Javascript", "Java", "Spring-java", "Kava", "Ajava", "Jbva");
+
+    assertThat(texts(AutocompleteRanker.rank(candidates, "java", 10)))
+        .containsExactly(
+            "Java", "Javascript", "Spring-java", "Learning Java", "Ajava", "Jbva", "Kava");
+  }
+
+  @Test
+  void returnsOnlyBestKForSmallLimit() {
+    List<AutocompleteResultDto> candidates =
+        results("spring data jpa", "spring", "spring boot", "spark", "a spring");
+
+    assertThat(texts(AutocompleteRanker.rank(candidates, "spring", 2)))
+        .containsExactly("spring", "spring boot");
+    assertThat(AutocompleteRanker.rank(candidates, "spring", 0)).isEmpty();
+  }
+
+  @Test
+  void equalRanksKeepAlphabeticalOrder() {
+    assertThat(texts(AutocompleteRanker.rank(results("abd", "abc", "abe"), "ab", 3)))
+        .containsExactly("abc", "abd", "abe");
+  }
+
+  @Test
+  void prefixWithRegexMetacharactersIsMatchedLiterally() {
+    List<AutocompleteResultDto> candidates = results("C++ Primer", "Cxx", "Effective C++");
+
+    assertThat(texts(AutocompleteRanker.rank(candidates, "c++", 10)))
+        .containsExactly("C++ Primer", "Effective C++", "Cxx");
+  }
+
+  @Test
+  void emptyPrefixKeepsInputOrder() {
+    assertThat(texts(AutocompleteRanker.rank(results("b", "a", "c"), "", 2)))
+        .containsExactly("b", "a");
+  }
+
+  @Test
+  void tierDistinguishesPrefixWordStartAndInfix() {
+    assertThat(AutocompleteRanker.tier("java basics", "java"))
+        .isEqualTo(AutocompleteRanker.TIER_PREFIX);
+    assertThat(AutocompleteRanker.tier("core java", "java"))
+        .isEqualTo(AutocompleteRanker.TIER_WORD_PREFIX);
+    assertThat(AutocompleteRanker.tier("kotlin-java", "java"))
+        .isEqualTo(AutocompleteRanker.TIER_WORD_PREFIX);
+    assertThat(AutocompleteRanker.tier("ajava", "java")).isEqualTo(AutocompleteRanker.TIER_INFIX);
+    assertThat(AutocompleteRanker.tier("kotlin", "java")).isEqualTo(AutocompleteRanker.TIER_NONE);
+  }
+
+  private static List<AutocompleteResultDto> results(String... texts) {
+    return Arrays.stream(texts)
+        .map(text -> AutocompleteResultDto.builder().text(text).build())
+        .collect(Collectors.toList());
+  }
+
+  private static List<String> texts(List<AutocompleteResultDto> results) {
+    return results.stream().map(AutocompleteResultDto::getText).collect(Collectors.toList());
+  }
+}
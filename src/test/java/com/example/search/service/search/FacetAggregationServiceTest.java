@@ -0,0 +1,188 @@
+package com.example.search.service.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.roaringbitmap.RoaringBitmap;
+
+import com.example.search.dto.response.FacetDto;
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.repository.DocumentSearchParams;
+import com.example.search.service.index.DocumentOrdinals;
+import com.example.search.service.index.FilterBitmapCache;
+import com.example.search.service.index.InvertedIndexService;
+import com.example.search.service.permission.PermissionBitmapCache;
+
+/**
+ * Facets: счетчики из FilterBitmapCache с правами пользователя; SQL путь до загрузки кэшей -
+ * измерение без своего фильтра
+ */
+class FacetAggregationServiceTest {
+
+  private static final Set<String> ALICE = Set.of("public", "user:alice");
+
+  private final DocumentOrdinals ordinals = new DocumentOrdinals();
+  private final FilterBitmapCache filterBitmapCache = new FilterBitmapCache(ordinals);
+  private final InvertedIndexService invertedIndex = new InvertedIndexService(ordinals);
+  private final PermissionBitmapCache permissionBitmapCache = mock(PermissionBitmapCache.class);
+  private final DocumentRepository documentRepository = mock(DocumentRepository.class);
+
+  private FacetAggregationService service;
+
+  @BeforeEach
+  void setUp() {
+    add(1L, "Java basics", "Tech", "DONE", "Alice");
+    add(2L, "Java streams", "Tech", "DRAFT", "Bob");
+    add(3L, "Java secrets", "Tech", "DONE", "Bob");
+    add(4L, "Cooking", "Food", "DONE", "Alice");
+    filterBitmapCache.onRebuildCompleted();
+    invertedIndex.onRebuildCompleted();
+
+    service =
+        new FacetAggregationService(
+            documentRepository, filterBitmapCache, invertedIndex, permissionBitmapCache);
+  }
+
+  @Test
+  void inMemoryFacetsCountOnlyDocumentsVisibleToUser() {
+    // Документ 3 скрыт от alice
+    when(permissionBitmapCache.intersect(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              RoaringBitmap visible = ((RoaringBitmap) invocation.getArgument(0)).clone();
+              visible.remove(ordinals.ordinalOf(3L));
+              return Optional.of(visible);
+            });
+
+    Map<String, List<FacetDto>> facets =
+        service.aggregate(
+            DocumentSearchParams.builder().query("java").principals(ALICE).build(),
+            FacetAggregationService.DIMENSIONS);
+
+    assertThat(counts(facets.get("category"))).containsExactly(Map.entry("Tech", 2L));
+    assertThat(counts(facets.get("author")))
+        .containsExactly(Map.entry("Alice", 1L), Map.entry("Bob", 1L));
+    verify(documentRepository, never()).getFacetCombinations(any());
+  }
+
+  @Test
+  void facetsWithoutQueryStillApplyPermissions() {
+    when(permissionBitmapCache.intersect(any(), any()))
+        .thenReturn(
+            Optional.of(RoaringBitmap.bitmapOf(ordinals.ordinalOf(1L), ordinals.ordinalOf(4L))));
+
+    Map<String, List<FacetDto>> facets =
+        service.aggregate(
+            DocumentSearchParams.builder().principals(ALICE).build(), List.of("category"));
+
+    assertThat(counts(facets.get("category")))
+        .containsExactly(Map.entry("Food", 1L), Map.entry("Tech", 1L));
+  }
+
+  @Test
+  void permissionCacheNotReadyFallsBackToSqlWithPrincipals() {
+    when(permissionBitmapCache.intersect(any(), any())).thenReturn(Optional.empty());
+    when(documentRepository.getFacetCombinations(any()))
+        .thenReturn(List.<Object[]>of(new Object[] {"Tech", "DONE", "Alice", 1L}));
+
+    Map<String, List<FacetDto>> facets =
+        service.aggregate(
+            DocumentSearchParams.builder().principals(ALICE).build(), List.of("category"));
+
+    ArgumentCaptor<DocumentSearchParams> sql = ArgumentCaptor.forClass(DocumentSearchParams.class);
+    verify(documentRepository).getFacetCombinations(sql.capture());
+    assertThat(sql.getValue().getPrincipals()).isEqualTo(ALICE);
+    assertThat(counts(facets.get("category"))).containsExactly(Map.entry("Tech", 1L));
+  }
+
+  @Test
+  void sqlFacetsExcludeOnlyTheirOwnFilter() {
+    FacetAggregationService sqlOnly = serviceWithoutFilterCache();
+    when(documentRepository.getFacetCombinations(any()))
+        .thenReturn(
+            List.of(
+                new Object[] {"Tech", "DONE", "Alice", 2L},
+                new Object[] {"Tech", "DRAFT", "Bob", 1L},
+                new Object[] {"Food", "DONE", "alice smith", 3L},
+                new Object[] {null, "DONE", "Bob", 1L}));
+
+    Map<String, List<FacetDto>> facets =
+        sqlOnly.aggregate(
+            DocumentSearchParams.builder()
+                .category("Tech")
+                .status(" DONE ")
+                .author("ALICE")
+                .build(),
+            List.of("category", "status", "author", "language"));
+
+    // category: status=DONE и author~alice, без своего фильтра
+    assertThat(counts(facets.get("category")))
+        .containsExactly(Map.entry("Food", 3L), Map.entry("Tech", 2L));
+    assertThat(counts(facets.get("status"))).containsExactly(Map.entry("DONE", 2L));
+    assertThat(counts(facets.get("author"))).containsExactly(Map.entry("Alice", 2L));
+    assertThat(facets.get("language")).isEmpty();
+  }
+
+  @Test
+  void sqlPathReplacesTextMatchWithIds() {
+    FacetAggregationService sqlOnly = serviceWithoutFilterCache();
+    when(documentRepository.getFacetCombinations(any())).thenReturn(List.of());
+
+    sqlOnly.aggregate(DocumentSearchParams.builder().query("java").build(), List.of("category"));
+
+    ArgumentCaptor<DocumentSearchParams> sql = ArgumentCaptor.forClass(DocumentSearchParams.class);
+    verify(documentRepository).getFacetCombinations(sql.capture());
+    assertThat(sql.getValue().getQuery()).isNull();
+    assertThat(sql.getValue().getDocumentIds()).containsExactlyInAnyOrder(1L, 2L, 3L);
+  }
+
+  @Test
+  void equalCountsAreOrderedByValue() {
+    assertThat(
+            FacetAggregationService.toFacets(Map.of("b", 1L, "a", 1L, "c", 5L)).stream()
+                .map(FacetDto::getValue))
+        .containsExactly("c", "a", "b");
+  }
+
+  /** FilterBitmapCache еще не загружен - facets считаются SQL запросом */
+  private FacetAggregationService serviceWithoutFilterCache() {
+    return new FacetAggregationService(
+        documentRepository, new FilterBitmapCache(ordinals), invertedIndex, permissionBitmapCache);
+  }
+
+  private void add(Long id, String title, String category, String status, String author) {
+    Document document =
+        Document.builder()
+            .id(id)
+            .title(title)
+            .category(category)
+            .status(status)
+            .author(author)
+            .build();
+    int ordinal = ordinals.assign(id);
+    filterBitmapCache.onAdded(ordinal, document);
+    invertedIndex.onAdded(ordinal, document);
+  }
+
+  private static Map<String, Long> counts(List<FacetDto> facets) {
+    return facets.stream()
+        .collect(
+            Collectors.toMap(
+                FacetDto::getValue, FacetDto::getCount, (a, b) -> a, LinkedHashMap::new));
+  }
+}
@@ -0,0 +1,218 @@
+package com.example.search.service.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.ErrorResponse;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+import org.opensearch.client.opensearch.core.BulkRequest;
+import org.opensearch.client.opensearch.core.BulkResponse;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+import org.opensearch.client.opensearch.core.bulk.OperationType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.search.constants.SearchEngineConstants;
+import com.example.search.model.Document;
+import com.example.search.service.permission.PermissionService;
+import com.example.search.service.routing.CircuitBreakerRegistry;
+
+/**
+ * Bulk OpenSearch: разбор элементов, повтор только отклоненных 429, части пакета параллельно, bulk
+ * удаление
+ */
+class OpenSearchServiceTest {
+
+  private static final String TARGET = "documents_v2";
+
+  private final OpenSearchClient client = mock(OpenSearchClient.class);
+  private final CircuitBreakerRegistry circuitBreakers = mock(CircuitBreakerRegistry.class);
+  private final PermissionService permissionService = mock(PermissionService.class);
+
+  /** id документа -> статусы ответов по попыткам (после очереди - 201) */
+  private final Map<String, Deque<Integer>> statuses = new HashMap<>();
+
+  /** id элементов каждого bulk-запроса */
+  private final List<List<String>> requests = Collections.synchronizedList(new ArrayList<>());
+
+  private ExecutorService executor;
+  private OpenSearchService openSearch;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() throws Exception {
+    executor = Executors.newFixedThreadPool(2);
+    when(circuitBreakers.allowRequest(anyString())).thenReturn(true);
+    when(permissionService.aclFor(anyCollection())).thenReturn(Map.of());
+    when(client.bulk(any(Function.class))).thenCallRealMethod();
+    when(client.bulk(any(BulkRequest.class)))
+        .thenAnswer(invocation -> respond(invocation.getArgument(0)));
+
+    openSearch = new OpenSearchService(client, circuitBreakers, permissionService, executor);
+    ReflectionTestUtils.setField(openSearch, "batchSize", 10);
+    ReflectionTestUtils.setField(openSearch, "bulkMaxBytes", 5_242_880L);
+    ReflectionTestUtils.setField(openSearch, "bulkConcurrency", 2);
+    ReflectionTestUtils.setField(openSearch, "bulkMaxRetries", 3);
+    ReflectionTestUtils.setField(openSearch, "bulkRetryBackoffMs", 0L);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void failedItemsAreNotCountedAndNotRetried() {
+    statuses.put("2", new ArrayDeque<>(List.of(400)));
+
+    assertThat(openSearch.writeBatch(TARGET, documents(3))).isEqualTo(2);
+    assertThat(requests).containsExactly(List.of("1", "2", "3"));
+    verify(circuitBreakers).recordSuccess(SearchEngineConstants.ENGINE_OPENSEARCH);
+  }
+
+  @Test
+  void onlyThrottledItemsAreRetried() {
+    statuses.put("2", new ArrayDeque<>(List.of(429, 429)));
+    statuses.put("3", new ArrayDeque<>(List.of(503)));
+
+    assertThat(openSearch.writeBatch(TARGET, documents(3))).isEqualTo(3);
+    assertThat(requests).containsExactly(List.of("1", "2", "3"), List.of("2", "3"), List.of("2"));
+  }
+
+  @Test
+  void itemsStillThrottledAfterRetriesAreReported() {
+    statuses.put("1", new ArrayDeque<>(List.of(429, 429, 429, 429)));
+
+    assertThatThrownBy(() -> openSearch.writeBatch(TARGET, documents(2)))
+        .isInstanceOf(IndexingThrottledException.class);
+    assertThat(requests).hasSize(4);
+  }
+
+  @Test
+  void throttledRequestIsRetriedAsWhole() throws Exception {
+    when(client.bulk(any(BulkRequest.class)))
+        .thenThrow(exception(429))
+        .thenAnswer(invocation -> respond(invocation.getArgument(0)));
+
+    assertThat(openSearch.writeBatch(TARGET, documents(2))).isEqualTo(2);
+    assertThat(requests).containsExactly(List.of("1", "2"));
+  }
+
+  @Test
+  void serverErrorStopsRequestWithoutRetry() throws Exception {
+    OpenSearchException error = exception(500);
+    when(client.bulk(any(BulkRequest.class))).thenThrow(error);
+
+    assertThat(openSearch.writeBatch(TARGET, documents(2))).isZero();
+    verify(circuitBreakers).recordFailure(SearchEngineConstants.ENGINE_OPENSEARCH, error);
+  }
+
+  @Test
+  void requestsOfOneBatchAreSummed() {
+    ReflectionTestUtils.setField(openSearch, "batchSize", 2);
+    statuses.put("4", new ArrayDeque<>(List.of(400)));
+    statuses.put("5", new ArrayDeque<>(List.of(429)));
+
+    assertThat(openSearch.writeBatch(TARGET, documents(5))).isEqualTo(4);
+    assertThat(requests)
+        .containsExactlyInAnyOrder(
+            List.of("1", "2"), List.of("3", "4"), List.of("5"), List.of("5"));
+  }
+
+  @Test
+  void failedDeletesAreNotCounted() {
+    statuses.put("2", new ArrayDeque<>(List.of(400)));
+
+    assertThat(openSearch.batchDeleteDocuments(List.of(1L, 2L, 3L))).isEqualTo(2);
+    assertThat(requests).containsExactly(List.of("1", "2", "3"));
+    verify(circuitBreakers).recordSuccess(SearchEngineConstants.ENGINE_OPENSEARCH);
+  }
+
+  @Test
+  void throttledDeleteIsReportedNotSwallowed() throws Exception {
+    statuses.put("2", new ArrayDeque<>(List.of(429)));
+
+    assertThatThrownBy(() -> openSearch.batchDeleteDocuments(List.of(1L, 2L)))
+        .isInstanceOf(IndexingThrottledException.class);
+    verify(circuitBreakers, never()).recordFailure(anyString(), any());
+
+    OpenSearchException error = exception(503);
+    when(client.bulk(any(BulkRequest.class))).thenThrow(error);
+
+    assertThatThrownBy(() -> openSearch.batchDeleteDocuments(List.of(1L, 2L)))
+        .isInstanceOf(IndexingThrottledException.class);
+  }
+
+  private BulkResponse respond(BulkRequest request) {
+    List<String> ids =
+        request.operations().stream().map(OpenSearchServiceTest::idOf).collect(Collectors.toList());
+    requests.add(ids);
+    List<BulkResponseItem> items = new ArrayList<>();
+    boolean errors = false;
+    for (String id : ids) {
+      int status;
+      synchronized (statuses) {
+        Deque<Integer> queue = statuses.get(id);
+        status = queue != null && !queue.isEmpty() ? queue.poll() : 201;
+      }
+      errors |= status >= 300;
+      items.add(item(id, status));
+    }
+    boolean hasErrors = errors;
+    return BulkResponse.of(r -> r.errors(hasErrors).took(1).items(items));
+  }
+
+  private static BulkResponseItem item(String id, int status) {
+    return BulkResponseItem.of(
+        item -> {
+          item.operationType(OperationType.Index).index(TARGET).id(id).status(status);
+          if (status >= 300) {
+            item.error(error -> error.type("rejected").reason("status " + status));
+          }
+          return item;
+        });
+  }
+
+  private static String idOf(BulkOperation operation) {
+    return operation.isDelete() ? operation.delete().id() : operation.index().id();
+  }
+
+  private static OpenSearchException exception(int status) {
+    return new OpenSearchException(
+        ErrorResponse.of(
+            response ->
+                response
+                    .status(status)
+                    .error(error -> error.type("rejected").reason("status " + status))));
+  }
+
+  private static List<Document> documents(int count) {
+    return LongStream.rangeClosed(1, count)
+        .mapToObj(id -> Document.builder().id(id).title("Document " + id).build())
+        .collect(Collectors.toList());
+  }
+}
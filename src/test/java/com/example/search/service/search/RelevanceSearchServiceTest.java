@@ -0,0 +1,149 @@
+package com.example.search.service.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.repository.DocumentSearchParams;
+import com.example.search.service.index.DocumentOrdinals;
+import com.example.search.service.index.FilterBitmapCache;
+import com.example.search.service.index.InvertedIndexService;
+import com.example.search.service.permission.PermissionBitmapCache;
+
+/** BM25 путь: фильтры и права из кэшей, без кэшей - SQL с ограниченным IN */
+class RelevanceSearchServiceTest {
+
+  private final DocumentOrdinals ordinals = new DocumentOrdinals();
+  private final InvertedIndexService invertedIndex = new InvertedIndexService(ordinals);
+  private final DocumentRepository documentRepository = mock(DocumentRepository.class);
+  private final FilterBitmapCache filterBitmapCache = mock(FilterBitmapCache.class);
+  private final PermissionBitmapCache permissionBitmapCache = mock(PermissionBitmapCache.class);
+
+  private RelevanceSearchService service;
+
+  @BeforeEach
+  void setUp() {
+    for (long id = 1; id <= 5; id++) {
+      // Чем больше id, тем чаще "java" в заголовке - тем выше BM25
+      String title = String.join(" ", Collections.nCopies((int) id, "java"));
+      invertedIndex.onAdded(
+          ordinals.assign(id), Document.builder().id(id).title(title + " notes").build());
+    }
+    invertedIndex.onRebuildCompleted();
+
+    when(filterBitmapCache.filter(any())).thenReturn(Optional.empty());
+    when(permissionBitmapCache.intersect(any(), any())).thenReturn(Optional.empty());
+    when(documentRepository.findAllByIdInOrder(anyList()))
+        .thenAnswer(
+            invocation ->
+                invocation.<List<Long>>getArgument(0).stream()
+                    .map(id -> Document.builder().id(id).build())
+                    .collect(Collectors.toList()));
+
+    service =
+        new RelevanceSearchService(
+            documentRepository, invertedIndex, filterBitmapCache, permissionBitmapCache);
+    ReflectionTestUtils.setField(service, "maxIdFilter", 2);
+  }
+
+  @Test
+  void manyCandidatesAreFilteredInDatabaseWithoutIdList() {
+    when(documentRepository.findIdsWithFilters(any())).thenReturn(List.of(1L, 3L, 4L, 99L));
+
+    Page<Document> page = search(params().category("Tech").build());
+
+    ArgumentCaptor<DocumentSearchParams> sql = ArgumentCaptor.forClass(DocumentSearchParams.class);
+    verify(documentRepository).findIdsWithFilters(sql.capture());
+    assertThat(sql.getValue().getDocumentIds()).isNull();
+    assertThat(sql.getValue().getQuery()).isNull();
+    assertThat(sql.getValue().getCategory()).isEqualTo("Tech");
+    assertThat(ids(page)).containsExactly(4L, 3L, 1L);
+    assertThat(page.getTotalElements()).isEqualTo(3);
+  }
+
+  @Test
+  void fewCandidatesUseIdListUpToLimit() {
+    when(documentRepository.findIdsWithFilters(any())).thenReturn(List.of(2L));
+    DocumentSearchParams params =
+        DocumentSearchParams.builder().query("java notes").category("Tech").build();
+    ReflectionTestUtils.setField(service, "maxIdFilter", 5);
+
+    search(params);
+
+    ArgumentCaptor<DocumentSearchParams> sql = ArgumentCaptor.forClass(DocumentSearchParams.class);
+    verify(documentRepository).findIdsWithFilters(sql.capture());
+    assertThat(sql.getValue().getDocumentIds()).containsExactly(1L, 2L, 3L, 4L, 5L);
+  }
+
+  @Test
+  void readyCachesAnswerFiltersAndPermissionsWithoutSql() {
+    when(filterBitmapCache.filter(any()))
+        .thenReturn(Optional.of(RoaringBitmap.bitmapOf(ordinal(2), ordinal(3), ordinal(5))));
+    when(permissionBitmapCache.intersect(any(), any()))
+        .thenAnswer(
+            invocation ->
+                Optional.of(
+                    RoaringBitmap.and(
+                        invocation.getArgument(0),
+                        RoaringBitmap.bitmapOf(ordinal(2), ordinal(5)))));
+
+    Page<Document> page =
+        search(params().category("Tech").principals(Set.of("user:alice")).build());
+
+    verify(documentRepository, never()).findIdsWithFilters(any());
+    assertThat(ids(page)).containsExactly(5L, 2L);
+  }
+
+  @Test
+  void permissionsAloneGoToDatabaseWhenCacheIsNotReady() {
+    when(filterBitmapCache.filter(any()))
+        .thenReturn(Optional.of(RoaringBitmap.bitmapOf(ordinal(1), ordinal(2))));
+    when(documentRepository.findIdsWithFilters(any())).thenReturn(List.of(1L));
+
+    Page<Document> page = search(params().status("DONE").principals(Set.of("user:bob")).build());
+
+    ArgumentCaptor<DocumentSearchParams> sql = ArgumentCaptor.forClass(DocumentSearchParams.class);
+    verify(documentRepository).findIdsWithFilters(sql.capture());
+    // Фильтры уже применены bitmap-ом: в SQL только права по двум кандидатам
+    assertThat(sql.getValue().getStatus()).isNull();
+    assertThat(sql.getValue().getPrincipals()).containsExactly("user:bob");
+    assertThat(sql.getValue().getDocumentIds()).containsExactly(1L, 2L);
+    assertThat(ids(page)).containsExactly(1L);
+  }
+
+  private Page<Document> search(DocumentSearchParams params) {
+    return service.search(params, PageRequest.of(0, 10)).orElseThrow();
+  }
+
+  private static DocumentSearchParams.DocumentSearchParamsBuilder params() {
+    return DocumentSearchParams.builder().query("java");
+  }
+
+  private int ordinal(long id) {
+    return ordinals.ordinalOf(id);
+  }
+
+  private static List<Long> ids(Page<Document> page) {
+    return page.getContent().stream().map(Document::getId).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,118 @@
+package com.example.search.service.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.search.constants.SearchEngineConstants;
+import com.example.search.dto.response.SearchComparisonDto;
+import com.example.search.dto.response.SearchResultDto;
+import com.example.search.service.document.DocumentService;
+import com.example.search.service.indexing.IndexingBuffer;
+import com.example.search.service.indexing.ReindexJobService;
+import com.example.search.service.routing.CircuitBreakerRegistry;
+import com.example.search.service.routing.CircuitState;
+
+/** Сравнение движков: статусы OK, ERROR, TIMEOUT и CIRCUIT_OPEN */
+class SearchServiceTest {
+
+  private final SolrSearchService solr = mock(SolrSearchService.class);
+  private final OpenSearchService openSearch = mock(OpenSearchService.class);
+  private final TypeSenseService typeSense = mock(TypeSenseService.class);
+  private final CircuitBreakerRegistry circuitBreakers = mock(CircuitBreakerRegistry.class);
+
+  private ExecutorService executor;
+  private SearchService searchService;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newFixedThreadPool(3);
+    when(circuitBreakers.getState(anyString())).thenReturn(CircuitState.CLOSED);
+    searchService =
+        new SearchService(
+            solr,
+            openSearch,
+            typeSense,
+            mock(DocumentService.class),
+            executor,
+            circuitBreakers,
+            mock(ReindexJobService.class),
+            mock(IndexingBuffer.class));
+    ReflectionTestUtils.setField(searchService, "engineTimeoutMs", 500L);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void engineFailureIsReportedAsError() {
+    when(solr.search("java")).thenThrow(new IllegalStateException("Solr search failed: down"));
+    when(openSearch.search("java")).thenReturn(List.of(result("1")));
+    when(typeSense.search("java")).thenReturn(List.of());
+
+    SearchComparisonDto comparison = searchService.compareSearchEngines("java");
+
+    assertThat(comparison.getSolrStatus()).isEqualTo(SearchEngineConstants.STATUS_ERROR);
+    assertThat(comparison.getSolrResults()).isEmpty();
+    assertThat(comparison.getOpenSearchStatus()).isEqualTo(SearchEngineConstants.STATUS_OK);
+    assertThat(comparison.getOpenSearchResults()).hasSize(1);
+    assertThat(comparison.getTypeSenseStatus()).isEqualTo(SearchEngineConstants.STATUS_OK);
+  }
+
+  @Test
+  void slowEngineTimesOutWithoutDelayingOthers() {
+    when(solr.search("java"))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(5_000);
+              return List.of(result("1"));
+            });
+    when(openSearch.search("java")).thenReturn(List.of(result("2")));
+    when(typeSense.search("java")).thenReturn(List.of(result("3")));
+
+    SearchComparisonDto comparison = searchService.compareSearchEngines("java");
+
+    assertThat(comparison.getSolrStatus()).isEqualTo(SearchEngineConstants.STATUS_TIMEOUT);
+    assertThat(comparison.getOpenSearchStatus()).isEqualTo(SearchEngineConstants.STATUS_OK);
+    assertThat(comparison.getTypeSenseResults()).hasSize(1);
+  }
+
+  @Test
+  void openCircuitSkipsEngine() {
+    when(circuitBreakers.getState(SearchEngineConstants.ENGINE_TYPESENSE))
+        .thenReturn(CircuitState.OPEN);
+    when(solr.search("java")).thenReturn(List.of());
+    when(openSearch.search("java")).thenReturn(List.of());
+
+    SearchComparisonDto comparison = searchService.compareSearchEngines("java");
+
+    assertThat(comparison.getTypeSenseStatus())
+        .isEqualTo(SearchEngineConstants.STATUS_CIRCUIT_OPEN);
+    verify(typeSense, never()).search(anyString());
+  }
+
+  @Test
+  void singleEngineSearchReturnsEmptyListOnFailure() {
+    when(solr.search("java")).thenThrow(new IllegalStateException("Solr search failed: down"));
+
+    assertThat(searchService.searchWithSolr("java")).isEmpty();
+  }
+
+  private static SearchResultDto result(String id) {
+    return SearchResultDto.builder().id(id).title("Document " + id).build();
+  }
+}
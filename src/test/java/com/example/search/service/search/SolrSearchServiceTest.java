@@ -0,0 +1,51 @@
+package com.example.search.service.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.junit.jupiter.api.Test;
+
+import com.example.search.dto.response.SearchFilterDto;
+
+/** Перевод EngineQuery в запрос Solr: текст, права и сортировка */
+class SolrSearchServiceTest {
+
+  @Test
+  void principalsArePassedAsParameterWithSeparator() {
+    SolrQuery solrQuery =
+        toSolrQuery(
+            SearchFilterDto.builder().build(),
+            List.of("user:alice", "group:a,b", "role:x} OR *:*", "bad\u001Fprincipal"));
+
+    assertThat(solrQuery.getFilterQueries())
+        .containsExactly("{!terms f=acl_ss separator='\u001F' v=$acl_principals}");
+    assertThat(solrQuery.get("acl_principals"))
+        .isEqualTo("user:alice\u001Fgroup:a,b\u001Frole:x} OR *:*");
+  }
+
+  @Test
+  void textRequiresAllWordsWithLastAsPrefix() {
+    SolrQuery solrQuery =
+        toSolrQuery(SearchFilterDto.builder().query("  spring (boot) da ").build(), null);
+
+    assertThat(solrQuery.getQuery()).isEqualTo("spring \\(boot\\) da*");
+    assertThat(solrQuery.get("q.op")).isEqualTo("AND");
+    assertThat(solrQuery.get("mm")).isEqualTo("100%");
+    assertThat(solrQuery.getSortField()).startsWith("score desc");
+  }
+
+  @Test
+  void queryWithoutTextSortsByCreatedAtDescending() {
+    SolrQuery solrQuery = toSolrQuery(SearchFilterDto.builder().build(), null);
+
+    assertThat(solrQuery.getQuery()).isEqualTo("*:*");
+    assertThat(solrQuery.get("defType")).isNull();
+    assertThat(solrQuery.getSortField()).startsWith("created_at desc");
+  }
+
+  private static SolrQuery toSolrQuery(SearchFilterDto filter, List<String> principals) {
+    return SolrSearchService.toSolrQuery(EngineQuery.from(filter, principals).orElseThrow());
+  }
+}
@@ -0,0 +1,230 @@
+package com.example.search.service.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.typesense.api.Alias;
+import org.typesense.api.Aliases;
+import org.typesense.api.Client;
+import org.typesense.api.Documents;
+import org.typesense.api.FieldTypes;
+import org.typesense.api.exceptions.ObjectNotFound;
+import org.typesense.api.exceptions.TypesenseError;
+import org.typesense.model.CollectionResponse;
+import org.typesense.model.CollectionUpdateSchema;
+import org.typesense.model.DeleteDocumentsParameters;
+import org.typesense.model.Field;
+import org.typesense.model.ImportDocumentsParameters;
+import org.typesense.model.SearchResult;
+
+import com.example.search.constants.SearchEngineConstants;
+import com.example.search.dto.response.SearchFilterDto;
+import com.example.search.model.Document;
+import com.example.search.service.permission.PermissionService;
+import com.example.search.service.routing.CircuitBreakerRegistry;
+
+/** TypeSense: JSONL import (результат по строкам, части, 429, ошибки сервера) и миграция схемы */
+class TypeSenseServiceTest {
+
+  private static final String TARGET = "documents_v2";
+
+  private final Client client = mock(Client.class);
+  private final org.typesense.api.Collection collection = mock(org.typesense.api.Collection.class);
+  private final Documents documents = mock(Documents.class);
+  private final CircuitBreakerRegistry circuitBreakers = mock(CircuitBreakerRegistry.class);
+  private final PermissionService permissionService = mock(PermissionService.class);
+
+  private ExecutorService executor;
+  private TypeSenseService typeSense;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newFixedThreadPool(2);
+    when(client.collections(TARGET)).thenReturn(collection);
+    when(collection.documents()).thenReturn(documents);
+    when(circuitBreakers.allowRequest(anyString())).thenReturn(true);
+    when(permissionService.aclFor(anyCollection())).thenReturn(Map.of());
+
+    typeSense = new TypeSenseService(client, circuitBreakers, permissionService, executor);
+    ReflectionTestUtils.setField(typeSense, "collection", "documents");
+    ReflectionTestUtils.setField(typeSense, "batchSize", 10);
+    ReflectionTestUtils.setField(typeSense, "importParallelism", 2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void countsOnlySuccessfulLines() throws Exception {
+    when(documents.import_(anyCollection(), any(ImportDocumentsParameters.class)))
+        .thenReturn(
+            String.join(
+                "\n",
+                "{\"success\":true}",
+                "{\"success\":false,\"error\":\"Field `title` must be a string.\"}",
+                "{\"success\":true}"));
+
+    assertThat(typeSense.writeBatch(TARGET, documents(3))).isEqualTo(2);
+    verify(circuitBreakers).recordSuccess(SearchEngineConstants.ENGINE_TYPESENSE);
+  }
+
+  @Test
+  void missingOrMalformedResultLinesAreNotCountedAsImported() throws Exception {
+    when(documents.import_(anyCollection(), any(ImportDocumentsParameters.class)))
+        .thenReturn("{\"success\":true}\n{\"code\":400}");
+
+    assertThat(typeSense.writeBatch(TARGET, documents(3))).isEqualTo(1);
+  }
+
+  @Test
+  void chunkResultsAreSummed() throws Exception {
+    ReflectionTestUtils.setField(typeSense, "batchSize", 2);
+    when(documents.import_(anyCollection(), any(ImportDocumentsParameters.class)))
+        .thenAnswer(
+            invocation ->
+                invocation.<Collection<?>>getArgument(0).stream()
+                    .map(document -> "{\"success\":true}")
+                    .collect(Collectors.joining("\n")));
+
+    assertThat(typeSense.writeBatch(TARGET, documents(5))).isEqualTo(5);
+    verify(documents, times(3)).import_(anyCollection(), any(ImportDocumentsParameters.class));
+  }
+
+  @Test
+  void throttledImportIsReportedToCaller() throws Exception {
+    when(documents.import_(anyCollection(), any(ImportDocumentsParameters.class)))
+        .thenThrow(new TypesenseError("Rate limit exceeded", 429));
+
+    assertThatThrownBy(() -> typeSense.writeBatch(TARGET, documents(2)))
+        .isInstanceOf(IndexingThrottledException.class);
+  }
+
+  @Test
+  void serverErrorImportsNothingAndCountsAsFailure() throws Exception {
+    TypesenseError error = new TypesenseError("Internal error", 500);
+    when(documents.import_(anyCollection(), any(ImportDocumentsParameters.class))).thenThrow(error);
+
+    assertThat(typeSense.writeBatch(TARGET, documents(2))).isZero();
+    verify(circuitBreakers).recordFailure(SearchEngineConstants.ENGINE_TYPESENSE, error);
+  }
+
+  @Test
+  void partiallyImportedUpsertsSkipDeletes() throws Exception {
+    when(documents.import_(anyCollection(), any(ImportDocumentsParameters.class)))
+        .thenReturn("{\"success\":true}\n{\"success\":false,\"error\":\"bad\"}");
+
+    assertThat(typeSense.applyChanges(TARGET, documents(2), List.of(9L))).isEqualTo(1);
+    verify(documents, never()).delete(any(DeleteDocumentsParameters.class));
+  }
+
+  @Test
+  void oldCollectionSchemaIsPatchedAndSkippedUntilRebuild() throws Exception {
+    org.typesense.api.Collection live = mock(org.typesense.api.Collection.class);
+    Alias alias = mock(Alias.class);
+    when(client.collections("documents")).thenReturn(live);
+    when(client.aliases("documents")).thenReturn(alias);
+    when(client.aliases()).thenReturn(mock(Aliases.class));
+    when(alias.retrieve()).thenThrow(new ObjectNotFound("Not found", 404));
+    // Схема до сортировки, *_ts и acl
+    when(live.retrieve())
+        .thenReturn(
+            (CollectionResponse)
+                new CollectionResponse()
+                    .fields(
+                        List.of(
+                            field("title", FieldTypes.STRING, false, false),
+                            field("content", FieldTypes.STRING, false, false),
+                            field("author", FieldTypes.STRING, true, false),
+                            field("category", FieldTypes.STRING, true, true),
+                            field("status", FieldTypes.STRING, true, true),
+                            field("created_at", FieldTypes.STRING, true, false),
+                            field("updated_at", FieldTypes.STRING, true, false))));
+
+    typeSense.init();
+
+    ArgumentCaptor<CollectionUpdateSchema> update =
+        ArgumentCaptor.forClass(CollectionUpdateSchema.class);
+    verify(live).update(update.capture());
+    assertThat(update.getValue().getFields())
+        .extracting(Field::getName, Field::isDrop)
+        .containsExactly(
+            tuple("title", true),
+            tuple("title", null),
+            tuple("author", true),
+            tuple("author", null),
+            tuple("created_at_ts", null),
+            tuple("updated_at_ts", null),
+            tuple("acl", null));
+    assertThat(typeSense.searchIds(SearchFilterDto.builder().query("java").build(), null))
+        .isEmpty();
+    verify(documents, never()).search(any());
+
+    // Перестройка создает коллекцию с полной схемой - TypeSense снова в поиске
+    assertThat(typeSense.promote(TARGET)).isTrue();
+    when(live.documents()).thenReturn(documents);
+    when(documents.search(any())).thenReturn(new SearchResult().found(0));
+    assertThat(typeSense.searchIds(SearchFilterDto.builder().query("java").build(), null))
+        .isPresent();
+  }
+
+  @Test
+  void currentCollectionSchemaIsLeftAsIs() throws Exception {
+    org.typesense.api.Collection live = mock(org.typesense.api.Collection.class);
+    when(client.collections("documents")).thenReturn(live);
+    when(live.retrieve())
+        .thenReturn(
+            (CollectionResponse)
+                new CollectionResponse()
+                    .fields(
+                        List.of(
+                            field("title", FieldTypes.STRING, false, true),
+                            field("content", FieldTypes.STRING, false, false),
+                            field("author", FieldTypes.STRING, true, true),
+                            field("category", FieldTypes.STRING, true, true),
+                            field("status", FieldTypes.STRING, true, true),
+                            field("created_at", FieldTypes.STRING, true, false),
+                            field("updated_at", FieldTypes.STRING, true, false),
+                            // int64 сортируется по умолчанию - TypeSense возвращает sort: true
+                            field("created_at_ts", FieldTypes.INT64, true, true),
+                            field("updated_at_ts", FieldTypes.INT64, true, true),
+                            field("acl", FieldTypes.STRING_ARRAY, true, false))));
+
+    typeSense.init();
+
+    verify(live, never()).update(any());
+  }
+
+  private static Field field(String name, String type, boolean optional, boolean sort) {
+    return new Field().name(name).type(type).optional(optional).sort(sort);
+  }
+
+  private static List<Document> documents(int count) {
+    return LongStream.rangeClosed(1, count)
+        .mapToObj(id -> Document.builder().id(id).title("Document " + id).build())
+        .collect(Collectors.toList());
+  }
+}
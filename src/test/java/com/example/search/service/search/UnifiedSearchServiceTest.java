@@ -0,0 +1,268 @@
+package com.example.search.service.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Sort;
+
+import com.example.search.constants.SearchEngineConstants;
+import com.example.search.constants.SortConstants;
+import com.example.search.dto.response.SearchFacetsDto;
+import com.example.search.dto.response.SearchFilterDto;
+import com.example.search.dto.response.SearchResultPageDto;
+import com.example.search.model.Document;
+import com.example.search.repository.DocumentCursor;
+import com.example.search.repository.DocumentRepository;
+import com.example.search.service.monitoring.EngineStats;
+import com.example.search.service.monitoring.SearchMetricsService;
+import com.example.search.service.permission.PermissionService;
+import com.example.search.service.routing.AdaptiveRoutingPolicy;
+import com.example.search.service.routing.RoutingMode;
+import com.example.search.service.routing.SearchRouter;
+import com.example.search.service.routing.SearchRoutingProperties;
+
+/** Маршрутизация поиска: гонка только между движками, JPA - fallback в потоке вызывающего */
+class UnifiedSearchServiceTest {
+
+  private final SearchEngine engine = mock(SearchEngine.class);
+  private final SimpleSearchService simpleSearchService = mock(SimpleSearchService.class);
+  private final DocumentRepository documentRepository = mock(DocumentRepository.class);
+  private final PermissionService permissionService = mock(PermissionService.class);
+  private final SearchMetricsService metricsService = new SearchMetricsService();
+  private final SearchResultPageDto jpaPage =
+      SearchResultPageDto.builder().content(List.of()).totalElements(0L).build();
+
+  private ExecutorService executor;
+  private UnifiedSearchService unifiedSearchService;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newCachedThreadPool();
+    SearchRoutingProperties properties = new SearchRoutingProperties();
+    properties.setModes(Map.of(SearchEngineConstants.OPERATION_SEARCH, RoutingMode.RACE));
+    properties.setEngineOrder(List.of(SearchEngineConstants.ENGINE_SOLR));
+    properties.setAdaptive(false);
+    properties.setTimeoutMs(200);
+
+    when(engine.getName()).thenReturn(SearchEngineConstants.ENGINE_SOLR);
+    when(permissionService.principalsFor(anyString())).thenReturn(Set.of("user:alice"));
+    when(permissionService.filterByPermissions(any(), anyString()))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+    when(simpleSearchService.searchDocuments(any(), anyString())).thenReturn(jpaPage);
+
+    SearchRouter router =
+        new SearchRouter(properties, metricsService, mock(AdaptiveRoutingPolicy.class), executor);
+    unifiedSearchService =
+        new UnifiedSearchService(
+            List.of(engine),
+            router,
+            properties,
+            documentRepository,
+            simpleSearchService,
+            permissionService,
+            metricsService);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void engineAnswerIsUsedWithoutJpa() {
+    when(engine.searchIds(any(), any()))
+        .thenReturn(
+            Optional.of(
+                EngineHits.builder()
+                    .engine(SearchEngineConstants.ENGINE_SOLR)
+                    .ids(List.of(7L))
+                    .totalHits(1)
+                    .build()));
+    when(documentRepository.findAllByIdInOrder(List.of(7L)))
+        .thenReturn(List.of(Document.builder().id(7L).title("Java").build()));
+
+    SearchResultPageDto page = unifiedSearchService.searchDocuments(query("java"), "alice");
+
+    assertThat(page.getTotalElements()).isEqualTo(1L);
+    verify(simpleSearchService, never()).searchDocuments(any(), anyString());
+  }
+
+  @Test
+  void enginePageCarriesCursorForNextPageFromDatabase() {
+    LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+    when(engine.searchIds(any(), any()))
+        .thenAnswer(
+            invocation ->
+                EngineQuery.from(invocation.getArgument(0), null)
+                    .map(
+                        query ->
+                            EngineHits.builder()
+                                .engine(SearchEngineConstants.ENGINE_SOLR)
+                                .ids(List.of(3L, 2L))
+                                .totalHits(3)
+                                .build()));
+    when(documentRepository.findAllByIdInOrder(List.of(3L, 2L)))
+        .thenReturn(
+            List.of(
+                Document.builder().id(3L).createdAt(now).build(),
+                Document.builder().id(2L).createdAt(now.minusDays(1)).build()));
+    SearchFilterDto firstPage = SearchFilterDto.builder().category("Tech").size(2).build();
+
+    SearchResultPageDto page = unifiedSearchService.searchDocuments(firstPage, "alice");
+
+    assertThat(page.getNextCursor()).isNotNull();
+    DocumentCursor cursor = DocumentCursor.decode(page.getNextCursor());
+    assertThat(cursor.getSortField()).isEqualTo(SortConstants.SORT_BY_CREATED_AT);
+    assertThat(cursor.getDirection()).isEqualTo(Sort.Direction.DESC);
+    assertThat(cursor.getId()).isEqualTo(2L);
+
+    // Страница 2 по курсору: движки курсор не переводят - keyset-запрос JPA
+    SearchFilterDto secondPage = firstPage.toBuilder().cursor(page.getNextCursor()).build();
+    assertThat(unifiedSearchService.searchDocuments(secondPage, "alice")).isSameAs(jpaPage);
+
+    ArgumentCaptor<SearchFilterDto> jpaFilter = ArgumentCaptor.forClass(SearchFilterDto.class);
+    verify(simpleSearchService).searchDocuments(jpaFilter.capture(), anyString());
+    assertThat(jpaFilter.getValue().getCursor()).isEqualTo(page.getNextCursor());
+  }
+
+  @Test
+  void engineHitsWithRevokedAccessAreDropped() {
+    when(engine.searchIds(any(), any()))
+        .thenReturn(
+            Optional.of(
+                EngineHits.builder()
+                    .engine(SearchEngineConstants.ENGINE_SOLR)
+                    .ids(List.of(7L, 8L))
+                    .totalHits(2)
+                    .build()));
+    // acl в движке еще старый: права на 8 уже отозваны
+    when(permissionService.filterByPermissions(List.of(7L, 8L), "alice")).thenReturn(List.of(7L));
+    when(documentRepository.findAllByIdInOrder(List.of(7L)))
+        .thenReturn(List.of(Document.builder().id(7L).title("Java").build()));
+
+    SearchResultPageDto page = unifiedSearchService.searchDocuments(query("java"), "alice");
+
+    assertThat(page.getContent()).extracting(Document::getId).containsExactly(7L);
+    assertThat(page.getTotalElements()).isEqualTo(1L);
+  }
+
+  @Test
+  void relevancePageFromEngineHasNoCursor() {
+    when(engine.searchIds(any(), any()))
+        .thenReturn(
+            Optional.of(
+                EngineHits.builder()
+                    .engine(SearchEngineConstants.ENGINE_SOLR)
+                    .ids(List.of(7L))
+                    .totalHits(5)
+                    .build()));
+    when(documentRepository.findAllByIdInOrder(List.of(7L)))
+        .thenReturn(List.of(Document.builder().id(7L).createdAt(LocalDateTime.now()).build()));
+
+    SearchResultPageDto page =
+        unifiedSearchService.searchDocuments(
+            SearchFilterDto.builder().query("java").size(1).build(), "alice");
+
+    assertThat(page.getHasNext()).isTrue();
+    assertThat(page.getNextCursor()).isNull();
+  }
+
+  @Test
+  void slowEngineFallsBackToJpaOnceInCallerThread() {
+    when(engine.searchIds(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(5_000);
+              return Optional.empty();
+            });
+    AtomicReference<Thread> jpaThread = new AtomicReference<>();
+    when(simpleSearchService.searchDocuments(any(), anyString()))
+        .thenAnswer(
+            invocation -> {
+              jpaThread.set(Thread.currentThread());
+              return jpaPage;
+            });
+
+    SearchResultPageDto page = unifiedSearchService.searchDocuments(query("java"), "alice");
+
+    assertThat(page).isSameAs(jpaPage);
+    assertThat(jpaThread.get()).isSameAs(Thread.currentThread());
+    verify(simpleSearchService, times(1)).searchDocuments(any(), anyString());
+    assertThat(jpaStats(SearchEngineConstants.OPERATION_SEARCH).getSamples()).isEqualTo(1);
+  }
+
+  @Test
+  void failingEngineFallsBackToJpaOnce() {
+    when(engine.searchIds(any(), any())).thenThrow(new IllegalStateException("Solr down"));
+
+    SearchResultPageDto page = unifiedSearchService.searchDocuments(query("java"), "alice");
+
+    assertThat(page).isSameAs(jpaPage);
+    verify(simpleSearchService, times(1)).searchDocuments(any(), anyString());
+  }
+
+  @Test
+  void fallbackRanksTextQueryByRelevanceLikeEngines() {
+    when(engine.searchIds(any(), any())).thenThrow(new IllegalStateException("Solr down"));
+
+    unifiedSearchService.searchDocuments(query("java"), "alice");
+    unifiedSearchService.searchDocuments(SearchFilterDto.builder().build(), "alice");
+
+    ArgumentCaptor<SearchFilterDto> filters = ArgumentCaptor.forClass(SearchFilterDto.class);
+    verify(simpleSearchService, times(2)).searchDocuments(filters.capture(), anyString());
+    assertThat(filters.getAllValues())
+        .extracting(SearchFilterDto::getSortBy)
+        .containsExactly(SortConstants.SORT_BY_RELEVANCE, null);
+  }
+
+  @Test
+  void facetsRunJpaOnceAndRecordItsLatency() {
+    SearchFacetsDto facets = SearchFacetsDto.builder().categories(List.of()).build();
+    when(simpleSearchService.getFacets(any(), anyString())).thenReturn(facets);
+
+    assertThat(unifiedSearchService.getFacets(query("java"), "alice")).isSameAs(facets);
+
+    verify(simpleSearchService, times(1)).getFacets(any(), anyString());
+    verify(simpleSearchService, never()).searchDocuments(any(), anyString());
+    assertThat(jpaStats(SearchEngineConstants.OPERATION_FACETS).getSamples()).isEqualTo(1);
+  }
+
+  @Test
+  void autocompleteFailureIsRecordedAsJpaError() {
+    when(simpleSearchService.autocomplete("ja", null, 5, "alice", false))
+        .thenThrow(new IllegalStateException("db down"));
+
+    assertThat(unifiedSearchService.autocomplete("ja", null, 5, "alice")).isEmpty();
+
+    EngineStats stats = jpaStats(SearchEngineConstants.OPERATION_AUTOCOMPLETE);
+    assertThat(stats.getRequests()).isEqualTo(1);
+    assertThat(stats.getSamples()).isZero();
+  }
+
+  private EngineStats jpaStats(String operation) {
+    return metricsService.getEngineStats(operation, SearchEngineConstants.ENGINE_JPA);
+  }
+
+  private static SearchFilterDto query(String text) {
+    return SearchFilterDto.builder().query(text).build();
+  }
+}